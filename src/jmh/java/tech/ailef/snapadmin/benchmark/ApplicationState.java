@@ -0,0 +1,79 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import tech.ailef.snapadmin.benchmark.app.BenchmarkApplication;
+import tech.ailef.snapadmin.benchmark.app.model.Customer;
+import tech.ailef.snapadmin.benchmark.app.model.PurchaseOrder;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+
+/**
+ * The {@link BenchmarkApplication}, started once per trial and shared
+ * by all the threads of a benchmark
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+	ConfigurableApplicationContext context;
+	
+	SnapAdmin snapAdmin;
+	
+	SnapAdminRepository repository;
+	
+	DbObjectSchema orders;
+	
+	DbObjectSchema customers;
+	
+	@Setup(Level.Trial)
+	public void start() {
+		context = BenchmarkApplication.start(properties());
+		snapAdmin = context.getBean(SnapAdmin.class);
+		repository = context.getBean(SnapAdminRepository.class);
+		orders = snapAdmin.findSchemaByClass(PurchaseOrder.class);
+		customers = snapAdmin.findSchemaByClass(Customer.class);
+	}
+	
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+	
+	/**
+	 * Additional properties of the application, in `key=value` format
+	 * @return
+	 */
+	protected String[] properties() {
+		return new String[0];
+	}
+	
+	/**
+	 * The faceted search filters used by the search benchmarks: shipped
+	 * orders with a quantity greater than 3
+	 * @return
+	 */
+	static MultiValueMap<String, String> filterParams() {
+		MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+		params.put("filter_op", List.of("eq", "gt"));
+		params.put("filter_field", List.of("status", "quantity"));
+		params.put("filter_value", List.of("SHIPPED", "3"));
+		return params;
+	}
+}
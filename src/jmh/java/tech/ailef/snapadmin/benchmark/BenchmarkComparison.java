@@ -0,0 +1,111 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the JMH results in JSON format with a baseline, and exits with an
+ * error if any benchmark is slower than the baseline by more than the threshold.
+ * Benchmarks are matched by name and parameters; the ones missing from either
+ * file are reported but don't fail the comparison.
+ * 
+ * Usage: `BenchmarkComparison <results.json> <baseline.json> [threshold %]`
+ */
+public class BenchmarkComparison {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkComparison <results.json> <baseline.json> [threshold %]");
+			System.exit(2);
+		}
+		
+		File resultsFile = new File(args[0]);
+		File baselineFile = new File(args[1]);
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 15;
+		
+		if (!baselineFile.exists()) {
+			System.out.println("No baseline at " + baselineFile + ", copy " + resultsFile + " there to create one");
+			return;
+		}
+		
+		Map<String, JsonNode> results = read(resultsFile);
+		Map<String, JsonNode> baseline = read(baselineFile);
+		
+		List<String> regressions = new ArrayList<>();
+		for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+			JsonNode base = baseline.get(entry.getKey());
+			if (base == null) {
+				System.out.println(String.format("%-80s  (new)", entry.getKey()));
+				continue;
+			}
+			
+			JsonNode metric = entry.getValue().get("primaryMetric");
+			JsonNode baseMetric = base.get("primaryMetric");
+			String unit = metric.get("scoreUnit").asText();
+			if (!unit.equals(baseMetric.get("scoreUnit").asText())) {
+				System.out.println(String.format("%-80s  (unit changed, skipped)", entry.getKey()));
+				continue;
+			}
+			
+			double score = metric.get("score").asDouble();
+			double baseScore = baseMetric.get("score").asDouble();
+			
+			// Throughput improves when the score grows, the other modes when it shrinks
+			boolean higherIsBetter = entry.getValue().get("mode").asText().equals("thrpt");
+			double change = (score - baseScore) / baseScore * 100;
+			double slowdown = higherIsBetter ? -change : change;
+			
+			String line = String.format("%-80s  %12.3f -> %12.3f %-8s %+7.1f%%", 
+				entry.getKey(), baseScore, score, unit, change);
+			if (slowdown > threshold) {
+				regressions.add(line);
+				line += "  REGRESSION";
+			}
+			System.out.println(line);
+		}
+		
+		for (String name : baseline.keySet()) {
+			if (!results.containsKey(name))
+				System.out.println(String.format("%-80s  (not run)", name));
+		}
+		
+		if (!regressions.isEmpty()) {
+			System.err.println(regressions.size() + " benchmark(s) slower than the baseline by more than " 
+				+ threshold + "%:");
+			regressions.forEach(System.err::println);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Reads the results of a JMH run, keyed by benchmark name and parameters
+	 */
+	private static Map<String, JsonNode> read(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<>();
+		
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			StringBuilder key = new StringBuilder(result.get("benchmark").asText());
+			JsonNode params = result.get("params");
+			if (params != null) {
+				params.fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+			}
+			results.put(key.toString(), result);
+		}
+		
+		return results;
+	}
+}
@@ -0,0 +1,43 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResult;
+
+/**
+ * Mapping the rows of SQL console queries, with a full result and with a single page
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConsoleQueryBenchmark {
+	private static final String SQL = "SELECT * FROM purchase_order o JOIN customer c ON o.customer_id = c.id";
+	
+	@Benchmark
+	public DbQueryResult executeQuery(ApplicationState app) {
+		return app.repository.executeQuery(SQL);
+	}
+	
+	@Benchmark
+	public DbQueryResult executeQueryPage(ApplicationState app) {
+		return app.repository.executeQuery(null, SQL, 5000, 100);
+	}
+}
@@ -0,0 +1,76 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+
+/**
+ * Reading the field values of a page of objects, as done when rendering
+ * the list page and exporting
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DbObjectBenchmark {
+	private List<DbObject> page;
+	
+	private List<DbField> fields;
+	
+	private List<String> fieldNames;
+	
+	@Setup(Level.Trial)
+	public void load(ApplicationState app) {
+		page = app.repository.findAll(app.orders, 1, 100, null, null).getResults();
+		fields = app.orders.getSortedFields();
+		fieldNames = fields.stream().map(DbField::getName).toList();
+	}
+	
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (DbObject object : page) {
+			for (DbField field : fields) {
+				blackhole.consume(object.get(field));
+			}
+		}
+	}
+	
+	@Benchmark
+	public void toMap(Blackhole blackhole) {
+		for (DbObject object : page) {
+			blackhole.consume(object.toMap(fieldNames, false));
+		}
+	}
+	
+	@Benchmark
+	public void toMapRaw(Blackhole blackhole) {
+		for (DbObject object : page) {
+			blackhole.consume(object.toMap(fieldNames, true));
+		}
+	}
+}
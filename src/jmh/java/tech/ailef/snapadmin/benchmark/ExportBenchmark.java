@@ -0,0 +1,77 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import tech.ailef.snapadmin.benchmark.app.model.PurchaseOrder;
+import tech.ailef.snapadmin.external.controller.DataExportController;
+import tech.ailef.snapadmin.external.dbmapping.exporter.ExportJobScheduler;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.ExportJob;
+
+/**
+ * Exports of the 2000 orders of a region, with all their fields, in each format.
+ * Exports run as background jobs writing to the spool directory, so each
+ * invocation queues one and waits for it to complete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExportBenchmark {
+	@Param({ "csv", "jsonl", "xlsx" })
+	private String format;
+	
+	private DataExportController controller;
+	
+	private ExportJobScheduler jobs;
+	
+	private MultiValueMap<String, String> params;
+	
+	@Setup(Level.Trial)
+	public void setUp(ApplicationState app) {
+		controller = app.context.getBean(DataExportController.class);
+		jobs = app.context.getBean(ExportJobScheduler.class);
+		params = new LinkedMultiValueMap<>();
+		params.put("fields[]", app.orders.getSortedFields().stream().map(DbField::getName).toList());
+	}
+	
+	@Benchmark
+	public ExportJob export() {
+		String redirect = controller.export(PurchaseOrder.class.getName(), "ORD-3-", format, false, params);
+		String id = redirect.substring(redirect.lastIndexOf('/') + 1);
+		
+		ExportJob job = jobs.findJob(id).orElseThrow();
+		while (!job.isFinished()) {
+			LockSupport.parkNanos(100_000);
+		}
+		if (job.getStatus() != ExportJob.Status.COMPLETED)
+			throw new IllegalStateException("Export failed: " + job.getMessage());
+		return job;
+	}
+}
@@ -0,0 +1,69 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dto.PaginatedResult;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+import tech.ailef.snapadmin.external.misc.Utils;
+
+/**
+ * The list page of the orders: a sorted page, with and without search and
+ * filters, with the search query cache enabled and disabled
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListBenchmark {
+	@State(Scope.Benchmark)
+	public static class ListState extends ApplicationState {
+		@Param({ "500", "0" })
+		private int queryTemplateCacheSize;
+		
+		private Set<QueryFilter> filters;
+		
+		@Setup(Level.Trial)
+		public void loadFilters() {
+			filters = Utils.computeFilters(orders, filterParams());
+		}
+		
+		@Override
+		protected String[] properties() {
+			return new String[] { "snapadmin.queryTemplateCacheSize=" + queryTemplateCacheSize };
+		}
+	}
+	
+	@Benchmark
+	public PaginatedResult<DbObject> list(ListState state) {
+		return state.repository.findAll(state.orders, 3, 50, "createdAt", "DESC");
+	}
+	
+	@Benchmark
+	public PaginatedResult<DbObject> search(ListState state) {
+		return state.repository.search(state.orders, "ORD-5", 1, 50, "amount", "ASC", state.filters);
+	}
+}
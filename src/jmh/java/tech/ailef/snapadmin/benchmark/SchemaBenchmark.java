@@ -0,0 +1,51 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+import tech.ailef.snapadmin.external.misc.Utils;
+
+/**
+ * Helpers called on every request: the sorted fields of a schema,
+ * name conversions and the parsing of the faceted search filters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SchemaBenchmark {
+	@Benchmark
+	public List<DbField> getSortedFields(ApplicationState app) {
+		return app.orders.getSortedFields();
+	}
+	
+	@Benchmark
+	public String camelToSnake() {
+		return Utils.camelToSnake("purchaseOrderCreatedAt");
+	}
+	
+	@Benchmark
+	public Set<QueryFilter> computeFilters(ApplicationState app) {
+		return Utils.computeFilters(app.orders, ApplicationState.filterParams());
+	}
+}
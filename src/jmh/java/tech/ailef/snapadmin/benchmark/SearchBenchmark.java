@@ -0,0 +1,70 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.ailef.snapadmin.external.dbmapping.CustomJpaRepository;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+import tech.ailef.snapadmin.external.misc.Utils;
+
+/**
+ * Planning and running the fuzzy search with faceted filters on the orders
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+	private static final String QUERY = "ORD-5-1";
+	
+	private CustomJpaRepository repository;
+	
+	private Set<QueryFilter> filters;
+	
+	@Setup(Level.Trial)
+	public void setUp(ApplicationState app) {
+		repository = app.orders.getJpaRepository();
+		filters = Utils.computeFilters(app.orders, ApplicationState.filterParams());
+	}
+	
+	/**
+	 * Builds the JPQL conditions of the search without running it
+	 */
+	@Benchmark
+	public String plan() {
+		return repository.explainSearch(QUERY, filters);
+	}
+	
+	@Benchmark
+	public List<Object> search() {
+		return repository.search(QUERY, 1, 50, "createdAt", "DESC", filters);
+	}
+	
+	@Benchmark
+	public long count() {
+		return repository.count(QUERY, filters);
+	}
+}
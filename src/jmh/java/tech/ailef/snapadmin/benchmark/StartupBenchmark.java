@@ -0,0 +1,61 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import tech.ailef.snapadmin.benchmark.startup.StartupApplication;
+import tech.ailef.snapadmin.external.SnapAdmin;
+
+/**
+ * Building the SnapAdmin schemas of a model of synthetic entities. The persistence
+ * unit is started once, then a new {@link SnapAdmin} is initialized on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class StartupBenchmark {
+	@Param({ "500" })
+	private int entities;
+	
+	private ConfigurableApplicationContext context;
+	
+	@Setup(Level.Trial)
+	public void start() {
+		context = StartupApplication.start(entities);
+	}
+	
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+	
+	@Benchmark
+	public SnapAdmin init() {
+		return context.getAutowireCapableBeanFactory().createBean(SnapAdmin.class);
+	}
+}
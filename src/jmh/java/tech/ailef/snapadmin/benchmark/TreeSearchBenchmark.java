@@ -0,0 +1,53 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.ailef.snapadmin.benchmark.app.model.Region;
+import tech.ailef.snapadmin.external.dto.TreeSearchResultDTO;
+import tech.ailef.snapadmin.external.service.TreeSearchService;
+
+/**
+ * Searching the Region > Customer > Order tree, resolving the paths to the root
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TreeSearchBenchmark {
+	private TreeSearchService service;
+	
+	@Setup(Level.Trial)
+	public void setUp(ApplicationState app) {
+		service = app.context.getBean(TreeSearchService.class);
+		// Waits for the tree index to be built
+		service.search("Customer", Region.class.getName());
+	}
+	
+	@Benchmark
+	public List<TreeSearchResultDTO> search() {
+		return service.search("Customer4_1", Region.class.getName());
+	}
+}
@@ -0,0 +1,116 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark.app;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.benchmark.app.model.Customer;
+import tech.ailef.snapadmin.benchmark.app.model.PurchaseOrder;
+import tech.ailef.snapadmin.benchmark.app.model.Region;
+import tech.ailef.snapadmin.external.SnapAdminAutoConfiguration;
+
+/**
+ * The application the benchmarks run against: a small shop model on an
+ * in-memory H2 database, filled with deterministic synthetic data.
+ */
+@SpringBootApplication
+@ImportAutoConfiguration(SnapAdminAutoConfiguration.class)
+public class BenchmarkApplication {
+	public static final int REGIONS = 10;
+	
+	public static final int CUSTOMERS_PER_REGION = 100;
+	
+	public static final int ORDERS_PER_CUSTOMER = 20;
+	
+	private static final String[] NAMES = {
+		"Alice", "Bob", "Carol", "Dave", "Erin", "Frank", "Grace", "Heidi", "Ivan", "Judy"
+	};
+	
+	/**
+	 * Starts the application and inserts the synthetic data
+	 * @param properties	additional properties, in `key=value` format
+	 * @return the application context
+	 */
+	public static ConfigurableApplicationContext start(String... properties) {
+		return new SpringApplicationBuilder(BenchmarkApplication.class)
+			.properties(
+				"snapadmin.enabled=true",
+				"snapadmin.testMode=true",
+				"snapadmin.baseUrl=admin",
+				"snapadmin.modelsPackage=" + Region.class.getPackageName(),
+				"spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+				"spring.jpa.hibernate.ddl-auto=create",
+				"spring.jpa.open-in-view=false",
+				"spring.main.banner-mode=off",
+				"server.port=0",
+				"logging.level.root=WARN"
+			)
+			.properties(properties)
+			.run();
+	}
+	
+	/**
+	 * Inserts the synthetic data before the application is ready, so that
+	 * the search and tree indexes are built on the complete dataset
+	 */
+	@Bean
+	CommandLineRunner seedData(EntityManager entityManager, 
+			@Qualifier("transactionTemplate") TransactionTemplate transactionTemplate) {
+		return args -> seed(entityManager, transactionTemplate);
+	}
+	
+	private static void seed(EntityManager entityManager, TransactionTemplate transactionTemplate) {
+		Random random = new Random(42);
+		
+		for (int r = 0; r < REGIONS; r++) {
+			int regionIndex = r;
+			transactionTemplate.executeWithoutResult(status -> {
+				Region region = new Region();
+				region.setName("Region " + regionIndex);
+				entityManager.persist(region);
+				
+				for (int c = 0; c < CUSTOMERS_PER_REGION; c++) {
+					Customer customer = new Customer();
+					customer.setFirstName(NAMES[random.nextInt(NAMES.length)]);
+					customer.setLastName("Customer" + regionIndex + "_" + c);
+					customer.setEmail("customer" + regionIndex + "_" + c + "@example.com");
+					customer.setRegisteredAt(LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3000)));
+					customer.setActive(random.nextBoolean());
+					customer.setRegion(region);
+					entityManager.persist(customer);
+					
+					for (int o = 0; o < ORDERS_PER_CUSTOMER; o++) {
+						PurchaseOrder order = new PurchaseOrder();
+						order.setReference("ORD-" + regionIndex + "-" + c + "-" + o);
+						order.setAmount(BigDecimal.valueOf(random.nextInt(100000), 2));
+						order.setQuantity(1 + random.nextInt(10));
+						order.setStatus(PurchaseOrder.Status.values()[random.nextInt(PurchaseOrder.Status.values().length)]);
+						order.setCreatedAt(LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(random.nextInt(1000000)));
+						order.setNotes(random.nextInt(4) == 0 ? null : "Deliver to the back door, order " + o);
+						order.setCustomer(customer);
+						entityManager.persist(order);
+					}
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark.app.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import tech.ailef.snapadmin.external.annotations.DisplayName;
+import tech.ailef.snapadmin.external.annotations.Filterable;
+import tech.ailef.snapadmin.external.annotations.SnapTree;
+
+@Entity
+public class Customer {
+	@Id
+	@GeneratedValue
+	private Long id;
+	
+	private String firstName;
+	
+	private String lastName;
+	
+	@Filterable
+	private String email;
+	
+	@Filterable
+	private LocalDate registeredAt;
+	
+	@Filterable
+	private Boolean active;
+	
+	@Filterable
+	@ManyToOne(fetch = FetchType.LAZY)
+	private Region region;
+	
+	@SnapTree
+	@OneToMany(mappedBy = "customer")
+	private List<PurchaseOrder> orders;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public LocalDate getRegisteredAt() {
+		return registeredAt;
+	}
+
+	public void setRegisteredAt(LocalDate registeredAt) {
+		this.registeredAt = registeredAt;
+	}
+
+	public Boolean getActive() {
+		return active;
+	}
+
+	public void setActive(Boolean active) {
+		this.active = active;
+	}
+
+	public Region getRegion() {
+		return region;
+	}
+
+	public void setRegion(Region region) {
+		this.region = region;
+	}
+
+	public List<PurchaseOrder> getOrders() {
+		return orders;
+	}
+
+	public void setOrders(List<PurchaseOrder> orders) {
+		this.orders = orders;
+	}
+	
+	@DisplayName
+	public String getFullName() {
+		return firstName + " " + lastName;
+	}
+}
@@ -0,0 +1,53 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark.startup;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+
+import tech.ailef.snapadmin.benchmark.startup.model.SyntheticModel;
+import tech.ailef.snapadmin.external.SnapAdminAutoConfiguration;
+
+/**
+ * An application with a large model of generated entities, see {@link SyntheticModel}
+ */
+@SpringBootApplication
+@ImportAutoConfiguration(SnapAdminAutoConfiguration.class)
+public class StartupApplication {
+	/**
+	 * Generates the model and starts the application
+	 * @param entities	the number of entities of the model
+	 * @return the application context
+	 */
+	public static ConfigurableApplicationContext start(int entities) {
+		List<String> classNames = SyntheticModel.define(entities);
+		
+		return new SpringApplicationBuilder(StartupApplication.class)
+			.initializers(context -> context.getBeanFactory()
+				.registerSingleton("persistenceManagedTypes", PersistenceManagedTypes.of(classNames.toArray(String[]::new))))
+			.properties(
+				"snapadmin.enabled=true",
+				"snapadmin.testMode=true",
+				"snapadmin.baseUrl=admin",
+				"snapadmin.modelsPackage=" + SyntheticModel.class.getPackageName(),
+				"spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+				"spring.jpa.hibernate.ddl-auto=create",
+				"spring.jpa.open-in-view=false",
+				"spring.main.banner-mode=off",
+				"server.port=0",
+				"logging.level.root=WARN"
+			)
+			.run();
+	}
+}
@@ -0,0 +1,99 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.benchmark.startup.model;
+
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import tech.ailef.snapadmin.external.annotations.Filterable;
+
+/**
+ * Generates a model of synthetic entities in this package, to measure
+ * the startup on a large number of entities. Each entity has a few basic
+ * fields and a lazy many-to-one relationship with the previous one.
+ */
+public final class SyntheticModel {
+	private static List<String> classNames;
+	
+	private SyntheticModel() {
+	}
+	
+	/**
+	 * Defines the entity classes. Classes can't be redefined, so the
+	 * model is only generated once per JVM.
+	 * @param size	the number of entities
+	 * @return the names of the entity classes
+	 */
+	public static synchronized List<String> define(int size) {
+		if (classNames != null) {
+			if (classNames.size() != size)
+				throw new IllegalStateException("A model of " + classNames.size() + " entities is already defined");
+			return classNames;
+		}
+		
+		ClassLoadingStrategy<ClassLoader> strategy = 
+			ClassLoadingStrategy.UsingLookup.of(MethodHandles.lookup());
+		
+		List<String> names = new ArrayList<>(size);
+		Class<?> previous = null;
+		for (int i = 0; i < size; i++) {
+			DynamicType.Builder<Object> builder = new ByteBuddy()
+				.subclass(Object.class)
+				.name(SyntheticModel.class.getPackageName() + ".Entity" + i)
+				.annotateType(AnnotationDescription.Builder.ofType(Entity.class).build());
+			
+			builder = property(builder, "id", Long.class, AnnotationDescription.Builder.ofType(Id.class).build());
+			builder = property(builder, "name", String.class);
+			builder = property(builder, "quantity", Integer.class, 
+				AnnotationDescription.Builder.ofType(Filterable.class).build());
+			builder = property(builder, "createdAt", LocalDateTime.class);
+			builder = property(builder, "enabled", Boolean.class);
+			if (previous != null) {
+				builder = property(builder, "parent", previous, 
+					AnnotationDescription.Builder.ofType(ManyToOne.class)
+						.define("fetch", FetchType.LAZY)
+						.build());
+			}
+			
+			previous = builder.make()
+				.load(SyntheticModel.class.getClassLoader(), strategy)
+				.getLoaded();
+			names.add(previous.getName());
+		}
+		
+		classNames = List.copyOf(names);
+		return classNames;
+	}
+	
+	private static DynamicType.Builder<Object> property(DynamicType.Builder<Object> builder, String name, 
+			Class<?> type, AnnotationDescription... annotations) {
+		String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		
+		return builder
+			.defineField(name, type, Visibility.PRIVATE)
+			.annotateField(annotations)
+			.defineMethod("get" + capitalized, type, Visibility.PUBLIC)
+			.intercept(FieldAccessor.ofField(name))
+			.defineMethod("set" + capitalized, void.class, Visibility.PUBLIC)
+			.withParameters(type)
+			.intercept(FieldAccessor.ofField(name));
+	}
+}
@@ -12,22 +12,21 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.config.BeanDefinition;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -38,6 +37,7 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.metamodel.EntityType;
 import tech.ailef.snapadmin.external.annotations.Disable;
 import tech.ailef.snapadmin.external.annotations.DisplayFormat;
 import tech.ailef.snapadmin.external.dbmapping.CustomJpaRepository;
@@ -47,6 +47,8 @@ import tech.ailef.snapadmin.external.dbmapping.fields.DbFieldType;
 import tech.ailef.snapadmin.external.dbmapping.fields.EnumFieldType;
 import tech.ailef.snapadmin.external.dbmapping.fields.StringFieldType;
 import tech.ailef.snapadmin.external.dbmapping.fields.TextFieldType;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplateCache;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackend;
 import tech.ailef.snapadmin.external.dto.MappingError;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
@@ -54,9 +56,9 @@ import tech.ailef.snapadmin.external.exceptions.UnsupportedFieldTypeException;
 import tech.ailef.snapadmin.external.misc.Utils;
 
 /**
- * The main SnapAdmin class is responsible for the initialization phase. This class scans
- * the user provided package containing the {@code Entity} definitions and tries to map each
- * entity to a {@link DbObjectSchema} instance.
+ * The main SnapAdmin class is responsible for the initialization phase. This class reads
+ * the {@code Entity} definitions of the user provided packages from the JPA metamodel and
+ * tries to map each entity to a {@link DbObjectSchema} instance.
  * 
  * This process involves determining the correct type for each class field and its 
  * configuration at the database level. An exception will be thrown if it's not possible
@@ -70,10 +72,24 @@ public class SnapAdmin {
 	
 	private List<DbObjectSchema> schemas = new ArrayList<>();
 	
+	/**
+	 * Index of the schemas by their full class name
+	 */
+	private Map<String, DbObjectSchema> schemasByClassName = new HashMap<>();
+	
+	/**
+	 * Index of the schemas by their table name
+	 */
+	private Map<String, DbObjectSchema> schemasByTableName = new HashMap<>();
+	
 	private List<String> modelsPackage;
 	
 	private SnapAdminProperties properties;
 	
+	private SearchBackend searchBackend;
+	
+	private QueryTemplateCache queryTemplateCache;
+	
 	private boolean authenticated;
 	
 	private static final String VERSION = "0.2.0";
@@ -83,35 +99,59 @@ public class SnapAdmin {
 	 * the schemas.
 	 * @param entityManager	the entity manager
 	 * @param properties	the configuration properties
+	 * @param searchBackend	the backend used by the fuzzy search
+	 * @param queryTemplateCache	the cache of the search queries
 	 */
-	public SnapAdmin(@Autowired EntityManager entityManager, @Autowired SnapAdminProperties properties) {
+	public SnapAdmin(@Autowired EntityManager entityManager, @Autowired SnapAdminProperties properties,
+			@Autowired SearchBackend searchBackend, @Autowired QueryTemplateCache queryTemplateCache) {
 		this.modelsPackage = Arrays.stream(properties.getModelsPackage().split(",")).map(String::trim).toList();
 		this.entityManager = entityManager;
 		this.properties = properties;
+		this.searchBackend = searchBackend;
+		this.queryTemplateCache = queryTemplateCache;
 	}
 	
 	@PostConstruct
 	private void init() {
-		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
-		provider.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
-		
 		logger.debug("Initializing SnapAdmin...");
 		
+		// The entities are read from the metamodel, which the persistence
+		// provider has already built, instead of scanning the classpath again
+		List<Class<?>> entityClasses = entityManager.getMetamodel().getEntities().stream()
+			.<Class<?>>map(EntityType::getJavaType)
+			.filter(Objects::nonNull)
+			.sorted(Comparator.comparing(Class::getName))
+			.toList();
+		
 		for (String currentPackage : modelsPackage) {
 			logger.debug("Scanning package " + currentPackage);
 			
-			Set<BeanDefinition> beanDefs = provider.findCandidateComponents(currentPackage);
-			logger.debug("Found " + beanDefs.size() + " candidate @Entity classes");
+			List<Class<?>> classes = entityClasses.stream()
+				.filter(klass -> isInPackage(klass, currentPackage))
+				.toList();
+			logger.debug("Found " + classes.size() + " candidate @Entity classes");
 			
-			for (BeanDefinition bd : beanDefs) {
+			// Schemas don't depend on each other until they are frozen, so they
+			// can be built in parallel; the order of the classes is preserved
+			List<DbObjectSchema> packageSchemas = classes.parallelStream()
+				.map(this::processEntityClass)
 				// This can return null if the Entity has the @Disable annotation
-				DbObjectSchema schema = processBeanDefinition(bd);
-				if (schema != null)
-					schemas.add(schema);
-			}
+				.filter(Objects::nonNull)
+				.toList();
+			schemas.addAll(packageSchemas);
 			
-			logger.info("Scanned package '" + currentPackage + "'. Loaded " + beanDefs.size() + " schemas.");
+			logger.info("Scanned package '" + currentPackage + "'. Loaded " + classes.size() + " schemas.");
+		}
+		
+		for (DbObjectSchema schema : schemas) {
+			schemasByClassName.putIfAbsent(schema.getClassName(), schema);
+			schemasByTableName.putIfAbsent(schema.getTableName(), schema);
 		}
+		
+		// Schemas are frozen only once all of them are indexed, because
+		// the relationship fields depend on which classes are managed
+		schemas.forEach(DbObjectSchema::freeze);
+		schemas = List.copyOf(schemas);
 
 		boolean hasErrors = schemas.stream().flatMap(s -> s.getErrors().stream()).count() > 0;
 		
@@ -120,6 +160,15 @@ public class SnapAdmin {
 		logger.info("SnapAdmin web interface at: http://YOUR_HOST:YOUR_PORT/" + properties.getBaseUrl());
 		
 	}
+	
+	/**
+	 * Starts the search backend once the application is ready, so that
+	 * building an index doesn't compete with the application startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	void startSearchBackend() {
+		searchBackend.start(this);
+	}
 
 	/**
 	 * Returns the current version 
@@ -134,7 +183,7 @@ public class SnapAdmin {
 	 * @return the list of loaded schemas from the `@Entity` classes
 	 */
 	public List<DbObjectSchema> getSchemas() {
-		return Collections.unmodifiableList(schemas);
+		return schemas;
 	}
 	
 	/**
@@ -144,9 +193,10 @@ public class SnapAdmin {
 	 * @throws SnapAdminException if corresponding schema not found
 	 */
 	public DbObjectSchema findSchemaByClassName(String className) {
-		return schemas.stream().filter(s -> s.getClassName().equals(className)).findFirst().orElseThrow(() -> {
-			return new SnapAdminNotFoundException("Schema " + className + " not found.");
-		});
+		DbObjectSchema schema = schemasByClassName.get(className);
+		if (schema == null)
+			throw new SnapAdminNotFoundException("Schema " + className + " not found.");
+		return schema;
 	}
 	
 	/**
@@ -156,9 +206,19 @@ public class SnapAdmin {
 	 * @throws SnapAdminException if corresponding schema not found
 	 */
 	public DbObjectSchema findSchemaByTableName(String tableName) {
-		return schemas.stream().filter(s -> s.getTableName().equals(tableName)).findFirst().orElseThrow(() -> {
-			return new SnapAdminException("Schema " + tableName + " not found.");
-		});
+		DbObjectSchema schema = schemasByTableName.get(tableName);
+		if (schema == null)
+			throw new SnapAdminException("Schema " + tableName + " not found.");
+		return schema;
+	}
+	
+	/**
+	 * Finds a schema by its table name, without throwing if not found
+	 * @param tableName the table name on the database
+	 * @return the schema with this table name, null if not found
+	 */
+	public DbObjectSchema getSchemaByTableName(String tableName) {
+		return tableName == null ? null : schemasByTableName.get(tableName);
 	}
 	
 	/**
@@ -175,59 +235,57 @@ public class SnapAdmin {
 	 * Returns whether this class is managed by SnapAdmin
 	 */
 	public boolean isManagedClass(Class<?> klass) {
-		Optional<DbObjectSchema> hasSchema = 
-			schemas.stream().filter(s -> s.getClassName().equals(klass.getName())).findFirst();
-		return hasSchema.isPresent();
+		return schemasByClassName.containsKey(klass.getName());
 	}
 	
 	/**
-	 * This method processes a BeanDefinition into a DbObjectSchema object,
+	 * Returns whether the class belongs to the package or one of its subpackages
+	 */
+	private static boolean isInPackage(Class<?> klass, String packageName) {
+		String classPackage = klass.getPackageName();
+		return classPackage.equals(packageName) || classPackage.startsWith(packageName + ".");
+	}
+	
+	/**
+	 * This method processes an `@Entity` class into a DbObjectSchema object,
 	 * where all fields have been correctly mapped to DbField objects.
 	 * 
 	 * If any field is not mappable, the method will throw an exception.
-	 * @param bd
-	 * @return a schema derived from the `@Entity` class
+	 * @param klass
+	 * @return a schema derived from the `@Entity` class, null if disabled
 	 */
-	private DbObjectSchema processBeanDefinition(BeanDefinition bd) {
-		String fullClassName = bd.getBeanClassName();
+	private DbObjectSchema processEntityClass(Class<?> klass) {
+		Disable disabled = klass.getAnnotation(Disable.class);
+		if (disabled != null)
+			return null;
 		
-		try {
-			Class<?> klass = Class.forName(fullClassName);
-			
-			Disable disabled = klass.getAnnotation(Disable.class);
-			if (disabled != null)
-				return null;
-			
-			DbObjectSchema schema = new DbObjectSchema(klass, this);
-			CustomJpaRepository simpleJpaRepository = new CustomJpaRepository(schema, entityManager);
-			schema.setJpaRepository(simpleJpaRepository);
-			
-			logger.debug("Processing class: "  + klass + " - Table: " + schema.getTableName());
-			
-			Field[] fields = klass.getDeclaredFields();
-			for (Field f : fields) {
-				try {
-					DbField field = mapField(f, schema);
-					field.setSchema(schema);
-					schema.addField(field);
-				} catch (UnsupportedFieldTypeException e) {
-					logger.warn("The class " + klass.getSimpleName()  + " contains the field `" 
-								+ f.getName() + "` of type `" + f.getType().getSimpleName() + "`, which is not supported");
-					schema.addError(
-						new MappingError(
-							"The class contains the field `" + f.getName() + "` of type `" + f.getType().getSimpleName() + "`, which is not supported"
-						)
-					);
-				}
+		DbObjectSchema schema = new DbObjectSchema(klass, this);
+		CustomJpaRepository simpleJpaRepository = new CustomJpaRepository(schema, entityManager, searchBackend, queryTemplateCache);
+		schema.setJpaRepository(simpleJpaRepository);
+		
+		logger.debug("Processing class: "  + klass + " - Table: " + schema.getTableName());
+		
+		Field[] fields = klass.getDeclaredFields();
+		for (Field f : fields) {
+			try {
+				DbField field = mapField(f, schema);
+				field.setSchema(schema);
+				field.resolveAccessors();
+				schema.addField(field);
+			} catch (UnsupportedFieldTypeException e) {
+				logger.warn("The class " + klass.getSimpleName()  + " contains the field `" 
+							+ f.getName() + "` of type `" + f.getType().getSimpleName() + "`, which is not supported");
+				schema.addError(
+					new MappingError(
+						"The class contains the field `" + f.getName() + "` of type `" + f.getType().getSimpleName() + "`, which is not supported"
+					)
+				);
 			}
-			
-			logger.debug("Processed " + klass + ", extracted " + schema.getSortedFields().size() + " fields");
-			
-			return schema;
-		} catch (ClassNotFoundException |
-				IllegalArgumentException | SecurityException e) {
-			throw new RuntimeException(e);
 		}
+		
+		logger.debug("Processed " + klass + ", extracted " + schema.getSortedFields().size() + " fields");
+		
+		return schema;
 	}
 	
 	/**
@@ -373,24 +431,28 @@ public class SnapAdmin {
 	/**
 	 * Returns the type of a foreign key field, by looking at the type
 	 * of the primary key (defined as `@Id`) in the referenced table.
+	 * The type is read from the metamodel, without instantiating the entity.
 	 * 
 	 * @param entityClass
 	 * @return
 	 */
 	private DbFieldType mapForeignKeyType(Class<?> entityClass) {
+		Class<?> linkType = null;
 		try {
-			Object linkedEntity = entityClass.getConstructor().newInstance();
-			Class<?> linkType = null;
-			
-			for (Field ef : linkedEntity.getClass().getDeclaredFields()) {
+			linkType = entityManager.getMetamodel().entity(entityClass).getIdType().getJavaType();
+		} catch (IllegalArgumentException e) {
+			// Not an entity of this persistence unit, look for the @Id field
+			for (Field ef : entityClass.getDeclaredFields()) {
 				if (ef.getAnnotationsByType(Id.class).length != 0) {
 					linkType = ef.getType();
 				}
 			}
-			
-			if (linkType == null)
-				throw new SnapAdminException("Unable to find @Id field in Entity class " + entityClass);
-			
+		}
+		
+		if (linkType == null)
+			throw new SnapAdminException("Unable to find @Id field in Entity class " + entityClass);
+		
+		try {
 			return DbFieldType.fromClass(linkType).getConstructor().newInstance();
 		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
 				| InvocationTargetException | NoSuchMethodException | SecurityException e) {
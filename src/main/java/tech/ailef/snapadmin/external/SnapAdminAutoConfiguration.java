@@ -7,12 +7,19 @@
 
 package tech.ailef.snapadmin.external;
 
+import java.time.Duration;
 import java.util.Properties;
 
 import javax.sql.DataSource;
 
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
@@ -20,6 +27,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -28,6 +36,18 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.persistence.EntityManager;
+
+import tech.ailef.snapadmin.external.dbmapping.count.CachedRowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.count.EstimatedRowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.count.ExactRowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.count.RowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.search.IndexedSearchBackend;
+import tech.ailef.snapadmin.external.dbmapping.search.LikeSearchBackend;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplateCache;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackend;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackendType;
+import tech.ailef.snapadmin.external.metrics.SqlStatementCounter;
 import tech.ailef.snapadmin.internal.InternalSnapAdminConfiguration;
 
 /**
@@ -47,6 +67,8 @@ import tech.ailef.snapadmin.internal.InternalSnapAdminConfiguration;
 @EnableTransactionManagement
 @Import(InternalSnapAdminConfiguration.class)
 public class SnapAdminAutoConfiguration {
+	private static final Logger logger = LoggerFactory.getLogger(SnapAdminAutoConfiguration.class);
+	
 	@Autowired
 	private SnapAdminProperties props;
 
@@ -103,5 +125,85 @@ public class SnapAdminAutoConfiguration {
 	TransactionTemplate internalTransactionTemplate() {
 	    return new TransactionTemplate(internalTransactionManager());
 	}
+	
+	/**
+	 * The strategy used to count rows, chosen with the `snapadmin.rowCountMode` 
+	 * property. Users can provide their own by declaring a {@link RowCountStrategy} bean.
+	 * @param jdbcTemplate
+	 * @return
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	RowCountStrategy rowCountStrategy(JdbcTemplate jdbcTemplate) {
+		RowCountStrategy exact = new ExactRowCountStrategy();
+		
+		switch (props.getRowCountMode()) {
+			case ESTIMATE:
+				return new EstimatedRowCountStrategy(jdbcTemplate, exact);
+			case CACHED:
+				return new CachedRowCountStrategy(exact, Duration.ofSeconds(props.getRowCountCacheTtl()),
+					props.getRowCountCacheSize());
+			default:
+				return exact;
+		}
+	}
+	
+	/**
+	 * The backend used by the fuzzy search, chosen with the `snapadmin.searchBackend`
+	 * property. Users can provide their own by declaring a {@link SearchBackend} bean.
+	 * @param entityManager
+	 * @return
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	SearchBackend searchBackend(EntityManager entityManager) {
+		SearchBackend like = new LikeSearchBackend();
+		
+		if (props.getSearchBackend() == SearchBackendType.INDEX) {
+			return new IndexedSearchBackend(entityManager, new JdbcTemplate(internalDataSource()),
+				internalTransactionTemplate(), like, props.getSearchIndexMaxResults());
+		}
+		
+		return like;
+	}
+	
+	/**
+	 * The cache of the JPQL queries built for the searches, see {@link QueryTemplateCache}
+	 * @return
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	QueryTemplateCache queryTemplateCache() {
+		return new QueryTemplateCache(props.getQueryTemplateCacheSize());
+	}
+	
+	/**
+	 * Counts the SQL statements executed by the SnapAdmin requests
+	 * @return
+	 */
+	@Bean
+	SqlStatementCounter sqlStatementCounter() {
+		return new SqlStatementCounter();
+	}
+	
+	/**
+	 * Installs the {@link SqlStatementCounter} on the user's entity manager factory. An 
+	 * inspector already configured by the user is kept as delegate of the counter.
+	 * @return
+	 */
+	@Bean
+	HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter counter) {
+		return hibernateProperties -> {
+			Object inspector = hibernateProperties.get(AvailableSettings.STATEMENT_INSPECTOR);
+			if (inspector == null) {
+				hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+			} else if (inspector instanceof StatementInspector userInspector) {
+				counter.setDelegate(userInspector);
+				hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+			} else {
+				logger.info("A statement inspector is configured by class name, SQL statement counting is disabled");
+			}
+		};
+	}
 
-}
\ No newline at end of file
+}
@@ -10,19 +10,31 @@ package tech.ailef.snapadmin.external;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SqlStatementInterceptor;
+
 @Configuration
 @EnableWebMvc
 public class SnapAdminMvcConfig implements WebMvcConfigurer {
 	@Autowired
 	private SnapAdminProperties properties;
 	
+	@Autowired
+	private SnapAdminMetrics metrics;
+	
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/" + properties.getBaseUrl() + "/**")
           		.addResourceLocations("classpath:/static/");	
     }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlStatementInterceptor(metrics))
+        		.addPathPatterns("/" + properties.getBaseUrl() + "/**");
+    }
 }
-
@@ -10,6 +10,10 @@ package tech.ailef.snapadmin.external;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import tech.ailef.snapadmin.external.dbmapping.count.RowCountMode;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackendType;
+import tech.ailef.snapadmin.internal.service.AuditOverflowPolicy;
+
 /**
  * The 'snapadmin.*' properties that can be set in the properties file
  * to configure the behaviour of Spring Boot Admin Panel. 
@@ -41,6 +45,196 @@ public class SnapAdminProperties {
 	 */
 	private boolean sqlConsoleEnabled = true;
 	
+	/**
+	 * The number of rows loaded at a time when exporting data
+	 */
+	private int exportBatchSize = 500;
+	
+	/**
+	 * The maximum number of primary keys in a single bulk DELETE or UPDATE statement
+	 */
+	private int bulkChunkSize = 500;
+	
+	/**
+	 * The maximum number of rows fetched by a SQL console query, including exports
+	 */
+	private int consoleMaxRows = 10000;
+	
+	/**
+	 * The timeout in seconds for SQL console queries, 0 for no timeout
+	 */
+	private int consoleQueryTimeout = 30;
+	
+	/**
+	 * The maximum number of user actions waiting to be written to the audit log
+	 */
+	private int auditQueueCapacity = 10000;
+	
+	/**
+	 * The maximum number of user actions written to the audit log in a single batch
+	 */
+	private int auditBatchSize = 100;
+	
+	/**
+	 * The maximum time in milliseconds a user action waits for its batch to be written
+	 */
+	private long auditFlushInterval = 1000;
+	
+	/**
+	 * What to do when the audit log queue is full
+	 */
+	private AuditOverflowPolicy auditOverflowPolicy = AuditOverflowPolicy.BLOCK;
+	
+	/**
+	 * The file where user actions are spilled with the `SPILL` overflow policy
+	 * or when they can't be written to the audit log
+	 */
+	private String auditSpillFile = "./snapadmin_audit_spill.jsonl";
+	
+	/**
+	 * The number of days user actions are kept in the audit log, 0 to keep them forever
+	 */
+	private int auditRetentionDays = 0;
+	
+	/**
+	 * The maximum number of user actions kept in the audit log, 0 for no limit
+	 */
+	private long auditMaxRows = 0;
+	
+	/**
+	 * The maximum number of user actions deleted in a single transaction when pruning the audit log
+	 */
+	private int auditPruneChunkSize = 1000;
+	
+	/**
+	 * The directory where pruned user actions are archived, null to discard them
+	 */
+	private String auditArchiveDir = null;
+	
+	/**
+	 * The interval in minutes between runs of the audit log rollup and pruning
+	 */
+	private int auditMaintenanceInterval = 60;
+	
+	/**
+	 * Whether to use keyset pagination in the list view for all the schemas
+	 */
+	private boolean keysetPagination = false;
+	
+	/**
+	 * How rows are counted in the home page and in the list view pagination
+	 */
+	private RowCountMode rowCountMode = RowCountMode.EXACT;
+	
+	/**
+	 * How many seconds row counts are cached for, if `rowCountMode` is `CACHED`
+	 */
+	private int rowCountCacheTtl = 60;
+	
+	/**
+	 * The maximum number of row counts kept in cache, if `rowCountMode` is `CACHED`
+	 */
+	private int rowCountCacheSize = 1000;
+	
+	/**
+	 * The backend used by the fuzzy search
+	 */
+	private SearchBackendType searchBackend = SearchBackendType.LIKE;
+	
+	/**
+	 * The maximum number of rows a query can match in the search index before
+	 * falling back to `LIKE`, if `searchBackend` is `INDEX`
+	 */
+	private int searchIndexMaxResults = 1000;
+	
+	/**
+	 * The maximum number of search queries kept in the query template cache, 0 to disable it
+	 */
+	private int queryTemplateCacheSize = 500;
+	
+	/**
+	 * The maximum number of rows of a table kept in the autocomplete index, 0 to disable the index
+	 */
+	private int autocompleteMaxRows = 100000;
+	
+	/**
+	 * The maximum number of rows kept in all the autocomplete indexes together
+	 */
+	private int autocompleteMaxTotalRows = 250000;
+	
+	/**
+	 * The maximum number of autocomplete results kept in the cache, 0 to disable it
+	 */
+	private int autocompleteCacheSize = 1000;
+	
+	/**
+	 * The maximum width and height in pixels of the `@DisplayImage` previews in the list view
+	 */
+	private int thumbnailSize = 256;
+	
+	/**
+	 * The directory where image previews are cached
+	 */
+	private String thumbnailCacheDir = System.getProperty("java.io.tmpdir") + "/snapadmin-thumbnails";
+	
+	/**
+	 * The maximum size in megabytes of the image preview cache, 0 to serve the full images
+	 */
+	private int thumbnailCacheSize = 100;
+	
+	/**
+	 * The number of rows validated and written in a single transaction by imports
+	 */
+	private int importChunkSize = 1000;
+	
+	/**
+	 * The maximum number of row errors listed by an import
+	 */
+	private int importMaxErrors = 1000;
+	
+	/**
+	 * The number of exports that run at the same time, the others are queued
+	 */
+	private int exportWorkers = 2;
+	
+	/**
+	 * The directory where exports are written before being downloaded. By default a new
+	 * temporary directory, only accessible by the user running the application, is
+	 * created for each instance. A configured directory must not be shared between instances.
+	 */
+	private String exportSpoolDir;
+	
+	/**
+	 * How long completed exports can be downloaded
+	 */
+	private int exportRetentionMinutes = 60;
+	
+	/**
+	 * The maximum size in megabytes of the completed exports, the oldest ones are deleted first
+	 */
+	private int exportQuotaSize = 1024;
+	
+	/**
+	 * Whether the items shown in the detail and edit pages are cached for all the
+	 * entities, instead of only those with the `@CachedEntity` annotation
+	 */
+	private boolean entityCache = false;
+	
+	/**
+	 * The maximum number of items kept in the entity cache, 0 to disable it
+	 */
+	private int entityCacheSize = 1000;
+	
+	/**
+	 * The maximum size in megabytes of the items kept in the entity cache, as estimated from their values
+	 */
+	private int entityCacheMemory = 64;
+	
+	/**
+	 * How many seconds items are cached for, so that the changes made outside SnapAdmin are eventually shown
+	 */
+	private int entityCacheTtl = 60;
+	
 	/**
 	 * Whether SnapAdmin is enabled
 	 * @return
@@ -61,6 +255,432 @@ public class SnapAdminProperties {
 		this.sqlConsoleEnabled = sqlConsoleEnabled;
 	}
 
+	/**
+	 * Returns the number of rows loaded at a time when exporting data
+	 * @return
+	 */
+	public int getExportBatchSize() {
+		return exportBatchSize;
+	}
+	
+	public void setExportBatchSize(int exportBatchSize) {
+		this.exportBatchSize = exportBatchSize;
+	}
+	
+	/**
+	 * Returns the maximum number of primary keys in a single bulk DELETE or UPDATE statement
+	 * @return
+	 */
+	public int getBulkChunkSize() {
+		return bulkChunkSize;
+	}
+	
+	public void setBulkChunkSize(int bulkChunkSize) {
+		this.bulkChunkSize = bulkChunkSize;
+	}
+	
+	/**
+	 * Returns the maximum number of rows fetched by a SQL console query, including exports
+	 * @return
+	 */
+	public int getConsoleMaxRows() {
+		return consoleMaxRows;
+	}
+	
+	public void setConsoleMaxRows(int consoleMaxRows) {
+		this.consoleMaxRows = consoleMaxRows;
+	}
+	
+	/**
+	 * Returns the timeout in seconds for SQL console queries, 0 for no timeout
+	 * @return
+	 */
+	public int getConsoleQueryTimeout() {
+		return consoleQueryTimeout;
+	}
+	
+	public void setConsoleQueryTimeout(int consoleQueryTimeout) {
+		this.consoleQueryTimeout = consoleQueryTimeout;
+	}
+	
+	/**
+	 * Returns the maximum number of user actions waiting to be written to the audit log
+	 * @return
+	 */
+	public int getAuditQueueCapacity() {
+		return auditQueueCapacity;
+	}
+	
+	public void setAuditQueueCapacity(int auditQueueCapacity) {
+		this.auditQueueCapacity = auditQueueCapacity;
+	}
+	
+	/**
+	 * Returns the maximum number of user actions written to the audit log in a single batch
+	 * @return
+	 */
+	public int getAuditBatchSize() {
+		return auditBatchSize;
+	}
+	
+	public void setAuditBatchSize(int auditBatchSize) {
+		this.auditBatchSize = auditBatchSize;
+	}
+	
+	/**
+	 * Returns the maximum time in milliseconds a user action waits for its batch to be written
+	 * @return
+	 */
+	public long getAuditFlushInterval() {
+		return auditFlushInterval;
+	}
+	
+	public void setAuditFlushInterval(long auditFlushInterval) {
+		this.auditFlushInterval = auditFlushInterval;
+	}
+	
+	/**
+	 * Returns what to do when the audit log queue is full
+	 * @return
+	 */
+	public AuditOverflowPolicy getAuditOverflowPolicy() {
+		return auditOverflowPolicy;
+	}
+	
+	public void setAuditOverflowPolicy(AuditOverflowPolicy auditOverflowPolicy) {
+		this.auditOverflowPolicy = auditOverflowPolicy;
+	}
+	
+	/**
+	 * Returns the file where user actions are spilled when they can't be queued or written
+	 * @return
+	 */
+	public String getAuditSpillFile() {
+		return auditSpillFile;
+	}
+	
+	public void setAuditSpillFile(String auditSpillFile) {
+		this.auditSpillFile = auditSpillFile;
+	}
+
+	public int getAuditRetentionDays() {
+		return auditRetentionDays;
+	}
+	
+	public void setAuditRetentionDays(int auditRetentionDays) {
+		this.auditRetentionDays = auditRetentionDays;
+	}
+	
+	public long getAuditMaxRows() {
+		return auditMaxRows;
+	}
+	
+	public void setAuditMaxRows(long auditMaxRows) {
+		this.auditMaxRows = auditMaxRows;
+	}
+	
+	public int getAuditPruneChunkSize() {
+		return auditPruneChunkSize;
+	}
+	
+	public void setAuditPruneChunkSize(int auditPruneChunkSize) {
+		this.auditPruneChunkSize = auditPruneChunkSize;
+	}
+	
+	public String getAuditArchiveDir() {
+		return auditArchiveDir;
+	}
+	
+	public void setAuditArchiveDir(String auditArchiveDir) {
+		this.auditArchiveDir = auditArchiveDir;
+	}
+	
+	public int getAuditMaintenanceInterval() {
+		return auditMaintenanceInterval;
+	}
+	
+	public void setAuditMaintenanceInterval(int auditMaintenanceInterval) {
+		this.auditMaintenanceInterval = auditMaintenanceInterval;
+	}
+
+	/**
+	 * Returns whether to use keyset pagination in the list view for all the schemas.
+	 * If false, it can still be enabled on single schemas with the `@KeysetPagination` annotation.
+	 * @return
+	 */
+	public boolean isKeysetPagination() {
+		return keysetPagination;
+	}
+	
+	public void setKeysetPagination(boolean keysetPagination) {
+		this.keysetPagination = keysetPagination;
+	}
+	
+	/**
+	 * Returns how rows are counted in the home page and in the list view pagination
+	 * @return
+	 */
+	public RowCountMode getRowCountMode() {
+		return rowCountMode;
+	}
+	
+	public void setRowCountMode(RowCountMode rowCountMode) {
+		this.rowCountMode = rowCountMode;
+	}
+	
+	/**
+	 * Returns how many seconds row counts are cached for, if the row count mode is `CACHED`
+	 * @return
+	 */
+	public int getRowCountCacheTtl() {
+		return rowCountCacheTtl;
+	}
+	
+	public void setRowCountCacheTtl(int rowCountCacheTtl) {
+		this.rowCountCacheTtl = rowCountCacheTtl;
+	}
+	
+	/**
+	 * Returns the maximum number of row counts kept in cache, if the row count mode is `CACHED`
+	 * @return
+	 */
+	public int getRowCountCacheSize() {
+		return rowCountCacheSize;
+	}
+	
+	public void setRowCountCacheSize(int rowCountCacheSize) {
+		this.rowCountCacheSize = rowCountCacheSize;
+	}
+	
+	/**
+	 * Returns the backend used by the fuzzy search
+	 * @return
+	 */
+	public SearchBackendType getSearchBackend() {
+		return searchBackend;
+	}
+	
+	public void setSearchBackend(SearchBackendType searchBackend) {
+		this.searchBackend = searchBackend;
+	}
+	
+	/**
+	 * Returns the maximum number of rows a query can match in the search index
+	 * before falling back to `LIKE`
+	 * @return
+	 */
+	public int getSearchIndexMaxResults() {
+		return searchIndexMaxResults;
+	}
+	
+	public void setSearchIndexMaxResults(int searchIndexMaxResults) {
+		this.searchIndexMaxResults = searchIndexMaxResults;
+	}
+	
+	/**
+	 * Returns the maximum number of search queries kept in the query template cache
+	 * @return
+	 */
+	public int getQueryTemplateCacheSize() {
+		return queryTemplateCacheSize;
+	}
+	
+	public void setQueryTemplateCacheSize(int queryTemplateCacheSize) {
+		this.queryTemplateCacheSize = queryTemplateCacheSize;
+	}
+	
+	/**
+	 * Returns the maximum number of rows of a table kept in the autocomplete index
+	 * @return
+	 */
+	public int getAutocompleteMaxRows() {
+		return autocompleteMaxRows;
+	}
+	
+	public void setAutocompleteMaxRows(int autocompleteMaxRows) {
+		this.autocompleteMaxRows = autocompleteMaxRows;
+	}
+	
+	/**
+	 * Returns the maximum number of rows kept in all the autocomplete indexes together
+	 * @return
+	 */
+	public int getAutocompleteMaxTotalRows() {
+		return autocompleteMaxTotalRows;
+	}
+	
+	public void setAutocompleteMaxTotalRows(int autocompleteMaxTotalRows) {
+		this.autocompleteMaxTotalRows = autocompleteMaxTotalRows;
+	}
+	
+	/**
+	 * Returns the maximum number of autocomplete results kept in the cache
+	 * @return
+	 */
+	public int getAutocompleteCacheSize() {
+		return autocompleteCacheSize;
+	}
+	
+	public void setAutocompleteCacheSize(int autocompleteCacheSize) {
+		this.autocompleteCacheSize = autocompleteCacheSize;
+	}
+	
+	/**
+	 * Returns the maximum width and height in pixels of the image previews
+	 * @return
+	 */
+	public int getThumbnailSize() {
+		return thumbnailSize;
+	}
+	
+	public void setThumbnailSize(int thumbnailSize) {
+		this.thumbnailSize = thumbnailSize;
+	}
+	
+	/**
+	 * Returns the directory where image previews are cached
+	 * @return
+	 */
+	public String getThumbnailCacheDir() {
+		return thumbnailCacheDir;
+	}
+	
+	public void setThumbnailCacheDir(String thumbnailCacheDir) {
+		this.thumbnailCacheDir = thumbnailCacheDir;
+	}
+	
+	/**
+	 * Returns the maximum size in megabytes of the image preview cache
+	 * @return
+	 */
+	public int getThumbnailCacheSize() {
+		return thumbnailCacheSize;
+	}
+	
+	public void setThumbnailCacheSize(int thumbnailCacheSize) {
+		this.thumbnailCacheSize = thumbnailCacheSize;
+	}
+	
+	/**
+	 * Returns the number of rows validated and written in a single transaction by imports
+	 * @return
+	 */
+	public int getImportChunkSize() {
+		return importChunkSize;
+	}
+	
+	public void setImportChunkSize(int importChunkSize) {
+		this.importChunkSize = importChunkSize;
+	}
+	
+	/**
+	 * Returns the maximum number of row errors listed by an import
+	 * @return
+	 */
+	public int getImportMaxErrors() {
+		return importMaxErrors;
+	}
+	
+	public void setImportMaxErrors(int importMaxErrors) {
+		this.importMaxErrors = importMaxErrors;
+	}
+	
+	/**
+	 * Returns the number of exports that run at the same time
+	 * @return
+	 */
+	public int getExportWorkers() {
+		return exportWorkers;
+	}
+	
+	public void setExportWorkers(int exportWorkers) {
+		this.exportWorkers = exportWorkers;
+	}
+	
+	/**
+	 * Returns the directory where exports are written before being downloaded
+	 * @return the directory, or null to use a new temporary directory
+	 */
+	public String getExportSpoolDir() {
+		return exportSpoolDir;
+	}
+	
+	public void setExportSpoolDir(String exportSpoolDir) {
+		this.exportSpoolDir = exportSpoolDir;
+	}
+	
+	/**
+	 * Returns how many minutes completed exports can be downloaded
+	 * @return
+	 */
+	public int getExportRetentionMinutes() {
+		return exportRetentionMinutes;
+	}
+	
+	public void setExportRetentionMinutes(int exportRetentionMinutes) {
+		this.exportRetentionMinutes = exportRetentionMinutes;
+	}
+	
+	/**
+	 * Returns the maximum size in megabytes of the completed exports
+	 * @return
+	 */
+	public int getExportQuotaSize() {
+		return exportQuotaSize;
+	}
+	
+	public void setExportQuotaSize(int exportQuotaSize) {
+		this.exportQuotaSize = exportQuotaSize;
+	}
+	
+	/**
+	 * Returns whether all the entities are cached, not only those with the `@CachedEntity` annotation
+	 * @return
+	 */
+	public boolean isEntityCache() {
+		return entityCache;
+	}
+	
+	public void setEntityCache(boolean entityCache) {
+		this.entityCache = entityCache;
+	}
+	
+	/**
+	 * Returns the maximum number of items kept in the entity cache
+	 * @return
+	 */
+	public int getEntityCacheSize() {
+		return entityCacheSize;
+	}
+	
+	public void setEntityCacheSize(int entityCacheSize) {
+		this.entityCacheSize = entityCacheSize;
+	}
+	
+	/**
+	 * Returns the maximum size in megabytes of the items kept in the entity cache
+	 * @return
+	 */
+	public int getEntityCacheMemory() {
+		return entityCacheMemory;
+	}
+	
+	public void setEntityCacheMemory(int entityCacheMemory) {
+		this.entityCacheMemory = entityCacheMemory;
+	}
+	
+	/**
+	 * Returns how many seconds items are kept in the entity cache
+	 * @return
+	 */
+	public int getEntityCacheTtl() {
+		return entityCacheTtl;
+	}
+	
+	public void setEntityCacheTtl(int entityCacheTtl) {
+		this.entityCacheTtl = entityCacheTtl;
+	}
+
 	/**
 	 * Returns the prefix that is prepended to all routes registered by SnapAdmin.
 	 * @return
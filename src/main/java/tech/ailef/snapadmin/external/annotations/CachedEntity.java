@@ -0,0 +1,28 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the items of the Entity class shown in the detail and edit pages,
+ * along with the items they are linked to, so that they are not loaded again
+ * from the database each time they are opened.
+ * 
+ * Items are removed from the cache when they are changed through SnapAdmin, or
+ * through JPA in the same application. Changes made in other ways are shown
+ * once the cached item expires, after `snapadmin.entityCacheTtl` seconds.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachedEntity {
+}
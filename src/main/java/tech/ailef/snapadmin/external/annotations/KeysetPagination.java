@@ -0,0 +1,28 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables keyset pagination on the Entity class. Instead of page numbers,
+ * the list view navigates with next/previous links that seek directly
+ * to the primary key (and sort key, if any) of the last item seen, so 
+ * the cost of loading a page does not grow with its position in the table.
+ * 
+ * Keyset pagination is only used when sorting by the primary key or by a
+ * non-nullable field; other sort keys fall back to standard pagination.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface KeysetPagination {
+}
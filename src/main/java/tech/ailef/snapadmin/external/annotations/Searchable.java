@@ -0,0 +1,33 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field as searchable, i.e. matched against the query typed
+ * in the search box, and defines how it's matched. If no field of a
+ * class is `@Searchable`, all the text fields are searched with
+ * {@link SearchableType#CONTAINS}.
+ * 
+ * Declaring a field as {@link SearchableType#PREFIX} or {@link SearchableType#EXACT}
+ * keeps the generated predicate able to use an index on the column.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Searchable {
+	/**
+	 * How the query is matched against the field (CONTAINS, PREFIX or EXACT)
+	 * @return
+	 */
+	public SearchableType type() default SearchableType.CONTAINS;
+}
@@ -0,0 +1,35 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.annotations;
+
+/**
+ * How the search query is matched against a `@Searchable` field.
+ * 
+ */
+public enum SearchableType {
+	/**
+	 * Matches values containing the query, ignoring case, with
+	 * `lower(column) LIKE '%query%'`. This can't use an index on the
+	 * column, so it scans the whole table.
+	 */
+	CONTAINS,
+	/**
+	 * Matches values starting with the query, with `column LIKE 'query%'`.
+	 * The comparison is case sensitive, so that a regular index
+	 * on the column can be used.
+	 */
+	PREFIX,
+	/**
+	 * Matches values equal to the query, converted to the field type
+	 * (e.g. numbers or UUIDs). The field is skipped if the query can't
+	 * be converted.
+	 */
+	EXACT;
+
+}
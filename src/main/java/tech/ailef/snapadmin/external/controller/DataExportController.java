@@ -8,11 +8,16 @@
 
 package tech.ailef.snapadmin.external.controller;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,32 +31,42 @@ import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
 import tech.ailef.snapadmin.external.dbmapping.DbFieldValue;
 import tech.ailef.snapadmin.external.dbmapping.DbObject;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
 import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+import tech.ailef.snapadmin.external.dbmapping.exporter.ExportJobScheduler;
+import tech.ailef.snapadmin.external.dbmapping.exporter.ExportJobScheduler.ExportTask;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
 import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResult;
 import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResultRow;
 import tech.ailef.snapadmin.external.dto.DataExportFormat;
+import tech.ailef.snapadmin.external.dto.ExportJob;
 import tech.ailef.snapadmin.external.dto.QueryFilter;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
@@ -64,8 +79,16 @@ import tech.ailef.snapadmin.internal.repository.ConsoleQueryRepository;
 public class DataExportController {
 	private static final Logger logger = LoggerFactory.getLogger(DataExportFormat.class);
 	
+	/**
+	 * The number of rows kept in memory while building an XLSX export
+	 */
+	private static final int XLSX_ROW_WINDOW = 100;
+	
 	@Autowired
 	private SnapAdmin snapAdmin;
+	
+	@Autowired
+	private SnapAdminProperties properties;
 
 	@Autowired
 	private SnapAdminRepository repository;
@@ -75,9 +98,19 @@ public class DataExportController {
 	
 	@Autowired
 	private ObjectMapper mapper;
+	
+	@Autowired
+	private ExportJobScheduler exportJobs;
 
+	/**
+	 * Starts exporting the results of a console query in the background
+	 * @param queryId
+	 * @param format
+	 * @param otherParams
+	 * @return a redirect to the progress of the export
+	 */
 	@GetMapping("/console/export/{queryId}")
-	public ResponseEntity<byte[]> export(@PathVariable String queryId, @RequestParam String format, 
+	public String export(@PathVariable String queryId, @RequestParam String format, 
 			@RequestParam MultiValueMap<String, String> otherParams) {
 		ConsoleQuery query = queryRepository.findById(queryId).orElseThrow(() -> new SnapAdminNotFoundException("Query not found: " + queryId));
 		
@@ -89,36 +122,55 @@ public class DataExportController {
 		}
 		
 		List<String> fieldsToInclude = otherParams.getOrDefault("fields[]", new ArrayList<>());
-		DbQueryResult results = repository.executeQuery(query.getSql());
 		
-		switch (exportFormat) {
-		case CSV:
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-							"attachment; filename=\"export_" + query.getTitle().replaceAll("[^a-zA-Z0-9.-]", "_") + ".csv\"")
-					.body(toCsvQuery(results, fieldsToInclude).getBytes());
-		case XLSX:
-			String sheetName = query.getTitle();
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-					"attachment; filename=\"export_" + query.getTitle().replaceAll("[^a-zA-Z0-9.-]", "_") + ".xlsx\"")
-					.body(toXlsxQuery(sheetName, results, fieldsToInclude));
-		case JSONL:
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-							"attachment; filename=\"export_" + query.getTitle().replaceAll("[^a-zA-Z0-9.-]", "_") + ".jsonl\"")
-					.body(toJsonlQuery(results, fieldsToInclude).getBytes());
-		default:
-			throw new SnapAdminException("Invalid DataExportFormat");
-		}
+		String sql = query.getSql();
+		String title = query.getTitle();
+		DataExportFormat jobFormat = exportFormat;
+		ExportTask task = (out, job) -> {
+			DbQueryResult results = repository.executeQuery(sql);
+			job.setTotalRows(results.size());
+			
+			byte[] content;
+			switch (jobFormat) {
+			case CSV:
+				content = toCsvQuery(results, fieldsToInclude).getBytes();
+				break;
+			case XLSX:
+				content = toXlsxQuery(title, results, fieldsToInclude);
+				break;
+			case JSONL:
+				content = toJsonlQuery(results, fieldsToInclude).getBytes();
+				break;
+			default:
+				throw new SnapAdminException("Invalid DataExportFormat");
+			}
+			out.write(content);
+			job.addRows(results.size());
+			return results.size();
+		};
+		
+		String key = String.join("|", "console", queryId, sql, exportFormat.name(), String.join(",", fieldsToInclude));
+		ExportJob job = exportJobs.submit(key, "console", title, 
+				"export_" + title.replaceAll("[^a-zA-Z0-9.-]", "_") + "." + exportFormat.name().toLowerCase(), 
+				exportFormat, task);
+		
+		return "redirect:/" + properties.getBaseUrl() + "/export/jobs/" + job.getId();
 	}
 	
+	/**
+	 * Starts exporting the items of a table matching the search and filters in the background
+	 * @param className
+	 * @param query
+	 * @param format
+	 * @param raw
+	 * @param otherParams
+	 * @return a redirect to the progress of the export
+	 */
 	@GetMapping("/export/{className}")
-	@ResponseBody
-	public ResponseEntity<byte[]> export(@PathVariable String className, @RequestParam(required = false) String query,
+	public String export(@PathVariable String className, @RequestParam(required = false) String query,
 			@RequestParam String format, @RequestParam(required=false) Boolean raw, 
 			@RequestParam MultiValueMap<String, String> otherParams) {
-		if (raw == null) raw = false;
+		boolean rawValues = raw != null && raw;
 		
 		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
 		
@@ -136,73 +188,123 @@ public class DataExportController {
 		}
 
 		Set<QueryFilter> queryFilters = Utils.computeFilters(schema, otherParams);
-		List<DbObject> results = repository.search(schema, query, queryFilters);
 
+		ExportWriter writer = null;
 		switch (exportFormat) {
 		case CSV:
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-							"attachment; filename=\"export_" + schema.getJavaClass().getSimpleName() + ".csv\"")
-					.body(toCsv(results, fieldsToInclude, raw).getBytes());
+			writer = (out, job) -> toCsv(schema, query, queryFilters, fieldsToInclude, rawValues, out, job);
+			break;
 		case XLSX:
-			String sheetName = schema.getJavaClass().getSimpleName();
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-					"attachment; filename=\"export_" + schema.getJavaClass().getSimpleName() + ".xlsx\"")
-					.body(toXlsx(sheetName, results, fieldsToInclude, raw));
+			writer = (out, job) -> toXlsx(schema, query, queryFilters, fieldsToInclude, rawValues, out, job);
+			break;
 		case JSONL:
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_DISPOSITION,
-							"attachment; filename=\"export_" + schema.getJavaClass().getSimpleName() + ".jsonl\"")
-					.body(toJsonl(results, fieldsToInclude, raw).getBytes());
-		
+			writer = (out, job) -> toJsonl(schema, query, queryFilters, fieldsToInclude, rawValues, out, job);
+			break;
 		default:
 			throw new SnapAdminException("Invalid DataExportFormat");
 		}
-
+		
+		ExportWriter exportWriter = writer;
+		ExportTask task = (out, job) -> {
+			// Counted by the worker, the request returns as soon as the export is queued
+			job.setTotalRows(repository.count(schema, query, queryFilters));
+			return exportWriter.write(out, job);
+		};
+		
+		String key = String.join("|", schema.getClassName(), exportFormat.name(), String.valueOf(rawValues), 
+				String.valueOf(query), String.join(",", fieldsToInclude),
+				queryFilters.stream().map(QueryFilter::toString).sorted().collect(Collectors.joining(",")));
+		ExportJob job = exportJobs.submit(key, schema.getTableName(), schema.getJavaClass().getSimpleName(),
+				"export_" + schema.getJavaClass().getSimpleName() + "." + exportFormat.name().toLowerCase(),
+				exportFormat, task);
+		
+		return "redirect:/" + properties.getBaseUrl() + "/export/jobs/" + job.getId();
 	}
-
-	private byte[] toXlsx(String sheetName, List<DbObject> items, List<String> fields, boolean raw) {
-		Workbook workbook = new XSSFWorkbook();
-
-		Sheet sheet = workbook.createSheet(sheetName);
-
-		CellStyle headerStyle = workbook.createCellStyle();
-		Font headerFont = workbook.createFont();
-		headerFont.setBold(true);
-		headerStyle.setFont(headerFont);
+	
+	/**
+	 * Shows the progress of an export, updated by polling the export API, and
+	 * the link to download it once completed
+	 * @param id
+	 * @param model
+	 * @return
+	 */
+	@GetMapping("/export/jobs/{id}")
+	public String job(@PathVariable String id, Model model) {
+		ExportJob job = exportJobs.findJob(id)
+			.orElseThrow(() -> new SnapAdminNotFoundException("Export not found or expired: " + id));
 		
-		int rowIndex = 0;
-		Row headerRow = sheet.createRow(rowIndex++);
-		for (int i = 0; i < fields.size(); i++) {
-			Cell headerCell = headerRow.createCell(i);
-			headerCell.setCellValue(fields.get(i));
-			headerCell.setCellStyle(headerStyle);
-		}
+		model.addAttribute("job", job);
+		model.addAttribute("jobs", exportJobs.getJobs());
+		model.addAttribute("title", "Export | " + job.getTitle());
+		return "snapadmin/export";
+	}
+	
+	/**
+	 * Downloads a completed export. Range requests are supported, so that an
+	 * interrupted download can be resumed.
+	 * @param id
+	 * @return
+	 */
+	@GetMapping("/export/jobs/{id}/download")
+	public ResponseEntity<Resource> download(@PathVariable String id) {
+		ExportJob job = exportJobs.findJob(id)
+			.orElseThrow(() -> new SnapAdminNotFoundException("Export not found or expired: " + id));
+		Path file = exportJobs.getFile(job)
+			.orElseThrow(() -> new SnapAdminNotFoundException("Export not available: " + id));
 		
-		for (DbObject item : items) {
-			Row row = sheet.createRow(rowIndex++);
-			int cellIndex = 0;
-			
-			List<String> record = getRecord(item, fields, raw);
-			
-			for (String value : record) {
-				Cell cell = row.createCell(cellIndex++);
-				cell.setCellValue(value);
-			}
-		}
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, 
+						ContentDisposition.attachment().filename(job.getFileName()).build().toString())
+				.eTag("\"" + job.getId() + "\"")
+				.contentType(MediaTypeFactory.getMediaType(job.getFileName()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+				.body(new FileSystemResource(file));
+	}
+
+	/**
+	 * Writes the items matching the search to the output stream as an XLSX workbook.
+	 * Rows are flushed to a temporary file by the streaming workbook as they are
+	 * added, so only a small window of rows is kept in memory.
+	 */
+	private long toXlsx(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters, 
+			List<String> fields, boolean raw, OutputStream out, ExportJob job) throws IOException {
+		SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
 
-		ByteArrayOutputStream fos = new ByteArrayOutputStream();
 		try {
-			workbook.write(fos);
-			fos.close();
+			Sheet sheet = workbook.createSheet(schema.getJavaClass().getSimpleName());
+	
+			CellStyle headerStyle = workbook.createCellStyle();
+			Font headerFont = workbook.createFont();
+			headerFont.setBold(true);
+			headerStyle.setFont(headerFont);
+			
+			Row headerRow = sheet.createRow(0);
+			for (int i = 0; i < fields.size(); i++) {
+				Cell headerCell = headerRow.createCell(i);
+				headerCell.setCellValue(fields.get(i));
+				headerCell.setCellStyle(headerStyle);
+			}
+			
+			long rows = repository.stream(schema, query, queryFilters, properties.getExportBatchSize(), batch -> {
+				for (DbObject item : batch) {
+					Row row = sheet.createRow(sheet.getLastRowNum() + 1);
+					int cellIndex = 0;
+					
+					List<String> record = getRecord(item, fields, raw);
+					
+					for (String value : record) {
+						Cell cell = row.createCell(cellIndex++);
+						cell.setCellValue(value);
+					}
+				}
+				job.addRows(batch.size());
+			});
+	
+			workbook.write(out);
+			return rows;
+		} finally {
+			workbook.dispose();
 			workbook.close();
-		} catch (IOException e) {
-			throw new SnapAdminException("Error during serialization for XLSX workbook", e);
 		}
-		
-		
-		return fos.toByteArray();
 	}
 	
 	private byte[] toXlsxQuery(String sheetName, DbQueryResult result, List<String> fields) {
@@ -249,32 +351,29 @@ public class DataExportController {
 	}
 
 	/**
-	 * Converts a list of DbObjects to a string containing their JSONL representation.
-	 * One item per line in JSON format.
-	 * @param items	the items to be serialized
-	 * @param fields	the fields to take from each item
-	 * @param raw	whether to use raw values or not
-	 * @return	a string containing the items serialized in JSONL format
+	 * Writes the items matching the search to the output stream in JSONL format,
+	 * one item per line in JSON format.
 	 */
-	private String toJsonl(List<DbObject> items, List<String> fields, boolean raw) {
-		if (items.isEmpty())
-			return "";
-
-		StringBuilder sb = new StringBuilder();
+	private long toJsonl(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters, 
+			List<String> fields, boolean raw, OutputStream out, ExportJob job) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
 		
-		for (DbObject item : items) {
-			Map<String, Object> map = item.toMap(fields, raw);
+		long rows = repository.stream(schema, query, queryFilters, properties.getExportBatchSize(), batch -> {
 			try {
-				String json = mapper.writeValueAsString(map);
-				sb.append(json);
-			} catch (JsonProcessingException e) {
-				throw new SnapAdminException(e);
+				for (DbObject item : batch) {
+					Map<String, Object> map = item.toMap(fields, raw);
+					writer.write(mapper.writeValueAsString(map));
+					writer.write("\n");
+				}
+				writer.flush();
+				job.addRows(batch.size());
+			} catch (IOException e) {
+				throw new SnapAdminException("Error during creation of JSONL file", e);
 			}
-			
-			sb.append("\n");
-		}
-
-		return sb.toString();
+		});
+		
+		writer.flush();
+		return rows;
 	}
 	
 	private String toJsonlQuery(DbQueryResult result, List<String> fields) {
@@ -299,26 +398,35 @@ public class DataExportController {
 	
 	}
 	
-	private String toCsv(List<DbObject> items, List<String> fields, boolean raw) {
-		if (items.isEmpty())
-			return "";
-
-		StringWriter sw = new StringWriter();
+	/**
+	 * Writes the items matching the search to the output stream in CSV format,
+	 * flushing after each batch.
+	 */
+	private long toCsv(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters, 
+			List<String> fields, boolean raw, OutputStream out, ExportJob job) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
 
 		CSVFormat csvFormat = 
 			CSVFormat.DEFAULT.builder()
 					 .setHeader(fields.toArray(String[]::new))
 					 .build();
 
-		try (final CSVPrinter printer = new CSVPrinter(sw, csvFormat)) {
-			for (DbObject item : items) {
-				printer.printRecord(getRecord(item, fields, raw));
+		CSVPrinter printer = new CSVPrinter(writer, csvFormat);
+		
+		long rows = repository.stream(schema, query, queryFilters, properties.getExportBatchSize(), batch -> {
+			try {
+				for (DbObject item : batch) {
+					printer.printRecord(getRecord(item, fields, raw));
+				}
+				printer.flush();
+				job.addRows(batch.size());
+			} catch (IOException e) {
+				throw new SnapAdminException("Error during creation of CSV file", e);
 			}
-
-			return sw.toString();
-		} catch (IOException e) {
-			throw new SnapAdminException("Error during creation of CSV file", e);
-		}
+		});
+		
+		printer.flush();
+		return rows;
 	}
 	
 	private String toCsvQuery(DbQueryResult result, List<String> fields) {
@@ -368,9 +476,7 @@ public class DataExportController {
 	private List<String> getRecord(DbObject item, List<String> fields, boolean raw) {
 		List<String> record = new ArrayList<>();
 
-		Set<String> dbFields = item.getSchema().getSortedFields().stream().map(f -> f.getName())
-			.collect(Collectors.toSet());
-		Set<String> computedFields = new HashSet<>(item.getSchema().getComputedColumnNames());
+		Set<String> dbFields = item.getSchema().getSortedFieldNames();
 		
 		for (String field : fields) {
 			// Physical field
@@ -401,7 +507,7 @@ public class DataExportController {
 				
 			}
 			// Computed column field
-			else if (computedFields.contains(field)) {
+			else if (item.getSchema().getComputedColumn(field) != null) {
 				Object computedValue = item.compute(field);
 				record.add(computedValue.toString());
 			}
@@ -412,6 +518,15 @@ public class DataExportController {
 		
 		return record;
 	}
-
 	
+	/**
+	 * Writes an export of a table to an output stream
+	 */
+	@FunctionalInterface
+	private interface ExportWriter {
+		/**
+		 * @return the number of exported rows
+		 */
+		long write(OutputStream out, ExportJob job) throws IOException;
+	}
 }
@@ -0,0 +1,122 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.controller;
+
+import java.io.IOException;
+import java.security.Principal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.importer.DataImportService;
+import tech.ailef.snapadmin.external.dto.DataExportFormat;
+import tech.ailef.snapadmin.external.dto.ImportJob;
+import tech.ailef.snapadmin.external.dto.ImportMode;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
+
+/**
+ * Uploads files in the export formats and shows the progress of their import
+ */
+@Controller
+@RequestMapping(value = { "/${snapadmin.baseUrl}/", "/${snapadmin.baseUrl}" })
+public class DataImportController {
+	@Autowired
+	private SnapAdmin snapAdmin;
+
+	@Autowired
+	private SnapAdminProperties properties;
+
+	@Autowired
+	private DataImportService importService;
+
+	/**
+	 * Starts importing a file into a table. The format is inferred from the
+	 * extension of the file if it's not specified.
+	 * @param className
+	 * @param file
+	 * @param format
+	 * @param mode	whether existing rows are updated or reported as errors
+	 * @param dryRun	whether to only validate the file, rolling back the changes
+	 * @param attr
+	 * @param principal
+	 * @return
+	 */
+	@PostMapping("/import/{className}")
+	public String importFile(@PathVariable String className, @RequestParam MultipartFile file,
+			@RequestParam(required = false) String format, @RequestParam(defaultValue = "INSERT") ImportMode mode,
+			@RequestParam(defaultValue = "false") boolean dryRun, RedirectAttributes attr, Principal principal) {
+		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
+		String authUser = principal != null ? principal.getName() : null;
+		String listUrl = "redirect:/" + properties.getBaseUrl() + "/model/" + className;
+
+		if (!schema.isCreateEnabled() || (mode == ImportMode.UPSERT && !schema.isEditEnabled())) {
+			attr.addFlashAttribute("errorTitle", "Unauthorized");
+			attr.addFlashAttribute("error", (schema.isCreateEnabled() ? "EDIT" : "CREATE")
+				+ " operations have been disabled on this type (" + schema.getJavaClass().getSimpleName() + ").");
+			return listUrl;
+		}
+
+		if (file.isEmpty()) {
+			attr.addFlashAttribute("errorTitle", "Unable to import file");
+			attr.addFlashAttribute("error", "The file is empty.");
+			return listUrl;
+		}
+
+		if (format == null || format.isBlank()) {
+			String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+			format = name.substring(name.lastIndexOf('.') + 1);
+		}
+
+		DataExportFormat importFormat;
+		try {
+			importFormat = DataExportFormat.valueOf(format.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to import file");
+			attr.addFlashAttribute("error", "Unsupported import format: " + format);
+			return listUrl;
+		}
+
+		try {
+			ImportJob job = importService.start(schema, file, importFormat, mode, dryRun, authUser);
+			return "redirect:/" + properties.getBaseUrl() + "/import/jobs/" + job.getId();
+		} catch (IOException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to import file");
+			attr.addFlashAttribute("error", e.getMessage());
+			return listUrl;
+		}
+	}
+
+	/**
+	 * Shows the progress of an import, updated by polling the import API
+	 * @param id
+	 * @param model
+	 * @return
+	 */
+	@GetMapping("/import/jobs/{id}")
+	public String job(@PathVariable String id, Model model) {
+		ImportJob job = importService.findJob(id)
+			.orElseThrow(() -> new SnapAdminNotFoundException("Import not found: " + id));
+
+		model.addAttribute("job", job);
+		model.addAttribute("schema", snapAdmin.findSchemaByClassName(job.getClassName()));
+		model.addAttribute("title", "Import | " + job.getFileName());
+		return "snapadmin/import";
+	}
+}
@@ -8,12 +8,14 @@
 
 package tech.ailef.snapadmin.external.controller;
 
+import java.io.InputStream;
 import java.util.Optional;
 
-import org.apache.tika.Tika;
-import org.apache.tika.mime.MimeTypeException;
-import org.apache.tika.mime.MimeTypes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -26,25 +28,39 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 import tech.ailef.snapadmin.external.SnapAdmin;
-import tech.ailef.snapadmin.external.dbmapping.DbFieldValue;
-import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.BlobRepository;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
-import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
-import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.BlobInfo;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+import tech.ailef.snapadmin.external.misc.ThumbnailCache;
+import tech.ailef.snapadmin.external.misc.ThumbnailCache.Thumbnail;
 
 /**
- * Controller to serve file or images (`@DisplayImage`) 
+ * Controller to serve file or images (`@DisplayImage`). The binary columns
+ * are streamed from the database one at a time, with an ETag computed from
+ * their content: browsers revalidate with conditional requests, which don't
+ * transfer the content again if it didn't change, and can request ranges.
+ * The length and hash are cached until the row changes, so conditional requests
+ * and previews that are already built don't read the column at all.
  */
 @Controller
 @RequestMapping(value = {"/${snapadmin.baseUrl}/download", "/${snapadmin.baseUrl}/download/"})
 public class FileDownloadController {
 	@Autowired
-	private SnapAdminRepository repository;
-	
+	private BlobRepository blobRepository;
+
+	@Autowired
+	private ThumbnailCache thumbnailCache;
+
 	@Autowired
 	private SnapAdmin snapAdmin;
 
-	
+	@Autowired
+	private SnapAdminMetrics metrics;
+
+
 	/**
 	 * Serve a binary field as an image
 	 * @param className
@@ -52,31 +68,60 @@ public class FileDownloadController {
 	 * @param id
 	 * @return
 	 */
-	@GetMapping(value="/{className}/{fieldName}/{id}/image", produces = MediaType.IMAGE_JPEG_VALUE)
+	@GetMapping("/{className}/{fieldName}/{id}/image")
 	@ResponseBody
-	public ResponseEntity<byte[]> serveImage(@PathVariable String className, 
+	public ResponseEntity<Resource> serveImage(@PathVariable String className,
 			@PathVariable String fieldName, @PathVariable String id) {
+		DbField field = findField(className, fieldName);
 
-		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
-		
-		Optional<DbObject> object = repository.findById(schema, id);
-		
-		if (object.isPresent()) {
-			DbObject dbObject = object.get();
-			DbFieldValue dbFieldValue = dbObject.get(fieldName);
-			byte[] file = (byte[])dbFieldValue.getValue();
-			return ResponseEntity.ok(file);
-		} else {
-			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Object with id " + id + " not found");
+		BlobInfo info;
+		try (Timing timing = metrics.start(SnapAdminMetrics.DOWNLOAD, "image", field.getSchema())) {
+			info = describe(field, id);
+		}
+
+		return image(field, id, info);
+	}
+
+	/**
+	 * Serve a binary field as a preview of at most `thumbnailSize` pixels,
+	 * or as the full image if previews are disabled or the image can't be decoded
+	 * @param className
+	 * @param fieldName
+	 * @param id
+	 * @return
+	 */
+	@GetMapping("/{className}/{fieldName}/{id}/thumbnail")
+	@ResponseBody
+	public ResponseEntity<Resource> serveThumbnail(@PathVariable String className,
+			@PathVariable String fieldName, @PathVariable String id) {
+		if (!thumbnailCache.isEnabled())
+			return serveImage(className, fieldName, id);
+
+		DbField field = findField(className, fieldName);
+
+		Optional<Thumbnail> thumbnail;
+		BlobInfo info;
+		try (Timing timing = metrics.start(SnapAdminMetrics.DOWNLOAD, "thumbnail", field.getSchema())) {
+			info = describe(field, id);
+			thumbnail = info.isImage()
+				? thumbnailCache.get(info.getHash(), () -> blobRepository.open(field, id))
+				: Optional.empty();
 		}
-		
 
+		if (thumbnail.isEmpty())
+			return image(field, id, info);
+
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(thumbnail.get().getMimeType()))
+				.eTag("\"" + thumbnail.get().getPath().getFileName() + "\"")
+				.cacheControl(CacheControl.noCache())
+				.body(new FileSystemResource(thumbnail.get().getPath()));
 	}
-	
+
 	/**
 	 * Serve a binary field as a file. This tries to detect the file type using Tika
 	 * in order to serve the file with a plausible extension, since we don't have
-	 * any meta-data about what was originally uploaded and it is not feasible to 
+	 * any meta-data about what was originally uploaded and it is not feasible to
 	 * store it (it could be modified on another end and we wouldn't be aware of it).
 	 * @param className
 	 * @param fieldName
@@ -85,45 +130,86 @@ public class FileDownloadController {
 	 */
 	@GetMapping("/{className}/{fieldName}/{id}")
 	@ResponseBody
-	public ResponseEntity<byte[]> serveFile(@PathVariable String className, 
+	public ResponseEntity<Resource> serveFile(@PathVariable String className,
 			@PathVariable String fieldName, @PathVariable String id) {
+		DbField field = findField(className, fieldName);
+
+		BlobInfo info;
+		try (Timing timing = metrics.start(SnapAdminMetrics.DOWNLOAD, "file", field.getSchema())) {
+			info = describe(field, id);
+		}
+
+		String filename = field.getSchema().getClassName() + "_" + id + "_" + fieldName + info.getExtension();
+
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.eTag(info.getETag())
+				.cacheControl(CacheControl.noCache())
+				.body(new BlobResource(field, id, info));
+	}
+
+	private ResponseEntity<Resource> image(DbField field, String id, BlobInfo info) {
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(info.getMimeType()))
+				.eTag(info.getETag())
+				.cacheControl(CacheControl.noCache())
+				.body(new BlobResource(field, id, info));
+	}
 
+	private DbField findField(String className, String fieldName) {
 		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
-		
-		Optional<DbObject> object = repository.findById(schema, id);
-		
-		if (object.isPresent()) {
-			DbObject dbObject = object.get();
-			
-			DbFieldValue dbFieldValue;
-			try {
-				dbFieldValue = dbObject.get(fieldName);
-			} catch (SnapAdminException e) {
-				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Field not found", e);
-			}
-			
-			if (dbFieldValue.getValue() == null) {
-				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "There's no file attached to this item");
-			}
-			
-			byte[] file = (byte[])dbFieldValue.getValue();
-			
-			String filename = schema.getClassName() + "_" + id + "_" + fieldName;
-			try {
-				Tika tika = new Tika();
-				String detect = tika.detect(file);
-				String ext = MimeTypes.getDefaultMimeTypes().forName(detect).getExtension();
-				filename = filename + ext;
-			} catch (MimeTypeException e) {
-				// Unable to determine extension, leave as is
-			}
-			
-			return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
-					"attachment; filename=\"" + filename + "\"").body(file);
-		} else {
-			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Object with id " + id + " not found");
+
+		DbField field = schema.getFieldByJavaName(fieldName);
+		if (field == null || !field.isBinary())
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Field not found");
+
+		return field;
+	}
+
+	private BlobInfo describe(DbField field, String id) {
+		return blobRepository.describe(field, id).orElseThrow(() -> {
+			return new ResponseStatusException(HttpStatus.NOT_FOUND,
+				"Object with id " + id + " not found or there's no file attached to it");
+		});
+	}
+
+	/**
+	 * The content of a binary column, read from the database only when the
+	 * response is written, so not at all for conditional requests that match
+	 * the ETag. Ranges are served by Spring from the length and the stream.
+	 */
+	private class BlobResource extends AbstractResource {
+		private final DbField field;
+
+		private final String id;
+
+		private final BlobInfo info;
+
+		BlobResource(DbField field, String id, BlobInfo info) {
+			this.field = field;
+			this.id = id;
+			this.info = info;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return blobRepository.open(field, id);
+		}
+
+		@Override
+		public long contentLength() {
+			return info.getLength();
 		}
-		
 
+		@Override
+		public boolean exists() {
+			return true;
+		}
+
+		@Override
+		public String getDescription() {
+			return "Column " + field.getName() + " of " + field.getSchema().getClassName() + " " + id;
+		}
 	}
 }
@@ -25,7 +25,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.TransactionSystemException;
@@ -48,8 +50,13 @@ import tech.ailef.snapadmin.external.SnapAdmin;
 import tech.ailef.snapadmin.external.SnapAdminProperties;
 import tech.ailef.snapadmin.external.dbmapping.DbObject;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.EntityCache;
 import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+import tech.ailef.snapadmin.external.dbmapping.count.RowCount;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
 import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResult;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplateCache;
+import tech.ailef.snapadmin.external.dto.BulkOperationResult;
 import tech.ailef.snapadmin.external.dto.CompareOperator;
 import tech.ailef.snapadmin.external.dto.FacetedSearchRequest;
 import tech.ailef.snapadmin.external.dto.LogsSearchRequest;
@@ -62,6 +69,8 @@ import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
 import tech.ailef.snapadmin.external.misc.Utils;
 import tech.ailef.snapadmin.internal.model.ConsoleQuery;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SummaryStats;
 import tech.ailef.snapadmin.internal.model.UserAction;
 import tech.ailef.snapadmin.internal.model.UserSetting;
 import tech.ailef.snapadmin.internal.service.ConsoleQueryService;
@@ -98,6 +107,15 @@ public class SnapAdminController {
 	@Autowired
 	private tech.ailef.snapadmin.external.service.TreeDiscoveryService treeDiscoveryService;
 
+	@Autowired
+	private SnapAdminMetrics metrics;
+
+	@Autowired
+	private QueryTemplateCache queryTemplateCache;
+
+	@Autowired
+	private EntityCache entityCache;
+
 	@org.springframework.web.bind.annotation.ModelAttribute
 	public void addAttributes(Model model) {
 		model.addAttribute("snapadmin_hasTreeViews", treeDiscoveryService.hasTreeViews());
@@ -123,8 +141,8 @@ public class SnapAdminController {
 		Map<String, List<DbObjectSchema>> groupedBy = schemas.stream()
 				.collect(Collectors.groupingBy(s -> s.getBasePackage()));
 
-		Map<String, Long> counts = schemas.stream()
-				.collect(Collectors.toMap(s -> s.getClassName(), s -> repository.count(s)));
+		Map<String, RowCount> counts = schemas.stream()
+				.collect(Collectors.toMap(s -> s.getClassName(), s -> repository.countRows(s)));
 
 		model.addAttribute("schemas", groupedBy);
 		model.addAttribute("query", query);
@@ -148,6 +166,8 @@ public class SnapAdminController {
 	 * @param pageSize
 	 * @param sortKey
 	 * @param sortOrder
+	 * @param after cursor to the page to load, when using keyset pagination
+	 * @param before cursor to the page to load, when using keyset pagination
 	 * @param otherParams
 	 * @param request
 	 * @param response
@@ -157,7 +177,8 @@ public class SnapAdminController {
 	public String list(Model model, @PathVariable String className,
 			@RequestParam(required = false) Integer page, @RequestParam(required = false) String query,
 			@RequestParam(required = false) Integer pageSize, @RequestParam(required = false) String sortKey,
-			@RequestParam(required = false) String sortOrder, @RequestParam MultiValueMap<String, String> otherParams,
+			@RequestParam(required = false) String sortOrder, @RequestParam(required = false) String after,
+			@RequestParam(required = false) String before, @RequestParam MultiValueMap<String, String> otherParams,
 			HttpServletRequest request,
 			HttpServletResponse response) {
 
@@ -206,7 +227,12 @@ public class SnapAdminController {
 
 		try {
 			PaginatedResult<DbObject> result = null;
-			if (query != null || !otherParams.isEmpty()) {
+			boolean keyset = (properties.isKeysetPagination() || schema.isKeysetPaginationEnabled())
+					&& repository.isKeysetPaginationSupported(schema, sortKey);
+			
+			if (keyset) {
+				result = repository.seek(schema, query, queryFilters, pageSize, sortKey, sortOrder, after, before);
+			} else if (query != null || !otherParams.isEmpty()) {
 				result = repository.search(schema, query, page, pageSize, sortKey, sortOrder, queryFilters);
 			} else {
 				result = repository.findAll(schema, page, pageSize, sortKey, sortOrder);
@@ -220,6 +246,8 @@ public class SnapAdminController {
 			model.addAttribute("query", query);
 			model.addAttribute("sortOrder", sortOrder);
 			model.addAttribute("activeFilters", queryFilters);
+			if ((query != null && !query.isBlank()) || !queryFilters.isEmpty())
+				model.addAttribute("searchPlan", repository.explainSearch(schema, query, queryFilters));
 			return "snapadmin/model/list";
 
 		} catch (InvalidPageException e) {
@@ -430,21 +458,86 @@ public class SnapAdminController {
 			return "redirect:/" + properties.getBaseUrl() + "/model/" + className;
 		}
 
-		int countDeleted = 0;
-		for (String id : ids) {
-			try {
-				repository.delete(schema, id);
-				countDeleted += 1;
-			} catch (DataIntegrityViolationException e) {
-				attr.addFlashAttribute("error", e.getMessage());
-			}
+		try {
+			BulkOperationResult result = repository.bulkDelete(schema, Arrays.asList(ids));
+			attr.addFlashAttribute("message", "Deleted " + result.getAffected() + " of " + ids.length + " items");
+			saveAction(new UserAction(schema.getTableName(), summarizeIds(ids), "DELETE", schema.getClassName(), authUser));
+		} catch (DataIntegrityViolationException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to DELETE rows");
+			attr.addFlashAttribute("error", "No items have been deleted: " + e.getMessage());
 		}
 
-		if (countDeleted > 0)
-			attr.addFlashAttribute("message", "Deleted " + countDeleted + " of " + ids.length + " items");
+		return "redirect:/" + properties.getBaseUrl() + "/model/" + className;
+	}
+
+	/**
+	 * Sets a field to the same value on multiple rows, either the ones selected
+	 * by primary key or, if `all` is set, all the ones matching the search query
+	 * and filters. Requests with neither are rejected.
+	 * 
+	 * @param className
+	 * @param field	the name of the field to update
+	 * @param value	the new value
+	 * @param ids	the primary keys of the selected rows
+	 * @param all	whether to update all the rows matching the query and filters
+	 * @param query	the search query
+	 * @param otherParams	the search filters
+	 * @param attr
+	 * @param principal
+	 * @return
+	 */
+	@PostMapping(value = "/model/{className}/bulk-update")
+	public String bulkUpdate(@PathVariable String className, @RequestParam String field,
+			@RequestParam(required = false) String value,
+			@RequestParam(required = false) String[] ids,
+			@RequestParam(defaultValue = "false") boolean all,
+			@RequestParam(required = false) String query,
+			@RequestParam MultiValueMap<String, String> otherParams,
+			RedirectAttributes attr, Principal principal) {
+		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
+		String authUser = principal != null ? principal.getName() : null;
+
+		if (!schema.isEditEnabled()) {
+			attr.addFlashAttribute("errorTitle", "Unable to EDIT rows");
+			attr.addFlashAttribute("error", "EDIT operations have been disabled on this table.");
+			return "redirect:/" + properties.getBaseUrl() + "/model/" + className;
+		}
+		
+		boolean selected = ids != null && ids.length > 0;
+		if (!selected && !all) {
+			attr.addFlashAttribute("errorTitle", "Unable to EDIT rows");
+			attr.addFlashAttribute("error", "No items have been selected.");
+			return "redirect:/" + properties.getBaseUrl() + "/model/" + className;
+		}
+
+		DbField dbField = schema.getFieldByName(field);
+		if (dbField == null)
+			throw new SnapAdminException("Unable to find field `" + field + "` in " + schema.getClassName());
+
+		try {
+			BulkOperationResult result;
+			String primaryKey;
+			if (selected) {
+				result = repository.bulkUpdate(schema, dbField, value, Arrays.asList(ids));
+				primaryKey = summarizeIds(ids);
+			} else {
+				Set<QueryFilter> queryFilters = Utils.computeFilters(schema, otherParams);
+				result = repository.bulkUpdate(schema, dbField, value, query, queryFilters);
+				primaryKey = "*";
+			}
 
-		for (String id : ids) {
-			saveAction(new UserAction(schema.getTableName(), id, "DELETE", schema.getClassName(), authUser));
+			attr.addFlashAttribute("message", "Updated `" + dbField.getName() + "` on " + result.getAffected() + " items");
+			saveAction(new UserAction(schema.getTableName(), primaryKey, "EDIT", schema.getClassName(), authUser));
+		} catch (DataIntegrityViolationException | UncategorizedSQLException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to EDIT rows");
+			attr.addFlashAttribute("error", "No items have been updated: " + e.getMessage());
+		} catch (ConstraintViolationException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to EDIT rows");
+			attr.addFlashAttribute("error", e.getConstraintViolations().stream()
+					.map(v -> dbField.getName() + " " + v.getMessage()).collect(Collectors.joining(", ")));
+		} catch (SnapAdminException e) {
+			attr.addFlashAttribute("errorTitle", "Unable to EDIT rows");
+			attr.addFlashAttribute("error", e.getMessage());
 		}
 
 		return "redirect:/" + properties.getBaseUrl() + "/model/" + className;
@@ -513,35 +606,28 @@ public class SnapAdminController {
 
 		try {
 			if (pkValue == null) {
-				Object newPrimaryKey = repository.create(schema, params, files, pkValue);
-				repository.attachManyToMany(schema, newPrimaryKey, multiValuedParams);
+				Object newPrimaryKey = repository.create(schema, params, files, multiValuedParams, authUser);
 				pkValue = newPrimaryKey.toString();
 				attr.addFlashAttribute("message", "Item created successfully.");
-				saveAction(new UserAction(schema.getTableName(), pkValue, "CREATE", schema.getClassName(), authUser));
 			} else {
 				Object parsedPkValue = schema.getPrimaryKey().getType().parseValue(pkValue);
 
-				Optional<DbObject> object = repository.findById(schema, parsedPkValue);
-
-				if (!object.isEmpty()) {
-					if (create) {
+				if (create) {
+					Optional<DbObject> object = repository.findById(schema, parsedPkValue);
+					if (object.isPresent()) {
 						attr.addFlashAttribute("errorTitle", "Unable to create item");
 						attr.addFlashAttribute("error",
 								"Item with id " + object.get().getPrimaryKeyValue() + " already exists.");
 						attr.addFlashAttribute("params", params);
 					} else {
-						repository.update(schema, params, files);
-						repository.attachManyToMany(schema, parsedPkValue, multiValuedParams);
-						attr.addFlashAttribute("message", "Item saved successfully.");
-						saveAction(new UserAction(schema.getTableName(), parsedPkValue.toString(), "EDIT",
-								schema.getClassName(), authUser));
+						repository.create(schema, params, files, multiValuedParams, authUser);
+						attr.addFlashAttribute("message", "Item created successfully");
 					}
+				} else if (repository.update(schema, parsedPkValue, params, files, multiValuedParams, authUser)) {
+					attr.addFlashAttribute("message", "Item saved successfully.");
 				} else {
-					Object newPrimaryKey = repository.create(schema, params, files, pkValue);
-					repository.attachManyToMany(schema, newPrimaryKey, multiValuedParams);
+					repository.create(schema, params, files, multiValuedParams, authUser);
 					attr.addFlashAttribute("message", "Item created successfully");
-					saveAction(
-							new UserAction(schema.getTableName(), pkValue, "CREATE", schema.getClassName(), authUser));
 				}
 			}
 		} catch (DataIntegrityViolationException | UncategorizedSQLException | IdentifierGenerationException e) {
@@ -600,6 +686,29 @@ public class SnapAdminController {
 		return "snapadmin/settings/settings";
 	}
 
+	/**
+	 * Shows the response times of the SnapAdmin operations recorded by {@link SnapAdminMetrics}
+	 * @param model
+	 * @return
+	 */
+	@GetMapping("/performance")
+	public String performance(Model model) {
+		List<SummaryStats> summaries = metrics.getSummaryStats();
+		
+		model.addAttribute("operations", metrics.getTimerStats());
+		model.addAttribute("slowestTables", metrics.getSlowestTables(10));
+		model.addAttribute("statements", summaries.stream()
+			.filter(s -> s.getName().equals(SnapAdminMetrics.SQL_STATEMENTS)).toList());
+		model.addAttribute("exports", summaries.stream()
+			.filter(s -> s.getName().equals(SnapAdminMetrics.EXPORT_ROWS) || s.getName().equals(SnapAdminMetrics.EXPORT_BYTES))
+			.toList());
+		model.addAttribute("queryTemplateCache", queryTemplateCache);
+		model.addAttribute("entityCache", entityCache);
+		model.addAttribute("title", "Performance");
+		model.addAttribute("activePage", "performance");
+		return "snapadmin/performance";
+	}
+
 	@GetMapping("/help")
 	public String help(Model model) {
 		model.addAttribute("title", "Help");
@@ -635,7 +744,8 @@ public class SnapAdminController {
 
 				q.setSql(
 						"-- It's recommended to always include a LIMIT clause in your query\n"
-								+ "-- Although the SQL Console supports pagination, it retrieves the entire ResultSet\n\n"
+								+ "-- The SQL Console only fetches the rows up to the current page, but the database\n"
+								+ "-- may still need to evaluate the whole query before returning the first row\n\n"
 								+ "-- SELECT * FROM " + randomTable + " LIMIT 1000;\n");
 			} else {
 				q.setSql("-- No schemas found. Write your SQL query here.");
@@ -694,17 +804,23 @@ public class SnapAdminController {
 		List<ConsoleQuery> tabs = consoleService.findAll();
 		model.addAttribute("tabs", tabs);
 
-		DbQueryResult results = repository.executeQuery(activeQuery.getSql());
+		int startOffset = (page - 1) * pageSize;
+		DbQueryResult results;
+		try {
+			results = repository.executeQuery(queryId, activeQuery.getSql(), startOffset, pageSize);
+		} catch (QueryTimeoutException e) {
+			results = DbQueryResult.empty();
+			model.addAttribute("errorTitle", "Query cancelled");
+			model.addAttribute("error", "The query has been cancelled or took longer than the timeout of " 
+					+ properties.getConsoleQueryTimeout() + " seconds.");
+		}
 
 		if (!results.isEmpty()) {
-			int maxPage = (int) (Math.ceil((double) results.size() / pageSize));
-			PaginationInfo pagination = new PaginationInfo(page, maxPage, pageSize, results.size(), null, null);
-			int startOffset = (page - 1) * pageSize;
-			int endOffset = (page) * pageSize;
-
-			endOffset = Math.min(results.size(), endOffset);
-
-			results.crop(startOffset, endOffset);
+			// The total number of rows is not known, only whether there's a next page
+			int maxPage = results.hasMore() ? page + 1 : page;
+			PaginationInfo pagination = 
+				new PaginationInfo(page, maxPage, pageSize, startOffset + results.size(), null, null);
+			pagination.setEstimated(results.hasMore());
 			model.addAttribute("pagination", pagination);
 			model.addAttribute("results", results);
 		} else {
@@ -718,6 +834,18 @@ public class SnapAdminController {
 		return "snapadmin/console";
 	}
 
+	@PostMapping("/console/cancel/{queryId}")
+	public ResponseEntity<Void> consoleCancel(@PathVariable String queryId) {
+		if (!properties.isSqlConsoleEnabled()) {
+			throw new SnapAdminException("SQL console not enabled");
+		}
+		
+		if (repository.cancelQuery(queryId))
+			return ResponseEntity.noContent().build();
+		else
+			return ResponseEntity.notFound().build();
+	}
+
 	@GetMapping("/settings/appearance")
 	public String settingsAppearance(Model model) {
 		model.addAttribute("activePage", "settings");
@@ -746,7 +874,22 @@ public class SnapAdminController {
 		return next;
 	}
 
-	private UserAction saveAction(UserAction action) {
-		return userActionService.save(action);
+	private void saveAction(UserAction action) {
+		userActionService.save(action);
+	}
+
+	/**
+	 * Joins the primary keys of a bulk operation to record them in a single
+	 * audit log entry, truncating the list if it doesn't fit the column
+	 * @param ids
+	 * @return
+	 */
+	private String summarizeIds(String[] ids) {
+		String joined = String.join(", ", ids);
+		if (joined.length() <= 255)
+			return joined;
+
+		String suffix = "... (" + ids.length + " items)";
+		return joined.substring(0, 255 - suffix.length()) + suffix;
 	}
 }
@@ -10,7 +10,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import tech.ailef.snapadmin.external.SnapAdminProperties;
 import tech.ailef.snapadmin.external.dto.TreeConfiguration;
-import tech.ailef.snapadmin.external.dto.TreeNodeDTO;
+import tech.ailef.snapadmin.external.dto.TreeNodePageDTO;
 import tech.ailef.snapadmin.external.dto.TreeSearchResultDTO;
 import tech.ailef.snapadmin.external.service.TreeDiscoveryService;
 import tech.ailef.snapadmin.external.service.TreeService;
@@ -69,17 +69,22 @@ public class TreeController {
 
     @GetMapping("/api/tree/roots/{entityClass}")
     @ResponseBody
-    public List<TreeNodeDTO> getRootNodes(@PathVariable String entityClass) {
-        return treeService.fetchRoots(entityClass);
+    public TreeNodePageDTO getRootNodes(
+            @PathVariable String entityClass,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return treeService.fetchRoots(entityClass, cursor, size);
     }
 
     @GetMapping("/api/tree/children/{entityClass}/{id}/{field}")
     @ResponseBody
-    public List<TreeNodeDTO> getChildren(
+    public TreeNodePageDTO getChildren(
             @PathVariable String entityClass,
             @PathVariable String id,
-            @PathVariable String field) {
-        return treeService.fetchChildren(entityClass, id, field);
+            @PathVariable String field,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return treeService.fetchChildren(entityClass, id, field, cursor, size);
     }
 
     @GetMapping("/api/tree/search")
@@ -9,7 +9,6 @@
 package tech.ailef.snapadmin.external.controller.rest;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -21,7 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import tech.ailef.snapadmin.external.SnapAdmin;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
-import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+import tech.ailef.snapadmin.external.dbmapping.search.AutocompleteIndex;
 import tech.ailef.snapadmin.external.dto.AutocompleteSearchResult;
 
 /**
@@ -34,7 +33,7 @@ public class AutocompleteController {
 	private SnapAdmin snapAdmin;
 	
 	@Autowired
-	private SnapAdminRepository repository;
+	private AutocompleteIndex autocompleteIndex;
 	
 	/**
 	 * Returns a list of entities from a given table that match an input query.
@@ -46,9 +45,7 @@ public class AutocompleteController {
 	public ResponseEntity<?> autocomplete(@PathVariable String className, @RequestParam String query) {
 		DbObjectSchema schema = snapAdmin.findSchemaByClassName(className);
 		
-		List<AutocompleteSearchResult> search = repository.search(schema, query)
-					.stream().map(x -> new AutocompleteSearchResult(x))
-					.collect(Collectors.toList());
+		List<AutocompleteSearchResult> search = autocompleteIndex.search(schema, query);
 		
 		return ResponseEntity.ok(search);
 	}
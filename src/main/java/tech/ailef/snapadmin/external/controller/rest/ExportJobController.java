@@ -0,0 +1,61 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.controller.rest;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tech.ailef.snapadmin.external.dbmapping.exporter.ExportJobScheduler;
+import tech.ailef.snapadmin.external.dto.ExportJob;
+
+/**
+ * API controller for the progress and cancellation of the exports
+ */
+@RestController
+@RequestMapping(value= {"/${snapadmin.baseUrl}/api/export", "/${snapadmin.baseUrl}/api/export/"})
+public class ExportJobController {
+	@Autowired
+	private ExportJobScheduler exportJobs;
+
+	/**
+	 * Returns the exports that can still be downloaded, most recent first
+	 * @return
+	 */
+	@GetMapping("/jobs")
+	public List<ExportJob> jobs() {
+		return exportJobs.getJobs();
+	}
+
+	/**
+	 * Returns the progress of an export
+	 * @param id	the id of the export
+	 * @return
+	 */
+	@GetMapping("/jobs/{id}")
+	public ResponseEntity<ExportJob> job(@PathVariable String id) {
+		return ResponseEntity.of(exportJobs.findJob(id));
+	}
+
+	/**
+	 * Cancels an export, which stops after the batch of rows being written
+	 * @param id	the id of the export
+	 * @return
+	 */
+	@PostMapping("/jobs/{id}/cancel")
+	public ResponseEntity<ExportJob> cancel(@PathVariable String id) {
+		return ResponseEntity.of(exportJobs.cancel(id));
+	}
+}
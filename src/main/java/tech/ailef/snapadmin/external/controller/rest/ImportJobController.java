@@ -0,0 +1,39 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.controller.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tech.ailef.snapadmin.external.dbmapping.importer.DataImportService;
+import tech.ailef.snapadmin.external.dto.ImportJob;
+
+/**
+ * API controller for the progress of the imports
+ */
+@RestController
+@RequestMapping(value= {"/${snapadmin.baseUrl}/api/import", "/${snapadmin.baseUrl}/api/import/"})
+public class ImportJobController {
+	@Autowired
+	private DataImportService importService;
+
+	/**
+	 * Returns the progress and the errors of an import
+	 * @param id	the id of the import
+	 * @return
+	 */
+	@GetMapping("/jobs/{id}")
+	public ResponseEntity<ImportJob> job(@PathVariable String id) {
+		return ResponseEntity.of(importService.findJob(id));
+	}
+}
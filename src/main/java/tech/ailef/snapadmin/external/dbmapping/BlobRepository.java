@@ -0,0 +1,316 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.tika.Tika;
+import org.apache.tika.mime.MimeTypeException;
+import org.apache.tika.mime.MimeTypes;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.BlobInfo;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+
+/**
+ * Reads single binary columns with JDBC streams, without loading the entity
+ * (and its other binary columns) or the whole value in memory.
+ */
+@Component
+public class BlobRepository {
+	/**
+	 * The number of bytes at the start of the content used to detect its type
+	 */
+	private static final int DETECTION_BYTES = 8192;
+
+	private static final int MIME_TYPE_CACHE_SIZE = 10000;
+
+	private static final int INFO_CACHE_SIZE = 10000;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final Tika tika = new Tika();
+
+	private JdbcTemplate jdbcTemplate;
+
+	private EntityManager entityManager;
+
+	private SnapAdmin snapAdmin;
+
+	private long ttlNanos;
+
+	/**
+	 * The `SELECT` statement of each binary column, by class and field name
+	 */
+	private Map<String, String> queries = new ConcurrentHashMap<>();
+
+	/**
+	 * The detected MIME types, by content hash
+	 */
+	private Map<String, String> mimeTypes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MIME_TYPE_CACHE_SIZE;
+		}
+	});
+
+	/**
+	 * The metadata of the binary columns, by class, field name and primary key.
+	 * Entries are removed as soon as the row is modified through JPA or SnapAdmin,
+	 * and expire after `entityCacheTtl` seconds, like the items of the entity cache,
+	 * so that the changes made outside SnapAdmin are eventually served
+	 */
+	private Map<List<Object>, CachedInfo> infos = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedInfo> eldest) {
+			return size() > INFO_CACHE_SIZE;
+		}
+	});
+
+	public BlobRepository(JdbcTemplate jdbcTemplate, EntityManager entityManager, SnapAdmin snapAdmin,
+			SnapAdminProperties properties) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.entityManager = entityManager;
+		this.snapAdmin = snapAdmin;
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(properties.getEntityCacheTtl());
+	}
+
+	/**
+	 * Registers the listener that removes the metadata of the changed rows
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		EntityChangeListener.register(entityManager, snapAdmin, (schema, id, entity, deleted) -> evict(schema, id));
+	}
+
+	/**
+	 * Removes the metadata of the binary columns of a row
+	 * @param schema
+	 * @param id	the primary key value
+	 */
+	public void evict(DbObjectSchema schema, Object id) {
+		for (DbField field : schema.getFields()) {
+			if (field.isBinary())
+				infos.remove(List.of(schema.getClassName(), field.getJavaName(), id));
+		}
+	}
+
+	/**
+	 * Removes the metadata of all the rows of a schema, after they have been
+	 * modified without going through JPA (e.g. with an import)
+	 * @param schema
+	 */
+	public void invalidate(DbObjectSchema schema) {
+		synchronized (infos) {
+			infos.keySet().removeIf(k -> k.get(0).equals(schema.getClassName()));
+		}
+	}
+
+	/**
+	 * Returns the length, hash and MIME type of the value of a binary column.
+	 * The value is only read the first time, or after it has changed. The MIME
+	 * type is only detected the first time a content is seen, from its first bytes.
+	 * @param field	the binary field
+	 * @param id	the primary key of the row, as a string
+	 * @return the metadata, or an empty optional if the row doesn't exist or the value is null
+	 */
+	public Optional<BlobInfo> describe(DbField field, String id) {
+		Object primaryKey = parseId(field, id);
+		List<Object> key = List.of(field.getSchema().getClassName(), field.getJavaName(), primaryKey);
+
+		CachedInfo cached = infos.get(key);
+		if (cached != null && System.nanoTime() - cached.createdAt < ttlNanos)
+			return Optional.of(cached.info);
+
+		Optional<BlobInfo> info = read(field, primaryKey);
+		info.ifPresent(i -> infos.put(key, new CachedInfo(i)));
+		return info;
+	}
+
+	/**
+	 * Reads the value of a binary column once to compute its metadata
+	 */
+	private Optional<BlobInfo> read(DbField field, Object primaryKey) {
+		return jdbcTemplate.query(getQuery(field), rs -> {
+			if (!rs.next())
+				return Optional.empty();
+
+			try (InputStream in = rs.getBinaryStream(1)) {
+				if (in == null)
+					return Optional.empty();
+
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				byte[] head = new byte[DETECTION_BYTES];
+				int headLength = 0;
+				long length = 0;
+
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+					if (headLength < DETECTION_BYTES) {
+						int copy = Math.min(read, DETECTION_BYTES - headLength);
+						System.arraycopy(buffer, 0, head, headLength, copy);
+						headLength += copy;
+					}
+					length += read;
+				}
+
+				String hash = HexFormat.of().formatHex(digest.digest());
+				String mimeType = mimeTypes.get(hash);
+				if (mimeType == null) {
+					mimeType = tika.detect(Arrays.copyOf(head, headLength));
+					mimeTypes.put(hash, mimeType);
+				}
+
+				return Optional.of(new BlobInfo(length, hash, mimeType, getExtension(mimeType)));
+			} catch (IOException | NoSuchAlgorithmException e) {
+				throw new SnapAdminException(e);
+			}
+		}, primaryKey);
+	}
+
+	/**
+	 * Opens a stream on the value of a binary column. The stream holds a database
+	 * connection until it is closed.
+	 * @param field	the binary field
+	 * @param id	the primary key of the row, as a string
+	 * @return the stream, empty if the row doesn't exist or the value is null
+	 */
+	public InputStream open(DbField field, String id) {
+		DataSource dataSource = jdbcTemplate.getDataSource();
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		try {
+			statement = connection.prepareStatement(getQuery(field));
+			statement.setObject(1, parseId(field, id));
+			rs = statement.executeQuery();
+
+			InputStream in = rs.next() ? rs.getBinaryStream(1) : null;
+			return new ColumnInputStream(in == null ? InputStream.nullInputStream() : in,
+					rs, statement, connection, dataSource);
+		} catch (SQLException | RuntimeException e) {
+			JdbcUtils.closeResultSet(rs);
+			JdbcUtils.closeStatement(statement);
+			DataSourceUtils.releaseConnection(connection, dataSource);
+			throw new SnapAdminException(e);
+		}
+	}
+
+	private Object parseId(DbField field, String id) {
+		return field.getSchema().getPrimaryKey().getType().parseValue(id);
+	}
+
+	/**
+	 * Builds the query with the table and column names mapped by Hibernate,
+	 * which take the naming strategy into account
+	 */
+	private String getQuery(DbField field) {
+		DbObjectSchema schema = field.getSchema();
+		return queries.computeIfAbsent(schema.getClassName() + "." + field.getJavaName(), k -> {
+			AbstractEntityPersister persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactoryImplementor.class)
+				.getRuntimeMetamodels()
+				.getMappingMetamodel()
+				.getEntityDescriptor(schema.getJavaClass());
+
+			String column = persister.getPropertyColumnNames(field.getJavaName())[0];
+			String table = persister.getPropertyTableName(field.getJavaName());
+			String primaryKey = persister.getIdentifierColumnNames()[0];
+
+			return "SELECT " + column + " FROM " + table + " WHERE " + primaryKey + " = ?";
+		});
+	}
+
+	private static String getExtension(String mimeType) {
+		try {
+			return MimeTypes.getDefaultMimeTypes().forName(mimeType).getExtension();
+		} catch (MimeTypeException e) {
+			return "";
+		}
+	}
+
+	private static class CachedInfo {
+		private final BlobInfo info;
+
+		private final long createdAt = System.nanoTime();
+
+		CachedInfo(BlobInfo info) {
+			this.info = info;
+		}
+	}
+
+	/**
+	 * Releases the statement and the connection once the stream is closed
+	 */
+	private static class ColumnInputStream extends FilterInputStream {
+		private ResultSet rs;
+
+		private PreparedStatement statement;
+
+		private Connection connection;
+
+		private DataSource dataSource;
+
+		ColumnInputStream(InputStream in, ResultSet rs, PreparedStatement statement,
+				Connection connection, DataSource dataSource) {
+			super(in);
+			this.rs = rs;
+			this.statement = statement;
+			this.connection = connection;
+			this.dataSource = dataSource;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				JdbcUtils.closeResultSet(rs);
+				JdbcUtils.closeStatement(statement);
+				DataSourceUtils.releaseConnection(connection, dataSource);
+			}
+		}
+	}
+}
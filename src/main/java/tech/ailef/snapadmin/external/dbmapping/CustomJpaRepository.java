@@ -8,231 +8,367 @@
 
 package tech.ailef.snapadmin.external.dbmapping;
 
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaDelete;
 import jakarta.persistence.criteria.CriteriaUpdate;
 import jakarta.persistence.criteria.Path;
-import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
-import tech.ailef.snapadmin.external.dbmapping.fields.StringFieldType;
-import tech.ailef.snapadmin.external.dbmapping.fields.TextFieldType;
-import tech.ailef.snapadmin.external.dto.CompareOperator;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplate;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplateCache;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackend;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchParameters;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchPlanner;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.external.dto.QueryFilter;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 
 @SuppressWarnings("rawtypes")
 public class CustomJpaRepository extends SimpleJpaRepository {
+	private static final String ALIAS = SearchPlanner.ALIAS;
+	
+	/**
+	 * Translates the Hibernate exceptions to Spring's `DataAccessException`s. This
+	 * repository is not a Spring bean, so its calls don't get the translation of
+	 * `@Repository`s, and the statements run right away, not at commit.
+	 */
+	private static final HibernateJpaDialect EXCEPTION_TRANSLATOR = new HibernateJpaDialect();
 
 	private EntityManager entityManager;
 	
 	private DbObjectSchema schema;
 	
+	private SearchPlanner planner;
+	
+	private QueryTemplateCache templates;
+	
+	/**
+	 * The name of the entity in JPQL queries
+	 */
+	private String entityName;
+	
 	@SuppressWarnings("unchecked")
-	public CustomJpaRepository(DbObjectSchema schema, EntityManager em) {
+	public CustomJpaRepository(DbObjectSchema schema, EntityManager em, SearchBackend searchBackend,
+			QueryTemplateCache templates) {
 		super(schema.getJavaClass(), em);
 		this.entityManager = em;
 		this.schema = schema;
+		this.planner = new SearchPlanner(schema, searchBackend);
+		this.templates = templates;
+		this.entityName = em.getMetamodel().entity(schema.getJavaClass()).getName();
 	}
 	
-	@SuppressWarnings("unchecked")
 	public long count(String q, Set<QueryFilter> queryFilters) {
-		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery query = cb.createQuery(Long.class);
-        Root root = query.from(schema.getJavaClass());
-
-        List<Predicate> finalPredicates = buildPredicates(q, queryFilters, cb, root);
-        
-        query.select(cb.count(root.get(schema.getPrimaryKey().getName())))
-            .where(
-        		cb.and(
-                		finalPredicates.toArray(new Predicate[finalPredicates.size()])
-                	)
-        		);
-        
-        Object o = entityManager.createQuery(query).getSingleResult();
-        return (Long)o;
+		List<QueryFilter> filters = SearchPlanner.sortFilters(queryFilters);
+		QueryTemplate template = getTemplate("count", q, filters, () -> {
+			SearchParameters parameters = new SearchParameters();
+			String jpql = "SELECT count(" + ALIAS + ") FROM " + entityName + " " + ALIAS
+				+ where(planner.toCondition(q, filters, parameters));
+			return new QueryTemplate(jpql, parameters);
+		});
+		
+		return template.createQuery(entityManager, Long.class, q, filters).getSingleResult();
 	}
 	
 	@SuppressWarnings("unchecked")
-	public List<Object> search(String q, int page, int pageSize, String sortKey, String sortOrder, Set<QueryFilter> filters) {
-		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery query = cb.createQuery(schema.getJavaClass());
-        Root root = query.from(schema.getJavaClass());
-        
-        List<Predicate> finalPredicates = buildPredicates(q, filters, cb, root);
-        
-        query.select(root)
-            .where(
-            	cb.or(
-            		cb.and(finalPredicates.toArray(new Predicate[finalPredicates.size()])), // query search on String fields
-            		cb.equal(root.get(schema.getPrimaryKey().getName()).as(String.class), q)
-            	)
-            	
-            );
-        
-        if (sortKey !=  null)
-        	query.orderBy(sortOrder.equals("DESC") ? cb.desc(root.get(sortKey)) : cb.asc(root.get(sortKey)));
-        
-        return entityManager.createQuery(query).setMaxResults(pageSize)
-        			.setFirstResult((page - 1) * pageSize).getResultList();
+	public List<Object> search(String q, int page, int pageSize, String sortKey, String sortOrder, Set<QueryFilter> queryFilters) {
+		List<QueryFilter> filters = SearchPlanner.sortFilters(queryFilters);
+		DbField sortField = sortKey == null ? null : getSortField(sortKey);
+		boolean descending = sortField != null && sortOrder.equals("DESC");
+		
+		QueryTemplate template = getTemplate("search:" + sortKey + ":" + descending, q, filters,
+			() -> buildSearchTemplate(q, filters, sortField, descending));
+		
+		return (List<Object>)template.createQuery(entityManager, schema.getJavaClass(), q, filters)
+			.setMaxResults(pageSize)
+			.setFirstResult((page - 1) * pageSize)
+			.getResultList();
 	}
 	
+	/**
+	 * Returns the batch of items matching the search which comes right after the
+	 * given primary key value. Items are ordered by primary key, so the whole
+	 * result set can be iterated by passing the primary key of the last item
+	 * of each batch, without the cost of an increasing OFFSET.
+	 * @param q	the fuzzy search query, possibly null
+	 * @param filters	the faceted search filters, possibly null
+	 * @param lastPrimaryKey	the primary key of the last item of the previous batch, null for the first batch
+	 * @param batchSize	the maximum number of items to return
+	 * @return the next batch of items, empty if there are no more items
+	 */
+	public List<Object> searchAfter(String q, Set<QueryFilter> filters, Object lastPrimaryKey, int batchSize) {
+		PageCursor cursor = lastPrimaryKey == null ? null : new PageCursor(null, lastPrimaryKey);
+		return seek(q, filters, null, false, cursor, false, batchSize);
+	}
+	
+	/**
+	 * Returns a page of items matching the search using keyset pagination: instead
+	 * of skipping a number of rows, the query seeks directly past the cursor
+	 * using the sort field and the primary key as a tie-breaker.
+	 * 
+	 * When moving backwards the items right before the cursor are returned in
+	 * reverse order, i.e. the first item is the one closest to the cursor.
+	 * 
+	 * @param q	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @param sortField	the field to sort on, null to sort by primary key only
+	 * @param descending	whether the sort order is descending
+	 * @param cursor	the position to seek from, null to start from the beginning
+	 * @param backwards	whether to return the items before the cursor instead of after
+	 * @param limit	the maximum number of items to return
+	 * @return the items after (or before) the cursor
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object> seek(String q, Set<QueryFilter> queryFilters, DbField sortField, boolean descending,
+			PageCursor cursor, boolean backwards, int limit) {
+		List<QueryFilter> filters = SearchPlanner.sortFilters(queryFilters);
+		SearchParameters parameters = new SearchParameters();
+		
+		String pk = ALIAS + "." + schema.getPrimaryKey().getJavaName();
+		String sort = sortField == null ? null : ALIAS + "." + sortField.getJavaName();
+		
+		// Moving backwards means scanning in the opposite direction of the requested order
+		boolean ascending = descending == backwards;
+		String op = ascending ? " > " : " < ";
+		String direction = ascending ? " ASC" : " DESC";
+		
+		List<String> conditions = new ArrayList<>();
+		String condition = planner.toCondition(q, filters, parameters);
+		if (condition != null)
+			conditions.add(condition);
+		
+		if (cursor != null) {
+			String seekCondition = pk + op + parameters.addValue(cursor.getPrimaryKeyValue());
+			
+			if (sort != null) {
+				String sortValue = parameters.addValue(cursor.getSortValue());
+				seekCondition = "(" + sort + op + sortValue
+					+ " OR (" + sort + " = " + sortValue + " AND " + seekCondition + "))";
+			}
+			
+			conditions.add(seekCondition);
+		}
+		
+		String jpql = select() + where(conditions.isEmpty() ? null : String.join(" AND ", conditions))
+			+ " ORDER BY " + (sort != null ? sort + direction + ", " : "") + pk + direction;
+		
+		// Seek queries are not cached as they depend on the cursor, but
+		// the JPQL is the same for each page so Hibernate still reuses its plan
+		return (List<Object>)new QueryTemplate(jpql, parameters).createQuery(entityManager, schema.getJavaClass(), q, filters)
+			.setMaxResults(limit)
+			.getResultList();
+	}
 	
 	public List<Object> search(String query, Set<QueryFilter> filters) {
 		return search(query, 1, Integer.MAX_VALUE, null, null, filters);
 	}
+	
+	/**
+	 * Returns the primary keys of the items matching the search,
+	 * without loading the items themselves
+	 * @param q	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @param limit	the maximum number of primary keys to return
+	 * @return the primary key values
+	 */
+	public List<Object> searchPrimaryKeys(String q, Set<QueryFilter> queryFilters, int limit) {
+		List<QueryFilter> filters = SearchPlanner.sortFilters(queryFilters);
+		QueryTemplate template = getTemplate("primaryKeys", q, filters, () -> {
+			SearchParameters parameters = new SearchParameters();
+			String jpql = "SELECT " + ALIAS + "." + schema.getPrimaryKey().getJavaName()
+				+ " FROM " + entityName + " " + ALIAS + where(planner.toCondition(q, filters, parameters));
+			return new QueryTemplate(jpql, parameters);
+		});
+		
+		return template.createQuery(entityManager, Object.class, q, filters)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+	
+	/**
+	 * Returns the JPQL query executed by the search, to check
+	 * which conditions are applied to which columns
+	 * @param q	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @return the JPQL query
+	 */
+	public String explainSearch(String q, Set<QueryFilter> queryFilters) {
+		return buildSearchTemplate(q, SearchPlanner.sortFilters(queryFilters), null, false).getJpql();
+	}
+
+	/**
+	 * Returns the name of the entity, as used in JPQL queries
+	 * @return
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
 
 	
 
+	/**
+	 * Saves an item. With `IDENTITY` primary keys the insert runs right away,
+	 * so its constraint violations are translated here rather than at commit.
+	 */
 	@SuppressWarnings("unchecked")
-	public int update(DbObjectSchema schema, Map<String, String> params, Map<String, MultipartFile> files) {
+	@Override
+	public Object save(Object entity) {
+		return translate(() -> super.save(entity));
+	}
+
+	/**
+	 * Deletes all the items with the given primary keys with a single
+	 * `DELETE ... WHERE pk IN (...)` statement. Entity lifecycle callbacks
+	 * and cascades are not applied.
+	 * @param ids	the primary key values, already parsed to the primary key type
+	 * @return the number of deleted rows
+	 */
+	@SuppressWarnings("unchecked")
+	public int deleteAllByIds(Collection<?> ids) {
 		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaDelete delete = cb.createCriteriaDelete(schema.getJavaClass());
+		Root root = delete.from(schema.getJavaClass());
+
+		delete.where(root.get(schema.getPrimaryKey().getJavaName()).in(ids));
 
+		return translate(() -> entityManager.createQuery(delete).executeUpdate());
+	}
+
+	/**
+	 * Sets a field to the same value on all the items with the given primary keys,
+	 * with a single `UPDATE ... WHERE pk IN (...)` statement.
+	 * @param field	the field to update
+	 * @param value	the new value, already parsed to the field type
+	 * @param ids	the primary key values, already parsed to the primary key type
+	 * @return the number of updated rows
+	 */
+	@SuppressWarnings("unchecked")
+	public int updateAllByIds(DbField field, Object value, Collection<?> ids) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
 		CriteriaUpdate update = cb.createCriteriaUpdate(schema.getJavaClass());
+		Root root = update.from(schema.getJavaClass());
 
+		update.set(root.get(field.getJavaName()), value);
+		update.where(root.get(schema.getPrimaryKey().getJavaName()).in(ids));
+
+		return translate(() -> entityManager.createQuery(update).executeUpdate());
+	}
+
+	/**
+	 * Sets some fields of an item with a single `UPDATE ... WHERE pk = ?` statement,
+	 * leaving the other columns as they are in the database
+	 * @param id	the primary key value, already parsed to the primary key type
+	 * @param values	the new values by field, already parsed to the field types,
+	 * with references for the related entities
+	 * @return the number of updated rows
+	 */
+	@SuppressWarnings("unchecked")
+	public int update(Object id, Map<DbField, Object> values) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate update = cb.createCriteriaUpdate(schema.getJavaClass());
 		Root root = update.from(schema.getJavaClass());
 
-		boolean hasUpdate = false;
-		for (DbField field : schema.getSortedFields()) {
-			if (field.isPrimaryKey()) continue;
-			if (field.isReadOnly()) continue;
-			
-			boolean keepValue = params.getOrDefault("__keep_" + field.getName(), "off").equals("on");
-			if (keepValue) continue;
-			
-			String stringValue = params.get(field.getName());
-			Object value = null;
-			if (stringValue != null && stringValue.isBlank()) stringValue = null;
-			if (stringValue != null) {
-				value = field.getType().parseValue(stringValue);
-			} else {
-				try {
-					MultipartFile file = files.get(field.getName());
-					if (file != null) {
-						if (file.isEmpty()) value = null;
-						else value = file.getBytes();
-					}
-				} catch (IOException e) {
-					throw new SnapAdminException(e);
-				}
-			}
-			
-			if (field.getConnectedSchema() != null)
-				value = field.getConnectedSchema().getJpaRepository().findById(value).get();
-			
-			update.set(root.get(field.getJavaName()), value);
-			hasUpdate = true;
+		for (Map.Entry<DbField, Object> value : values.entrySet()) {
+			Path path = root.get(value.getKey().getJavaName());
+			if (value.getValue() == null)
+				update.set(path, cb.nullLiteral(path.getJavaType()));
+			else
+				update.set(path, value.getValue());
 		}
+		update.where(cb.equal(root.get(schema.getPrimaryKey().getJavaName()), id));
+
+		return translate(() -> entityManager.createQuery(update).executeUpdate());
+	}
+
+	/**
+	 * Sets a field to the same value on all the items matching the search,
+	 * with a single `UPDATE` statement.
+	 * @param field	the field to update
+	 * @param value	the new value, already parsed to the field type
+	 * @param q	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @return the number of updated rows
+	 */
+	public int updateAll(DbField field, Object value, String q, Set<QueryFilter> queryFilters) {
+		List<QueryFilter> filters = SearchPlanner.sortFilters(queryFilters);
+		SearchParameters parameters = new SearchParameters();
+		String jpql = "UPDATE " + entityName + " " + ALIAS + " SET " + ALIAS + "." + field.getJavaName()
+			+ " = " + parameters.addValue(value) + where(planner.toCondition(q, filters, parameters));
 		
-		if (!hasUpdate) return 0;
+		Query query = entityManager.createQuery(jpql);
+		parameters.bind(query, q, filters);
+		return translate(query::executeUpdate);
+	}
+	
+	/**
+	 * Runs a statement, translating its exceptions with {@link #EXCEPTION_TRANSLATOR},
+	 * e.g. a foreign key violation to a `DataIntegrityViolationException`
+	 */
+	private <T> T translate(Supplier<T> statement) {
+		try {
+			return statement.get();
+		} catch (RuntimeException e) {
+			DataAccessException translated = EXCEPTION_TRANSLATOR.translateExceptionIfPossible(e);
+			throw translated != null ? translated : e;
+		}
+	}
+	
+	/**
+	 * Returns the cached template for the given kind of query and shape
+	 * of the request, or builds it if the search can't be cached
+	 */
+	private QueryTemplate getTemplate(String kind, String q, List<QueryFilter> filters, Supplier<QueryTemplate> builder) {
+		if (!planner.isCacheable(q))
+			return builder.get();
 		
-		String pkName = schema.getPrimaryKey().getJavaName();
-		update.where(cb.equal(root.get(pkName), params.get(schema.getPrimaryKey().getName())));
-
-		Query query = entityManager.createQuery(update);
-		return query.executeUpdate();
+		return templates.get(schema.getClassName() + ":" + kind + ":" + planner.getShape(q, filters), builder);
 	}
 	
-	@SuppressWarnings("unchecked")
-	private List<Predicate> buildPredicates(String q, Set<QueryFilter> queryFilters,
-			CriteriaBuilder cb, Path root) {
-		List<Predicate> finalPredicates = new ArrayList<>();
-        
-        List<DbField> stringFields = 
-        	schema.getSortedFields().stream().filter(f -> f.getType() instanceof StringFieldType || f.getType() instanceof TextFieldType)
-        			.collect(Collectors.toList());
-        
-        List<Predicate> queryPredicates = new ArrayList<>();
-        if (q != null && !q.isBlank()) {
-	        for (DbField f : stringFields) {
-	        	Path path = root.get(f.getJavaName());
-	        	queryPredicates.add(cb.like(cb.lower(cb.toString(path)), "%" + q.toLowerCase() + "%"));
-	        }
-	        
-	        Predicate queryPredicate = cb.or(queryPredicates.toArray(new Predicate[queryPredicates.size()]));
-	        finalPredicates.add(queryPredicate);
-        }
-
-        
-        if (queryFilters == null) queryFilters = new HashSet<>();
-        for (QueryFilter filter  : queryFilters) {
-        	CompareOperator op = filter.getOp();
-        	DbField dbField = filter.getField();
-        	String fieldName = dbField.getJavaName();
-        	String v = filter.getValue();
-        	
-        	Object value = null;
-        	
-        	if (!v.isBlank()) {
-	        	try {
-	        		value = dbField.getType().parseValue(v);
-	        	} catch (Exception e) {
-	        		throw new SnapAdminException("Invalid value `" + v + "` specified for field `" + dbField.getName() + "`");
-	        	}
-        	}
-        	
-			if (op == CompareOperator.STRING_EQ) {
-				if (value == null)
-					finalPredicates.add(cb.isNull(root.get(fieldName)));
-				else
-					finalPredicates.add(cb.equal(cb.lower(cb.toString(root.get(fieldName))), value.toString().toLowerCase()));
-			} else if (op == CompareOperator.CONTAINS) {
-				if (value != null)
-					finalPredicates.add(
-						cb.like(cb.lower(cb.toString(root.get(fieldName))), "%" + value.toString().toLowerCase() + "%")
-					);
-			} else if (op == CompareOperator.EQ) {
-				finalPredicates.add(
-					cb.equal(root.get(fieldName), value)
-				);
-			} else if (op == CompareOperator.GT) {
-				if (value != null)
-					finalPredicates.add(
-						cb.greaterThan(root.get(fieldName), value.toString())
-					);
-			} else if (op == CompareOperator.LT) {
-				if (value != null)
-					finalPredicates.add(
-						cb.lessThan(root.get(fieldName), value.toString())
-					);
-			} else if (op == CompareOperator.AFTER) {
-				if (value instanceof LocalDate)
-					finalPredicates.add(
-						cb.greaterThan(root.get(fieldName), (LocalDate)value)
-					);
-				else if (value instanceof LocalDateTime)
-					finalPredicates.add(
-						cb.greaterThan(root.get(fieldName), (LocalDateTime)value)
-					);
-				
-			} else if (op == CompareOperator.BEFORE) {
-				if (value instanceof LocalDate)
-					finalPredicates.add(
-						cb.lessThan(root.get(fieldName), (LocalDate)value)
-					);
-				else if (value instanceof LocalDateTime)
-					finalPredicates.add(
-						cb.lessThan(root.get(fieldName), (LocalDateTime)value)
-					);
-				
-			}
-        }
-        return finalPredicates;
+	private QueryTemplate buildSearchTemplate(String q, List<QueryFilter> filters, DbField sortField, boolean descending) {
+		SearchParameters parameters = new SearchParameters();
+		String jpql = select() + where(planner.toCondition(q, filters, parameters));
+		if (sortField != null)
+			jpql += " ORDER BY " + ALIAS + "." + sortField.getJavaName() + (descending ? " DESC" : " ASC");
+		
+		return new QueryTemplate(jpql, parameters);
+	}
+	
+	/**
+	 * Returns the `SELECT` clause of the searches, with a left fetch join
+	 * for each eager `@ManyToOne` and `@OneToOne` field, which Hibernate would
+	 * otherwise load with a separate query for each distinct value in the results.
+	 * Lazy ones are loaded in bulk by {@link SnapAdminRepository#prefetch(DbObjectSchema, List)}.
+	 */
+	private String select() {
+		StringBuilder select = new StringBuilder("SELECT " + ALIAS + " FROM " + entityName + " " + ALIAS);
+		for (DbField field : schema.getSingleValuedRelationshipFields()) {
+			if (field.isEagerSingleValuedRelationship())
+				select.append(" LEFT JOIN FETCH " + ALIAS + "." + field.getJavaName());
+		}
+		return select.toString();
+	}
+	
+	private static String where(String condition) {
+		return condition == null ? "" : " WHERE " + condition;
+	}
+	
+	private DbField getSortField(String sortKey) {
+		DbField field = schema.getFieldByJavaName(sortKey);
+		if (field == null)
+			throw new SnapAdminException("Invalid sort key `" + sortKey + "`");
+		return field;
 	}
 }
@@ -8,9 +8,7 @@
 
 package tech.ailef.snapadmin.external.dbmapping;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.lang.invoke.MethodHandle;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -23,8 +21,6 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
-import tech.ailef.snapadmin.external.annotations.DisplayName;
-import tech.ailef.snapadmin.external.dbmapping.fields.BooleanFieldType;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 
@@ -43,6 +39,11 @@ public class DbObject {
 	 */
 	private DbObjectSchema schema;
 	
+	/**
+	 * The prefetched objects linked by this object, null if not prefetched
+	 */
+	private RelationshipCache relationships;
+	
 	public DbObject(Object instance, DbObjectSchema schema) {
 		if (instance == null)
 			throw new SnapAdminException("Trying to build object with instance == null");
@@ -52,7 +53,7 @@ public class DbObject {
 	}
 
 	public boolean has(DbField field) {
-		return findGetter(field.getJavaName()) != null;
+		return field.getGetter() != null;
 	}
 	
 	public Object getUnderlyingInstance() {
@@ -67,7 +68,7 @@ public class DbObject {
 	}
 	
 	public DbFieldValue get(DbField field) {
-		return get(field.getJavaName());
+		return new DbFieldValue(read(field), field);
 	}
 	
 	public DbObject traverse(String fieldName) {
@@ -79,9 +80,14 @@ public class DbObject {
 		ManyToOne manyToOne = field.getPrimitiveField().getAnnotation(ManyToOne.class);
 		OneToOne oneToOne = field.getPrimitiveField().getAnnotation(OneToOne.class);
 		if (oneToOne != null || manyToOne != null) {
-			Object linkedObject = get(field.getJavaName()).getValue();
+			Object linkedObject = read(field);
 			if (linkedObject == null) return null;
 			
+			if (relationships != null) {
+				DbObject prefetched = relationships.get(linkedObject);
+				if (prefetched != null) return prefetched;
+			}
+			
 			DbObject linkedDbObject = new DbObject(linkedObject, field.getConnectedSchema());
 			return linkedDbObject;
 		} else {
@@ -108,50 +114,28 @@ public class DbObject {
 	}
 	
 	public DbFieldValue get(String name) {
-		Method getter = findGetter(name);
+		DbField field = schema.getFieldByJavaName(name);
 		
-		if (getter == null)
+		if (field == null)
 			throw new SnapAdminException("Unable to find getter method for field `"
 				+ name + "` in class " + instance.getClass());
-
-		try {
-			Object result = getter.invoke(instance);
-			return new DbFieldValue(result, schema.getFieldByJavaName(name));
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			throw new SnapAdminException(e);
-		}
+		
+		return get(field);
 	}
 	
 	public Object getPrimaryKeyValue() {
-		DbField primaryKeyField = schema.getPrimaryKey();
-		Method getter = findGetter(primaryKeyField.getJavaName());
-		
-		if (getter == null)
-			throw new SnapAdminException("Unable to find getter method for field `"
-				+ primaryKeyField.getJavaName() + "` in class " + instance.getClass());
-		
-		try {
-			Object result = getter.invoke(instance);
-			return result;
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			throw new SnapAdminException(e);
-		}
+		return read(schema.getPrimaryKey());
 	}
 	
 	public String getDisplayName() {
-		Method[] methods = instance.getClass().getMethods();
+		MethodHandle displayNameHandle = schema.getDisplayNameHandle();
 		
-		Optional<Method> displayNameMethod = 
-			Arrays.stream(methods)
-			      .filter(m -> m.getAnnotation(DisplayName.class) != null)
-			      .findFirst();
-		
-		if (displayNameMethod.isPresent()) {
+		if (displayNameHandle != null) {
 			try {
-				Object displayName = displayNameMethod.get().invoke(instance);
+				Object displayName = (Object)displayNameHandle.invokeExact(instance);
 				if (displayName == null) return null;
 				else return displayName.toString();
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			} catch (Throwable e) {
 				throw new SnapAdminException(e);
 			}
 		} else {
@@ -167,15 +151,23 @@ public class DbObject {
 		return schema;
 	}
 	
+	/**
+	 * Sets the prefetched objects used when traversing relationships
+	 * @param relationships
+	 */
+	public void setRelationshipCache(RelationshipCache relationships) {
+		this.relationships = relationships;
+	}
+	
 	public Object compute(String column) {
-		Method method = schema.getComputedColumn(column);
+		MethodHandle handle = schema.getComputedColumnHandle(column);
 		
-		if (method == null)
+		if (handle == null)
 			throw new SnapAdminException("Unable to find mapped method for @ComputedColumn " + column);
 		
 		try {
-			return method.invoke(instance);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			return (Object)handle.invokeExact(instance);
+		} catch (Throwable e) {
 			throw new SnapAdminException("Error while calling @ComputedColumn " + column
 					+ " on class " + schema.getClassName());
 		}
@@ -192,31 +184,43 @@ public class DbObject {
 					+ ": item does not exist.");
 		}
 		
-		Method setter = findSetter(field.getJavaName());
+		MethodHandle setter = field.getSetter();
 		
 		if (setter == null) {
 			throw new SnapAdminException("Unable to find setter method for " + fieldName + " in " + schema.getClassName());
 		}
 		
 		try {
-			setter.invoke(instance, obj.get());
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			setter.invokeExact(instance, (Object)obj.get());
+		} catch (Throwable e) {
 		}
 	}
 	
 	public void set(String fieldName, Object value) {
-		Method setter = findSetter(fieldName);
+		DbField field = schema.getFieldByJavaName(fieldName);
 		
-		if (setter == null) {
+		if (field == null) {
 			throw new SnapAdminException("Unable to find setter method for " + fieldName + " in " + schema.getClassName());
 		}
 		
-		Class<?>[] types = setter.getParameterTypes();
-		if (types.length != 1) 
-			throw new SnapAdminException("Setter " + setter + " has " + types.length + " parameters (expected 1)");
+		set(field, value);
+	}
+	
+	/**
+	 * Sets the value of a field, converting between collection types
+	 * if the setter expects a different one
+	 * @param field	the field to set
+	 * @param value	the new value
+	 */
+	public void set(DbField field, Object value) {
+		MethodHandle setter = field.getSetter();
+		
+		if (setter == null) {
+			throw new SnapAdminException("Unable to find setter method for " + field.getJavaName() + " in " + schema.getClassName());
+		}
 		
-		Class<?> expectedSetterType = types[0];
-		if (!expectedSetterType.isAssignableFrom(value.getClass())) {
+		Class<?> expectedSetterType = field.getSetterType();
+		if (value != null && !expectedSetterType.isAssignableFrom(value.getClass())) {
 			// If the value is not assignable we check if it's a collection 
 			// mismatch, e.g. the setter expects a Set but we are passing a List
 			// or viceversa
@@ -234,46 +238,34 @@ public class DbObject {
 		
 		
 		try {
-			setter.invoke(instance, value);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			if (e instanceof IllegalArgumentException) {
-				throw new RuntimeException("setter: " + setter + ", passed: " + value.getClass(), e);
-			}
+			setter.invokeExact(instance, value);
+		} catch (ClassCastException e) {
+			throw new RuntimeException("setter: " + field.getJavaName() + " (" + expectedSetterType.getName() 
+				+ "), passed: " + value.getClass(), e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Throwable e) {
 			throw new RuntimeException(e);
 		}
 	}
 	
-	
-	protected Method findSetter(String fieldName) {
-		String capitalize = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-		Method[] methods = instance.getClass().getDeclaredMethods();
-		
-		for (Method m : methods) {
-			if (m.getName().equals("set" + capitalize))
-				return m;
-		}
-		
-		return null;
-	}
-	
-	protected Method findGetter(String fieldName) {
-		String capitalize = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-		Method[] methods = instance.getClass().getDeclaredMethods();
-		
-		DbField dbField = schema.getFieldByJavaName(fieldName);
-		if (dbField == null) return null;
+	/**
+	 * Reads the value of a field through its getter
+	 * @param field	the field to read
+	 * @return the value of the field
+	 */
+	private Object read(DbField field) {
+		MethodHandle getter = field.getGetter();
 		
-		String prefix = "get";
-		if (dbField.getType() instanceof BooleanFieldType) {
-			prefix = "is";
-		}
+		if (getter == null)
+			throw new SnapAdminException("Unable to find getter method for field `"
+				+ field.getJavaName() + "` in class " + instance.getClass());
 		
-		for (Method m : methods) {
-			if (m.getName().equals(prefix + capitalize))
-				return m;
+		try {
+			return (Object)getter.invokeExact(instance);
+		} catch (Throwable e) {
+			throw new SnapAdminException(e);
 		}
-		
-		return null;
 	}
 	
 	/**
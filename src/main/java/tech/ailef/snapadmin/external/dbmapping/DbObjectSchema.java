@@ -8,6 +8,7 @@
 
 package tech.ailef.snapadmin.external.dbmapping;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -17,7 +18,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.web.multipart.MultipartFile;
@@ -29,16 +30,22 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.annotations.CachedEntity;
 import tech.ailef.snapadmin.external.annotations.ComputedColumn;
 import tech.ailef.snapadmin.external.annotations.DisableCreate;
 import tech.ailef.snapadmin.external.annotations.DisableDelete;
 import tech.ailef.snapadmin.external.annotations.DisableEdit;
 import tech.ailef.snapadmin.external.annotations.DisableExport;
+import tech.ailef.snapadmin.external.annotations.DisplayName;
 import tech.ailef.snapadmin.external.annotations.HiddenColumn;
+import tech.ailef.snapadmin.external.annotations.KeysetPagination;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dbmapping.fields.StringFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.TextFieldType;
 import tech.ailef.snapadmin.external.dto.MappingError;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
+import tech.ailef.snapadmin.external.misc.Accessors;
 import tech.ailef.snapadmin.external.misc.Utils;
 
 /**
@@ -60,6 +67,18 @@ public class DbObjectSchema {
 	@JsonIgnore
 	private Map<String, Method> computedColumns = new HashMap<>();
 	
+	/**
+	 * The handles to the `@ComputedColumn` methods, with type `(Object)Object`
+	 */
+	@JsonIgnore
+	private Map<String, MethodHandle> computedColumnHandles = new HashMap<>();
+	
+	/**
+	 * The handle to the `@DisplayName` method, null if the class doesn't have one
+	 */
+	@JsonIgnore
+	private MethodHandle displayNameHandle;
+	
 	/**
 	 * A JPA repository to operate on the database
 	 */
@@ -80,6 +99,60 @@ public class DbObjectSchema {
 	
 	private List<MappingError> errors = new ArrayList<>();
 	
+	/**
+	 * Index of the fields by column name
+	 */
+	@JsonIgnore
+	private Map<String, DbField> fieldsByName = new HashMap<>();
+	
+	/**
+	 * Index of the fields by Java name
+	 */
+	@JsonIgnore
+	private Map<String, DbField> fieldsByJavaName = new HashMap<>();
+	
+	@JsonIgnore
+	private DbField primaryKey;
+	
+	/**
+	 * Whether the schema has been frozen, after which fields can't be
+	 * added anymore and the derived views below are precomputed
+	 */
+	private boolean frozen = false;
+	
+	@JsonIgnore
+	private List<DbField> sortedFields;
+	
+	@JsonIgnore
+	private List<DbField> editableSortedFields;
+	
+	@JsonIgnore
+	private Set<String> sortedFieldNames;
+	
+	@JsonIgnore
+	private List<DbField> relationshipFields;
+	
+	@JsonIgnore
+	private List<DbField> manyToManyOwnedFields;
+	
+	@JsonIgnore
+	private List<DbField> singleValuedRelationshipFields;
+	
+	@JsonIgnore
+	private List<DbField> filterableFields;
+	
+	@JsonIgnore
+	private List<DbField> bulkUpdatableFields;
+	
+	@JsonIgnore
+	private List<DbField> searchableFields;
+	
+	@JsonIgnore
+	private List<String> computedColumnNames;
+	
+	@JsonIgnore
+	private WritePlan writePlan;
+	
 	/**
 	 * Initializes this schema for the specific `@Entity` class. 
 	 * Determines the table name from the `@Table` annotation and also
@@ -113,7 +186,14 @@ public class DbObjectSchema {
 				name = Utils.camelToSnake(m.getName());
 			
 			computedColumns.put(name, m);
+			computedColumnHandles.put(name, Accessors.toGetter(m));
 		}
+		
+		this.displayNameHandle = Arrays.stream(entityClass.getMethods())
+			.filter(m -> m.getAnnotation(DisplayName.class) != null)
+			.findFirst()
+			.map(Accessors::toGetter)
+			.orElse(null);
 	}
 	
 	public String getBasePackage() {
@@ -153,11 +233,11 @@ public class DbObjectSchema {
 	 * @return an unmodifiable list of all the fields in the schema
 	 */
 	public List<DbField> getFields() {
-		return Collections.unmodifiableList(fields);
+		return frozen ? fields : Collections.unmodifiableList(fields);
 	}
 	
 	public List<MappingError> getErrors() {
-		return Collections.unmodifiableList(errors);
+		return frozen ? errors : Collections.unmodifiableList(errors);
 	}
 	
 	/**
@@ -167,7 +247,7 @@ public class DbObjectSchema {
 	 * @return	the DbField if found, null otherwise
 	 */
 	public DbField getFieldByJavaName(String name) {
-		return fields.stream().filter(f -> f.getJavaName().equals(name)).findFirst().orElse(null);
+		return fieldsByJavaName.get(name);
 	}
 	
 	/**
@@ -177,7 +257,7 @@ public class DbObjectSchema {
 	 * @return	the DbField if found, null otherwise
 	 */
 	public DbField getFieldByName(String name) {
-		return fields.stream().filter(f -> f.getName().equals(name)).findFirst().orElse(null);
+		return fieldsByName.get(name);
 	}
 	
 	/**
@@ -186,13 +266,46 @@ public class DbObjectSchema {
 	 * @param f	the DbField to add
 	 */
 	public void addField(DbField f) {
+		if (frozen)
+			throw new SnapAdminException("Cannot add field " + f.getName() + " to frozen schema " + getClassName());
+		
 		fields.add(f);
+		fieldsByName.putIfAbsent(f.getName(), f);
+		fieldsByJavaName.putIfAbsent(f.getJavaName(), f);
+		if (primaryKey == null && f.isPrimaryKey())
+			primaryKey = f;
 	}
 	
 	public void addError(MappingError error) {
+		if (frozen)
+			throw new SnapAdminException("Cannot add errors to frozen schema " + getClassName());
+		
 		errors.add(error);
 	}
 	
+	/**
+	 * Makes this schema immutable and precomputes the derived lists of fields.
+	 * This is called by the SnapAdmin instance once all the schemas have been
+	 * loaded, since some of the lists depend on which classes are managed.
+	 */
+	public void freeze() {
+		sortedFields = List.copyOf(computeSortedFields(true));
+		editableSortedFields = List.copyOf(computeSortedFields(false));
+		sortedFieldNames = sortedFields.stream().map(f -> f.getName()).collect(Collectors.toUnmodifiableSet());
+		relationshipFields = List.copyOf(computeRelationshipFields());
+		manyToManyOwnedFields = List.copyOf(computeManyToManyOwnedFields());
+		singleValuedRelationshipFields = List.copyOf(computeSingleValuedRelationshipFields());
+		filterableFields = List.copyOf(computeFilterableFields());
+		bulkUpdatableFields = List.copyOf(computeBulkUpdatableFields());
+		searchableFields = List.copyOf(computeSearchableFields());
+		computedColumnNames = List.copyOf(computeComputedColumnNames());
+		writePlan = new WritePlan(this);
+		
+		fields = List.copyOf(fields);
+		errors = List.copyOf(errors);
+		frozen = true;
+	}
+	
 	/**
 	 * Returns the underlying CustomJpaRepository
 	 * @return
@@ -240,6 +353,25 @@ public class DbObjectSchema {
 	 * @return 
 	 */
 	public List<DbField> getSortedFields(boolean readOnly) {
+		if (frozen)
+			return readOnly ? sortedFields : editableSortedFields;
+		
+		return computeSortedFields(readOnly);
+	}
+	
+	/**
+	 * Returns the names of the fields returned by {@link DbObjectSchema#getSortedFields()}
+	 * @return
+	 */
+	@JsonIgnore
+	public Set<String> getSortedFieldNames() {
+		if (frozen)
+			return sortedFieldNames;
+		
+		return computeSortedFields(true).stream().map(f -> f.getName()).collect(Collectors.toSet());
+	}
+	
+	private List<DbField> computeSortedFields(boolean readOnly) {
 		return getFields().stream()
 			.filter(f -> {
 				boolean toMany = f.getPrimitiveField().getAnnotation(OneToMany.class) == null
@@ -273,6 +405,13 @@ public class DbObjectSchema {
 	 * @return
 	 */
 	public List<DbField> getRelationshipFields() {
+		if (frozen)
+			return relationshipFields;
+		
+		return computeRelationshipFields();
+	}
+	
+	private List<DbField> computeRelationshipFields() {
 		List<DbField> res = getFields().stream().filter(f -> {
 			return f.getPrimitiveField().getAnnotation(OneToMany.class) != null
 				|| f.getPrimitiveField().getAnnotation(ManyToMany.class) != null;
@@ -288,6 +427,13 @@ public class DbObjectSchema {
 	 * @return
 	 */
 	public List<DbField> getManyToManyOwnedFields() {
+		if (frozen)
+			return manyToManyOwnedFields;
+		
+		return computeManyToManyOwnedFields();
+	}
+	
+	private List<DbField> computeManyToManyOwnedFields() {
 		List<DbField> res = getFields().stream().filter(f -> {
 			ManyToMany anno = f.getPrimitiveField().getAnnotation(ManyToMany.class);
 			return anno != null && anno.mappedBy().isBlank();
@@ -295,15 +441,34 @@ public class DbObjectSchema {
 		return res;
 	}
 	
+	/**
+	 * Returns the list of `@ManyToOne` and `@OneToOne` fields
+	 * linking to managed classes
+	 * @return
+	 */
+	@JsonIgnore
+	public List<DbField> getSingleValuedRelationshipFields() {
+		if (frozen)
+			return singleValuedRelationshipFields;
+		
+		return computeSingleValuedRelationshipFields();
+	}
+	
+	private List<DbField> computeSingleValuedRelationshipFields() {
+		return getFields().stream()
+			.filter(f -> f.isSingleValuedRelationship() && f.getConnectedType() != null)
+			.filter(f -> snapAdmin.isManagedClass(f.getConnectedType()))
+			.toList();
+	}
+	
 	/**
 	 * Returns the DbField which serves as the primary key for this schema
 	 * @return
 	 */
 	@JsonIgnore
 	public DbField getPrimaryKey() {
-		Optional<DbField> pk = fields.stream().filter(f -> f.isPrimaryKey()).findFirst();
-		if (pk.isPresent())
-			return pk.get();
+		if (primaryKey != null)
+			return primaryKey;
 		else
 			throw new RuntimeException("No primary key defined on " + entityClass.getName() + " (table `" + tableName + "`)");
 	}
@@ -313,6 +478,13 @@ public class DbObjectSchema {
 	 * @return
 	 */
 	public List<String> getComputedColumnNames() {
+		if (frozen)
+			return computedColumnNames;
+		
+		return computeComputedColumnNames();
+	}
+	
+	private List<String> computeComputedColumnNames() {
 		return computedColumns.keySet().stream().sorted().toList();
 	}
 	
@@ -325,16 +497,99 @@ public class DbObjectSchema {
 		return computedColumns.get(name);
 	}
 	
+	/**
+	 * Returns the handle for the given `@ComputedColumn` name, with type `(Object)Object`
+	 * @param name the name of the `@ComputedColumn`
+	 * @return the corresponding method handle if found, null otherwise
+	 */
+	@JsonIgnore
+	public MethodHandle getComputedColumnHandle(String name) {
+		return computedColumnHandles.get(name);
+	}
+	
+	/**
+	 * Returns the handle to the method annotated with `@DisplayName`, with type `(Object)Object`
+	 * @return the method handle, null if the class doesn't have a `@DisplayName` method
+	 */
+	@JsonIgnore
+	public MethodHandle getDisplayNameHandle() {
+		return displayNameHandle;
+	}
+	
 	/**
 	 * Returns the list of fields that are `@Filterable`
 	 * @return 
 	 */
 	public List<DbField> getFilterableFields() {
+		if (frozen)
+			return filterableFields;
+		
+		return computeFilterableFields();
+	}
+	
+	private List<DbField> computeFilterableFields() {
 		return getSortedFields().stream().filter(f -> { 
 			return !f.isBinary() && !f.isPrimaryKey() && f.isFilterable();
 		}).toList();
 	}
 	
+	/**
+	 * Returns the list of fields that can be set to the same value
+	 * on multiple rows at once
+	 * @return
+	 */
+	@JsonIgnore
+	public List<DbField> getBulkUpdatableFields() {
+		if (frozen)
+			return bulkUpdatableFields;
+		
+		return computeBulkUpdatableFields();
+	}
+	
+	private List<DbField> computeBulkUpdatableFields() {
+		return getSortedFields(false).stream().filter(f -> {
+			return !f.isBinary() && !f.isPrimaryKey() && !f.isReadOnly() && (f.isSettable() || f.isToOne());
+		}).toList();
+	}
+	
+	/**
+	 * Returns the list of fields the search query is matched against: the
+	 * `@Searchable` fields if there are any, otherwise all the text fields
+	 * @return
+	 */
+	@JsonIgnore
+	public List<DbField> getSearchableFields() {
+		if (frozen)
+			return searchableFields;
+		
+		return computeSearchableFields();
+	}
+	
+	/**
+	 * Returns how the values of the create and edit forms are written to the fields
+	 * @return
+	 */
+	@JsonIgnore
+	public WritePlan getWritePlan() {
+		if (frozen)
+			return writePlan;
+		
+		return new WritePlan(this);
+	}
+	
+	private List<DbField> computeSearchableFields() {
+		List<DbField> annotated = getSortedFields().stream().filter(f -> {
+			return !f.isBinary() && f.isSearchable();
+		}).toList();
+		
+		if (!annotated.isEmpty())
+			return annotated;
+		
+		return getSortedFields().stream().filter(f -> {
+			return f.getType() instanceof StringFieldType || f.getType() instanceof TextFieldType;
+		}).toList();
+	}
+	
 	public boolean isDeleteEnabled() {
 		return entityClass.getAnnotation(DisableDelete.class) == null;
 	}
@@ -351,6 +606,24 @@ public class DbObjectSchema {
 		return entityClass.getAnnotation(DisableExport.class) == null;
 	}
 	
+	/**
+	 * Returns whether keyset pagination has been enabled on this schema
+	 * with the `@KeysetPagination` annotation
+	 * @return
+	 */
+	public boolean isKeysetPaginationEnabled() {
+		return entityClass.getAnnotation(KeysetPagination.class) != null;
+	}
+	
+	/**
+	 * Returns whether the items of this schema are cached, i.e. if the class is marked
+	 * with the `@CachedEntity` annotation
+	 * @return
+	 */
+	public boolean isCacheEnabled() {
+		return entityClass.getAnnotation(CachedEntity.class) != null;
+	}
+	
 	/**
 	 * Returns all the data in this schema, as `DbObject`s
 	 * @return
@@ -375,18 +648,15 @@ public class DbObjectSchema {
 				if (dbField == null)
 					throw new SnapAdminNotFoundException("Cannot find field " + param + " in " + getJavaClass().getName());
 				
-				String javaFieldName = dbField.getJavaName();
-				Method setter = dbObject.findSetter(javaFieldName);
-				
-				if (setter ==  null) {
-					throw new RuntimeException("Cannot find setter for " + javaFieldName);
+				if (dbField.getSetter() ==  null) {
+					throw new RuntimeException("Cannot find setter for " + dbField.getJavaName());
 				}
 				
 				Object parsedFieldValue = 
 					getFieldByName(param).getType().parseValue(params.get(param));
 
 				if (parsedFieldValue != null && getFieldByName(param).isSettable()) {
-					setter.invoke(instance, parsedFieldValue);
+					dbObject.set(dbField, parsedFieldValue);
 				}
 				
 				if (parsedFieldValue != null && getFieldByName(param).isToOne()) {
@@ -397,10 +667,9 @@ public class DbObjectSchema {
 			for (String fileParam : files.keySet()) {
 				if (fileParam.startsWith("__")) continue;
 
-				String javaFieldName = getFieldByName(fileParam).getJavaName();
-				Method setter = dbObject.findSetter(javaFieldName);
+				DbField dbField = getFieldByName(fileParam);
 				
-				if (setter ==  null) {
+				if (dbField.getSetter() ==  null) {
 					throw new RuntimeException("Cannot find setter for " + fileParam);
 				}
 				
@@ -408,7 +677,7 @@ public class DbObjectSchema {
 						getFieldByName(fileParam).getType().parseValue(params.get(fileParam));
 				
 				if (parsedFieldValue != null && getFieldByName(fileParam).isSettable()) {
-					setter.invoke(instance, parsedFieldValue);
+					dbObject.set(dbField, parsedFieldValue);
 				}
 			}
 			
@@ -0,0 +1,466 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+
+/**
+ * Read-through cache of the items shown in the detail and edit pages, for
+ * the schemas marked with `@CachedEntity` (or all of them, if `snapadmin.entityCache`
+ * is enabled).
+ *
+ * When an item is loaded, the relationships and the display names used by the
+ * pages are loaded as well, then the item is detached, so that the cached copy
+ * can be shown to other users without going back to the database.
+ * Items that can't be fully loaded, e.g. because their computed columns fail,
+ * are not cached. Neither are items with more than {@link #MAX_COLLECTION_SIZE}
+ * items in one of the collections shown by the detail page: they are counted
+ * first, so large collections are never loaded by the cache.
+ *
+ * The least recently used items are evicted once there are more than `entityCacheSize`
+ * or they take more than `entityCacheMemory` megabytes, as estimated from their
+ * values. Items expire after `entityCacheTtl` seconds, so that the changes made
+ * outside SnapAdmin are eventually shown. Changes made through JPA, including
+ * those made by SnapAdmin, remove the changed items, along with the items of the
+ * schemas linked to them, as soon as they are committed.
+ */
+@Component
+public class EntityCache {
+	private static final Logger logger = LoggerFactory.getLogger(EntityCache.class);
+
+	/**
+	 * The estimated size in bytes of an object, before its values
+	 */
+	private static final int OBJECT_SIZE = 64;
+
+	/**
+	 * The estimated size in bytes of a value which is not a string or an array
+	 */
+	private static final int VALUE_SIZE = 16;
+
+	/**
+	 * The maximum number of items in each collection of a cached item
+	 */
+	static final int MAX_COLLECTION_SIZE = 100;
+
+	private SnapAdmin snapAdmin;
+
+	private EntityManager entityManager;
+
+	private boolean cacheAll;
+
+	private int maxSize;
+
+	private long maxBytes;
+
+	private long ttlNanos;
+
+	/**
+	 * The cached items, in access order, guarded by `this`
+	 */
+	private LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The estimated size of the cached items, guarded by `this`
+	 */
+	private long bytes;
+
+	/**
+	 * Incremented on each invalidation, so that an item loaded before a change
+	 * and put in the cache after it is discarded
+	 */
+	private AtomicLong version = new AtomicLong();
+
+	/**
+	 * The schemas whose cached items may show items of a schema, by class name
+	 */
+	private Map<String, Set<String>> linkedSchemas = new ConcurrentHashMap<>();
+
+	private Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+	private AtomicLong evictions = new AtomicLong();
+
+	public EntityCache(SnapAdmin snapAdmin, EntityManager entityManager, SnapAdminProperties properties,
+			SnapAdminMetrics metrics) {
+		this.snapAdmin = snapAdmin;
+		this.entityManager = entityManager;
+		this.cacheAll = properties.isEntityCache();
+		this.maxSize = properties.getEntityCacheSize();
+		this.maxBytes = properties.getEntityCacheMemory() * 1024L * 1024L;
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(properties.getEntityCacheTtl());
+
+		metrics.counter("snapadmin.entity.cache.hits", this, EntityCache::getHits);
+		metrics.counter("snapadmin.entity.cache.misses", this, EntityCache::getMisses);
+		metrics.counter("snapadmin.entity.cache.evictions", this, EntityCache::getEvictions);
+		metrics.gauge("snapadmin.entity.cache.size", this, EntityCache::size);
+		metrics.gauge("snapadmin.entity.cache.bytes", this, EntityCache::getBytes);
+	}
+
+	/**
+	 * Registers the listener that removes the changed items from the cache
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		if (maxSize <= 0) return;
+
+		EntityChangeListener.register(entityManager, snapAdmin, (schema, id, entity, deleted) -> evict(schema, id));
+	}
+
+	/**
+	 * Returns whether the items of a schema are cached
+	 * @param schema
+	 * @return
+	 */
+	public boolean isEnabled(DbObjectSchema schema) {
+		return maxSize > 0 && (cacheAll || schema.isCacheEnabled());
+	}
+
+	/**
+	 * Returns an item from the cache, loading it on a miss
+	 * @param schema	the schema of the item
+	 * @param id	the primary key value
+	 * @param loader	loads the item from the database
+	 * @return an optional with the item, empty if it doesn't exist
+	 */
+	public Optional<DbObject> get(DbObjectSchema schema, Object id, Supplier<Optional<DbObject>> loader) {
+		String key = key(schema, id);
+		Stats schemaStats = stats.computeIfAbsent(schema.getTableName(), Stats::new);
+
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && System.nanoTime() - entry.createdNanos < ttlNanos) {
+				schemaStats.hits.incrementAndGet();
+				return Optional.of(entry.object);
+			}
+			if (entry != null)
+				remove(key);
+		}
+
+		schemaStats.misses.incrementAndGet();
+		long loadedVersion = version.get();
+		Optional<DbObject> object = loader.get();
+		if (object.isEmpty() || !hasSmallCollections(object.get()))
+			return object;
+
+		long size;
+		try {
+			size = load(object.get());
+		} catch (RuntimeException e) {
+			logger.debug("Not caching " + schema.getClassName() + " with id " + id, e);
+			return object;
+		}
+
+		if (entityManager.contains(object.get().getUnderlyingInstance()))
+			entityManager.detach(object.get().getUnderlyingInstance());
+
+		synchronized (this) {
+			if (version.get() == loadedVersion && size <= maxBytes) {
+				Entry previous = entries.put(key, new Entry(schema.getClassName(), object.get(), size));
+				if (previous != null)
+					bytes -= previous.size;
+				bytes += size;
+				evict();
+			}
+		}
+
+		return object;
+	}
+
+	/**
+	 * Removes an item from the cache, along with the items of the schemas linked
+	 * to its schema, which may show it
+	 * @param schema	the schema of the changed item
+	 * @param id	the primary key value
+	 */
+	public void evict(DbObjectSchema schema, Object id) {
+		if (maxSize <= 0) return;
+
+		version.incrementAndGet();
+		synchronized (this) {
+			remove(key(schema, id));
+			removeAll(getLinkedSchemas(schema));
+		}
+	}
+
+	/**
+	 * Removes all the items of a schema from the cache, along with the items of
+	 * the schemas linked to it. Used when items are changed in bulk.
+	 * @param schema	the changed schema
+	 */
+	public void invalidate(DbObjectSchema schema) {
+		if (maxSize <= 0) return;
+
+		version.incrementAndGet();
+		Set<String> classNames = new HashSet<>(getLinkedSchemas(schema));
+		classNames.add(schema.getClassName());
+		synchronized (this) {
+			removeAll(classNames);
+		}
+	}
+
+	/**
+	 * Returns whether the collections shown by the detail page have at most
+	 * {@link #MAX_COLLECTION_SIZE} items, counting them with a query
+	 * @param object	the item
+	 */
+	private boolean hasSmallCollections(DbObject object) {
+		DbObjectSchema schema = object.getSchema();
+		for (DbField field : schema.getRelationshipFields()) {
+			Long count = entityManager.createQuery(
+					"SELECT COUNT(c) FROM " + schema.getJpaRepository().getEntityName() + " p JOIN p."
+						+ field.getJavaName() + " c WHERE p." + schema.getPrimaryKey().getJavaName() + " = :id", Long.class)
+				.setParameter("id", object.getPrimaryKeyValue())
+				.getSingleResult();
+			if (count > MAX_COLLECTION_SIZE)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the relationships, display names and computed columns of an item,
+	 * which are read by the detail and edit pages. Collections are only loaded
+	 * if the detail page shows them.
+	 * @param object	the item
+	 * @return the estimated size of the item and of the items linked to it, in bytes
+	 */
+	private long load(DbObject object) {
+		long size = estimateSize(object);
+		object.getDisplayName();
+
+		List<DbField> collections = object.getSchema().getRelationshipFields();
+		for (DbField field : object.getSchema().getFields()) {
+			if (field.getConnectedSchema() == null || !object.has(field))
+				continue;
+
+			if (field.getPrimitiveField().getAnnotation(OneToMany.class) != null
+					|| field.getPrimitiveField().getAnnotation(ManyToMany.class) != null) {
+				if (!collections.contains(field))
+					continue;
+
+				for (DbObject linked : object.traverseMany(field)) {
+					linked.getDisplayName();
+					size += estimateSize(linked);
+				}
+			} else {
+				DbObject linked = object.traverse(field);
+				if (linked != null) {
+					linked.getDisplayName();
+					size += estimateSize(linked);
+				}
+			}
+		}
+
+		for (String column : object.getComputedColumns()) {
+			object.compute(column);
+		}
+
+		return size;
+	}
+
+	private long estimateSize(DbObject object) {
+		long size = OBJECT_SIZE;
+		for (DbField field : object.getSchema().getFields()) {
+			if (field.getConnectedSchema() != null || !object.has(field))
+				continue;
+
+			Object value = object.get(field).getValue();
+			if (value instanceof byte[] array)
+				size += VALUE_SIZE + array.length;
+			else if (value instanceof CharSequence string)
+				size += OBJECT_SIZE + 2L * string.length();
+			else
+				size += VALUE_SIZE;
+		}
+		return size;
+	}
+
+	/**
+	 * Evicts the least recently used items until the cache fits its limits
+	 */
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while ((entries.size() > maxSize || bytes > maxBytes) && iterator.hasNext()) {
+			bytes -= iterator.next().size;
+			iterator.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null)
+			bytes -= entry.size;
+	}
+
+	private void removeAll(Set<String> classNames) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (classNames.contains(entry.className)) {
+				bytes -= entry.size;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the schemas whose items may show the items of a schema, i.e.
+	 * those it links to and those linking to it
+	 */
+	private Set<String> getLinkedSchemas(DbObjectSchema schema) {
+		return linkedSchemas.computeIfAbsent(schema.getClassName(), className -> {
+			Set<String> result = new HashSet<>();
+			for (DbField field : schema.getFields()) {
+				if (field.getConnectedSchema() != null)
+					result.add(field.getConnectedSchema().getClassName());
+			}
+			for (DbObjectSchema other : snapAdmin.getSchemas()) {
+				for (DbField field : other.getFields()) {
+					if (field.getConnectedSchema() != null
+							&& field.getConnectedSchema().getClassName().equals(className))
+						result.add(other.getClassName());
+				}
+			}
+			return result;
+		});
+	}
+
+	private String key(DbObjectSchema schema, Object id) {
+		return schema.getClassName() + "#" + id;
+	}
+
+	/**
+	 * Returns the hits and misses of each table, sorted by table name
+	 * @return
+	 */
+	public List<Stats> getStats() {
+		List<Stats> result = new ArrayList<>(stats.values());
+		result.sort(Comparator.comparing(Stats::getTable));
+		return result;
+	}
+
+	public long getHits() {
+		return stats.values().stream().mapToLong(Stats::getHits).sum();
+	}
+
+	public long getMisses() {
+		return stats.values().stream().mapToLong(Stats::getMisses).sum();
+	}
+
+	/**
+	 * Returns the number of items evicted because the cache was full
+	 * @return
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns the number of items currently in the cache
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the estimated size in bytes of the items currently in the cache
+	 * @return
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	private static class Entry {
+		private String className;
+
+		private DbObject object;
+
+		private long size;
+
+		private long createdNanos = System.nanoTime();
+
+		private Entry(String className, DbObject object, long size) {
+			this.className = className;
+			this.object = object;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The hits and misses of the cache on a table
+	 */
+	public static class Stats {
+		private String table;
+
+		private AtomicLong hits = new AtomicLong();
+
+		private AtomicLong misses = new AtomicLong();
+
+		private Stats(String table) {
+			this.table = table;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public long getHits() {
+			return hits.get();
+		}
+
+		public long getMisses() {
+			return misses.get();
+		}
+
+		/**
+		 * Returns the percentage of requests served from the cache
+		 * @return
+		 */
+		public double getHitRate() {
+			long total = hits.get() + misses.get();
+			return total == 0 ? 0 : hits.get() * 100.0 / total;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdmin;
+
+/**
+ * Notifies a SnapAdmin component of the changes to the user entities, once they
+ * have been committed, wherever they are made in the application. Changes to the
+ * collections of an entity (e.g. a many-to-many relationship) don't modify the
+ * entity itself, so they are reported as an update of the owner of the collection.
+ *
+ * Changes made with bulk statements are not reported, so the components must be
+ * notified explicitly by the code running them.
+ */
+public class EntityChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+		PostCommitDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+		PostCollectionRemoveEventListener {
+
+	/**
+	 * What to do when an entity has changed
+	 */
+	@FunctionalInterface
+	public interface Callback {
+		/**
+		 * @param schema	the schema of the changed entity
+		 * @param id	the primary key value
+		 * @param entity	the entity, as it has been committed
+		 * @param deleted	whether the entity has been deleted
+		 */
+		void onChange(DbObjectSchema schema, Object id, Object entity, boolean deleted);
+	}
+
+	private SnapAdmin snapAdmin;
+
+	private List<Callback> callbacks = new CopyOnWriteArrayList<>();
+
+	private EntityChangeListener(SnapAdmin snapAdmin) {
+		this.snapAdmin = snapAdmin;
+	}
+
+	/**
+	 * Registers a callback for the changes to the entities managed by SnapAdmin.
+	 * Hibernate accepts a single listener of each class, so all the callbacks
+	 * share the same listener.
+	 * @param entityManager	the entity manager of the user entities
+	 * @param snapAdmin
+	 * @param callback	called once for each changed entity, after commit
+	 */
+	public static synchronized void register(EntityManager entityManager, SnapAdmin snapAdmin, Callback callback) {
+		EventListenerRegistry registry = entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactoryImplementor.class)
+			.getServiceRegistry()
+			.getService(EventListenerRegistry.class);
+
+		for (Object existing : registry.getEventListenerGroup(EventType.POST_COMMIT_INSERT).listeners()) {
+			if (existing instanceof EntityChangeListener listener) {
+				listener.callbacks.add(callback);
+				return;
+			}
+		}
+
+		EntityChangeListener listener = new EntityChangeListener(snapAdmin);
+		listener.callbacks.add(callback);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		publish(event.getPersister().getMappedClass(), event.getId(), event.getEntity(), false);
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		publish(event.getPersister().getMappedClass(), event.getId(), event.getEntity(), false);
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		publish(event.getPersister().getMappedClass(), event.getId(), event.getEntity(), true);
+	}
+
+	@Override
+	public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+		notifyOwner(event);
+	}
+
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+		notifyOwner(event);
+	}
+
+	@Override
+	public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+		notifyOwner(event);
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return snapAdmin.isManagedClass(persister.getMappedClass());
+	}
+
+	@Override
+	public void onPostInsertCommitFailed(PostInsertEvent event) {
+	}
+
+	@Override
+	public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+	}
+
+	@Override
+	public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+	}
+
+	private void publish(Class<?> klass, Object id, Object entity, boolean deleted) {
+		if (!snapAdmin.isManagedClass(klass))
+			return;
+
+		DbObjectSchema schema = snapAdmin.findSchemaByClass(klass);
+		for (Callback callback : callbacks) {
+			callback.onChange(schema, id, entity, deleted);
+		}
+	}
+
+	/**
+	 * Collection events are fired on flush, so the owner is notified after commit
+	 */
+	private void notifyOwner(AbstractCollectionEvent event) {
+		Object owner = event.getAffectedOwnerOrNull();
+		Object id = event.getAffectedOwnerIdOrNull();
+		if (owner == null || id == null)
+			return;
+
+		Class<?> klass = Hibernate.getClass(owner);
+		if (!snapAdmin.isManagedClass(klass))
+			return;
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					publish(klass, id, owner, false);
+				}
+			});
+		} else {
+			publish(klass, id, owner, false);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The objects linked by the `@ManyToOne` and `@OneToOne` fields of a page
+ * or batch of objects, loaded in advance with one query per linked schema
+ * by {@link SnapAdminRepository#prefetch(DbObjectSchema, java.util.List)}.
+ *
+ * Objects are keyed by the identity of the reference held by the owning entity,
+ * usually a lazy proxy, so that traversing a relationship doesn't initialize
+ * the proxy with a separate query.
+ */
+public class RelationshipCache {
+	private Map<Object, DbObject> objects = new IdentityHashMap<>();
+
+	/**
+	 * Returns the object loaded for the given reference
+	 * @param reference	the value of the relationship field in the owning entity
+	 * @return the loaded object, or null if it was not prefetched
+	 */
+	public DbObject get(Object reference) {
+		return objects.get(reference);
+	}
+
+	/**
+	 * Stores the object loaded for the given reference
+	 * @param reference	the value of the relationship field in the owning entity
+	 * @param object	the loaded object
+	 */
+	public void put(Object reference, DbObject object) {
+		objects.put(reference, object);
+	}
+
+	/**
+	 * Returns the number of prefetched references
+	 * @return
+	 */
+	public int size() {
+		return objects.size();
+	}
+}
@@ -9,67 +9,185 @@
 
 package tech.ailef.snapadmin.external.dbmapping;
 
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.TransientDataAccessResourceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
 import tech.ailef.snapadmin.external.annotations.ReadOnly;
+import tech.ailef.snapadmin.external.dbmapping.count.RowCount;
+import tech.ailef.snapadmin.external.dbmapping.count.RowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.fields.BigDecimalFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.BigIntegerFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.ByteFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.DateFieldType;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.DoubleFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.FloatFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.IntegerFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.LocalDateFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.LocalDateTimeFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.LongFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.ShortFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.StringFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.UUIDFieldType;
 import tech.ailef.snapadmin.external.dbmapping.query.DbQueryOutputField;
 import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResult;
-import tech.ailef.snapadmin.external.dbmapping.query.DbQueryResultRow;
+import tech.ailef.snapadmin.external.dbmapping.search.AutocompleteIndex;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackend;
+import tech.ailef.snapadmin.external.dto.BulkOperationResult;
 import tech.ailef.snapadmin.external.dto.FacetedSearchRequest;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.external.dto.PaginatedResult;
 import tech.ailef.snapadmin.external.dto.PaginationInfo;
 import tech.ailef.snapadmin.external.dto.QueryFilter;
 import tech.ailef.snapadmin.external.exceptions.InvalidPageException;
 import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminNotFoundException;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+import tech.ailef.snapadmin.external.service.TreePathIndex;
+import tech.ailef.snapadmin.internal.model.UserAction;
+import tech.ailef.snapadmin.internal.service.UserActionService;
 
 /**
  * Implements the basic CRUD operations (and some more)
  */
 @Component
 public class SnapAdminRepository {
+	/**
+	 * The types of fields, other than the primary key, that can be used as sort
+	 * key with keyset pagination
+	 */
+	private static final Set<Class<? extends DbFieldType>> KEYSET_SORT_TYPES = Set.of(
+		LongFieldType.class, IntegerFieldType.class, ShortFieldType.class, ByteFieldType.class,
+		BigIntegerFieldType.class, BigDecimalFieldType.class, DoubleFieldType.class, FloatFieldType.class,
+		StringFieldType.class, UUIDFieldType.class, LocalDateFieldType.class, LocalDateTimeFieldType.class,
+		DateFieldType.class
+	);
+	
+	/**
+	 * The maximum number of rows fetched per round trip by SQL console queries
+	 */
+	private static final int CONSOLE_FETCH_SIZE = 1000;
+	
+	/**
+	 * The maximum number of primary keys in a single query when prefetching relationships
+	 */
+	private static final int PREFETCH_CHUNK_SIZE = 500;
+	
 	@Autowired
 	private JdbcTemplate jdbcTemplate;
 	
 	@Autowired
 	private SnapAdmin snapAdmin;
 	
+	@Autowired
+	private EntityManager entityManager;
+	
+	@Autowired
+	private RowCountStrategy rowCountStrategy;
+	
+	@Autowired
+	private SearchBackend searchBackend;
+	
+	@Autowired
+	private AutocompleteIndex autocompleteIndex;
+	
+	@Autowired
+	private EntityCache entityCache;
+
+	@Autowired
+	private BlobRepository blobRepository;
+	
+	/**
+	 * Lazy, since the index reads the trees through this repository
+	 */
+	@Lazy
+	@Autowired
+	private TreePathIndex treePathIndex;
+	
+	@Autowired
+	private SnapAdminProperties properties;
+	
+	@Autowired
+	private SnapAdminMetrics metrics;
+	
+	@Autowired
+	private UserActionService userActionService;
+	
+	/**
+	 * The application's validator, shared with the imports
+	 */
+	@Autowired
+	private Validator validator;
+	
+	/**
+	 * The SQL console queries currently running, by key, so they can be cancelled
+	 */
+	private Map<String, Statement> runningQueries = new ConcurrentHashMap<>();
+	
 	public SnapAdminRepository() {
 	}
 
 	/**
-	 * Find an object by ID
+	 * Find an object by ID, from the {@link EntityCache} if the schema is cached
 	 * @param schema	the schema where to look
 	 * @param id	the primary key value
 	 * @return	an optional with the object with the specified primary key value
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public Optional<DbObject> findById(DbObjectSchema schema, Object id) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "findById", schema)) {
+			if (entityCache.isEnabled(schema))
+				return entityCache.get(schema, id, () -> load(schema, id));
+			return load(schema, id);
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Optional<DbObject> load(DbObjectSchema schema, Object id) {
 		SimpleJpaRepository repository = schema.getJpaRepository();
 		
 		Optional optional = repository.findById(id);
@@ -82,7 +200,9 @@ public class SnapAdminRepository {
 	}
 
 	public long count(DbObjectSchema schema) {
-		return schema.getJpaRepository().count();
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "count", schema)) {
+			return schema.getJpaRepository().count();
+		}
 	}
 	
 	/**
@@ -92,17 +212,105 @@ public class SnapAdminRepository {
 	 * @return
 	 */
 	public long count(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
-		return schema.getJpaRepository().count(query, queryFilters);
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "count", schema)) {
+			return schema.getJpaRepository().count(query, queryFilters);
+		}
+	}
+	
+	/**
+	 * Returns the query executed for the fuzzy search and filters, in HQL
+	 * @param schema	the schema to search
+	 * @param query	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @return the HQL query
+	 */
+	public String explainSearch(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
+		return schema.getJpaRepository().explainSearch(query, queryFilters);
+	}
+	
+	/**
+	 * Counts the rows of the schema with the configured {@link RowCountStrategy},
+	 * which may return a cached value or an estimate instead of an exact count
+	 * @param schema	the schema to count the rows of
+	 * @return the (possibly estimated) number of rows
+	 */
+	public RowCount countRows(DbObjectSchema schema) {
+		return rowCountStrategy.count(schema, null, null);
+	}
+	
+	/**
+	 * Builds the pagination info for a loaded page. When the total count is
+	 * an estimate, the last page is inferred from the number of results
+	 * actually loaded instead of trusting the count.
+	 */
+	private PaginationInfo buildPagination(RowCount rowCount, int page, int pageSize, int results,
+			String query, Set<QueryFilter> queryFilters) {
+		int maxPage = (int)(Math.ceil ((double)rowCount.getValue() / pageSize));
+		
+		if (rowCount.isEstimated()) {
+			if (results < pageSize)
+				maxPage = page;
+			else
+				maxPage = Math.max(maxPage, page + 1);
+		}
+		
+		PaginationInfo pagination = new PaginationInfo(page, maxPage, pageSize, rowCount.getValue(), query, 
+			queryFilters == null ? null : new FacetedSearchRequest(queryFilters));
+		pagination.setEstimated(rowCount.isEstimated());
+		return pagination;
 	}
 
 	public List<DbObject> search(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
-		CustomJpaRepository jpaRepository = schema.getJpaRepository();
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "search", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
         
-		return jpaRepository.search(query, queryFilters).stream()
-			.map(o  -> new DbObject(o, schema))
-			.toList();
+			return jpaRepository.search(query, queryFilters).stream()
+				.map(o  -> new DbObject(o, schema))
+				.toList();
+		}
 	}
 	
+	/**
+	 * Iterates over all the objects that match the fuzzy search and filters, passing
+	 * them to the consumer in batches ordered by primary key. Batches are retrieved with
+	 * keyset pagination and the persistence context is cleared after each batch
+	 * has been consumed, so memory usage does not depend on the total number of results.
+	 * The consumer is called within a read-only transaction, so lazy relationships
+	 * can be traversed while processing a batch.
+	 * @param schema	the schema to iterate
+	 * @param query	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @param batchSize	the number of objects to load at a time
+	 * @param consumer	the function called on each batch
+	 * @return the number of objects passed to the consumer
+	 */
+	@Transactional(value = "transactionManager", readOnly = true)
+	public long stream(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters, int batchSize,
+			Consumer<List<DbObject>> consumer) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "stream", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
+		
+			Object lastPrimaryKey = null;
+			long total = 0;
+			while (true) {
+				List<DbObject> batch = jpaRepository.searchAfter(query, queryFilters, lastPrimaryKey, batchSize).stream()
+					.map(o -> new DbObject(o, schema))
+					.toList();
+			
+				if (batch.isEmpty()) break;
+			
+				prefetch(schema, batch);
+				consumer.accept(batch);
+				total += batch.size();
+				lastPrimaryKey = batch.get(batch.size() - 1).getPrimaryKeyValue();
+				entityManager.clear();
+			
+				if (batch.size() < batchSize) break;
+			}
+			
+			return total;
+		}
+	}
 	
 	/**
 	 * Find all the objects in the schema. Only returns a single page of
@@ -114,129 +322,372 @@ public class SnapAdminRepository {
 	 * @param sortOrder
 	 * @return
 	 */
-	@SuppressWarnings("rawtypes")
 	public PaginatedResult<DbObject> findAll(DbObjectSchema schema, int page, int pageSize, String sortKey, String sortOrder) {
-		SimpleJpaRepository repository = schema.getJpaRepository();
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "findAll", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
 		
-		long maxElement = count(schema);
-		int maxPage = (int)(Math.ceil ((double)maxElement / pageSize));
+			RowCount rowCount = rowCountStrategy.count(schema, null, null);
+			int maxPage = (int)(Math.ceil ((double)rowCount.getValue() / pageSize));
 		
-		if (page <= 0) page = 1;
-		if (page > maxPage && maxPage != 0) {
-			throw new InvalidPageException();
-		}
+			if (page <= 0) page = 1;
+			if (page > maxPage && maxPage != 0 && !rowCount.isEstimated()) {
+				throw new InvalidPageException();
+			}
 		
-		Sort sort = null;
-		if (sortKey != null) {
-			sort = Sort.by(sortKey);
-		}
-		if (Objects.equals(sortOrder, "ASC")) {
-			sort = sort.ascending();
-		} else if (Objects.equals(sortOrder, "DESC")) {
-			sort = sort.descending();
+			List<DbObject> results = jpaRepository.search(null, page, pageSize, sortKey, sortOrder, null).stream()
+				.map(o  -> new DbObject(o, schema))
+				.toList();
+			prefetch(schema, results);
+		
+			return new PaginatedResult<DbObject>(
+				buildPagination(rowCount, page, pageSize, results.size(), null, null),
+				results
+			);
 		}
-		PageRequest pageRequestion = null;
+	}
+	
+	/**
+	 * Loads the objects linked by the lazy `@ManyToOne` and `@OneToOne` fields
+	 * of the given objects with one `IN` query per linked schema, and makes them
+	 * available to {@link DbObject#traverse(DbField)} through a shared
+	 * {@link RelationshipCache}. Without this, traversing the relationships
+	 * of a page of objects initializes each lazy proxy with a separate query.
+	 * Eager relationships are already fetched with a join by the search queries.
+	 * @param schema	the schema of the objects
+	 * @param objects	the objects whose relationships to load
+	 * @return the cache shared by the objects
+	 */
+	@SuppressWarnings("unchecked")
+	public RelationshipCache prefetch(DbObjectSchema schema, List<DbObject> objects) {
+		RelationshipCache cache = new RelationshipCache();
 		
-		if (sort != null) {
-			pageRequestion = PageRequest.of(page - 1, pageSize, sort);
-		} else {
-			pageRequestion = PageRequest.of(page - 1, pageSize);
+		// Primary keys of the uninitialized references, by linked schema,
+		// along with the references pointing to each of them
+		Map<DbObjectSchema, Map<Object, List<Object>>> pending = new HashMap<>();
+		for (DbField field : schema.getSingleValuedRelationshipFields()) {
+			if (field.isEagerSingleValuedRelationship()) continue;
+			
+			Map<Object, List<Object>> references = 
+				pending.computeIfAbsent(field.getConnectedSchema(), s -> new HashMap<>());
+			for (DbObject object : objects) {
+				Object reference = object.get(field).getValue();
+				if (reference instanceof HibernateProxy proxy && proxy.getHibernateLazyInitializer().isUninitialized()) {
+					Object id = proxy.getHibernateLazyInitializer().getIdentifier();
+					references.computeIfAbsent(id, k -> new ArrayList<>()).add(reference);
+				}
+			}
 		}
 		
+		for (Entry<DbObjectSchema, Map<Object, List<Object>>> entry : pending.entrySet()) {
+			DbObjectSchema linkedSchema = entry.getKey();
+			Map<Object, List<Object>> references = entry.getValue();
+			if (references.isEmpty()) continue;
+			
+			List<Object> ids = new ArrayList<>(references.keySet());
+			for (int i = 0; i < ids.size(); i += PREFETCH_CHUNK_SIZE) {
+				List<Object> chunk = ids.subList(i, Math.min(i + PREFETCH_CHUNK_SIZE, ids.size()));
+				
+				for (Object linked : linkedSchema.getJpaRepository().findAllById(chunk)) {
+					DbObject linkedObject = new DbObject(Hibernate.unproxy(linked), linkedSchema);
+					List<Object> linkedReferences = references.get(linkedObject.getPrimaryKeyValue());
+					if (linkedReferences == null) continue;
+					
+					for (Object reference : linkedReferences) {
+						cache.put(reference, linkedObject);
+					}
+				}
+			}
+		}
 		
-		Page findAll = repository.findAll(pageRequestion);
-		List<DbObject> results = new ArrayList<>();
-		for (Object o : findAll) {
-			results.add(new DbObject(o, schema));
+		for (DbObject object : objects) {
+			object.setRelationshipCache(cache);
 		}
 		
+		return cache;
+	}
+	
+	/**
+	 * Returns whether the list of items of this schema, sorted by the given key,
+	 * can be paginated with keyset pagination. This is possible when sorting by
+	 * primary key or by a non-nullable field with a type that can be safely
+	 * serialized in a {@link PageCursor}.
+	 * @param schema	the schema to paginate
+	 * @param sortKey	the Java name of the sort field, possibly null
+	 * @return whether keyset pagination can be used
+	 */
+	public boolean isKeysetPaginationSupported(DbObjectSchema schema, String sortKey) {
+		if (sortKey == null)
+			return true;
+		
+		DbField sortField = schema.getFieldByJavaName(sortKey);
+		if (sortField == null)
+			return false;
+		if (sortField.isPrimaryKey())
+			return true;
 		
-		return new PaginatedResult<DbObject>(
-			new PaginationInfo(page, maxPage, pageSize, maxElement, null, null),
-			results
-		);
+		return !sortField.isNullable() && !sortField.isForeignKey() 
+			&& KEYSET_SORT_TYPES.contains(sortField.getType().getClass());
 	}
 	
 	/**
-	 * Update an existing object with new values. We don't use the "standard"
-	 * JPA repository save method in this case (like we do on create) because
-	 * we need to handle several edge cases in terms of how missing values
-	 * are handled and also {@linkplain ReadOnly} fields. For this reason, we
-	 * also need to call the validation manually.
-	 * @param schema the schema where we need to update an item
-	 * @param params the String-valued params coming from the HTML form
-	 * @param files the file params coming from the HTML form
+	 * Returns a page of the objects matching the search using keyset pagination.
+	 * The page is located by the `after` or `before` cursor instead of a page number,
+	 * so loading a page has the same cost regardless of how deep it is in the table.
+	 * @param schema	the schema where to look
+	 * @param query	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters
+	 * @param pageSize	the number of items per page
+	 * @param sortKey	the Java name of the sort field, possibly null
+	 * @param sortOrder	the sort order, ASC or DESC
+	 * @param after	the cursor to load the page after, possibly null
+	 * @param before	the cursor to load the page before, possibly null
+	 * @return a page of results, with the cursors to the next and previous page
 	 */
-	@Transactional("transactionManager")
-	public void update(DbObjectSchema schema, Map<String, String> params, Map<String, MultipartFile> files) {
-		DbObject obj = schema.buildObject(params, files);
-		Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
-		Set<ConstraintViolation<Object>> violations = validator.validate(obj.getUnderlyingInstance());
+	public PaginatedResult<DbObject> seek(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters, int pageSize,
+			String sortKey, String sortOrder, String after, String before) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "seek", schema)) {
+			DbField sortField = sortKey == null ? null : schema.getFieldByJavaName(sortKey);
+			if (sortField != null && sortField.isPrimaryKey())
+				sortField = null;
 		
-		if (violations.size() > 0) {
-			throw new ConstraintViolationException(violations);
-		}
+			boolean descending = Objects.equals(sortOrder, "DESC");
+			boolean backwards = before != null;
+			String token = backwards ? before : after;
+			PageCursor cursor = token == null ? null : PageCursor.decode(token, sortField, schema.getPrimaryKey());
+		
+			// Fetch one more item to know whether there's another page in the same direction
+			List<DbObject> results = new ArrayList<>(
+				schema.getJpaRepository().seek(query, queryFilters, sortField, descending, cursor, backwards, pageSize + 1)
+					.stream()
+					.map(o -> new DbObject(o, schema))
+					.toList()
+			);
+		
+			boolean hasMore = results.size() > pageSize;
+			if (hasMore)
+				results.remove(results.size() - 1);
+			if (backwards)
+				Collections.reverse(results);
+			prefetch(schema, results);
+		
+			boolean hasNext = backwards || hasMore;
+			boolean hasPrevious = backwards ? hasMore : cursor != null;
+		
+			RowCount rowCount = rowCountStrategy.count(schema, query, queryFilters);
+			int maxPage = (int)(Math.ceil ((double)rowCount.getValue() / pageSize));
+		
+			PaginationInfo pagination = 
+				new PaginationInfo(1, maxPage, pageSize, rowCount.getValue(), query, new FacetedSearchRequest(queryFilters));
+			pagination.setEstimated(rowCount.isEstimated());
 		
-		schema.getJpaRepository().update(schema, params, files);
+			if (!results.isEmpty()) {
+				pagination.setCursors(
+					sortKey, sortOrder,
+					hasPrevious ? PageCursor.of(results.get(0), sortField).encode() : null,
+					hasNext ? PageCursor.of(results.get(results.size() - 1), sortField).encode() : null
+				);
+			} else {
+				pagination.setCursors(sortKey, sortOrder, null, null);
+			}
+		
+			return new PaginatedResult<DbObject>(pagination, results);
+		}
 	}
 	
+	/**
+	 * Creates a new object from the values of the create form, in a single
+	 * transaction: many-to-many relationships are set before the object is
+	 * inserted and related objects are referenced without being loaded.
+	 * @param schema	the schema where to create the item
+	 * @param params	the String-valued params coming from the HTML form
+	 * @param files	the file params coming from the HTML form
+	 * @param manyToMany	the primary keys of the many-to-many relationships, by field name
+	 * @param username	the user creating the item, for the audit log
+	 * @return the primary key of the created object
+	 */
 	@SuppressWarnings("unchecked")
 	@Transactional("transactionManager")
-	private Object save(DbObjectSchema schema, DbObject o) {
-		return schema.getJpaRepository().save(o.getUnderlyingInstance());
+	public Object create(DbObjectSchema schema, Map<String, String> params, Map<String, MultipartFile> files,
+			Map<String, List<String>> manyToMany, String username) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "create", schema)) {
+			WritePlan plan = schema.getWritePlan();
+			DbObject obj = new DbObject(newInstance(schema), schema);
+			
+			for (Entry<String, String> param : params.entrySet()) {
+				// Parameters starting with __ are hidden and not related to the object creation
+				if (param.getKey().startsWith("__") || param.getKey().equals("_csrf")) continue;
+				
+				DbField primaryKey = schema.getPrimaryKey();
+				if (param.getKey().equals(primaryKey.getName())) {
+					Object value = primaryKey.getType().parseValue(param.getValue());
+					if (value != null)
+						obj.set(primaryKey, value);
+					continue;
+				}
+				
+				WritePlan.Binding binding = plan.get(param.getKey());
+				if (binding == null || binding.getKind() == WritePlan.Kind.COLLECTION)
+					throw new SnapAdminNotFoundException("Cannot find field " + param.getKey() + " in " + schema.getClassName());
+				
+				Object value = binding.getField().getType().parseValue(param.getValue());
+				if (value != null)
+					write(obj, binding, value);
+			}
+			
+			for (Entry<String, MultipartFile> file : files.entrySet()) {
+				if (file.getKey().startsWith("__")) continue;
+				
+				WritePlan.Binding binding = plan.get(file.getKey());
+				if (binding == null || binding.getKind() != WritePlan.Kind.BINARY)
+					throw new SnapAdminNotFoundException("Cannot find field " + file.getKey() + " in " + schema.getClassName());
+				
+				Object value = binding.getField().getType().parseValue(file.getValue());
+				if (value != null)
+					obj.set(binding.getField(), value);
+			}
+			
+			setManyToMany(schema, obj, manyToMany);
+			validate(obj);
+			
+			Object saved = schema.getJpaRepository().save(obj.getUnderlyingInstance());
+			rowCountStrategy.invalidate(schema);
+			
+			Object id = new DbObject(saved, schema).getPrimaryKeyValue();
+			afterCommit(() -> userActionService.save(
+				new UserAction(schema.getTableName(), id.toString(), "CREATE", schema.getClassName(), username)));
+			return id;
+		}
 	}
 	
 	/**
-	 * Attaches multiple many to many relationships to an object, parsed from a multi -valued map.
-	 * @param schema	the entity class that owns this relationship
-	 * @param id	the primary key of the entity where these relationships have to be attached to
-	 * @param params	the multi-valued map containing the many-to-many relationships
+	 * Updates an existing object with the values of the edit form, in a single
+	 * transaction. The fields of the form are written with a single `UPDATE`
+	 * statement, so the columns which are not in the form (e.g. {@linkplain ReadOnly}
+	 * fields) keep the values they have in the database. Fields marked with
+	 * `__keep_<name>` are not modified, while the fields missing from the form
+	 * are set to null. The many-to-many relationships are then replaced on the
+	 * loaded entity, in the same transaction.
+	 * @param schema	the schema where to update the item
+	 * @param id	the primary key of the item, already parsed to the primary key type
+	 * @param params	the String-valued params coming from the HTML form
+	 * @param files	the file params coming from the HTML form
+	 * @param manyToMany	the primary keys of the many-to-many relationships, by field name
+	 * @param username	the user editing the item, for the audit log
+	 * @return false if the item doesn't exist
 	 */
+	@SuppressWarnings("unchecked")
 	@Transactional("transactionManager")
-	public void attachManyToMany(DbObjectSchema schema, Object id, Map<String, List<String>> params) {
-		Optional<DbObject> optional = findById(schema, id);
-
-		DbObject dbObject = optional.orElseThrow(() -> {
-			return new SnapAdminException("Unable to retrieve newly inserted item");
-		});
-		
-		for (String mParam : params.keySet()) {
-			String fieldName = mParam.replace("[]", "");
+	public boolean update(DbObjectSchema schema, Object id, Map<String, String> params, Map<String, MultipartFile> files,
+			Map<String, List<String>> manyToMany, String username) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "update", schema)) {
+			Map<DbField, Object> values = new LinkedHashMap<>();
+			Set<ConstraintViolation<Object>> violations = new LinkedHashSet<>();
+			for (WritePlan.Binding binding : schema.getWritePlan().getEditable()) {
+				DbField field = binding.getField();
+				if (params.getOrDefault("__keep_" + field.getName(), "off").equals("on"))
+					continue;
+				
+				String stringValue = params.get(field.getName());
+				Object value = null;
+				if (stringValue != null && !stringValue.isBlank()) {
+					value = field.getType().parseValue(stringValue);
+				} else if (stringValue == null) {
+					MultipartFile file = files.get(field.getName());
+					if (file != null && !file.isEmpty()) {
+						try {
+							value = file.getBytes();
+						} catch (IOException e) {
+							throw new SnapAdminException(e);
+						}
+					}
+				}
+				
+				if (value != null && binding.getKind() == WritePlan.Kind.REFERENCE)
+					value = entityManager.getReference(field.getConnectedSchema().getJavaClass(), value);
+				
+				violations.addAll(validator.validateValue((Class<Object>)schema.getJavaClass(), field.getJavaName(), value));
+				values.put(field, value);
+			}
 			
-			List<String> idValues = params.get(mParam);
-			DbField field = schema.getFieldByName(fieldName);
+			if (!violations.isEmpty())
+				throw new ConstraintViolationException(violations);
 			
-			DbObjectSchema linkedSchema = field.getConnectedSchema();
+			boolean exists = values.isEmpty() 
+				? entityManager.find(schema.getJavaClass(), id) != null
+				: schema.getJpaRepository().update(id, values) > 0;
+			if (!exists)
+				return false;
 			
-			List<DbObject> traverseMany =  new ArrayList<>();
-			for (String oId : idValues) {
-				Optional<DbObject> findById = findById(linkedSchema, oId);
-				if (findById.isPresent()) {
-					traverseMany.add(findById.get());
-				}
+			if (!manyToMany.isEmpty()) {
+				DbObject obj = new DbObject(entityManager.find(schema.getJavaClass(), id), schema);
+				setManyToMany(schema, obj, manyToMany);
 			}
 			
-			dbObject.set(
-				field.getJavaName(), 
-				traverseMany.stream().map(o -> o.getUnderlyingInstance()).collect(Collectors.toList())
-			);
+			// The update is a bulk statement, which doesn't trigger the Hibernate listeners
+			List<Object> ids = List.of(id);
+			afterCommit(() -> searchBackend.reindex(schema, ids));
+			afterCommit(() -> autocompleteIndex.refresh(schema, ids));
+			afterCommit(() -> treePathIndex.refresh(schema, ids));
+			afterCommit(() -> entityCache.evict(schema, id));
+			afterCommit(() -> blobRepository.evict(schema, id));
+			afterCommit(() -> userActionService.save(
+				new UserAction(schema.getTableName(), id.toString(), "EDIT", schema.getClassName(), username)));
+			return true;
 		}
-		
-		save(schema, dbObject);
 	}
 	
 	/**
-	 * Create a new object with the specific primary key and values,
-	 * returns the primary key of the created object
-	 * @param schema
-	 * @param values
-	 * @param primaryKey
+	 * Sets a field to a parsed value, replacing the primary key of a related
+	 * object with a reference to it, which is not loaded from the database
 	 */
-	@Transactional("transactionManager")
-	public Object create(DbObjectSchema schema, Map<String, String> values, Map<String, MultipartFile> files, String primaryKey) {
-		DbObject obj = schema.buildObject(values, files);
-		Object save = save(schema, obj);
-		return new DbObject(save, schema).getPrimaryKeyValue();
+	private void write(DbObject obj, WritePlan.Binding binding, Object value) {
+		DbField field = binding.getField();
+		if (binding.getKind() == WritePlan.Kind.REFERENCE)
+			value = entityManager.getReference(field.getConnectedSchema().getJavaClass(), value);
+		obj.set(field, value);
+	}
+	
+	/**
+	 * Replaces the many-to-many relationships of an object with references
+	 * to the items with the given primary keys
+	 * @param schema	the entity class that owns the relationships
+	 * @param obj	the object to modify
+	 * @param manyToMany	the primary keys, by field name, possibly ending with `[]`
+	 */
+	private void setManyToMany(DbObjectSchema schema, DbObject obj, Map<String, List<String>> manyToMany) {
+		for (Entry<String, List<String>> param : manyToMany.entrySet()) {
+			String fieldName = param.getKey().replace("[]", "");
+			
+			WritePlan.Binding binding = schema.getWritePlan().get(fieldName);
+			if (binding == null || binding.getKind() != WritePlan.Kind.COLLECTION)
+				throw new SnapAdminNotFoundException("Cannot find field " + fieldName + " in " + schema.getClassName());
+			
+			DbObjectSchema linkedSchema = binding.getField().getConnectedSchema();
+			DbField linkedPrimaryKey = linkedSchema.getPrimaryKey();
+			
+			List<Object> references = new ArrayList<>();
+			for (String linkedId : param.getValue()) {
+				Object parsedId = linkedPrimaryKey.getType().parseValue(linkedId);
+				references.add(entityManager.getReference(linkedSchema.getJavaClass(), parsedId));
+			}
+			
+			obj.set(binding.getField(), references);
+		}
+	}
+	
+	private void validate(DbObject obj) {
+		Set<ConstraintViolation<Object>> violations = validator.validate(obj.getUnderlyingInstance());
+		if (violations.size() > 0) {
+			throw new ConstraintViolationException(violations);
+		}
+	}
+	
+	private Object newInstance(DbObjectSchema schema) {
+		try {
+			return schema.getJavaClass().getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new SnapAdminException(e);
+		}
 	}
 	
 	/**
@@ -247,22 +698,27 @@ public class SnapAdminRepository {
 	 */
 	public PaginatedResult<DbObject> search(DbObjectSchema schema, String query, int page, int pageSize, String sortKey, 
 			String sortOrder, Set<QueryFilter> queryFilters) {
-		CustomJpaRepository jpaRepository = schema.getJpaRepository();
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "search", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
         
-		long maxElement = count(schema, query, queryFilters);
-		int maxPage = (int)(Math.ceil ((double)maxElement / pageSize));
+			RowCount rowCount = rowCountStrategy.count(schema, query, queryFilters);
+			int maxPage = (int)(Math.ceil ((double)rowCount.getValue() / pageSize));
 		
-		if (page <= 0) page = 1;
-		if (page > maxPage && maxPage != 0) {
-			throw new InvalidPageException();
-		}
+			if (page <= 0) page = 1;
+			if (page > maxPage && maxPage != 0 && !rowCount.isEstimated()) {
+				throw new InvalidPageException();
+			}
 		
-		return new PaginatedResult<DbObject>(
-			new PaginationInfo(page, maxPage, pageSize, maxElement, query, new FacetedSearchRequest(queryFilters)), 
-			jpaRepository.search(query, page, pageSize, sortKey, sortOrder, queryFilters).stream()
+			List<DbObject> results = jpaRepository.search(query, page, pageSize, sortKey, sortOrder, queryFilters).stream()
 				.map(o  -> new DbObject(o, schema))
-				.toList()
-		);
+				.toList();
+			prefetch(schema, results);
+		
+			return new PaginatedResult<DbObject>(
+				buildPagination(rowCount, page, pageSize, results.size(), query, queryFilters), 
+				results
+			);
+		}
 	}
 	
 	/**
@@ -272,48 +728,114 @@ public class SnapAdminRepository {
 	 * @return
 	 */
 	public List<DbObject> search(DbObjectSchema schema, String query) {
-		CustomJpaRepository jpaRepository = schema.getJpaRepository();
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "autocomplete", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
 		
-		return jpaRepository.search(query, 1, 50, null, null, null).stream()
-					.map(o  -> new DbObject(o, schema))
-					.toList();
+			return jpaRepository.search(query, 1, 50, null, null, null).stream()
+						.map(o  -> new DbObject(o, schema))
+						.toList();
+		}
 	}
 	
 	/**
-	 * Execute custom SQL query using jdbcTemplate
+	 * Execute custom SQL query using jdbcTemplate, fetching at most 
+	 * the maximum number of rows allowed in the SQL console
 	 */
 	public DbQueryResult executeQuery(String sql) {
-		List<DbQueryResultRow> results = new ArrayList<>();
-		if (sql != null && !sql.isBlank()) {
+		return executeQuery(null, sql, 0, properties.getConsoleMaxRows());
+	}
+	
+	/**
+	 * Executes a page of a custom SQL query. Only the rows up to the end of the page,
+	 * plus one to know if there's a next page, are fetched from the database, and never
+	 * more than the maximum number of rows allowed in the SQL console. The query is
+	 * also subject to the SQL console timeout.
+	 * @param key	the key used to cancel the query with {@link #cancelQuery(String)}, possibly null
+	 * @param sql	the SQL query
+	 * @param offset	the number of rows to skip
+	 * @param limit	the maximum number of rows to return
+	 * @return the rows of the page
+	 */
+	public DbQueryResult executeQuery(String key, String sql, int offset, int limit) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "executeQuery", "console")) {
+			if (sql == null || sql.isBlank())
+				return DbQueryResult.empty();
+		
+			long wanted = (long)offset + limit + 1;
+			int fetchLimit = (int)Math.min(wanted, properties.getConsoleMaxRows());
+		
 			try {
-				results = jdbcTemplate.query(sql, (rs, rowNum) -> {
-					Map<DbQueryOutputField, Object> result = new HashMap<>();
+				return jdbcTemplate.execute((StatementCallback<DbQueryResult>) stmt -> {
+					stmt.setMaxRows(fetchLimit);
+					stmt.setFetchSize(Math.min(fetchLimit, CONSOLE_FETCH_SIZE));
+					stmt.setQueryTimeout(properties.getConsoleQueryTimeout());
+				
+					if (key != null)
+						runningQueries.put(key, stmt);
+				
+					try (ResultSet rs = stmt.executeQuery(sql)) {
+						// Column descriptors are resolved once for the whole result
+						ResultSetMetaData metaData = rs.getMetaData();
+						int cols = metaData.getColumnCount();
 					
-					ResultSetMetaData metaData = rs.getMetaData();
-					int cols = metaData.getColumnCount();
+						List<DbQueryOutputField> fields = new ArrayList<>(cols);
+						for (int i = 0; i < cols; i++) {
+							String columnName = metaData.getColumnName(i + 1);
+							String tableName = metaData.getTableName(i + 1);
+							fields.add(new DbQueryOutputField(columnName, tableName, i, snapAdmin));
+						}
 					
-					for (int i = 0; i < cols; i++) {
-						Object o = rs.getObject(i + 1);
-						String columnName = metaData.getColumnName(i + 1);
-						String tableName = metaData.getTableName(i + 1);
-						DbQueryOutputField field = new DbQueryOutputField(columnName, tableName, snapAdmin);
-						
-						result.put(field, o);
-					}
+						DbQueryResult result = new DbQueryResult(fields);
 					
-					DbQueryResultRow row = new DbQueryResultRow(result, sql);
+						int read = 0;
+						while (read < offset && rs.next()) {
+							read++;
+						}
 					
-					result.keySet().forEach(f -> {
-						f.setResult(row);
-					});
+						while (rs.next()) {
+							read++;
+							if (result.size() == limit) {
+								result.setHasMore(true);
+								break;
+							}
+						
+							Object[] values = new Object[cols];
+							for (int i = 0; i < cols; i++) {
+								values[i] = rs.getObject(i + 1);
+							}
+							result.addRow(values, sql);
+						}
 					
-					return row;
+						result.setTruncated(fetchLimit < wanted && read == fetchLimit);
+						return result;
+					} finally {
+						if (key != null)
+							runningQueries.remove(key, stmt);
+					}
 				});
 			} catch (TransientDataAccessResourceException | DataIntegrityViolationException e) {
 				// If there's an exception we leave the results as empty
-			} 
+				return DbQueryResult.empty();
+			}
+		}
+	}
+	
+	/**
+	 * Cancels a running SQL console query
+	 * @param key	the key the query was started with
+	 * @return whether a running query was found and cancelled
+	 */
+	public boolean cancelQuery(String key) {
+		Statement stmt = runningQueries.get(key);
+		if (stmt == null)
+			return false;
+		
+		try {
+			stmt.cancel();
+			return true;
+		} catch (SQLException e) {
+			throw new SnapAdminException("Unable to cancel query", e);
 		}
-		return new DbQueryResult(results);
 	}
 	
 	/**
@@ -324,7 +846,217 @@ public class SnapAdminRepository {
 	@SuppressWarnings("unchecked")
 	@Transactional("transactionManager")
 	public void delete(DbObjectSchema schema, String id) {
-		schema.getJpaRepository().deleteById(id);
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "delete", schema)) {
+			schema.getJpaRepository().deleteById(id);
+			rowCountStrategy.invalidate(schema);
+		}
+	}
+	
+	/**
+	 * Deletes multiple objects in a single transaction. Primary keys are split
+	 * in chunks of `bulkChunkSize` and each chunk is deleted with a single
+	 * `DELETE ... WHERE pk IN (...)` statement. If the entity cascades removals
+	 * to other entities, each chunk is loaded and deleted through JPA instead,
+	 * so that the cascades are still applied.
+	 * @param schema	the schema to delete from
+	 * @param ids	the primary key values
+	 * @return the number of rows deleted by each chunk
+	 */
+	@SuppressWarnings("unchecked")
+	@Transactional("transactionManager")
+	public BulkOperationResult bulkDelete(DbObjectSchema schema, List<String> ids) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "bulkDelete", schema)) {
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
+			boolean cascades = hasCascadingRemovals(schema);
+		
+			BulkOperationResult result = new BulkOperationResult(ids.size());
+			for (List<Object> chunk : chunkPrimaryKeys(schema, ids)) {
+				if (cascades) {
+					List<Object> items = jpaRepository.findAllById(chunk);
+					jpaRepository.deleteAll(items);
+					result.addChunk(items.size());
+				} else {
+					result.addChunk(jpaRepository.deleteAllByIds(chunk));
+					afterCommit(() -> searchBackend.remove(schema, chunk));
+					afterCommit(() -> autocompleteIndex.remove(schema, chunk));
+					afterCommit(() -> treePathIndex.remove(schema, chunk));
+					afterCommit(() -> chunk.forEach(id -> blobRepository.evict(schema, id)));
+				}
+			}
+		
+			if (!cascades)
+				afterCommit(() -> entityCache.invalidate(schema));
+			rowCountStrategy.invalidate(schema);
+			return result;
+		}
+	}
+	
+	/**
+	 * Sets a field to the same value on multiple objects in a single transaction.
+	 * Primary keys are split in chunks of `bulkChunkSize` and each chunk is
+	 * updated with a single `UPDATE ... WHERE pk IN (...)` statement.
+	 * @param schema	the schema to update
+	 * @param field	the field to update
+	 * @param value	the raw value coming from the HTML form
+	 * @param ids	the primary key values
+	 * @return the number of rows updated by each chunk
+	 */
+	@Transactional("transactionManager")
+	public BulkOperationResult bulkUpdate(DbObjectSchema schema, DbField field, String value, List<String> ids) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "bulkUpdate", schema)) {
+			Object parsedValue = parseBulkValue(schema, field, value);
+			CustomJpaRepository jpaRepository = schema.getJpaRepository();
+		
+			BulkOperationResult result = new BulkOperationResult(ids.size());
+			boolean searchable = schema.getSearchableFields().contains(field);
+			for (List<Object> chunk : chunkPrimaryKeys(schema, ids)) {
+				result.addChunk(jpaRepository.updateAllByIds(field, parsedValue, chunk));
+				if (searchable)
+					afterCommit(() -> searchBackend.reindex(schema, chunk));
+				afterCommit(() -> autocompleteIndex.refresh(schema, chunk));
+				afterCommit(() -> treePathIndex.refresh(schema, chunk));
+			}
+			afterCommit(() -> entityCache.invalidate(schema));
+			afterCommit(() -> rowCountStrategy.invalidate(schema));
+		
+			return result;
+		}
+	}
+	
+	/**
+	 * Sets a field to the same value on all the objects matching a search,
+	 * with a single `UPDATE` statement.
+	 * @param schema	the schema to update
+	 * @param field	the field to update
+	 * @param value	the raw value coming from the HTML form
+	 * @param query	the fuzzy search query, possibly null
+	 * @param queryFilters	the faceted search filters, possibly null
+	 * @return the number of updated rows, as a single chunk
+	 */
+	@Transactional("transactionManager")
+	public BulkOperationResult bulkUpdate(DbObjectSchema schema, DbField field, String value, 
+			String query, Set<QueryFilter> queryFilters) {
+		try (Timing timing = metrics.start(SnapAdminMetrics.REPOSITORY, "bulkUpdate", schema)) {
+			Object parsedValue = parseBulkValue(schema, field, value);
+		
+			BulkOperationResult result = new BulkOperationResult(-1);
+			result.addChunk(schema.getJpaRepository().updateAll(field, parsedValue, query, queryFilters));
+			if (schema.getSearchableFields().contains(field))
+				afterCommit(() -> searchBackend.rebuild(schema));
+			afterCommit(() -> autocompleteIndex.rebuild(schema));
+			afterCommit(() -> treePathIndex.rebuild(schema));
+			afterCommit(() -> entityCache.invalidate(schema));
+			afterCommit(() -> rowCountStrategy.invalidate(schema));
+			return result;
+		}
+	}
+	
+	/**
+	 * Runs the action once the current transaction has been committed, or
+	 * right away if there is no transaction. Used to notify the search backend,
+	 * the autocomplete index and the entity cache of bulk changes, and to record the audit log,
+	 * only if the changes actually happened.
+	 */
+	private void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+	
+	/**
+	 * Parses the value of a bulk update and validates it against the
+	 * constraints declared on the field
+	 */
+	@SuppressWarnings("unchecked")
+	private Object parseBulkValue(DbObjectSchema schema, DbField field, String value) {
+		if (!schema.getBulkUpdatableFields().contains(field))
+			throw new SnapAdminException("Field `" + field.getName() + "` can't be updated in bulk");
+		
+		Object parsedValue = null;
+		if (value != null && !value.isBlank()) {
+			try {
+				parsedValue = field.getType().parseValue(value);
+			} catch (Exception e) {
+				throw new SnapAdminException("Invalid value `" + value + "` specified for field `" + field.getName() + "`");
+			}
+		}
+		
+		if (parsedValue != null && field.getConnectedSchema() != null) {
+			Optional<?> linked = field.getConnectedSchema().getJpaRepository().findById(parsedValue);
+			if (!linked.isPresent()) {
+				throw new SnapAdminException("Invalid value " + parsedValue + " for " + field.getName()
+					+ ": item does not exist.");
+			}
+			parsedValue = linked.get();
+		}
+		
+		Set<ConstraintViolation<Object>> violations = 
+			validator.validateValue((Class<Object>)schema.getJavaClass(), field.getJavaName(), parsedValue);
+		if (violations.size() > 0) {
+			throw new ConstraintViolationException(violations);
+		}
+		
+		return parsedValue;
+	}
+	
+	/**
+	 * Parses the primary key values and splits them in chunks of `bulkChunkSize`
+	 */
+	private List<List<Object>> chunkPrimaryKeys(DbObjectSchema schema, List<String> ids) {
+		DbField primaryKey = schema.getPrimaryKey();
+		int chunkSize = Math.max(1, properties.getBulkChunkSize());
+		
+		List<List<Object>> chunks = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += chunkSize) {
+			chunks.add(
+				ids.subList(i, Math.min(i + chunkSize, ids.size())).stream()
+					.map(id -> primaryKey.getType().parseValue(id))
+					.toList()
+			);
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Returns whether deleting an object of this schema cascades to other
+	 * objects, which a bulk `DELETE` statement would skip
+	 */
+	private boolean hasCascadingRemovals(DbObjectSchema schema) {
+		for (DbField field : schema.getFields()) {
+			Field f = field.getPrimitiveField();
+			
+			CascadeType[] cascade = null;
+			boolean orphanRemoval = false;
+			if (f.getAnnotation(OneToMany.class) != null) {
+				cascade = f.getAnnotation(OneToMany.class).cascade();
+				orphanRemoval = f.getAnnotation(OneToMany.class).orphanRemoval();
+			} else if (f.getAnnotation(OneToOne.class) != null) {
+				cascade = f.getAnnotation(OneToOne.class).cascade();
+				orphanRemoval = f.getAnnotation(OneToOne.class).orphanRemoval();
+			} else if (f.getAnnotation(ManyToMany.class) != null) {
+				cascade = f.getAnnotation(ManyToMany.class).cascade();
+			} else if (f.getAnnotation(ManyToOne.class) != null) {
+				cascade = f.getAnnotation(ManyToOne.class).cascade();
+			}
+			
+			if (orphanRemoval) return true;
+			if (cascade != null) {
+				for (CascadeType type : cascade) {
+					if (type == CascadeType.ALL || type == CascadeType.REMOVE)
+						return true;
+				}
+			}
+		}
+		
+		return false;
 	}
 	
 }
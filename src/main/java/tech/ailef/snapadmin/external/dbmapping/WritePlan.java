@@ -0,0 +1,131 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+
+/**
+ * How the values of the create and edit forms are written to the fields of an
+ * entity. It's computed once per schema, when the schema is frozen, so that the
+ * annotations of the fields are not inspected again on every write.
+ */
+public class WritePlan {
+	public enum Kind {
+		/**
+		 * A column set to the value parsed from the form
+		 */
+		VALUE,
+		/**
+		 * A binary column, set from an uploaded file
+		 */
+		BINARY,
+		/**
+		 * A `@ManyToOne` or owning `@OneToOne`, set to a reference to the related entity
+		 */
+		REFERENCE,
+		/**
+		 * An owned `@ManyToMany`, set to references to the selected entities
+		 */
+		COLLECTION;
+	}
+
+	/**
+	 * The writable fields, by name
+	 */
+	private final Map<String, Binding> bindings = new HashMap<>();
+
+	/**
+	 * The fields written by an edit, in the order of the form
+	 */
+	private final List<Binding> editable = new ArrayList<>();
+
+	WritePlan(DbObjectSchema schema) {
+		List<DbField> manyToMany = schema.getManyToManyOwnedFields();
+
+		for (DbField field : schema.getFields()) {
+			if (field.isPrimaryKey())
+				continue;
+
+			Kind kind;
+			if (manyToMany.contains(field))
+				kind = Kind.COLLECTION;
+			else if (field.isToOne())
+				kind = Kind.REFERENCE;
+			else if (field.isSettable())
+				kind = field.isBinary() ? Kind.BINARY : Kind.VALUE;
+			else
+				continue;
+
+			bindings.put(field.getName(), new Binding(field, kind, field.isReadOnly()));
+		}
+
+		for (DbField field : schema.getSortedFields()) {
+			Binding binding = bindings.get(field.getName());
+			if (binding != null && !binding.isReadOnly() && binding.getKind() != Kind.COLLECTION)
+				editable.add(binding);
+		}
+	}
+
+	/**
+	 * Returns the binding of a writable field
+	 * @param name	the name of the field
+	 * @return the binding, or null if the field doesn't exist or can't be written
+	 */
+	public Binding get(String name) {
+		return bindings.get(name);
+	}
+
+	/**
+	 * Returns the fields written by an edit: the columns shown in the form, except the
+	 * primary key and the `@ReadOnly` fields
+	 * @return
+	 */
+	public List<Binding> getEditable() {
+		return Collections.unmodifiableList(editable);
+	}
+
+	/**
+	 * A writable field and how it's written
+	 */
+	public static class Binding {
+		private final DbField field;
+
+		private final Kind kind;
+
+		private final boolean readOnly;
+
+		Binding(DbField field, Kind kind, boolean readOnly) {
+			this.field = field;
+			this.kind = kind;
+			this.readOnly = readOnly;
+		}
+
+		public DbField getField() {
+			return field;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns whether the field is `@ReadOnly`, i.e. only written when the item is created
+		 * @return
+		 */
+		public boolean isReadOnly() {
+			return readOnly;
+		}
+	}
+}
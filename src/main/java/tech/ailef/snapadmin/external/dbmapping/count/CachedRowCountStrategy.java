@@ -0,0 +1,96 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * Caches the counts computed by another strategy for a fixed amount of time.
+ * Counts are cached separately for each combination of query and filters, and
+ * all the counts of a schema are discarded when it's modified through SnapAdmin.
+ * Changes made outside of SnapAdmin become visible when the cached count expires.
+ * Only the most recently used counts are kept, and expired ones are dropped as
+ * soon as they are requested again.
+ */
+public class CachedRowCountStrategy implements RowCountStrategy {
+	private RowCountStrategy delegate;
+	
+	private long ttlMillis;
+	
+	private int maxSize;
+	
+	private Map<List<Object>, CachedCount> cache;
+	
+	/**
+	 * @param delegate	the strategy used to compute counts that are not in cache
+	 * @param ttl	how long a count is kept in cache
+	 * @param maxSize	the maximum number of counts in cache
+	 */
+	public CachedRowCountStrategy(RowCountStrategy delegate, Duration ttl, int maxSize) {
+		this.delegate = delegate;
+		this.ttlMillis = ttl.toMillis();
+		this.maxSize = maxSize;
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedCount> eldest) {
+				return size() > CachedRowCountStrategy.this.maxSize;
+			}
+		});
+	}
+
+	@Override
+	public RowCount count(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
+		List<Object> key = Arrays.asList(
+			schema.getClassName(), query, queryFilters == null ? Set.of() : Set.copyOf(queryFilters)
+		);
+		
+		long now = System.currentTimeMillis();
+		CachedCount cached = cache.get(key);
+		if (cached != null) {
+			if (cached.expiresAt > now)
+				return cached.count;
+			cache.remove(key, cached);
+		}
+		
+		RowCount count = delegate.count(schema, query, queryFilters);
+		if (maxSize > 0)
+			cache.put(key, new CachedCount(count, now + ttlMillis));
+		return count;
+	}
+	
+	@Override
+	public void invalidate(DbObjectSchema schema) {
+		synchronized (cache) {
+			cache.keySet().removeIf(k -> k.get(0).equals(schema.getClassName()));
+		}
+		delegate.invalidate(schema);
+	}
+	
+	private static class CachedCount {
+		private RowCount count;
+		
+		private long expiresAt;
+		
+		public CachedCount(RowCount count, long expiresAt) {
+			this.count = count;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
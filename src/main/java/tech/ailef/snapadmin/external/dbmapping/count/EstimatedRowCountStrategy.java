@@ -0,0 +1,111 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * Reads the number of rows of whole tables from the statistics kept by the
+ * database for its query planner, which doesn't require scanning the table.
+ * Supports PostgreSQL (`pg_class.reltuples`), MySQL/MariaDB and H2
+ * (`information_schema.tables`). Counts on filtered searches, on other
+ * databases or on tables without statistics are delegated to another strategy.
+ */
+public class EstimatedRowCountStrategy implements RowCountStrategy {
+	private static final Logger logger = LoggerFactory.getLogger(EstimatedRowCountStrategy.class);
+	
+	private static final String POSTGRES_QUERY = 
+		"SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+	
+	private static final String MYSQL_QUERY = 
+		"SELECT table_rows FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
+	
+	private static final String H2_QUERY = 
+		"SELECT row_count_estimate FROM information_schema.tables WHERE table_schema = SCHEMA() AND UPPER(table_name) = UPPER(?)";
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	private RowCountStrategy fallback;
+	
+	/**
+	 * The query used to read the estimate, determined from the database 
+	 * product name on first use. Empty if the database is not supported.
+	 */
+	private volatile String estimateQuery;
+	
+	/**
+	 * @param jdbcTemplate	the template used to read the statistics
+	 * @param fallback	the strategy used when an estimate is not available
+	 */
+	public EstimatedRowCountStrategy(JdbcTemplate jdbcTemplate, RowCountStrategy fallback) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public RowCount count(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
+		if (!RowCountStrategy.isUnfiltered(query, queryFilters))
+			return fallback.count(schema, query, queryFilters);
+		
+		String sql = getEstimateQuery();
+		if (sql.isEmpty())
+			return fallback.count(schema, query, queryFilters);
+		
+		try {
+			List<Long> rows = jdbcTemplate.queryForList(sql, Long.class, schema.getTableName());
+			// PostgreSQL returns -1 for tables that have never been analyzed
+			if (rows.isEmpty() || rows.get(0) == null || rows.get(0) < 0)
+				return fallback.count(schema, query, queryFilters);
+			
+			return RowCount.estimate(rows.get(0));
+		} catch (DataAccessException e) {
+			logger.debug("Unable to estimate row count for table " + schema.getTableName(), e);
+			return fallback.count(schema, query, queryFilters);
+		}
+	}
+	
+	@Override
+	public void invalidate(DbObjectSchema schema) {
+		fallback.invalidate(schema);
+	}
+	
+	private String getEstimateQuery() {
+		if (estimateQuery == null) {
+			String product = jdbcTemplate.execute(
+				(ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()
+			);
+			
+			if (product == null) product = "";
+			product = product.toLowerCase();
+			
+			if (product.contains("postgres"))
+				estimateQuery = POSTGRES_QUERY;
+			else if (product.contains("mysql") || product.contains("mariadb"))
+				estimateQuery = MYSQL_QUERY;
+			else if (product.contains("h2"))
+				estimateQuery = H2_QUERY;
+			else {
+				logger.warn("Row count estimates are not supported on " + product + ", using exact counts");
+				estimateQuery = "";
+			}
+		}
+		
+		return estimateQuery;
+	}
+}
@@ -0,0 +1,27 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+import java.util.Set;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * Counts rows with a `COUNT` query on each call
+ */
+public class ExactRowCountStrategy implements RowCountStrategy {
+	@Override
+	public RowCount count(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters) {
+		if (RowCountStrategy.isUnfiltered(query, queryFilters))
+			return RowCount.exact(schema.getJpaRepository().count());
+		
+		return RowCount.exact(schema.getJpaRepository().count(query, queryFilters));
+	}
+}
@@ -0,0 +1,64 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+/**
+ * The number of rows in a table (or matching a search), as returned by a
+ * {@link RowCountStrategy}. The value can either be exact or an estimate,
+ * in which case it should be presented to the user as an approximation.
+ */
+public class RowCount {
+	private long value;
+	
+	private boolean estimated;
+
+	public RowCount(long value, boolean estimated) {
+		this.value = value;
+		this.estimated = estimated;
+	}
+	
+	/**
+	 * Builds an exact row count
+	 * @param value the number of rows
+	 * @return
+	 */
+	public static RowCount exact(long value) {
+		return new RowCount(value, false);
+	}
+	
+	/**
+	 * Builds an estimated row count
+	 * @param value the approximate number of rows
+	 * @return
+	 */
+	public static RowCount estimate(long value) {
+		return new RowCount(value, true);
+	}
+
+	/**
+	 * Returns the number of rows
+	 * @return
+	 */
+	public long getValue() {
+		return value;
+	}
+	
+	/**
+	 * Returns whether the number of rows is an estimate
+	 * @return
+	 */
+	public boolean isEstimated() {
+		return estimated;
+	}
+
+	@Override
+	public String toString() {
+		return (estimated ? "~" : "") + value;
+	}
+}
@@ -0,0 +1,28 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+/**
+ * The available row counting modes, set with the `snapadmin.rowCountMode` property.
+ */
+public enum RowCountMode {
+	/**
+	 * Always run a `COUNT` query
+	 */
+	EXACT,
+	/**
+	 * Read the number of rows from the database statistics when counting
+	 * whole tables, falling back to a `COUNT` query if not available
+	 */
+	ESTIMATE,
+	/**
+	 * Run a `COUNT` query and cache the result for a configurable amount of time
+	 */
+	CACHED;
+}
@@ -0,0 +1,47 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.count;
+
+import java.util.Set;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * Determines how rows are counted in the home page and when computing
+ * the pagination in the list view. The default implementation is chosen
+ * with the `snapadmin.rowCountMode` property, but it can be replaced by
+ * registering a custom bean implementing this interface.
+ */
+public interface RowCountStrategy {
+	/**
+	 * Counts the rows of the schema that match the search 
+	 * @param schema	the schema to count the rows of
+	 * @param query	the fuzzy search query, null to count all the rows
+	 * @param queryFilters	the faceted search filters, null or empty to count all the rows
+	 * @return the number of rows
+	 */
+	public RowCount count(DbObjectSchema schema, String query, Set<QueryFilter> queryFilters);
+	
+	/**
+	 * Notifies that the rows of the schema have been modified through SnapAdmin,
+	 * so any count computed before may not be valid anymore
+	 * @param schema	the schema that has been modified
+	 */
+	public default void invalidate(DbObjectSchema schema) {
+	}
+	
+	/**
+	 * Returns whether the search has no query and no filters, i.e. all the
+	 * rows of the table have to be counted
+	 */
+	public static boolean isUnfiltered(String query, Set<QueryFilter> queryFilters) {
+		return query == null && (queryFilters == null || queryFilters.isEmpty());
+	}
+}
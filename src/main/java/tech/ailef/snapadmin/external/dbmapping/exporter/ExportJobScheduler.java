@@ -0,0 +1,350 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.exporter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dto.DataExportFormat;
+import tech.ailef.snapadmin.external.dto.ExportJob;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+
+/**
+ * Runs exports in the background on `exportWorkers` threads, writing them to
+ * files in `exportSpoolDir` that can be downloaded, and resumed, once completed.
+ * An export requested again while the first one is still queued or running
+ * is not started twice: the running job is returned instead.
+ *
+ * Completed exports are deleted after `exportRetentionMinutes`, or earlier,
+ * oldest first, when the files exceed `exportQuotaSize` megabytes.
+ */
+@Component
+public class ExportJobScheduler {
+	private static final Logger logger = LoggerFactory.getLogger(ExportJobScheduler.class);
+
+	private static final String PART_EXTENSION = ".part";
+
+	/**
+	 * The names of the export files, so that only those are deleted from the directory
+	 */
+	private static final Pattern EXPORT_FILE = Pattern.compile("[0-9a-f-]{36}\\.(csv|xlsx|jsonl|part)");
+
+	private Path directory;
+
+	/**
+	 * Whether the directory has been created for this instance, so it's deleted on shutdown
+	 */
+	private boolean temporary;
+
+	private long retentionNanos;
+
+	private long quotaBytes;
+
+	private SnapAdminMetrics metrics;
+
+	private ExecutorService workers;
+
+	/**
+	 * Deletes the expired exports
+	 */
+	private ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "snapadmin-export-cleaner");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * All the jobs whose file hasn't been deleted yet, in creation order
+	 */
+	private Map<String, ExportJob> jobs = new LinkedHashMap<>();
+
+	/**
+	 * The queued and running jobs, by the parameters of the export
+	 */
+	private Map<String, ExportJob> inFlight = new HashMap<>();
+
+	public ExportJobScheduler(SnapAdminProperties properties, SnapAdminMetrics metrics) {
+		this.metrics = metrics;
+		try {
+			if (properties.getExportSpoolDir() == null) {
+				this.directory = Files.createTempDirectory("snapadmin-exports-", ownerOnly("rwx------"));
+				this.temporary = true;
+			} else {
+				this.directory = Paths.get(properties.getExportSpoolDir());
+			}
+		} catch (IOException e) {
+			throw new SnapAdminException("Unable to create the export directory", e);
+		}
+		this.retentionNanos = TimeUnit.MINUTES.toNanos(properties.getExportRetentionMinutes());
+		this.quotaBytes = properties.getExportQuotaSize() * 1024L * 1024L;
+
+		AtomicInteger threads = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getExportWorkers()), r -> {
+			Thread thread = new Thread(r, "snapadmin-export-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// A configured directory may contain the exports of a previous run
+		if (!temporary)
+			deleteLeftovers();
+		cleaner.scheduleWithFixedDelay(this::expire, 1, 1, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void close() {
+		workers.shutdownNow();
+		cleaner.shutdownNow();
+
+		if (temporary) {
+			deleteLeftovers();
+			try {
+				Files.deleteIfExists(directory);
+			} catch (IOException e) {
+				logger.warn("Unable to delete " + directory, e);
+			}
+		}
+	}
+
+	/**
+	 * Queues an export, unless the same export is already queued or running
+	 * @param key	identifies the parameters of the export, e.g. the table, filters, fields and format
+	 * @param table	the exported table, for the metrics
+	 * @param title	the name of the export shown to the user
+	 * @param fileName	the name of the file when downloaded
+	 * @param format	the format of the file
+	 * @param task	writes the export
+	 * @return the new job, or the one already running
+	 */
+	public synchronized ExportJob submit(String key, String table, String title, String fileName,
+			DataExportFormat format, ExportTask task) {
+		ExportJob running = inFlight.get(key);
+		if (running != null && !running.isFinished())
+			return running;
+
+		ExportJob job = new ExportJob(UUID.randomUUID().toString(), table, title, fileName, format);
+		jobs.put(job.getId(), job);
+		inFlight.put(key, job);
+
+		workers.submit(() -> {
+			try {
+				run(job, task);
+			} finally {
+				synchronized (this) {
+					inFlight.remove(key, job);
+				}
+				expire();
+			}
+		});
+
+		return job;
+	}
+
+	private void run(ExportJob job, ExportTask task) {
+		if (job.isCancelRequested()) {
+			job.cancelled();
+			return;
+		}
+
+		Path part = directory.resolve(job.getId() + PART_EXTENSION);
+		String formatName = job.getFormat().name().toLowerCase();
+		job.start();
+		try {
+			Files.createDirectories(directory, ownerOnly("rwx------"));
+			Files.createFile(part, ownerOnly("rw-------"));
+
+			long rows;
+			try (Timing timing = metrics.start(SnapAdminMetrics.EXPORT, formatName, job.getTable());
+				OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+				rows = task.write(out, job);
+			}
+
+			Path file = getPath(job);
+			Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			long size = Files.size(file);
+			metrics.recordExport(formatName, job.getTable(), rows, size);
+			job.complete(size);
+		} catch (Exception e) {
+			if (NestedExceptionUtils.getMostSpecificCause(e) instanceof CancellationException) {
+				job.cancelled();
+			} else {
+				job.fail(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+				logger.warn("Export " + job.getFileName() + " failed", e);
+			}
+		} finally {
+			try {
+				Files.deleteIfExists(part);
+			} catch (IOException e) {
+				logger.warn("Unable to delete " + part, e);
+			}
+		}
+	}
+
+	/**
+	 * Cancels an export: a queued one doesn't start, a running one stops after the current batch
+	 * @param id	the id of the job
+	 * @return the job, if it exists
+	 */
+	public synchronized Optional<ExportJob> cancel(String id) {
+		ExportJob job = jobs.get(id);
+		if (job == null || job.isFinished())
+			return Optional.ofNullable(job);
+
+		job.cancel();
+		if (job.getStatus() == ExportJob.Status.QUEUED)
+			job.cancelled();
+		return Optional.of(job);
+	}
+
+	public synchronized Optional<ExportJob> findJob(String id) {
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	/**
+	 * Returns the exports whose files are still available, most recent first
+	 * @return
+	 */
+	public synchronized List<ExportJob> getJobs() {
+		List<ExportJob> list = new ArrayList<>(jobs.values());
+		Collections.reverse(list);
+		return list;
+	}
+
+	/**
+	 * Returns the file of a completed export, if it hasn't expired
+	 * @param job
+	 * @return
+	 */
+	public Optional<Path> getFile(ExportJob job) {
+		Path file = getPath(job);
+		if (job.getStatus() != ExportJob.Status.COMPLETED || !Files.isReadable(file))
+			return Optional.empty();
+		return Optional.of(file);
+	}
+
+	private Path getPath(ExportJob job) {
+		return directory.resolve(job.getId() + "." + job.getFormat().name().toLowerCase());
+	}
+
+	/**
+	 * Deletes the exports older than the retention time, then the oldest ones
+	 * until the files fit in the quota
+	 */
+	synchronized void expire() {
+		long now = System.nanoTime();
+		long totalBytes = jobs.values().stream().filter(j -> j.getStatus() == ExportJob.Status.COMPLETED)
+			.mapToLong(ExportJob::getSize).sum();
+
+		// The most recent export is kept even if it's bigger than the quota, so that it can be downloaded once
+		ExportJob newest = jobs.values().stream().filter(j -> j.getStatus() == ExportJob.Status.COMPLETED)
+			.max(Comparator.comparingLong(ExportJob::getFinishedNanos)).orElse(null);
+
+		Iterator<ExportJob> iterator = jobs.values().iterator();
+		while (iterator.hasNext()) {
+			ExportJob job = iterator.next();
+			if (!job.isFinished())
+				continue;
+
+			boolean expired = now - job.getFinishedNanos() > retentionNanos;
+			boolean overQuota = job.getStatus() == ExportJob.Status.COMPLETED && totalBytes > quotaBytes
+				&& job != newest;
+			if (!expired && !overQuota)
+				continue;
+
+			iterator.remove();
+			if (job.getStatus() == ExportJob.Status.COMPLETED)
+				totalBytes -= job.getSize();
+			try {
+				Files.deleteIfExists(getPath(job));
+			} catch (IOException e) {
+				logger.warn("Unable to delete export " + job.getId(), e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the attribute that restricts the permissions of a new file to its owner,
+	 * if the file system supports POSIX permissions
+	 * @param permissions	the permissions, e.g. `rw-------`
+	 */
+	private static FileAttribute<?>[] ownerOnly(String permissions) {
+		if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+			return new FileAttribute<?>[0];
+		return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions)) };
+	}
+
+	/**
+	 * Deletes the exports left by a previous run, which can't be downloaded
+	 * since the jobs are only kept in memory
+	 */
+	private void deleteLeftovers() {
+		if (!Files.isDirectory(directory))
+			return;
+
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(p -> EXPORT_FILE.matcher(p.getFileName().toString()).matches()).forEach(path -> {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					logger.warn("Unable to delete export " + path, e);
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Unable to clean exports in " + directory, e);
+		}
+	}
+
+	/**
+	 * Writes an export to the file of a job
+	 */
+	@FunctionalInterface
+	public interface ExportTask {
+		/**
+		 * @param out	the output stream to the file
+		 * @param job	the job to report the progress to, see {@link ExportJob#addRows(long)}
+		 * @return the number of exported rows
+		 */
+		long write(OutputStream out, ExportJob job) throws IOException;
+	}
+}
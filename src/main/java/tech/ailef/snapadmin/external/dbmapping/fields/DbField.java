@@ -8,7 +8,9 @@
 
 package tech.ailef.snapadmin.external.dbmapping.fields;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -16,6 +18,7 @@ import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
@@ -25,9 +28,12 @@ import tech.ailef.snapadmin.external.annotations.DisplayImage;
 import tech.ailef.snapadmin.external.annotations.Filterable;
 import tech.ailef.snapadmin.external.annotations.FilterableType;
 import tech.ailef.snapadmin.external.annotations.ReadOnly;
+import tech.ailef.snapadmin.external.annotations.Searchable;
+import tech.ailef.snapadmin.external.annotations.SearchableType;
 import tech.ailef.snapadmin.external.dbmapping.DbFieldValue;
 import tech.ailef.snapadmin.external.dbmapping.DbObject;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.misc.Accessors;
 
 /**
  * Represent a field on the database, generated from an Entity class instance variable.
@@ -83,6 +89,24 @@ public class DbField {
 	@JsonIgnore
 	private DbObjectSchema schema;
 	
+	/**
+	 * The handle to the getter method of this field, null if not found
+	 */
+	@JsonIgnore
+	private MethodHandle getter;
+	
+	/**
+	 * The handle to the setter method of this field, null if not found
+	 */
+	@JsonIgnore
+	private MethodHandle setter;
+	
+	/**
+	 * The type of the parameter of the setter method
+	 */
+	@JsonIgnore
+	private Class<?> setterType;
+	
 	public DbField(String javaName, String name, Field field, DbFieldType type, DbObjectSchema schema, String format) {
 		this.javaName = javaName;
 		this.dbName = name;
@@ -130,6 +154,51 @@ public class DbField {
 		return type;
 	}
 	
+	/**
+	 * Looks up the getter and setter methods for this field in the `@Entity` 
+	 * class. This is done once when the schema is loaded, after the type
+	 * of the field has been determined.
+	 */
+	public void resolveAccessors() {
+		String capitalized = Accessors.capitalize(javaName);
+		String prefix = type instanceof BooleanFieldType ? "is" : "get";
+		
+		this.getter = Accessors.toGetter(Accessors.findMethod(schema.getJavaClass(), prefix + capitalized, 0));
+		
+		Method setterMethod = Accessors.findMethod(schema.getJavaClass(), "set" + capitalized, 1);
+		this.setter = Accessors.toSetter(setterMethod);
+		this.setterType = setter == null ? null : setterMethod.getParameterTypes()[0];
+	}
+	
+	/**
+	 * Returns the handle to the getter method of this field, with
+	 * type `(Object)Object`
+	 * @return the getter handle, null if the field has no getter
+	 */
+	@JsonIgnore
+	public MethodHandle getGetter() {
+		return getter;
+	}
+	
+	/**
+	 * Returns the handle to the setter method of this field, with
+	 * type `(Object,Object)void`
+	 * @return the setter handle, null if the field has no setter
+	 */
+	@JsonIgnore
+	public MethodHandle getSetter() {
+		return setter;
+	}
+	
+	/**
+	 * Returns the type of the parameter accepted by the setter method
+	 * @return the setter parameter type, null if the field has no setter
+	 */
+	@JsonIgnore
+	public Class<?> getSetterType() {
+		return setterType;
+	}
+	
 	public void setType(DbFieldType type) {
 		this.type = type;
 	}
@@ -213,6 +282,19 @@ public class DbField {
 		return filterable != null && filterable.type() == FilterableType.CATEGORICAL;
 	}
 	
+	public boolean isSearchable() {
+		return getPrimitiveField().getAnnotation(Searchable.class) != null;
+	}
+	
+	/**
+	 * Returns how the search query is matched against this field
+	 * @return the type declared with `@Searchable`, CONTAINS if not annotated
+	 */
+	public SearchableType getSearchableType() {
+		Searchable searchable = getPrimitiveField().getAnnotation(Searchable.class);
+		return searchable == null ? SearchableType.CONTAINS : searchable.type();
+	}
+	
 	public boolean isReadOnly() {
 		return getPrimitiveField().getAnnotation(ReadOnly.class) != null;
 	}
@@ -223,6 +305,34 @@ public class DbField {
 				|| getPrimitiveField().getAnnotation(ManyToOne.class) != null;
 	}
 	
+	/**
+	 * Returns whether this is a single-valued relationship (`@ManyToOne` or
+	 * `@OneToOne`) to another entity
+	 * @return
+	 */
+	public boolean isSingleValuedRelationship() {
+		return getPrimitiveField().getAnnotation(ManyToOne.class) != null
+			|| getPrimitiveField().getAnnotation(OneToOne.class) != null;
+	}
+	
+	/**
+	 * Returns whether this is a single-valued relationship that Hibernate
+	 * loads eagerly. The inverse side of a `@OneToOne` is always loaded
+	 * eagerly, regardless of the declared fetch type.
+	 * @return
+	 */
+	public boolean isEagerSingleValuedRelationship() {
+		ManyToOne manyToOne = getPrimitiveField().getAnnotation(ManyToOne.class);
+		if (manyToOne != null)
+			return manyToOne.fetch() == FetchType.EAGER;
+		
+		OneToOne oneToOne = getPrimitiveField().getAnnotation(OneToOne.class);
+		if (oneToOne != null)
+			return oneToOne.fetch() == FetchType.EAGER || !oneToOne.mappedBy().isBlank();
+		
+		return false;
+	}
+	
 	/**
 	 * Returns if this field is settable with a raw value, i.e.
 	 * a field that is not a relationship to another entity;
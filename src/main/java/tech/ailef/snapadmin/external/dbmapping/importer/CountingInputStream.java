@@ -0,0 +1,42 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Reports the bytes read from the underlying stream
+ */
+class CountingInputStream extends FilterInputStream {
+	private LongConsumer bytesRead;
+
+	CountingInputStream(InputStream in, LongConsumer bytesRead) {
+		super(in);
+		this.bytesRead = bytesRead;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b != -1)
+			bytesRead.accept(1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = in.read(b, off, len);
+		if (read > 0)
+			bytesRead.accept(read);
+		return read;
+	}
+}
@@ -0,0 +1,53 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads CSV files with a header, like the ones produced by the export
+ */
+class CsvImportReader implements ImportReader {
+	private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+		.setHeader()
+		.setSkipHeaderRecord(true)
+		.build();
+
+	@Override
+	public void read(Path file, LongConsumer bytesRead, RowHandler handler) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new CountingInputStream(Files.newInputStream(file), bytesRead), StandardCharsets.UTF_8));
+			CSVParser parser = FORMAT.parse(reader)) {
+			List<String> header = parser.getHeaderNames();
+
+			long number = 0;
+			for (CSVRecord record : parser) {
+				Map<String, String> values = new LinkedHashMap<>();
+				for (String column : header) {
+					String value = record.isSet(column) ? record.get(column) : null;
+					values.put(column, value == null || value.isEmpty() ? null : value);
+				}
+				handler.row(++number, values);
+			}
+		}
+	}
+}
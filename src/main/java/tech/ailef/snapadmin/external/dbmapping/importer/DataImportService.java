@@ -0,0 +1,452 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.validation.Validator;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.BlobRepository;
+import tech.ailef.snapadmin.external.dbmapping.EntityCache;
+import tech.ailef.snapadmin.external.dbmapping.count.RowCountStrategy;
+import tech.ailef.snapadmin.external.dbmapping.importer.ImportTable.Column;
+import tech.ailef.snapadmin.external.dbmapping.importer.ImportTable.Row;
+import tech.ailef.snapadmin.external.dbmapping.search.AutocompleteIndex;
+import tech.ailef.snapadmin.external.dbmapping.search.SearchBackend;
+import tech.ailef.snapadmin.external.dto.DataExportFormat;
+import tech.ailef.snapadmin.external.dto.ImportJob;
+import tech.ailef.snapadmin.external.dto.ImportMode;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+import tech.ailef.snapadmin.external.service.TreePathIndex;
+import tech.ailef.snapadmin.internal.model.UserAction;
+import tech.ailef.snapadmin.internal.service.UserActionService;
+
+/**
+ * Imports files in the export formats into a table, in the background. The
+ * file is read as a stream and processed in chunks of `importChunkSize` rows:
+ * <ul>
+ * <li>the rows are parsed and validated in parallel;</li>
+ * <li>the foreign keys are checked with a query for each referenced table,
+ * remembering the keys found for the next chunks;</li>
+ * <li>the rows are written with JDBC batches in a single transaction, after
+ * looking up which primary keys already exist.</li>
+ * </ul>
+ * If a batch fails, the rows of the chunk are written again one at a time, to
+ * find out which ones fail. In a dry run, the transactions are rolled back.
+ *
+ * Rows are written with SQL, without going through JPA: entity listeners and
+ * field initializers don't apply to them.
+ */
+@Component
+public class DataImportService {
+	private static final Logger logger = LoggerFactory.getLogger(DataImportService.class);
+
+	/**
+	 * The maximum number of primary keys in a single query when checking which ones exist
+	 */
+	private static final int LOOKUP_CHUNK_SIZE = 500;
+
+	/**
+	 * The number of finished imports kept to show their results
+	 */
+	private static final int MAX_JOBS = 100;
+
+	private EntityManager entityManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private SnapAdminProperties properties;
+
+	private ObjectMapper mapper;
+
+	private SnapAdminMetrics metrics;
+
+	private RowCountStrategy rowCountStrategy;
+
+	private SearchBackend searchBackend;
+
+	private AutocompleteIndex autocompleteIndex;
+
+	private EntityCache entityCache;
+
+	private TreePathIndex treePathIndex;
+
+	private BlobRepository blobRepository;
+
+	private UserActionService userActionService;
+
+	private Validator validator;
+
+	/**
+	 * Runs the imports, one at a time
+	 */
+	private ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "snapadmin-import");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Parses and validates the rows of each chunk
+	 */
+	private ForkJoinPool validationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private Map<String, ImportJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+			return size() > MAX_JOBS && eldest.getValue().isFinished();
+		}
+	});
+
+	public DataImportService(EntityManager entityManager, SnapAdminProperties properties, ObjectMapper mapper,
+			SnapAdminMetrics metrics, RowCountStrategy rowCountStrategy, SearchBackend searchBackend,
+			AutocompleteIndex autocompleteIndex, EntityCache entityCache, TreePathIndex treePathIndex,
+			BlobRepository blobRepository, UserActionService userActionService, Validator validator, @Qualifier("transactionManager") PlatformTransactionManager transactionManager) {
+		this.entityManager = entityManager;
+		this.properties = properties;
+		this.mapper = mapper;
+		this.metrics = metrics;
+		this.rowCountStrategy = rowCountStrategy;
+		this.searchBackend = searchBackend;
+		this.autocompleteIndex = autocompleteIndex;
+		this.entityCache = entityCache;
+		this.treePathIndex = treePathIndex;
+		this.blobRepository = blobRepository;
+		this.userActionService = userActionService;
+		this.validator = validator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@PreDestroy
+	void close() {
+		executor.shutdownNow();
+		validationPool.shutdown();
+	}
+
+	/**
+	 * Saves the uploaded file and starts importing it in the background
+	 * @param schema	the schema to import into
+	 * @param file	the uploaded file
+	 * @param format	the format of the file
+	 * @param mode	whether existing rows are updated or reported as errors
+	 * @param dryRun	whether to roll back the changes
+	 * @param username	the user importing the file, for the audit log
+	 * @return the import, to follow its progress
+	 * @throws IOException	if the file can't be saved
+	 */
+	public ImportJob start(DbObjectSchema schema, MultipartFile file, DataExportFormat format, ImportMode mode,
+			boolean dryRun, String username) throws IOException {
+		Path path = Files.createTempFile("snapadmin-import", "." + format.name().toLowerCase());
+		file.transferTo(path);
+
+		ImportJob job = new ImportJob(UUID.randomUUID().toString(), schema.getClassName(), file.getOriginalFilename(),
+			format, mode, dryRun, Files.size(path), properties.getImportMaxErrors());
+		jobs.put(job.getId(), job);
+
+		executor.submit(() -> {
+			try {
+				new ImportRun(job, schema, username).run(path);
+			} finally {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					logger.warn("Unable to delete import file " + path, e);
+				}
+			}
+		});
+
+		return job;
+	}
+
+	/**
+	 * Returns an import started recently
+	 * @param id	the id of the import
+	 * @return
+	 */
+	public Optional<ImportJob> findJob(String id) {
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	/**
+	 * Returns the primary keys that exist among the given ones
+	 */
+	private Set<Object> findExisting(DbObjectSchema schema, Collection<Object> ids) {
+		Set<Object> existing = new HashSet<>();
+		List<Object> list = new ArrayList<>(ids);
+
+		for (int i = 0; i < list.size(); i += LOOKUP_CHUNK_SIZE) {
+			CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+			CriteriaQuery<Object> query = cb.createQuery(Object.class);
+			Root<?> root = query.from(schema.getJavaClass());
+			jakarta.persistence.criteria.Path<Object> primaryKey = root.get(schema.getPrimaryKey().getJavaName());
+			query.select(primaryKey).where(primaryKey.in(list.subList(i, Math.min(list.size(), i + LOOKUP_CHUNK_SIZE))));
+
+			existing.addAll(entityManager.createQuery(query).getResultList());
+		}
+
+		return existing;
+	}
+
+	/**
+	 * The state of an import while it runs
+	 */
+	private class ImportRun {
+		private ImportJob job;
+
+		private DbObjectSchema schema;
+
+		private String username;
+
+		private ImportTable table;
+
+		private List<Row> chunk = new ArrayList<>();
+
+		/**
+		 * The raw rows waiting to be processed, with their number
+		 */
+		private List<Map<String, String>> pending = new ArrayList<>();
+
+		private List<Long> pendingNumbers = new ArrayList<>();
+
+		/**
+		 * The primary keys known to exist, by class name, for the foreign keys
+		 */
+		private Map<String, Set<Object>> knownIds = new HashMap<>();
+
+		ImportRun(ImportJob job, DbObjectSchema schema, String username) {
+			this.job = job;
+			this.schema = schema;
+			this.username = username;
+		}
+
+		void run(Path file) {
+			try {
+				AbstractEntityPersister persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+					.unwrap(SessionFactoryImplementor.class)
+					.getRuntimeMetamodels()
+					.getMappingMetamodel()
+					.getEntityDescriptor(schema.getJavaClass());
+
+				ImportReader.of(job.getFormat(), mapper).read(file, job::addBytesRead, (number, values) -> {
+					if (table == null)
+						table = new ImportTable(schema, persister, values.keySet(), validator);
+
+					pending.add(values);
+					pendingNumbers.add(number);
+					if (pending.size() >= properties.getImportChunkSize())
+						processPending();
+				});
+				processPending();
+
+				if (!job.isDryRun() && job.getInserted() + job.getUpdated() > 0) {
+					// The rows were written with SQL, so the indexes were not notified
+					rowCountStrategy.invalidate(schema);
+					searchBackend.rebuild(schema);
+					autocompleteIndex.rebuild(schema);
+					entityCache.invalidate(schema);
+					treePathIndex.rebuild(schema);
+					blobRepository.invalidate(schema);
+
+					userActionService.save(new UserAction(schema.getTableName(),
+						job.getInserted() + " inserted, " + job.getUpdated() + " updated",
+						"IMPORT", schema.getClassName(), username));
+				}
+
+				job.complete();
+				logger.info("Imported " + job.getFileName() + " into " + schema.getClassName() + ": "
+					+ job.getProcessed() + " rows in " + job.getElapsedMillis() + " ms ("
+					+ job.getRowsPerSecond() + " rows/s), " + job.getFailed() + " failed");
+			} catch (Exception e) {
+				job.fail(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+				logger.warn("Import of " + job.getFileName() + " into " + schema.getClassName() + " failed", e);
+			}
+		}
+
+		private void processPending() {
+			if (pending.isEmpty())
+				return;
+
+			String operation = job.isDryRun() ? "dryRun" : job.getMode().name().toLowerCase();
+			try (Timing timing = metrics.start(SnapAdminMetrics.IMPORT, operation, schema)) {
+				List<Map<String, String>> values = pending;
+				List<Long> numbers = pendingNumbers;
+				chunk = validationPool.submit(() -> IntStream.range(0, values.size()).parallel()
+					.mapToObj(i -> table.parse(numbers.get(i), values.get(i)))
+					.toList()
+				).join();
+
+				for (Column foreignKey : table.getForeignKeys()) {
+					checkForeignKeys(foreignKey);
+				}
+
+				List<Row> valid = chunk.stream().filter(Row::isValid).toList();
+				try {
+					write(valid);
+				} catch (RuntimeException e) {
+					// Find the rows that make the batch fail
+					for (Row row : valid) {
+						try {
+							write(List.of(row));
+						} catch (RuntimeException rowException) {
+							row.setError(NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+						}
+					}
+				}
+
+				for (Row row : chunk) {
+					if (!row.isValid())
+						job.addError(row.getNumber(), row.getError());
+				}
+				job.addProcessed(chunk.size());
+			}
+
+			pending = new ArrayList<>();
+			pendingNumbers = new ArrayList<>();
+		}
+
+		/**
+		 * Marks the rows of the chunk referencing a primary key that doesn't exist
+		 */
+		private void checkForeignKeys(Column column) {
+			DbObjectSchema target = column.getField().getConnectedSchema();
+			int index = table.indexOf(column);
+			Set<Object> known = knownIds.computeIfAbsent(target.getClassName(), k -> new HashSet<>());
+
+			Set<Object> unknown = new HashSet<>();
+			for (Row row : chunk) {
+				Object value = row.getValue(index);
+				if (row.isValid() && value != null && !known.contains(value))
+					unknown.add(value);
+			}
+			if (!unknown.isEmpty())
+				known.addAll(findExisting(target, unknown));
+
+			for (Row row : chunk) {
+				Object value = row.getValue(index);
+				if (row.isValid() && value != null && !known.contains(value))
+					row.setError("No " + target.getJavaClass().getSimpleName() + " with "
+						+ target.getPrimaryKey().getName() + " " + value);
+			}
+		}
+
+		/**
+		 * Writes the rows in a single transaction, with a batch for each statement
+		 */
+		private void write(List<Row> rows) {
+			List<Row> inserts = new ArrayList<>();
+			List<Row> generatedInserts = new ArrayList<>();
+			List<Row> updates = new ArrayList<>();
+
+			transactionTemplate.executeWithoutResult(status -> {
+				SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+
+				Set<Object> existing = findExisting(schema,
+					rows.stream().map(Row::getId).filter(id -> id != null).toList());
+
+				for (Row row : rows) {
+					if (row.getId() != null && existing.contains(row.getId())) {
+						if (job.getMode() == ImportMode.UPSERT)
+							updates.add(row);
+						else
+							row.setError("A row with " + schema.getPrimaryKey().getName() + " " + row.getId()
+								+ " already exists");
+					} else if (row.getId() == null && table.isGeneratedOnExecution()) {
+						generatedInserts.add(row);
+					} else {
+						if (row.getId() == null)
+							row.setId(table.generateId(session, row));
+						inserts.add(row);
+					}
+				}
+
+				session.doWork(connection -> {
+					try (PreparedStatement statement = connection.prepareStatement(table.getInsertSql(true))) {
+						for (Row row : inserts) {
+							table.bindInsert(statement, row, true, session);
+							statement.addBatch();
+						}
+						if (!inserts.isEmpty())
+							statement.executeBatch();
+					}
+
+					try (PreparedStatement statement = connection.prepareStatement(table.getInsertSql(false))) {
+						for (Row row : generatedInserts) {
+							table.bindInsert(statement, row, false, session);
+							statement.addBatch();
+						}
+						if (!generatedInserts.isEmpty())
+							statement.executeBatch();
+					}
+
+					if (table.getUpdateSql() != null && !updates.isEmpty()) {
+						try (PreparedStatement statement = connection.prepareStatement(table.getUpdateSql())) {
+							for (Row row : updates) {
+								table.bindUpdate(statement, row, session);
+								statement.addBatch();
+							}
+							statement.executeBatch();
+						}
+					}
+				});
+
+				if (job.isDryRun())
+					status.setRollbackOnly();
+			});
+
+			job.addInserted(inserts.size() + generatedInserts.size());
+			job.addUpdated(updates.size());
+
+			// Rows of this chunk can be referenced by the next ones
+			Set<Object> known = knownIds.get(schema.getClassName());
+			if (known != null && !job.isDryRun())
+				inserts.forEach(row -> known.add(row.getId()));
+		}
+	}
+}
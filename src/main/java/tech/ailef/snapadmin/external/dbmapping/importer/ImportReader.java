@@ -0,0 +1,55 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.ailef.snapadmin.external.dto.DataExportFormat;
+
+/**
+ * Reads the rows of an import file one at a time, so that files of any
+ * size can be imported with a constant amount of memory
+ */
+interface ImportReader {
+	/**
+	 * Reads the rows of a file, in order
+	 * @param file	the file to read
+	 * @param bytesRead	called with the number of bytes read, to report the progress
+	 * @param handler	called for each row, with the values keyed by column name
+	 * @throws IOException
+	 */
+	void read(Path file, LongConsumer bytesRead, RowHandler handler) throws IOException;
+
+	static ImportReader of(DataExportFormat format, ObjectMapper mapper) {
+		switch (format) {
+		case CSV:
+			return new CsvImportReader();
+		case JSONL:
+			return new JsonlImportReader(mapper);
+		case XLSX:
+			return new XlsxImportReader();
+		default:
+			throw new IllegalArgumentException("Unsupported import format: " + format);
+		}
+	}
+
+	@FunctionalInterface
+	interface RowHandler {
+		/**
+		 * @param number	the number of the row, starting from 1 for the first row after the header
+		 * @param values	the values of the row by column name, null if empty or missing
+		 */
+		void row(long number, Map<String, String> values);
+	}
+}
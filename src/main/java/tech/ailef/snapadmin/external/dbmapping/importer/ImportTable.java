@@ -0,0 +1,422 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.hibernate.metamodel.mapping.JdbcMapping;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.WrapperOptions;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+
+/**
+ * Maps the columns of an import file to the table of a schema. Column and table
+ * names come from the Hibernate metamodel, and values are bound with the JDBC
+ * mappings of the attributes, so that converters and enums are written like
+ * Hibernate would write them.
+ */
+class ImportTable {
+	private DbObjectSchema schema;
+
+	private AbstractEntityPersister persister;
+
+	private Validator validator;
+
+	/**
+	 * The imported columns, except the primary key
+	 */
+	private List<Column> columns = new ArrayList<>();
+
+	private Column primaryKey;
+
+	/**
+	 * The name of the primary key column in the file, null if it's not imported
+	 */
+	private String primaryKeyHeader;
+
+	private Generator generator;
+
+	/**
+	 * Whether the version column must be set by the statements, because it's not imported
+	 */
+	private boolean versioned;
+
+	private String insertSql;
+
+	private String insertWithoutPrimaryKeySql;
+
+	private String updateSql;
+
+	/**
+	 * @param schema	the schema to import
+	 * @param persister	the Hibernate persister of the schema
+	 * @param headers	the column names of the file, either the names of the database columns or of the Java fields
+	 * @param validator	the validator for the constraints declared on the entity
+	 */
+	ImportTable(DbObjectSchema schema, AbstractEntityPersister persister, Collection<String> headers, Validator validator) {
+		this.schema = schema;
+		this.persister = persister;
+		this.validator = validator;
+		this.generator = persister.getGenerator();
+
+		if (persister.isInherited() || persister.hasSubclasses())
+			throw new SnapAdminException("Import is not supported for entities in an inheritance hierarchy");
+
+		DbField primaryKeyField = schema.getPrimaryKey();
+		this.primaryKey = new Column(primaryKeyField, persister.getIdentifierColumnNames()[0],
+			persister.getIdentifierMapping().getJdbcMapping(0), null);
+
+		List<String> unknown = new ArrayList<>();
+		List<String> unsupported = new ArrayList<>();
+		Set<DbField> mapped = new HashSet<>();
+		for (String header : headers) {
+			DbField field = schema.getFieldByName(header);
+			if (field == null)
+				field = schema.getFieldByJavaName(header);
+
+			if (field == null) {
+				// Computed columns are included in exports, but can't be imported
+				if (schema.getComputedColumn(header) == null)
+					unknown.add(header);
+				continue;
+			}
+
+			if (!mapped.add(field))
+				throw new SnapAdminException("Column " + field.getName() + " appears more than once");
+
+			if (field.isPrimaryKey()) {
+				primaryKeyHeader = header;
+			} else if (field.isBinary() || !(field.isSettable() || field.isToOne())) {
+				unsupported.add(header);
+			} else {
+				columns.add(new Column(field, persister.getPropertyColumnNames(field.getJavaName())[0],
+					persister.findAttributeMapping(field.getJavaName()).getJdbcMapping(0), header));
+			}
+		}
+
+		if (!unknown.isEmpty())
+			throw new SnapAdminException("Unknown columns for " + schema.getJavaClass().getSimpleName() + ": "
+				+ String.join(", ", unknown));
+		if (!unsupported.isEmpty())
+			throw new SnapAdminException("These columns can't be imported: " + String.join(", ", unsupported));
+
+		this.versioned = persister.isVersioned() && columns.stream()
+			.noneMatch(c -> c.getName().equals(persister.getVersionColumnName()));
+
+		buildStatements();
+	}
+
+	private void buildStatements() {
+		String table = persister.getTableName();
+		List<String> names = columns.stream().map(Column::getName).collect(Collectors.toList());
+		if (versioned)
+			names.add(persister.getVersionColumnName());
+
+		insertWithoutPrimaryKeySql = "INSERT INTO " + table + " (" + String.join(", ", names) + ") VALUES ("
+			+ names.stream().map(n -> "?").collect(Collectors.joining(", ")) + ")";
+
+		names.add(0, primaryKey.getName());
+		insertSql = "INSERT INTO " + table + " (" + String.join(", ", names) + ") VALUES ("
+			+ names.stream().map(n -> "?").collect(Collectors.joining(", ")) + ")";
+
+		// Read only fields are only set when rows are created
+		List<String> assignments = columns.stream()
+			.filter(c -> !c.getField().isReadOnly())
+			.map(c -> c.getName() + " = ?")
+			.collect(Collectors.toList());
+		if (versioned && isNumericVersion()) {
+			String version = persister.getVersionColumnName();
+			assignments.add(version + " = " + version + " + 1");
+		}
+
+		updateSql = assignments.isEmpty() ? null
+			: "UPDATE " + table + " SET " + String.join(", ", assignments) + " WHERE " + primaryKey.getName() + " = ?";
+	}
+
+	private boolean isNumericVersion() {
+		return Number.class.isAssignableFrom(persister.getVersionJavaType().getJavaTypeClass());
+	}
+
+	/**
+	 * Parses the values of a row and validates them against the constraints
+	 * declared on the entity. Foreign keys are only parsed, their existence
+	 * is checked for all the rows of a chunk at once.
+	 * @param number	the number of the row in the file
+	 * @param values	the values by column name
+	 * @return the parsed row, possibly with an error
+	 */
+	Row parse(long number, Map<String, String> values) {
+		Row row = new Row(number, columns.size());
+
+		try {
+			Object instance = schema.getJavaClass().getConstructor().newInstance();
+			DbObject object = new DbObject(instance, schema);
+			row.instance = instance;
+
+			if (primaryKeyHeader != null) {
+				row.id = parse(primaryKey, values.get(primaryKeyHeader));
+				if (row.id != null)
+					object.set(primaryKey.getField(), row.id);
+			}
+
+			if (row.id == null && !primaryKey.getField().isGeneratedValue())
+				throw new ImportException(primaryKey.getField().getName() + " can't be empty");
+
+			for (int i = 0; i < columns.size(); i++) {
+				Column column = columns.get(i);
+				DbField field = column.getField();
+
+				Object value = parse(column, values.get(column.getHeader()));
+				if (value == null && !field.isNullable())
+					throw new ImportException(column.getHeader() + " can't be empty");
+
+				row.values[i] = value;
+				if (value == null)
+					continue;
+
+				if (field.isToOne()) {
+					// The related object only needs a primary key for the validation
+					DbObjectSchema connected = field.getConnectedSchema();
+					Object reference = connected.getJavaClass().getConstructor().newInstance();
+					new DbObject(reference, connected).set(connected.getPrimaryKey(), value);
+					object.set(field, reference);
+				} else {
+					object.set(field, value);
+				}
+			}
+
+			Set<ConstraintViolation<Object>> violations = validator.validate(instance);
+			if (!violations.isEmpty()) {
+				throw new ImportException(violations.stream()
+					.sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+					.map(v -> v.getPropertyPath() + " " + v.getMessage())
+					.collect(Collectors.joining("; ")));
+			}
+		} catch (ImportException | SnapAdminException e) {
+			row.error = e.getMessage();
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+			throw new SnapAdminException(e);
+		}
+
+		return row;
+	}
+
+	private Object parse(Column column, String value) {
+		if (value == null)
+			return null;
+
+		// Exports without the raw option write foreign keys as "id (display name)"
+		if (column.getField().isToOne() && value.endsWith(")") && value.contains(" ("))
+			value = value.substring(0, value.indexOf(" ("));
+
+		try {
+			return column.getField().getType().parseValue(value);
+		} catch (RuntimeException e) {
+			throw new ImportException("Invalid value '" + value + "' for " + column.getField().getName());
+		}
+	}
+
+	/**
+	 * Returns the imported foreign key columns
+	 * @return
+	 */
+	List<Column> getForeignKeys() {
+		return columns.stream().filter(c -> c.getField().isToOne()).toList();
+	}
+
+	/**
+	 * Returns the index of a column in the values of the rows
+	 */
+	int indexOf(Column column) {
+		return columns.indexOf(column);
+	}
+
+	/**
+	 * Returns whether the database generates the primary key while inserting the row,
+	 * in which case the rows without a primary key are inserted without it
+	 * @return
+	 */
+	boolean isGeneratedOnExecution() {
+		return generator != null && generator.generatedOnExecution();
+	}
+
+	/**
+	 * Generates the primary key of a row with the generator of the entity, e.g. from a sequence
+	 */
+	Object generateId(SharedSessionContractImplementor session, Row row) {
+		return ((BeforeExecutionGenerator)generator).generate(session, row.instance, null, EventType.INSERT);
+	}
+
+	String getInsertSql(boolean withPrimaryKey) {
+		return withPrimaryKey ? insertSql : insertWithoutPrimaryKeySql;
+	}
+
+	/**
+	 * Returns the update statement, or null if no imported column can be updated
+	 * @return
+	 */
+	String getUpdateSql() {
+		return updateSql;
+	}
+
+	void bindInsert(PreparedStatement statement, Row row, boolean withPrimaryKey,
+			SharedSessionContractImplementor session) throws SQLException {
+		int index = 1;
+		if (withPrimaryKey)
+			bind(statement, index++, primaryKey.getMapping(), row.id, session);
+
+		for (int i = 0; i < columns.size(); i++) {
+			bind(statement, index++, columns.get(i).getMapping(), row.values[i], session);
+		}
+
+		if (versioned) {
+			Object seed = persister.getVersionJavaType().seed(null, null, null, session);
+			bind(statement, index++, persister.getVersionMapping().getJdbcMapping(), seed, session);
+		}
+	}
+
+	void bindUpdate(PreparedStatement statement, Row row, SharedSessionContractImplementor session) throws SQLException {
+		int index = 1;
+		for (int i = 0; i < columns.size(); i++) {
+			if (!columns.get(i).getField().isReadOnly())
+				bind(statement, index++, columns.get(i).getMapping(), row.values[i], session);
+		}
+
+		bind(statement, index, primaryKey.getMapping(), row.id, session);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void bind(PreparedStatement statement, int index, JdbcMapping mapping, Object value,
+			WrapperOptions options) throws SQLException {
+		ValueBinder binder = mapping.getJdbcValueBinder();
+		binder.bind(statement, value == null ? null : mapping.convertToRelationalValue(value), index, options);
+	}
+
+	/**
+	 * An imported column
+	 */
+	static class Column {
+		private final DbField field;
+
+		private final String name;
+
+		private final JdbcMapping mapping;
+
+		private final String header;
+
+		Column(DbField field, String name, JdbcMapping mapping, String header) {
+			this.field = field;
+			this.name = name;
+			this.mapping = mapping;
+			this.header = header;
+		}
+
+		DbField getField() {
+			return field;
+		}
+
+		/**
+		 * Returns the name of the database column
+		 */
+		String getName() {
+			return name;
+		}
+
+		JdbcMapping getMapping() {
+			return mapping;
+		}
+
+		/**
+		 * Returns the name of the column in the file
+		 */
+		String getHeader() {
+			return header;
+		}
+	}
+
+	/**
+	 * A row of the file, with its parsed values in the order of the columns
+	 */
+	static class Row {
+		private final long number;
+
+		private final Object[] values;
+
+		private Object id;
+
+		private Object instance;
+
+		private String error;
+
+		Row(long number, int columns) {
+			this.number = number;
+			this.values = new Object[columns];
+		}
+
+		long getNumber() {
+			return number;
+		}
+
+		Object getId() {
+			return id;
+		}
+
+		void setId(Object id) {
+			this.id = id;
+		}
+
+		Object getValue(int index) {
+			return values[index];
+		}
+
+		String getError() {
+			return error;
+		}
+
+		void setError(String error) {
+			this.error = error;
+		}
+
+		boolean isValid() {
+			return error == null;
+		}
+	}
+
+	/**
+	 * Raised when a row can't be imported, with a message for the user
+	 */
+	private static class ImportException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ImportException(String message) {
+			super(message);
+		}
+	}
+}
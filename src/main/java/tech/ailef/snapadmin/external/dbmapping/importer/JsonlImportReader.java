@@ -0,0 +1,54 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads JSONL files, one object per line, like the ones produced by the export.
+ * Nested objects and arrays are passed as JSON, and fail to parse.
+ */
+class JsonlImportReader implements ImportReader {
+	private ObjectMapper mapper;
+
+	JsonlImportReader(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	@Override
+	public void read(Path file, LongConsumer bytesRead, RowHandler handler) throws IOException {
+		try (InputStream in = new CountingInputStream(Files.newInputStream(file), bytesRead);
+			MappingIterator<JsonNode> lines = mapper.readerFor(JsonNode.class).readValues(in)) {
+			long number = 0;
+			while (lines.hasNext()) {
+				JsonNode line = lines.next();
+
+				Map<String, String> values = new LinkedHashMap<>();
+				Iterator<Map.Entry<String, JsonNode>> fields = line.fields();
+				while (fields.hasNext()) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					JsonNode value = field.getValue();
+					values.put(field.getKey(), value.isNull() ? null : value.isValueNode() ? value.asText() : value.toString());
+				}
+				handler.row(++number, values);
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads the first sheet of XLSX workbooks, with the column names in the first row.
+ * The sheet is parsed as a stream of XML events instead of being loaded as a
+ * workbook. The progress is not reported, as the file is not read sequentially.
+ */
+class XlsxImportReader implements ImportReader {
+	@Override
+	public void read(Path file, LongConsumer bytesRead, RowHandler handler) throws IOException {
+		try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+			XSSFReader reader = new XSSFReader(pkg);
+			Iterator<InputStream> sheets = reader.getSheetsData();
+			if (!sheets.hasNext())
+				return;
+
+			try (InputStream sheet = sheets.next()) {
+				XMLReader parser = XMLHelper.newXMLReader();
+				parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+					new ReadOnlySharedStringsTable(pkg), new RowCollector(handler), new DataFormatter(), false));
+				parser.parse(new InputSource(sheet));
+			}
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IOException("Invalid XLSX file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Collects the cells of each row and passes them to the handler, keyed by the header
+	 */
+	private static class RowCollector implements SheetContentsHandler {
+		private RowHandler handler;
+
+		/**
+		 * The column names by index, null for the columns without a name
+		 */
+		private List<String> header;
+
+		private String[] cells;
+
+		RowCollector(RowHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+			cells = new String[header == null ? 0 : header.size()];
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+			if (header == null) {
+				header = Arrays.asList(cells);
+				return;
+			}
+
+			boolean empty = true;
+			Map<String, String> values = new LinkedHashMap<>();
+			for (int i = 0; i < header.size(); i++) {
+				if (header.get(i) == null)
+					continue;
+
+				values.put(header.get(i), cells[i]);
+				empty &= cells[i] == null;
+			}
+
+			// Row numbers start from 0 for the header
+			if (!empty)
+				handler.row(rowNum, values);
+		}
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			int column = new CellReference(cellReference).getCol();
+			if (header == null && column >= cells.length)
+				cells = Arrays.copyOf(cells, column + 1);
+
+			if (column < cells.length && formattedValue != null && !formattedValue.isEmpty())
+				cells[column] = formattedValue;
+		}
+	}
+}
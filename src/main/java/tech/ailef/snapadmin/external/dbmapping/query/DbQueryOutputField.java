@@ -16,7 +16,6 @@ import tech.ailef.snapadmin.external.SnapAdmin;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
 import tech.ailef.snapadmin.external.dbmapping.fields.DbFieldType;
-import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
 import tech.ailef.snapadmin.external.exceptions.UnsupportedFieldTypeException;
 
 /*
@@ -28,24 +27,27 @@ public class DbQueryOutputField {
 	private String name;
 	
 	private String table;
+	
+	/**
+	 * The position of this column in the result
+	 */
+	private int index;
 
 	private DbField dbField;
 	
-	private DbQueryResultRow result;
+	private DbQueryResult result;
 	
-	public DbQueryOutputField(String name, String table, SnapAdmin snapAdmin) {
+	public DbQueryOutputField(String name, String table, int index, SnapAdmin snapAdmin) {
 		this.name = name;
 		this.table = table;
+		this.index = index;
 		
-		try {
-			DbObjectSchema schema = snapAdmin.findSchemaByTableName(table);
-			DbField dbField = schema.getFieldByName(name);
-			this.dbField = dbField;
-		} catch (SnapAdminException e) {
-			// We were unable to map this result column to a table, this happens
-			// for example with COUNT(*) results and similar. We ignore this
-			// as the dbField will be null and handled as such in the rest of the code
-		}
+		// If we are unable to map this result column to a table, which happens
+		// for example with COUNT(*) results and similar, the dbField will be
+		// null and handled as such in the rest of the code
+		DbObjectSchema schema = snapAdmin.getSchemaByTableName(table);
+		if (schema != null)
+			this.dbField = schema.getFieldByName(name);
 	}
 
 	/**
@@ -63,6 +65,14 @@ public class DbQueryOutputField {
 	public String getTable() {
 		return table;
 	}
+	
+	/**
+	 * Returns the position of the field in the result
+	 * @return
+	 */
+	public int getIndex() {
+		return index;
+	}
 
 	/**
 	 * Returns true if this field is a primary key
@@ -119,10 +129,13 @@ public class DbQueryOutputField {
 		if (dbField != null)
 			return dbField.getType().toString();
 		
-		// If the row this fields belongs to is defined
+		// If the result this field belongs to is defined, we use the first non-null value
 		if (result != null) {
+			Object value = result.getRows().stream().map(r -> r.get(this)).filter(v -> v != null).findFirst().orElse(null);
+			if (value == null) return "-";
+			
 			try {
-				DbFieldType type = DbFieldType.fromClass(result.get(this).getClass()).getConstructor().newInstance();
+				DbFieldType type = DbFieldType.fromClass(value.getClass()).getConstructor().newInstance();
 				return type.toString();
 			} catch (UnsupportedFieldTypeException | InstantiationException | IllegalAccessException | 
 					IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException e) {
@@ -152,10 +165,10 @@ public class DbQueryOutputField {
 	}
 
 	/**
-	 * Sets the row object this field belongs to 
+	 * Sets the result object this field belongs to 
 	 * @param result
 	 */
-	public void setResult(DbQueryResultRow result) {
+	public void setResult(DbQueryResult result) {
 		this.result = result;
 	}
 	
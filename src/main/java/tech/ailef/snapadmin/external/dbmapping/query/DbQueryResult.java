@@ -10,17 +10,83 @@
 package tech.ailef.snapadmin.external.dbmapping.query;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A wrapper for results returned by user-provided SQL queries run via
- * the SQL console.
+ * the SQL console. The columns are described once for the whole result
+ * and each row only holds its values, indexed by column position.
  */
 public class DbQueryResult {
-	private List<DbQueryResultRow> rows;
-
-	public DbQueryResult(List<DbQueryResultRow> rows) {
-		this.rows = rows;
+	/**
+	 * The columns of the result, in the order returned by the query
+	 */
+	private List<DbQueryOutputField> fields;
+	
+	/**
+	 * The columns sorted for display, primary keys first
+	 */
+	private List<DbQueryOutputField> sortedFields;
+	
+	/**
+	 * Index of the columns by name. If more columns have the same
+	 * name (e.g. in joins), the first one is used.
+	 */
+	private Map<String, DbQueryOutputField> fieldsByName = new HashMap<>();
+	
+	private List<DbQueryResultRow> rows = new ArrayList<>();
+	
+	/**
+	 * Whether the query returned more rows after the ones in this result
+	 */
+	private boolean hasMore;
+	
+	/**
+	 * Whether the query was stopped at the maximum number of rows allowed
+	 * in the SQL console, so rows after it are not reachable
+	 */
+	private boolean truncated;
+	
+	/**
+	 * Builds an empty result with the given columns
+	 * @param fields	the columns of the result, in the order returned by the query
+	 */
+	public DbQueryResult(List<DbQueryOutputField> fields) {
+		this.fields = Collections.unmodifiableList(fields);
+		this.sortedFields = fields.stream().sorted((f1, f2) -> {
+			if (f1.isPrimaryKey() && !f2.isPrimaryKey()) {
+				return -1;
+			} else if (!f1.isPrimaryKey() && f2.isPrimaryKey()) {
+				return 1;
+			} else {
+				return f1.getName().compareTo(f2.getName());
+			}
+		}).toList();
+		
+		for (DbQueryOutputField field : fields) {
+			fieldsByName.putIfAbsent(field.getName(), field);
+			field.setResult(this);
+		}
+	}
+	
+	/**
+	 * Builds an empty result with no columns
+	 * @return
+	 */
+	public static DbQueryResult empty() {
+		return new DbQueryResult(new ArrayList<>());
+	}
+	
+	/**
+	 * Appends a row to the result
+	 * @param values	the values of the row, in the same order as the columns
+	 * @param query	the query that produced the row
+	 */
+	public void addRow(Object[] values, String query) {
+		rows.add(new DbQueryResultRow(values, this, query));
 	}
 	
 	public List<DbQueryResultRow> getRows() {
@@ -31,18 +97,60 @@ public class DbQueryResult {
 		return rows.isEmpty();
 	}
 	
+	/**
+	 * Returns the columns of the result, in the order returned by the query
+	 * @return
+	 */
+	public List<DbQueryOutputField> getFields() {
+		return fields;
+	}
+	
 	public List<DbQueryOutputField> getSortedFields() {
 		if (isEmpty()) {
 			return new ArrayList<>();
 		} else {
-			return rows.get(0).getSortedFields();
+			return sortedFields;
 		}
 	}
 	
+	/**
+	 * Returns the column with the given name
+	 * @param name	the name of the column
+	 * @return the column if found, null otherwise
+	 */
+	public DbQueryOutputField getFieldByName(String name) {
+		return fieldsByName.get(name);
+	}
+	
 	public int size() {
 		return rows.size();
 	}
 	
+	/**
+	 * Returns whether the query returned more rows after the ones in this result
+	 * @return
+	 */
+	public boolean hasMore() {
+		return hasMore;
+	}
+	
+	public void setHasMore(boolean hasMore) {
+		this.hasMore = hasMore;
+	}
+	
+	/**
+	 * Returns whether the query was stopped at the maximum number of rows
+	 * allowed in the SQL console
+	 * @return
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+	
+	public void setTruncated(boolean truncated) {
+		this.truncated = truncated;
+	}
+	
 	public void crop(int startOffset, int endOffset) {
 		rows = rows.subList(startOffset, endOffset);
 	}
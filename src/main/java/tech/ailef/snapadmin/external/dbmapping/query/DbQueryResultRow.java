@@ -20,25 +20,26 @@ import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
  * run via the SQL console.
  */
 public class DbQueryResultRow {
-	private Map<DbQueryOutputField, Object> values;
+	/**
+	 * The values of the row, indexed by column position
+	 */
+	private Object[] values;
+	
+	/**
+	 * The result this row belongs to, which holds the column descriptors
+	 */
+	private DbQueryResult result;
 	
 	private String query;
 
-	public DbQueryResultRow(Map<DbQueryOutputField, Object> values, String query) {
+	public DbQueryResultRow(Object[] values, DbQueryResult result, String query) {
 		this.values = values;
+		this.result = result;
 		this.query = query;
 	}
 	
 	public List<DbQueryOutputField> getSortedFields() {
-		return values.keySet().stream().sorted((f1, f2) -> {
-			if (f1.isPrimaryKey() && !f2.isPrimaryKey()) {
-				return -1;
-			} else if (!f1.isPrimaryKey() && f2.isPrimaryKey()) {
-				return 1;
-			} else {
-				return f1.getName().compareTo(f2.getName());
-			}
-		}).toList();
+		return result.getSortedFields();
 	}
 	
 	public String getQuery() {
@@ -46,12 +47,11 @@ public class DbQueryResultRow {
 	}
 	
 	public Object get(DbQueryOutputField field) {
-		return values.get(field);
+		return values[field.getIndex()];
 	}
 
 	public Object getFieldByName(String field) {
-		DbQueryOutputField key = 
-			values.keySet().stream().filter(f -> f.getName().equals(field)).findFirst().orElse(null);
+		DbQueryOutputField key = result.getFieldByName(field);
 		if (key == null) {
 			throw new SnapAdminException("Field " + field + " not found");
 		}
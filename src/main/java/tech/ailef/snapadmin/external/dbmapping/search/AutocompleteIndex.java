@@ -0,0 +1,478 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.ManyToMany;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.EntityChangeListener;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.AutocompleteSearchResult;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+
+/**
+ * Serves the autocomplete of the foreign key pickers from memory. For each table that
+ * is the target of a relationship, with at most `autocompleteMaxRows` rows, the display
+ * names and primary keys are kept in a sorted map keyed by word, so the rows with a
+ * word starting with the query are found with a range scan. All the indexes together
+ * hold at most `autocompleteMaxTotalRows` rows. The indexes are built in the background
+ * at startup and updated after each committed change; tables that are larger, don't fit
+ * in the budget or are not indexed yet are searched in the database.
+ *
+ * The last results are cached until the table changes, and identical requests
+ * running at the same time share a single lookup.
+ *
+ * Display names that depend on other entities are updated when the entity
+ * itself changes, not when the other entities do.
+ */
+@Component
+public class AutocompleteIndex {
+	private static final Logger logger = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+	/**
+	 * The maximum number of suggestions returned
+	 */
+	public static final int MAX_RESULTS = 50;
+
+	private static final int BUILD_BATCH_SIZE = 1000;
+
+	/**
+	 * Separates the word from the primary key in the keys of the index
+	 */
+	private static final char SEPARATOR = '\0';
+
+	private SnapAdmin snapAdmin;
+
+	private EntityManager entityManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private SnapAdminMetrics metrics;
+
+	private int maxRows;
+
+	private int maxTotalRows;
+
+	/**
+	 * The class names of the schemas that are the target of a relationship,
+	 * i.e. that have a foreign key picker
+	 */
+	private volatile Set<String> targets = Set.of();
+
+	private int cacheSize;
+
+	/**
+	 * The indexes of the schemas that are complete, by class name
+	 */
+	private Map<String, SchemaIndex> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented on each change to a schema, so that the cached results of the
+	 * previous version are no longer used
+	 */
+	private Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+	private Map<String, List<AutocompleteSearchResult>> cache;
+
+	private Map<String, CompletableFuture<List<AutocompleteSearchResult>>> running = new ConcurrentHashMap<>();
+
+	private ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "snapadmin-autocomplete-indexer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public AutocompleteIndex(SnapAdmin snapAdmin, EntityManager entityManager, SnapAdminProperties properties,
+			SnapAdminMetrics metrics, @Qualifier("transactionManager") PlatformTransactionManager transactionManager) {
+		this.snapAdmin = snapAdmin;
+		this.entityManager = entityManager;
+		this.metrics = metrics;
+		this.maxRows = properties.getAutocompleteMaxRows();
+		this.maxTotalRows = properties.getAutocompleteMaxTotalRows();
+		this.cacheSize = properties.getAutocompleteCacheSize();
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<AutocompleteSearchResult>> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	/**
+	 * Registers the listener that keeps the index up to date and
+	 * builds the index of the schemas with a foreign key picker in the background
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		EntityChangeListener.register(entityManager, snapAdmin, (schema, id, entity, deleted) -> {
+			if (deleted)
+				remove(schema, List.of(id));
+			else
+				refresh(schema, List.of(id));
+		});
+
+		Set<String> classNames = new LinkedHashSet<>();
+		for (DbObjectSchema schema : snapAdmin.getSchemas()) {
+			for (DbField field : schema.getFields()) {
+				boolean relationship = field.isSingleValuedRelationship()
+					|| field.getPrimitiveField().getAnnotation(ManyToMany.class) != null;
+				DbObjectSchema connected = relationship ? field.getConnectedSchema() : null;
+				if (connected != null)
+					classNames.add(connected.getClassName());
+			}
+		}
+		targets = classNames;
+
+		for (String className : classNames) {
+			rebuild(snapAdmin.findSchemaByClassName(className));
+		}
+	}
+
+	@PreDestroy
+	void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the rows whose primary key or display name words start with the words
+	 * of the query, sorted by display name, with the exact primary key match first
+	 * @param schema	the schema to search
+	 * @param query	the text typed by the user
+	 * @return at most {@link #MAX_RESULTS} suggestions
+	 */
+	public List<AutocompleteSearchResult> search(DbObjectSchema schema, String query) {
+		String key = schema.getClassName() + SEPARATOR + version(schema).get() + SEPARATOR + query;
+
+		List<AutocompleteSearchResult> cached = cacheSize > 0 ? cache.get(key) : null;
+		if (cached != null) {
+			try (Timing timing = metrics.start(SnapAdminMetrics.AUTOCOMPLETE, "cache", schema)) {
+				return cached;
+			}
+		}
+
+		// Identical requests wait for the one that is already running
+		CompletableFuture<List<AutocompleteSearchResult>> future = new CompletableFuture<>();
+		CompletableFuture<List<AutocompleteSearchResult>> current = running.putIfAbsent(key, future);
+		if (current != null) {
+			try {
+				return current.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof SnapAdminException cause)
+					throw cause;
+				throw new SnapAdminException(e.getCause());
+			}
+		}
+
+		try {
+			List<AutocompleteSearchResult> results = find(schema, query);
+			if (cacheSize > 0)
+				cache.put(key, results);
+			future.complete(results);
+			return results;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			running.remove(key, future);
+		}
+	}
+
+	/**
+	 * Reloads some rows of a schema after they have been inserted or updated
+	 * @param schema	the schema of the rows
+	 * @param primaryKeys	the primary keys of the rows
+	 */
+	public void refresh(DbObjectSchema schema, Collection<Object> primaryKeys) {
+		List<Object> keys = List.copyOf(primaryKeys);
+
+		submit(schema, () -> {
+			SchemaIndex index = indexes.get(schema.getClassName());
+			if (index == null) return;
+
+			transactionTemplate.executeWithoutResult(status -> {
+				Set<String> missing = new LinkedHashSet<>();
+				keys.forEach(k -> missing.add(k.toString()));
+
+				for (Object entity : schema.getJpaRepository().findAllById(keys)) {
+					Entry entry = new Entry(new DbObject(entity, schema));
+					index.put(entry);
+					missing.remove(entry.key);
+				}
+				missing.forEach(index::remove);
+			});
+
+			if (index.size() > maxRows || indexedRows() > maxTotalRows) {
+				indexes.remove(schema.getClassName());
+				logger.info("Autocomplete index for " + schema.getClassName() + " dropped, more than "
+					+ maxRows + " rows or " + maxTotalRows + " rows in all the indexes");
+			}
+		});
+	}
+
+	/**
+	 * Removes some rows of a schema after they have been deleted
+	 * @param schema	the schema of the rows
+	 * @param primaryKeys	the primary keys of the rows
+	 */
+	public void remove(DbObjectSchema schema, Collection<Object> primaryKeys) {
+		List<String> keys = primaryKeys.stream().map(Object::toString).toList();
+
+		submit(schema, () -> {
+			SchemaIndex index = indexes.get(schema.getClassName());
+			if (index != null)
+				keys.forEach(index::remove);
+		});
+	}
+
+	/**
+	 * Rebuilds the index of a schema from scratch, if it has a foreign key picker.
+	 * The schema is searched in the database until the index is complete.
+	 * @param schema	the schema to rebuild
+	 */
+	public void rebuild(DbObjectSchema schema) {
+		indexes.remove(schema.getClassName());
+		version(schema).incrementAndGet();
+		if (maxRows <= 0 || !targets.contains(schema.getClassName())) return;
+
+		submit(schema, () -> {
+			long start = System.currentTimeMillis();
+			int limit = Math.min(maxRows, maxTotalRows - indexedRows());
+			SchemaIndex index = build(schema, limit);
+			if (index == null) {
+				logger.info("Autocomplete index for " + schema.getClassName() + " not built, more than "
+					+ limit + " rows left in the budget");
+				return;
+			}
+
+			indexes.put(schema.getClassName(), index);
+			logger.info("Built autocomplete index for " + schema.getClassName() + " (" + index.size() + " rows) in "
+				+ (System.currentTimeMillis() - start) + " ms");
+		});
+	}
+
+	/**
+	 * Runs a change to the index of a schema on the indexer thread,
+	 * then invalidates the cached results of the schema
+	 */
+	private void submit(DbObjectSchema schema, Runnable change) {
+		executor.submit(() -> {
+			try {
+				change.run();
+			} catch (Exception e) {
+				indexes.remove(schema.getClassName());
+				logger.error("Unable to update autocomplete index for " + schema.getClassName(), e);
+			} finally {
+				version(schema).incrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of rows in all the indexes
+	 */
+	private int indexedRows() {
+		return indexes.values().stream().mapToInt(SchemaIndex::size).sum();
+	}
+
+	private AtomicLong version(DbObjectSchema schema) {
+		return versions.computeIfAbsent(schema.getClassName(), k -> new AtomicLong());
+	}
+
+	private List<AutocompleteSearchResult> find(DbObjectSchema schema, String query) {
+		SchemaIndex index = indexes.get(schema.getClassName());
+		Set<String> words = query == null ? Set.of() : IndexedSearchBackend.tokenize(query);
+
+		if (index == null || words.isEmpty()) {
+			try (Timing timing = metrics.start(SnapAdminMetrics.AUTOCOMPLETE, "database", schema)) {
+				return schema.getJpaRepository().search(query, 1, MAX_RESULTS, null, null, null).stream()
+					.map(o -> new AutocompleteSearchResult(new DbObject(o, schema)))
+					.toList();
+			}
+		}
+
+		try (Timing timing = metrics.start(SnapAdminMetrics.AUTOCOMPLETE, "index", schema)) {
+			String exactKey = query.trim();
+
+			return index.find(words, MAX_RESULTS).stream()
+				.sorted(Comparator.<Entry>comparingInt(e -> e.key.equals(exactKey) ? 0 : 1)
+					.thenComparing(e -> e.value, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+				.map(e -> new AutocompleteSearchResult(e.id, e.value))
+				.toList();
+		}
+	}
+
+	/**
+	 * Loads all the rows of a schema, by primary key
+	 * @param limit	the maximum number of rows
+	 * @return the index, or null if the schema has more than `limit` rows
+	 */
+	private SchemaIndex build(DbObjectSchema schema, int limit) {
+		if (limit <= 0 || schema.getJpaRepository().count() > limit)
+			return null;
+
+		SchemaIndex index = new SchemaIndex();
+		Object lastPrimaryKey = null;
+		while (true) {
+			Object after = lastPrimaryKey;
+			List<Entry> batch = transactionTemplate.execute(status ->
+				schema.getJpaRepository().searchAfter(null, null, after, BUILD_BATCH_SIZE).stream()
+					.map(o -> new Entry(new DbObject(o, schema)))
+					.toList()
+			);
+
+			batch.forEach(index::put);
+			if (index.size() > limit)
+				return null;
+			if (batch.size() < BUILD_BATCH_SIZE)
+				break;
+
+			lastPrimaryKey = batch.get(batch.size() - 1).id;
+		}
+
+		return index;
+	}
+
+	/**
+	 * A row of the index: its primary key, display name and the words to match
+	 */
+	private static class Entry {
+		private final Object id;
+
+		private final String key;
+
+		private final String value;
+
+		private final Set<String> words;
+
+		Entry(DbObject object) {
+			this.id = object.getPrimaryKeyValue();
+			this.key = id.toString();
+			this.value = object.getDisplayName();
+
+			this.words = new LinkedHashSet<>();
+			this.words.add(key.toLowerCase());
+			if (value != null)
+				this.words.addAll(IndexedSearchBackend.tokenize(value));
+		}
+
+		/**
+		 * Returns whether each query word is the prefix of a word of the row
+		 */
+		boolean matches(Set<String> query) {
+			for (String q : query) {
+				boolean found = false;
+				for (String word : words) {
+					if (word.startsWith(q)) {
+						found = true;
+						break;
+					}
+				}
+				if (!found) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The index of a schema. Readers scan it while the indexer thread updates it,
+	 * so both maps are concurrent.
+	 */
+	private static class SchemaIndex {
+		/**
+		 * The rows keyed by word and primary key, so that the rows
+		 * with a word starting with a prefix are contiguous
+		 */
+		private final ConcurrentSkipListMap<String, Entry> words = new ConcurrentSkipListMap<>();
+
+		private final Map<String, Entry> rows = new ConcurrentHashMap<>();
+
+		void put(Entry entry) {
+			remove(entry.key);
+			rows.put(entry.key, entry);
+			for (String word : entry.words) {
+				words.put(word + SEPARATOR + entry.key, entry);
+			}
+		}
+
+		void remove(String key) {
+			Entry entry = rows.remove(key);
+			if (entry == null) return;
+
+			for (String word : entry.words) {
+				words.remove(word + SEPARATOR + key);
+			}
+		}
+
+		int size() {
+			return rows.size();
+		}
+
+		/**
+		 * Scans the rows matching the longest word of the query, which
+		 * is usually the most selective, and checks the other words
+		 */
+		List<Entry> find(Set<String> query, int limit) {
+			String longest = query.stream().max(Comparator.comparingInt(String::length)).get();
+
+			Map<String, Entry> found = new LinkedHashMap<>();
+			for (Entry entry : words.subMap(longest, longest + Character.MAX_VALUE).values()) {
+				if (found.containsKey(entry.key) || !entry.matches(query))
+					continue;
+
+				found.put(entry.key, entry);
+				if (found.size() == limit)
+					break;
+			}
+
+			return new ArrayList<>(found.values());
+		}
+	}
+}
@@ -0,0 +1,314 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.EntityChangeListener;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.internal.model.SearchIndexEntry;
+
+/**
+ * Matches the words of the query against an inverted index stored in the
+ * internal database, which maps each word contained in the text columns
+ * of a row to its primary key. Each word of the query must be the prefix of
+ * a word of the row; the matching primary keys are then loaded with a
+ * single `IN` query, so the user tables are never scanned.
+ *
+ * The index is rebuilt in the background when the application starts and
+ * is then kept up to date with Hibernate post-commit listeners. While the index
+ * of a schema is being built, or if a query matches more than `maxResults` rows,
+ * the search falls back to another backend.
+ *
+ * All the writes to the index are performed by a single background thread.
+ */
+public class IndexedSearchBackend implements SearchBackend {
+	private static final Logger logger = LoggerFactory.getLogger(IndexedSearchBackend.class);
+
+	/**
+	 * The table defined by {@link SearchIndexEntry}
+	 */
+	private static final String TABLE = "snapadmin_search_index";
+
+	private static final String INSERT_SQL =
+		"INSERT INTO " + TABLE + " (schema_name, token, primary_key) VALUES (?, ?, ?)";
+
+	private static final String DELETE_SQL =
+		"DELETE FROM " + TABLE + " WHERE schema_name = ? AND primary_key = ?";
+
+	private static final String SELECT_SQL =
+		"SELECT primary_key FROM " + TABLE + " WHERE schema_name = ? AND token LIKE ?";
+
+	/**
+	 * Words are truncated to this length, to match the column size
+	 */
+	private static final int MAX_TOKEN_LENGTH = 64;
+
+	/**
+	 * The number of rows loaded at a time when building the index
+	 */
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	private EntityManager entityManager;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate transactionTemplate;
+
+	private SearchBackend fallback;
+
+	private int maxResults;
+
+	/**
+	 * The class names of the schemas whose index is complete
+	 */
+	private Set<String> ready = ConcurrentHashMap.newKeySet();
+
+	private ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "snapadmin-search-indexer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param entityManager	the entity manager of the user entities, used to register the listeners
+	 * @param jdbcTemplate	the JDBC template on the internal data source
+	 * @param transactionTemplate	the internal transaction template
+	 * @param fallback	the backend used when the index can't serve a query
+	 * @param maxResults	the maximum number of rows a query can match in the index
+	 */
+	public IndexedSearchBackend(EntityManager entityManager, JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate, SearchBackend fallback, int maxResults) {
+		this.entityManager = entityManager;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.fallback = fallback;
+		this.maxResults = maxResults;
+	}
+
+	@Override
+	public String toCondition(DbObjectSchema schema, String query, String alias, SearchParameters parameters) {
+		Set<String> tokens = tokenize(query);
+		if (!ready.contains(schema.getClassName()) || tokens.isEmpty())
+			return fallback.toCondition(schema, query, alias, parameters);
+		
+		List<String> primaryKeys = findPrimaryKeys(schema, tokens);
+		if (primaryKeys.size() > maxResults)
+			return fallback.toCondition(schema, query, alias, parameters);
+		
+		if (primaryKeys.isEmpty())
+			return "1 = 0";
+		
+		DbField primaryKey = schema.getPrimaryKey();
+		List<Object> values = primaryKeys.stream().map(k -> primaryKey.getType().parseValue(k)).toList();
+		return SearchPlanner.path(alias, primaryKey) + " IN " + parameters.addValue(values);
+	}
+	
+	/**
+	 * Registers the listener that keeps the index up to date and
+	 * rebuilds the index of all the schemas in the background
+	 */
+	@Override
+	public void start(SnapAdmin snapAdmin) {
+		EntityChangeListener.register(entityManager, snapAdmin, (schema, id, entity, deleted) -> {
+			if (deleted)
+				remove(schema, List.of(id));
+			else
+				index(schema, entity);
+		});
+
+		for (DbObjectSchema schema : snapAdmin.getSchemas()) {
+			rebuild(schema);
+		}
+	}
+
+	/**
+	 * Updates the index with the current state of an entity
+	 * @param schema	the schema of the entity
+	 * @param entity	the entity
+	 */
+	public void index(DbObjectSchema schema, Object entity) {
+		// The words are extracted right away, as the entity may change afterwards
+		DbObject object = new DbObject(entity, schema);
+		String primaryKey = object.getPrimaryKeyValue().toString();
+		Set<String> tokens = tokenize(object);
+
+		executor.submit(() -> {
+			try {
+				replace(schema, primaryKey, tokens);
+			} catch (Exception e) {
+				logger.error("Unable to update search index for " + schema.getClassName() + " " + primaryKey, e);
+			}
+		});
+	}
+
+	@Override
+	public void reindex(DbObjectSchema schema, Collection<Object> primaryKeys) {
+		List<Object> keys = List.copyOf(primaryKeys);
+		executor.submit(() -> {
+			try {
+				for (Object entity : schema.getJpaRepository().findAllById(keys)) {
+					DbObject object = new DbObject(entity, schema);
+					replace(schema, object.getPrimaryKeyValue().toString(), tokenize(object));
+				}
+			} catch (Exception e) {
+				logger.error("Unable to update search index for " + schema.getClassName(), e);
+			}
+		});
+	}
+
+	@Override
+	public void remove(DbObjectSchema schema, Collection<Object> primaryKeys) {
+		List<Object[]> args = primaryKeys.stream()
+			.map(k -> new Object[] { schema.getClassName(), k.toString() })
+			.toList();
+
+		executor.submit(() -> {
+			try {
+				jdbcTemplate.batchUpdate(DELETE_SQL, args);
+			} catch (Exception e) {
+				logger.error("Unable to update search index for " + schema.getClassName(), e);
+			}
+		});
+	}
+
+	@Override
+	public void rebuild(DbObjectSchema schema) {
+		ready.remove(schema.getClassName());
+		executor.submit(() -> {
+			try {
+				long start = System.currentTimeMillis();
+				long count = build(schema);
+				ready.add(schema.getClassName());
+				logger.info("Built search index for " + schema.getClassName() + " (" + count + " rows) in "
+					+ (System.currentTimeMillis() - start) + " ms");
+			} catch (Exception e) {
+				logger.error("Unable to build search index for " + schema.getClassName(), e);
+			}
+		});
+	}
+
+	/**
+	 * Stops the background thread, waiting for the pending writes to be completed
+	 */
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the primary keys of the rows containing all the tokens, up to `maxResults + 1`
+	 */
+	private List<String> findPrimaryKeys(DbObjectSchema schema, Set<String> tokens) {
+		List<String> queries = new ArrayList<>();
+		List<Object> args = new ArrayList<>();
+		for (String token : tokens) {
+			queries.add(SELECT_SQL);
+			args.add(schema.getClassName());
+			// Tokens only contain letters and digits, so they don't need escaping
+			args.add(token + "%");
+		}
+
+		// INTERSECT also removes the duplicates
+		String sql = String.join(" INTERSECT ", queries) + " FETCH FIRST " + (maxResults + 1) + " ROWS ONLY";
+		return jdbcTemplate.queryForList(sql, String.class, args.toArray());
+	}
+
+	/**
+	 * Replaces the index entries of a row
+	 */
+	private void replace(DbObjectSchema schema, String primaryKey, Set<String> tokens) {
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.update(DELETE_SQL, schema.getClassName(), primaryKey);
+			insert(schema, primaryKey, tokens);
+		});
+	}
+
+	private void insert(DbObjectSchema schema, String primaryKey, Set<String> tokens) {
+		List<Object[]> args = tokens.stream()
+			.map(t -> new Object[] { schema.getClassName(), t, primaryKey })
+			.toList();
+		jdbcTemplate.batchUpdate(INSERT_SQL, args);
+	}
+
+	/**
+	 * Rebuilds the index of a schema from scratch, scanning the table by primary key
+	 * @return the number of indexed rows
+	 */
+	private long build(DbObjectSchema schema) {
+		jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE schema_name = ?", schema.getClassName());
+
+		long count = 0;
+		Object lastPrimaryKey = null;
+		while (true) {
+			List<Object> batch = schema.getJpaRepository().searchAfter(null, null, lastPrimaryKey, REBUILD_BATCH_SIZE);
+			if (batch.isEmpty()) break;
+
+			transactionTemplate.executeWithoutResult(status -> {
+				for (Object entity : batch) {
+					DbObject object = new DbObject(entity, schema);
+					insert(schema, object.getPrimaryKeyValue().toString(), tokenize(object));
+				}
+			});
+
+			count += batch.size();
+			lastPrimaryKey = new DbObject(batch.get(batch.size() - 1), schema).getPrimaryKeyValue();
+			if (batch.size() < REBUILD_BATCH_SIZE) break;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the distinct words contained in the searchable fields of an object
+	 */
+	private Set<String> tokenize(DbObject object) {
+		Set<String> tokens = new LinkedHashSet<>();
+		for (DbField field : object.getSchema().getSearchableFields()) {
+			Object value = object.get(field).getValue();
+			if (value != null)
+				tokens.addAll(tokenize(value.toString()));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Splits a text in lowercase words made of letters and digits
+	 */
+	static Set<String> tokenize(String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (token.isEmpty()) continue;
+			tokens.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,60 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tech.ailef.snapadmin.external.annotations.SearchableType;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+
+/**
+ * Matches the query against each searchable field according to its
+ * {@link SearchableType}: `lower(column) LIKE '%query%'` for CONTAINS fields,
+ * `column LIKE 'query%'` for PREFIX fields and a typed equality for EXACT fields.
+ * This doesn't need any setup, but CONTAINS fields can't use database indexes,
+ * so a search on them scans the whole table.
+ */
+public class LikeSearchBackend implements SearchBackend {
+	@Override
+	public String toCondition(DbObjectSchema schema, String query, String alias, SearchParameters parameters) {
+		List<String> conditions = new ArrayList<>();
+		String contains = null;
+		String prefix = null;
+		
+		for (DbField f : schema.getSearchableFields()) {
+			switch (f.getSearchableType()) {
+				case EXACT:
+					String value = parameters.add(q -> SearchPlanner.parseOrNull(f, q.trim()));
+					conditions.add(SearchPlanner.path(alias, f) + " = " + value);
+					break;
+				case PREFIX:
+					if (prefix == null)
+						prefix = parameters.add(q -> SearchPlanner.escape(q) + "%");
+					conditions.add(SearchPlanner.text(alias, f) + " LIKE " + prefix + SearchPlanner.ESCAPE);
+					break;
+				default:
+					if (contains == null)
+						contains = parameters.add(q -> "%" + SearchPlanner.escape(q.toLowerCase()) + "%");
+					conditions.add("lower(" + SearchPlanner.text(alias, f) + ") LIKE " + contains + SearchPlanner.ESCAPE);
+			}
+		}
+		
+		if (conditions.isEmpty())
+			return "1 = 0";
+		
+		return "(" + String.join(" OR ", conditions) + ")";
+	}
+	
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+}
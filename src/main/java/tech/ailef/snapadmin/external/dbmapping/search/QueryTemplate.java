@@ -0,0 +1,56 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * A JPQL query built for a given shape of search request, which can
+ * be executed for any request with that shape by binding its values
+ * to the parameters.
+ */
+public class QueryTemplate {
+	private String jpql;
+	
+	private SearchParameters parameters;
+	
+	public QueryTemplate(String jpql, SearchParameters parameters) {
+		this.jpql = jpql;
+		this.parameters = parameters;
+	}
+	
+	/**
+	 * Creates the query for a search request. As the JPQL is the same for all
+	 * the requests, Hibernate translates it to SQL only once.
+	 * @param <T>	the type of the results
+	 * @param entityManager	the entity manager
+	 * @param resultType	the type of the results
+	 * @param q	the fuzzy search query, possibly null
+	 * @param filters	the filters, in the same order used to build the template
+	 * @return the query with all the parameters bound
+	 */
+	public <T> TypedQuery<T> createQuery(EntityManager entityManager, Class<T> resultType,
+			String q, List<QueryFilter> filters) {
+		TypedQuery<T> query = entityManager.createQuery(jpql, resultType);
+		parameters.bind(query, q, filters);
+		return query;
+	}
+	
+	public String getJpql() {
+		return jpql;
+	}
+	
+	public SearchParameters getParameters() {
+		return parameters;
+	}
+}
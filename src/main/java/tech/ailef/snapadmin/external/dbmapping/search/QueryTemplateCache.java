@@ -0,0 +1,95 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the search queries by shape of the request (schema, filtered
+ * fields and operators, sort, whether there's a fuzzy search), evicting
+ * the least recently used ones once the maximum size is reached.
+ */
+public class QueryTemplateCache {
+	private Map<String, QueryTemplate> templates;
+	
+	private int maxSize;
+	
+	private AtomicLong hits = new AtomicLong();
+	
+	private AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * @param maxSize	the maximum number of templates, 0 to disable the cache
+	 */
+	public QueryTemplateCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.templates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, QueryTemplate> eldest) {
+				return size() > QueryTemplateCache.this.maxSize;
+			}
+		});
+	}
+	
+	/**
+	 * Returns the template for the given shape, building it on a miss
+	 * @param key	the shape of the request
+	 * @param builder	builds the template if it's not in the cache
+	 * @return the template
+	 */
+	public QueryTemplate get(String key, Supplier<QueryTemplate> builder) {
+		if (maxSize <= 0)
+			return builder.get();
+		
+		QueryTemplate template = templates.get(key);
+		if (template != null) {
+			hits.incrementAndGet();
+			return template;
+		}
+		
+		misses.incrementAndGet();
+		template = builder.get();
+		templates.put(key, template);
+		return template;
+	}
+	
+	/**
+	 * Returns the number of requests served from the cache
+	 * @return
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of requests for which the template was built
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Returns the number of templates currently in the cache
+	 * @return
+	 */
+	public int size() {
+		return templates.size();
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+}
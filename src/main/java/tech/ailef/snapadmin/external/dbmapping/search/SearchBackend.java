@@ -0,0 +1,78 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.Collection;
+
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+
+/**
+ * Determines which rows match the fuzzy search query typed in the search box,
+ * on the fields returned by {@link DbObjectSchema#getSearchableFields()}.
+ * The default implementation is chosen with the `snapadmin.searchBackend`
+ * property, but it can be replaced by registering a custom bean implementing
+ * this interface.
+ * 
+ * Backends that maintain an index are notified of the changes made through
+ * SnapAdmin with bulk statements, which bypass the JPA lifecycle.
+ */
+public interface SearchBackend {
+	/**
+	 * Builds the JPQL condition matching the rows of the schema for the query.
+	 * Values must not be written in the condition, but added to the parameters.
+	 * @param schema	the schema to search
+	 * @param query	the fuzzy search query, not blank
+	 * @param alias	the alias of the schema entity in the JPQL query
+	 * @param parameters	the parameters of the JPQL query
+	 * @return the JPQL condition
+	 */
+	public String toCondition(DbObjectSchema schema, String query, String alias, SearchParameters parameters);
+	
+	/**
+	 * Returns whether the condition built by this backend is the same for all
+	 * the queries, with the values computed from the query only through parameters
+	 * added with {@link SearchParameters#add(java.util.function.Function)}. If so, the
+	 * JPQL queries of the searches are cached and reused.
+	 * @return
+	 */
+	public default boolean isCacheable() {
+		return false;
+	}
+	
+	/**
+	 * Called once the application has started and all the schemas are loaded
+	 * @param snapAdmin	the SnapAdmin instance
+	 */
+	public default void start(SnapAdmin snapAdmin) {
+	}
+	
+	/**
+	 * Notifies that the given rows have been modified with a bulk statement
+	 * @param schema	the schema that has been modified
+	 * @param primaryKeys	the primary keys of the modified rows
+	 */
+	public default void reindex(DbObjectSchema schema, Collection<Object> primaryKeys) {
+	}
+	
+	/**
+	 * Notifies that the given rows have been deleted with a bulk statement
+	 * @param schema	the schema that has been modified
+	 * @param primaryKeys	the primary keys of the deleted rows
+	 */
+	public default void remove(DbObjectSchema schema, Collection<Object> primaryKeys) {
+	}
+	
+	/**
+	 * Notifies that an unknown set of rows has been modified with a bulk statement
+	 * @param schema	the schema that has been modified
+	 */
+	public default void rebuild(DbObjectSchema schema) {
+	}
+}
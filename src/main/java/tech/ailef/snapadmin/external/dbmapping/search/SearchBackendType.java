@@ -0,0 +1,24 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+/**
+ * The available search backends, set with the `snapadmin.searchBackend` property.
+ */
+public enum SearchBackendType {
+	/**
+	 * Match the query with `LIKE '%query%'` on every text column
+	 */
+	LIKE,
+	/**
+	 * Match the words of the query against an inverted index stored in the
+	 * internal database, falling back to `LIKE` while the index is being built
+	 */
+	INDEX;
+}
@@ -0,0 +1,75 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import jakarta.persistence.Query;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+
+/**
+ * The named parameters of a JPQL query built by the {@link SearchPlanner}.
+ * 
+ * Parameters are declared as functions of the search request (the fuzzy
+ * search query and the list of filters) rather than as values, so that the
+ * same query can be reused for any request with the same shape, binding
+ * the values of each request with {@link #bind(Query, String, List)}.
+ */
+public class SearchParameters {
+	private List<BiFunction<String, List<QueryFilter>, Object>> values = new ArrayList<>();
+	
+	/**
+	 * Adds a parameter whose value is computed from the fuzzy search query
+	 * @param value	the function computing the value from the query
+	 * @return the parameter placeholder, to be used in the JPQL query
+	 */
+	public String add(Function<String, Object> value) {
+		return add((q, filters) -> value.apply(q));
+	}
+	
+	/**
+	 * Adds a parameter whose value is computed from one of the filters
+	 * @param index	the index of the filter in the list of filters
+	 * @param value	the function computing the value from the filter
+	 * @return the parameter placeholder, to be used in the JPQL query
+	 */
+	public String addForFilter(int index, Function<QueryFilter, Object> value) {
+		return add((q, filters) -> value.apply(filters.get(index)));
+	}
+	
+	/**
+	 * Adds a parameter with a fixed value. Queries with such parameters
+	 * can only be reused for requests where the value is the same.
+	 * @param value	the value of the parameter
+	 * @return the parameter placeholder, to be used in the JPQL query
+	 */
+	public String addValue(Object value) {
+		return add((q, filters) -> value);
+	}
+	
+	private String add(BiFunction<String, List<QueryFilter>, Object> value) {
+		values.add(value);
+		return ":p" + (values.size() - 1);
+	}
+	
+	/**
+	 * Binds the values of all the parameters for a search request
+	 * @param query	the query created from the JPQL
+	 * @param q	the fuzzy search query, possibly null
+	 * @param filters	the filters, in the same order used to build the query
+	 */
+	public void bind(Query query, String q, List<QueryFilter> filters) {
+		for (int i = 0; i < values.size(); i++) {
+			query.setParameter("p" + i, values.get(i).apply(q, filters));
+		}
+	}
+}
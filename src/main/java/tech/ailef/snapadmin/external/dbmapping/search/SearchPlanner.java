@@ -0,0 +1,224 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.util.ClassUtils;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dbmapping.fields.StringFieldType;
+import tech.ailef.snapadmin.external.dbmapping.fields.TextFieldType;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+
+/**
+ * Builds the JPQL `WHERE` condition of a search on a schema, combining
+ * the fuzzy search query and the faceted search filters.
+ * 
+ * Values are always bound as parameters converted to the type of the column
+ * they are compared to, so that the database can use its indexes: the query is
+ * matched against the primary key with a typed equality, which never matches if
+ * the query is not a valid primary key value (e.g. a number or a UUID), and filters
+ * compare numbers and dates as such instead of as strings. As the condition
+ * only depends on the shape of the request, it can be cached and reused.
+ */
+public class SearchPlanner {
+	/**
+	 * The alias of the schema entity in the queries
+	 */
+	public static final String ALIAS = "e";
+	
+	/**
+	 * The escape clause of the LIKE conditions, see {@link #escape(String)}
+	 */
+	static final String ESCAPE = " ESCAPE '!'";
+	
+	private DbObjectSchema schema;
+	
+	private SearchBackend searchBackend;
+	
+	public SearchPlanner(DbObjectSchema schema, SearchBackend searchBackend) {
+		this.schema = schema;
+		this.searchBackend = searchBackend;
+	}
+	
+	/**
+	 * Builds the condition matching the items which match the query, either on
+	 * the searchable fields or on the primary key, and all the filters
+	 * @param q	the fuzzy search query, possibly null
+	 * @param filters	the faceted search filters, as returned by {@link #sortFilters(Set)}
+	 * @param parameters	the parameters of the query
+	 * @return the JPQL condition, null if there are no conditions
+	 */
+	public String toCondition(String q, List<QueryFilter> filters, SearchParameters parameters) {
+		List<String> conditions = new ArrayList<>();
+		
+		if (isSearch(q)) {
+			String text = searchBackend.toCondition(schema, q, ALIAS, parameters);
+			DbField primaryKey = schema.getPrimaryKey();
+			String value = parameters.add(query -> parseOrNull(primaryKey, query.trim()));
+			conditions.add("(" + text + " OR " + path(ALIAS, primaryKey) + " = " + value + ")");
+		}
+		
+		for (int i = 0; i < filters.size(); i++) {
+			String condition = toCondition(i, filters.get(i), parameters);
+			if (condition != null)
+				conditions.add(condition);
+		}
+		
+		return conditions.isEmpty() ? null : String.join(" AND ", conditions);
+	}
+	
+	/**
+	 * Returns whether the queries for the given fuzzy search query can be cached
+	 * @param q	the fuzzy search query, possibly null
+	 * @return
+	 */
+	public boolean isCacheable(String q) {
+		return !isSearch(q) || searchBackend.isCacheable();
+	}
+	
+	/**
+	 * Returns the shape of a search request, i.e. what determines the
+	 * condition built for it apart from the values
+	 * @param q	the fuzzy search query, possibly null
+	 * @param filters	the faceted search filters, as returned by {@link #sortFilters(Set)}
+	 * @return
+	 */
+	public String getShape(String q, List<QueryFilter> filters) {
+		StringBuilder shape = new StringBuilder(isSearch(q) ? "q" : "");
+		for (QueryFilter filter : filters) {
+			shape.append(',').append(shapeOf(filter));
+		}
+		return shape.toString();
+	}
+	
+	/**
+	 * Returns the filters in a predictable order, so that requests
+	 * with the same shape get the parameters in the same order
+	 * @param filters	the filters, possibly null
+	 * @return the sorted filters
+	 */
+	public static List<QueryFilter> sortFilters(Set<QueryFilter> filters) {
+		if (filters == null)
+			return List.of();
+		
+		return filters.stream()
+			.sorted(Comparator.comparing(SearchPlanner::shapeOf).thenComparing(QueryFilter::getValue))
+			.toList();
+	}
+	
+	private static String shapeOf(QueryFilter filter) {
+		return filter.getField().getJavaName() + ":" + filter.getOp() + (filter.getValue().isBlank() ? ":null" : "");
+	}
+	
+	private static boolean isSearch(String q) {
+		return q != null && !q.isBlank();
+	}
+	
+	private String toCondition(int index, QueryFilter filter, SearchParameters parameters) {
+		DbField field = filter.getField();
+		String path = path(ALIAS, field);
+		boolean blank = filter.getValue().isBlank();
+		
+		switch (filter.getOp()) {
+			case STRING_EQ:
+				if (blank)
+					return path + " IS NULL";
+				return "lower(" + text(ALIAS, field) + ") = "
+					+ parameters.addForFilter(index, f -> parse(f).toString().toLowerCase());
+			case CONTAINS:
+				if (blank)
+					return null;
+				return "lower(" + text(ALIAS, field) + ") LIKE "
+					+ parameters.addForFilter(index, f -> "%" + escape(parse(f).toString().toLowerCase()) + "%")
+					+ ESCAPE;
+			case EQ:
+				if (blank)
+					return path + " IS NULL";
+				return path + " = " + parameters.addForFilter(index, f -> parse(f));
+			case GT:
+			case AFTER:
+				if (blank || !isComparable(field))
+					return null;
+				return path + " > " + parameters.addForFilter(index, f -> parse(f));
+			case LT:
+			case BEFORE:
+				if (blank || !isComparable(field))
+					return null;
+				return path + " < " + parameters.addForFilter(index, f -> parse(f));
+			default:
+				return null;
+		}
+	}
+	
+	private static Object parse(QueryFilter filter) {
+		DbField field = filter.getField();
+		try {
+			return field.getType().parseValue(filter.getValue());
+		} catch (Exception e) {
+			throw new SnapAdminException("Invalid value `" + filter.getValue() + "` specified for field `" + field.getName() + "`");
+		}
+	}
+	
+	/**
+	 * Returns the value converted to the type of the field, null if it can't be converted
+	 */
+	static Object parseOrNull(DbField field, String value) {
+		try {
+			return field.getType().parseValue(value);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the path of the column of a field: for a foreign key, the primary
+	 * key of the linked entity, which doesn't require a join
+	 */
+	static String path(String alias, DbField field) {
+		DbObjectSchema connected = field.isForeignKey() ? field.getConnectedSchema() : null;
+		if (connected != null)
+			return alias + "." + field.getJavaName() + "." + connected.getPrimaryKey().getJavaName();
+		
+		return alias + "." + field.getJavaName();
+	}
+	
+	/**
+	 * Returns the column of a field as text. Text columns are used as they
+	 * are, since a cast would prevent the use of an index.
+	 */
+	static String text(String alias, DbField field) {
+		if (field.getType() instanceof StringFieldType || field.getType() instanceof TextFieldType)
+			return path(alias, field);
+		
+		return "cast(" + path(alias, field) + " as String)";
+	}
+	
+	/**
+	 * Escapes the LIKE wildcards with `!`, so they are matched literally
+	 */
+	static String escape(String value) {
+		return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+	
+	private static boolean isComparable(DbField field) {
+		DbObjectSchema connected = field.isForeignKey() ? field.getConnectedSchema() : null;
+		Class<?> type = connected != null
+			? connected.getPrimaryKey().getPrimitiveField().getType()
+			: field.getPrimitiveField().getType();
+		
+		return Comparable.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(type));
+	}
+}
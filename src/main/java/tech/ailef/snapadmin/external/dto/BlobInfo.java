@@ -0,0 +1,74 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+/**
+ * The metadata of the value of a binary column, computed while streaming it,
+ * so that it can be served with Range and conditional requests
+ */
+public class BlobInfo {
+	private long length;
+
+	private String hash;
+
+	private String mimeType;
+
+	private String extension;
+
+	public BlobInfo(long length, String hash, String mimeType, String extension) {
+		this.length = length;
+		this.hash = hash;
+		this.mimeType = mimeType;
+		this.extension = extension;
+	}
+
+	/**
+	 * Returns the length in bytes
+	 * @return
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the hex encoded SHA-256 of the content
+	 * @return
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the entity tag for the HTTP responses
+	 * @return
+	 */
+	public String getETag() {
+		return "\"" + hash + "\"";
+	}
+
+	/**
+	 * Returns the MIME type detected from the content
+	 * @return
+	 */
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * Returns the file extension for the MIME type, including the dot, or an empty string
+	 * @return
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	public boolean isImage() {
+		return mimeType.startsWith("image/");
+	}
+}
@@ -0,0 +1,73 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk DELETE or UPDATE. Large selections are split in
+ * chunks, each executed as a single statement in the same transaction;
+ * this holds the number of rows affected by each of them.
+ */
+public class BulkOperationResult {
+	/**
+	 * The number of rows the operation was requested on,
+	 * -1 if the rows were selected with a search
+	 */
+	private int requested;
+
+	/**
+	 * The number of rows affected by each chunk, in order of execution
+	 */
+	private List<Integer> chunks = new ArrayList<>();
+
+	public BulkOperationResult(int requested) {
+		this.requested = requested;
+	}
+
+	/**
+	 * Records the number of rows affected by a chunk
+	 * @param affected
+	 */
+	public void addChunk(int affected) {
+		chunks.add(affected);
+	}
+
+	/**
+	 * Returns the number of rows the operation was requested on,
+	 * -1 if the rows were selected with a search
+	 * @return
+	 */
+	public int getRequested() {
+		return requested;
+	}
+
+	/**
+	 * Returns the number of rows affected by each chunk
+	 * @return
+	 */
+	public List<Integer> getChunks() {
+		return Collections.unmodifiableList(chunks);
+	}
+
+	/**
+	 * Returns the total number of rows affected
+	 * @return
+	 */
+	public int getAffected() {
+		return chunks.stream().mapToInt(Integer::intValue).sum();
+	}
+
+	@Override
+	public String toString() {
+		return "BulkOperationResult [requested=" + requested + ", chunks=" + chunks + "]";
+	}
+}
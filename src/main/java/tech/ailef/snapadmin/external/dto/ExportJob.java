@@ -0,0 +1,244 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The progress of an export running in the background, serialized to JSON
+ * while the export page polls it
+ */
+public class ExportJob {
+	public enum Status {
+		QUEUED,
+		RUNNING,
+		COMPLETED,
+		FAILED,
+		CANCELLED;
+	}
+
+	private String id;
+
+	private String table;
+
+	private String title;
+
+	private String fileName;
+
+	private DataExportFormat format;
+
+	private volatile Status status = Status.QUEUED;
+
+	private volatile String message;
+
+	private volatile boolean cancelRequested;
+
+	private LocalDateTime createdAt = LocalDateTime.now();
+
+	private volatile long startNanos = -1;
+
+	private volatile long elapsedNanos = -1;
+
+	/**
+	 * The time the job finished, from {@link System#nanoTime()}, to expire its file
+	 */
+	private volatile long finishedNanos = -1;
+
+	private volatile long totalRows = -1;
+
+	private AtomicLong rows = new AtomicLong();
+
+	private volatile long size;
+
+	public ExportJob(String id, String table, String title, String fileName, DataExportFormat format) {
+		this.id = id;
+		this.table = table;
+		this.title = title;
+		this.fileName = fileName;
+		this.format = format;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the exported table, or `console` for the results of a query
+	 * @return
+	 */
+	public String getTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the name of the exported type or query, shown to the user
+	 * @return
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Returns the name of the file when downloaded
+	 * @return
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	public DataExportFormat getFormat() {
+		return format;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the error that stopped the export, if it failed
+	 * @return
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public LocalDateTime getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Returns the number of rows to export, or -1 if it's not known yet
+	 * @return
+	 */
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	/**
+	 * Returns the number of rows written so far
+	 * @return
+	 */
+	public long getRows() {
+		return rows.get();
+	}
+
+	/**
+	 * Returns the size in bytes of the file, once completed
+	 * @return
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the percentage of rows written so far, or -1 if it's not known
+	 * @return
+	 */
+	public int getProgress() {
+		if (status == Status.COMPLETED)
+			return 100;
+		if (totalRows <= 0)
+			return -1;
+		return (int)Math.min(99, rows.get() * 100 / totalRows);
+	}
+
+	/**
+	 * Returns the time since the export started, or its duration once finished
+	 * @return
+	 */
+	public long getElapsedMillis() {
+		if (startNanos < 0)
+			return 0;
+		long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+		return nanos / 1_000_000;
+	}
+
+	/**
+	 * Returns the estimated number of seconds until the export completes,
+	 * from the rows written so far, or -1 if it can't be estimated
+	 * @return
+	 */
+	public long getEtaSeconds() {
+		long done = rows.get();
+		if (status != Status.RUNNING || totalRows <= 0 || done == 0)
+			return -1;
+		long remaining = Math.max(0, totalRows - done);
+		return getElapsedMillis() * remaining / done / 1000;
+	}
+
+	public boolean isFinished() {
+		return status != Status.QUEUED && status != Status.RUNNING;
+	}
+
+	/**
+	 * Returns the time the job finished, from {@link System#nanoTime()}, or -1 if it's not finished
+	 * @return
+	 */
+	@JsonIgnore
+	public long getFinishedNanos() {
+		return finishedNanos;
+	}
+
+	public boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	public void setTotalRows(long totalRows) {
+		this.totalRows = totalRows;
+	}
+
+	/**
+	 * Adds to the rows written so far. Writers call this after each batch,
+	 * so it is also where a cancelled export stops.
+	 * @param rows	the number of rows written
+	 * @throws CancellationException	if the export has been cancelled
+	 */
+	public void addRows(long rows) {
+		if (cancelRequested)
+			throw new CancellationException("Export cancelled");
+		this.rows.addAndGet(rows);
+	}
+
+	/**
+	 * Asks the export to stop at the next batch
+	 */
+	public void cancel() {
+		cancelRequested = true;
+	}
+
+	public void start() {
+		startNanos = System.nanoTime();
+		status = Status.RUNNING;
+	}
+
+	public void complete(long size) {
+		this.size = size;
+		finish(Status.COMPLETED, null);
+	}
+
+	public void fail(String message) {
+		finish(Status.FAILED, message);
+	}
+
+	public void cancelled() {
+		finish(Status.CANCELLED, null);
+	}
+
+	private void finish(Status status, String message) {
+		if (startNanos >= 0)
+			this.elapsedNanos = System.nanoTime() - startNanos;
+		this.finishedNanos = System.nanoTime();
+		this.message = message;
+		this.status = status;
+	}
+}
@@ -0,0 +1,223 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of an import running in the background, serialized to JSON
+ * while the import page polls it
+ */
+public class ImportJob {
+	public enum Status {
+		RUNNING,
+		COMPLETED,
+		FAILED;
+	}
+
+	private String id;
+
+	private String className;
+
+	private String fileName;
+
+	private DataExportFormat format;
+
+	private ImportMode mode;
+
+	private boolean dryRun;
+
+	private int maxErrors;
+
+	private volatile Status status = Status.RUNNING;
+
+	private volatile String message;
+
+	private LocalDateTime startedAt = LocalDateTime.now();
+
+	private long startNanos = System.nanoTime();
+
+	private volatile long elapsedNanos = -1;
+
+	private long totalBytes;
+
+	private AtomicLong bytesRead = new AtomicLong();
+
+	private AtomicLong processed = new AtomicLong();
+
+	private AtomicLong inserted = new AtomicLong();
+
+	private AtomicLong updated = new AtomicLong();
+
+	private AtomicLong failed = new AtomicLong();
+
+	private List<ImportRowError> errors = Collections.synchronizedList(new ArrayList<>());
+
+	public ImportJob(String id, String className, String fileName, DataExportFormat format, ImportMode mode,
+			boolean dryRun, long totalBytes, int maxErrors) {
+		this.id = id;
+		this.className = className;
+		this.fileName = fileName;
+		this.format = format;
+		this.mode = mode;
+		this.dryRun = dryRun;
+		this.totalBytes = totalBytes;
+		this.maxErrors = maxErrors;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public DataExportFormat getFormat() {
+		return format;
+	}
+
+	public ImportMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns whether the rows are validated and written in transactions that are rolled back
+	 * @return
+	 */
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the error that stopped the import, if it failed
+	 * @return
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public LocalDateTime getStartedAt() {
+		return startedAt;
+	}
+
+	/**
+	 * Returns the percentage of the file read so far, or -1 if it's not known
+	 * @return
+	 */
+	public int getProgress() {
+		if (status == Status.COMPLETED)
+			return 100;
+		if (totalBytes <= 0 || bytesRead.get() <= 0)
+			return -1;
+		return (int)Math.min(99, bytesRead.get() * 100 / totalBytes);
+	}
+
+	/**
+	 * Returns the number of rows read from the file so far
+	 * @return
+	 */
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	public long getInserted() {
+		return inserted.get();
+	}
+
+	public long getUpdated() {
+		return updated.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Returns the first `importMaxErrors` rows that couldn't be imported
+	 * @return
+	 */
+	public List<ImportRowError> getErrors() {
+		synchronized (errors) {
+			return new ArrayList<>(errors);
+		}
+	}
+
+	/**
+	 * Returns the time since the import started, or its duration once finished
+	 * @return
+	 */
+	public long getElapsedMillis() {
+		long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+		return nanos / 1_000_000;
+	}
+
+	/**
+	 * Returns the average number of rows processed per second
+	 * @return
+	 */
+	public long getRowsPerSecond() {
+		long millis = getElapsedMillis();
+		return millis == 0 ? 0 : processed.get() * 1000 / millis;
+	}
+
+	public boolean isFinished() {
+		return status != Status.RUNNING;
+	}
+
+	public void addBytesRead(long bytes) {
+		bytesRead.addAndGet(bytes);
+	}
+
+	public void addProcessed(long rows) {
+		processed.addAndGet(rows);
+	}
+
+	public void addInserted(long rows) {
+		inserted.addAndGet(rows);
+	}
+
+	public void addUpdated(long rows) {
+		updated.addAndGet(rows);
+	}
+
+	public void addError(long row, String message) {
+		failed.incrementAndGet();
+		synchronized (errors) {
+			if (errors.size() < maxErrors)
+				errors.add(new ImportRowError(row, message));
+		}
+	}
+
+	public void complete() {
+		finish(Status.COMPLETED, null);
+	}
+
+	public void fail(String message) {
+		finish(Status.FAILED, message);
+	}
+
+	private void finish(Status status, String message) {
+		this.elapsedNanos = System.nanoTime() - startNanos;
+		this.message = message;
+		this.status = status;
+	}
+}
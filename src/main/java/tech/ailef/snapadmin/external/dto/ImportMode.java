@@ -0,0 +1,18 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+/**
+ * How imported rows are written: INSERT fails on the rows whose primary
+ * key already exists, UPSERT updates them
+ */
+public enum ImportMode {
+	INSERT,
+	UPSERT;
+}
@@ -0,0 +1,35 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+/**
+ * A row of an import file that couldn't be imported
+ */
+public class ImportRowError {
+	private long row;
+
+	private String message;
+
+	public ImportRowError(long row, String message) {
+		this.row = row;
+		this.message = message;
+	}
+
+	/**
+	 * Returns the number of the row in the file, starting from 1 for the first row after the header
+	 * @return
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
@@ -8,14 +8,20 @@
 
 package tech.ailef.snapadmin.external.dto;
 
+import java.time.LocalDate;
+
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 /**
  * A client request for the Action logs page where
- * several filtering parameters are present
+ * several filtering parameters are present. Actions are listed
+ * by time, newest first unless the sort order is `ASC`, and
+ * paginated with the `after`/`before` cursors.
  *
  */
 public class LogsSearchRequest implements FilterRequest {
@@ -58,6 +64,28 @@ public class LogsSearchRequest implements FilterRequest {
 	 * The requested username filter
 	 */
 	private String username;
+	
+	/**
+	 * The first day to show actions of, inclusive
+	 */
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate from;
+	
+	/**
+	 * The last day to show actions of, inclusive
+	 */
+	@DateTimeFormat(iso = ISO.DATE)
+	private LocalDate to;
+	
+	/**
+	 * The cursor of the action after which the page starts
+	 */
+	private String after;
+	
+	/**
+	 * The cursor of the action before which the page ends
+	 */
+	private String before;
 
 	/**
 	 * Returns the table specified in this search request. If the value is blank or 'Any',
@@ -148,6 +176,14 @@ public class LogsSearchRequest implements FilterRequest {
 	public String getSortOrder() {
 		return sortOrder;
 	}
+	
+	/**
+	 * Returns whether the actions are listed oldest first
+	 * @return
+	 */
+	public boolean isAscending() {
+		return "ASC".equalsIgnoreCase(sortOrder);
+	}
 
 	/**
 	 * Sets the sort order for this request
@@ -161,15 +197,60 @@ public class LogsSearchRequest implements FilterRequest {
 	@Override
 	public String toString() {
 		return "LogsSearchRequest [table=" + table + ", actionType=" + actionType + ", itemId=" + itemId + ", page="
-				+ page + ", pageSize=" + pageSize + ", sortKey=" + sortKey + ", sortOrder=" + sortOrder + "]";
+				+ page + ", pageSize=" + pageSize + ", sortKey=" + sortKey + ", sortOrder=" + sortOrder 
+				+ ", from=" + from + ", to=" + to + "]";
 	}
 	
 	public void setUsername(String username) {
 		this.username = username;
 	}
 	
+	/**
+	 * Returns the username specified in this search request, or null if it's blank
+	 * @return
+	 */
 	public String getUsername() {
-		return username;
+		return username == null || username.isBlank() ? null : username;
+	}
+	
+	public LocalDate getFrom() {
+		return from;
+	}
+	
+	public void setFrom(LocalDate from) {
+		this.from = from;
+	}
+	
+	public LocalDate getTo() {
+		return to;
+	}
+	
+	public void setTo(LocalDate to) {
+		this.to = to;
+	}
+	
+	/**
+	 * Returns the cursor of the action after which the page starts, possibly null
+	 * @return
+	 */
+	public String getAfter() {
+		return after == null || after.isBlank() ? null : after;
+	}
+	
+	public void setAfter(String after) {
+		this.after = after;
+	}
+	
+	/**
+	 * Returns the cursor of the action before which the page ends, possibly null
+	 * @return
+	 */
+	public String getBefore() {
+		return before == null || before.isBlank() ? null : before;
+	}
+	
+	public void setBefore(String before) {
+		this.before = before;
 	}
 	
 	/**
@@ -200,6 +281,12 @@ public class LogsSearchRequest implements FilterRequest {
 			params.add("itemId", itemId);
 		if (actionType != null)
 			params.add("actionType", actionType);
+		if (username != null)
+			params.add("username", username);
+		if (from != null)
+			params.add("from", from.toString());
+		if (to != null)
+			params.add("to", to.toString());
 		
 		return params;
 	}
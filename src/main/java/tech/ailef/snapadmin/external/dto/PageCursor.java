@@ -0,0 +1,130 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+import java.util.function.Function;
+
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+
+/**
+ * A position in a list of results, used for keyset pagination. It holds the
+ * value of the sort field (if the list is not sorted by primary key) and the
+ * value of the primary key of the item at the boundary of a page. It is passed
+ * around in URLs as an opaque, URL-safe token.
+ */
+public class PageCursor {
+	private static final String SEPARATOR = ".";
+	
+	/**
+	 * The value of the sort field, null if sorting by primary key
+	 */
+	private Object sortValue;
+	
+	/**
+	 * The value of the primary key
+	 */
+	private Object primaryKeyValue;
+
+	public PageCursor(Object sortValue, Object primaryKeyValue) {
+		this.sortValue = sortValue;
+		this.primaryKeyValue = primaryKeyValue;
+	}
+	
+	/**
+	 * Builds the cursor that points to the given item
+	 * @param item the item at the boundary of a page
+	 * @param sortField the field used for sorting, null if sorting by primary key
+	 * @return the cursor pointing to the item
+	 */
+	public static PageCursor of(DbObject item, DbField sortField) {
+		Object sortValue = sortField == null ? null : item.get(sortField).getValue();
+		return new PageCursor(sortValue, item.getPrimaryKeyValue());
+	}
+	
+	/**
+	 * Parses a token produced by {@link #encode()}
+	 * @param token the token to parse
+	 * @param sortField the field used for sorting, null if sorting by primary key
+	 * @param primaryKey the primary key field
+	 * @return the parsed cursor
+	 * @throws SnapAdminException if the token is not valid
+	 */
+	public static PageCursor decode(String token, DbField sortField, DbField primaryKey) {
+		return decode(token, sortField == null ? null : v -> sortField.getType().parseValue(v), 
+			v -> primaryKey.getType().parseValue(v));
+	}
+	
+	/**
+	 * Parses a token produced by {@link #encode()}
+	 * @param token the token to parse
+	 * @param sortParser parses the value of the sort field, null if sorting by primary key
+	 * @param primaryKeyParser parses the value of the primary key
+	 * @return the parsed cursor
+	 * @throws SnapAdminException if the token is not valid
+	 */
+	public static PageCursor decode(String token, Function<String, ?> sortParser, Function<String, ?> primaryKeyParser) {
+		try {
+			String[] parts = token.split("\\" + SEPARATOR);
+			if (parts.length != (sortParser == null ? 1 : 2))
+				throw new SnapAdminException("Invalid pagination cursor: " + token);
+			
+			Object primaryKeyValue = primaryKeyParser.apply(decodePart(parts[parts.length - 1]));
+			Object sortValue = sortParser == null ? null : sortParser.apply(decodePart(parts[0]));
+			
+			return new PageCursor(sortValue, primaryKeyValue);
+		} catch (IllegalArgumentException | DateTimeException e) {
+			throw new SnapAdminException("Invalid pagination cursor: " + token, e);
+		}
+	}
+	
+	/**
+	 * Serializes this cursor to an opaque, URL-safe token
+	 * @return
+	 */
+	public String encode() {
+		String pk = encodePart(primaryKeyValue.toString());
+		if (sortValue == null)
+			return pk;
+		return encodePart(sortValue.toString()) + SEPARATOR + pk;
+	}
+	
+	/**
+	 * Returns the value of the sort field, null if sorting by primary key
+	 * @return
+	 */
+	public Object getSortValue() {
+		return sortValue;
+	}
+	
+	/**
+	 * Returns the value of the primary key
+	 * @return
+	 */
+	public Object getPrimaryKeyValue() {
+		return primaryKeyValue;
+	}
+	
+	private static String encodePart(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static String decodePart(String value) {
+		return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return "PageCursor [sortValue=" + sortValue + ", primaryKeyValue=" + primaryKeyValue + "]";
+	}
+}
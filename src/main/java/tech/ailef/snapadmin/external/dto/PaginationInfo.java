@@ -44,10 +44,35 @@ public class PaginationInfo {
 	
 	private long maxElement;
 	
+	/**
+	 * Whether the total count of elements is an estimate
+	 */
+	private boolean estimated;
+	
 	private FilterRequest filterRequest;
 	
 	private String query;
 	
+	/**
+	 * Whether this page has been loaded with keyset pagination, in which
+	 * case navigation happens through cursors instead of page numbers
+	 */
+	private boolean keyset;
+	
+	/**
+	 * The cursor to load the previous page, if keyset pagination is used
+	 */
+	private String previousCursor;
+	
+	/**
+	 * The cursor to load the next page, if keyset pagination is used
+	 */
+	private String nextCursor;
+	
+	private String sortKey;
+	
+	private String sortOrder;
+	
 	public PaginationInfo(int currentPage, int maxPage, int pageSize, long maxElement, String query, FilterRequest request) {
 		this.currentPage = currentPage;
 		this.maxPage = maxPage;
@@ -100,6 +125,19 @@ public class PaginationInfo {
 		return maxElement;
 	}
 	
+	/**
+	 * Returns whether the total count of elements is an estimate,
+	 * in which case the number of pages is approximate as well
+	 * @return
+	 */
+	public boolean isEstimated() {
+		return estimated;
+	}
+	
+	public void setEstimated(boolean estimated) {
+		this.estimated = estimated;
+	}
+	
 	/**
 	 * Returns a link to the current page by preserving all the other
 	 * filtering parameters but changing the sort order.
@@ -151,6 +189,88 @@ public class PaginationInfo {
 		return Utils.getQueryString(params);
 	}
 
+	/**
+	 * Marks this page as loaded with keyset pagination and sets the cursors
+	 * to navigate to the adjacent pages.
+	 * @param sortKey	the sort key used to load the page, possibly null
+	 * @param sortOrder	the sort order used to load the page, possibly null
+	 * @param previousCursor	the cursor to the previous page, null if this is the first page
+	 * @param nextCursor	the cursor to the next page, null if this is the last page
+	 */
+	public void setCursors(String sortKey, String sortOrder, String previousCursor, String nextCursor) {
+		this.keyset = true;
+		this.sortKey = sortKey;
+		this.sortOrder = sortOrder;
+		this.previousCursor = previousCursor;
+		this.nextCursor = nextCursor;
+	}
+	
+	/**
+	 * Returns whether this page has been loaded with keyset pagination
+	 * @return
+	 */
+	public boolean isKeyset() {
+		return keyset;
+	}
+	
+	/**
+	 * Returns the cursor to the previous page, null if this is the first page
+	 * @return
+	 */
+	public String getPreviousCursor() {
+		return previousCursor;
+	}
+	
+	/**
+	 * Returns the cursor to the next page, null if this is the last page
+	 * @return
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	
+	/**
+	 * Returns a link to the previous page when using keyset pagination
+	 * @return
+	 */
+	public String getPreviousLink() {
+		return getCursorLink("before", previousCursor);
+	}
+	
+	/**
+	 * Returns a link to the next page when using keyset pagination
+	 * @return
+	 */
+	public String getNextLink() {
+		return getCursorLink("after", nextCursor);
+	}
+	
+	/**
+	 * Returns a link to the page before/after the given cursor, preserving all
+	 * the other filtering parameters and the sort order, which the cursor depends on.
+	 */
+	private String getCursorLink(String direction, String cursor) {
+		MultiValueMap<String, String> params = FilterRequest.empty();
+		
+		if (filterRequest != null)
+			params = filterRequest.computeParams();
+		
+		if (query != null) {
+			params.put("query", new ArrayList<>());
+			params.get("query").add(query);
+		}
+		
+		params.add("pageSize", "" + pageSize);
+		if (sortKey != null)
+			params.add("sortKey", sortKey);
+		if (sortOrder != null)
+			params.add("sortOrder", sortOrder);
+		if (cursor != null)
+			params.add(direction, cursor);
+		
+		return Utils.getQueryString(params);
+	}
+
 	/**
 	 * Returns the pages before the current one
 	 * @return
@@ -10,6 +10,7 @@ public class TreeNodeDTO {
     private String icon; // Icon class (e.g., "bi bi-car")
     private String type; // Entity class name (fully qualified)
     private boolean hasChildren; // Whether this node can be expanded
+    private long childCount; // Number of children in childField
     private boolean isRoot; // Is this a root node?
     private String childField; // Field name to fetch children (if hasChildren)
     private String childType; // Type of the child entity (for Add Child action)
@@ -98,6 +99,14 @@ public class TreeNodeDTO {
         this.childLabel = childLabel;
     }
 
+    public long getChildCount() {
+        return childCount;
+    }
+
+    public void setChildCount(long childCount) {
+        this.childCount = childCount;
+    }
+
     public String getInverseFieldName() {
         return inverseFieldName;
     }
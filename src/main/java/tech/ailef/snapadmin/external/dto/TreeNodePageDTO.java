@@ -0,0 +1,33 @@
+package tech.ailef.snapadmin.external.dto;
+
+import java.util.List;
+
+/**
+ * A window of sibling nodes in the hierarchy tree, sorted by primary key.
+ * The next window is requested by passing back the cursor.
+ */
+public class TreeNodePageDTO {
+    private List<TreeNodeDTO> nodes;
+    private String nextCursor; // Cursor of the next window, null if this is the last one
+
+    public TreeNodePageDTO(List<TreeNodeDTO> nodes, String nextCursor) {
+        this.nodes = nodes;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TreeNodeDTO> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<TreeNodeDTO> nodes) {
+        this.nodes = nodes;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
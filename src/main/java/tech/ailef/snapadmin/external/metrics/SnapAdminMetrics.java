@@ -0,0 +1,251 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.search.QueryTemplateCache;
+
+/**
+ * Records how long the SnapAdmin data paths take with Micrometer. Meters are
+ * registered on the application's {@link MeterRegistry} if there is one, so
+ * they are published along with the other metrics of the application, or on
+ * a private {@link SimpleMeterRegistry} otherwise. In both cases they are
+ * shown in the Performance page.
+ *
+ * Timers are tagged with the operation and, where it applies, the table.
+ * They publish their p50 and p99, computed over the last few minutes.
+ */
+@Component
+public class SnapAdminMetrics {
+	/**
+	 * Operations of {@link tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository}
+	 */
+	public static final String REPOSITORY = "snapadmin.repository";
+
+	/**
+	 * Loading and searching the hierarchy trees
+	 */
+	public static final String TREE = "snapadmin.tree";
+
+	/**
+	 * Writing and reading the audit log
+	 */
+	public static final String AUDIT = "snapadmin.audit";
+
+	/**
+	 * Autocomplete lookups, by source: the results cache, the in-memory index or the database
+	 */
+	public static final String AUTOCOMPLETE = "snapadmin.autocomplete";
+
+	/**
+	 * Reading the metadata of binary columns and building image previews, before they are streamed
+	 */
+	public static final String DOWNLOAD = "snapadmin.download";
+
+	/**
+	 * Data exports, by format and table
+	 */
+	public static final String EXPORT = "snapadmin.export";
+
+	public static final String EXPORT_ROWS = "snapadmin.export.rows";
+
+	public static final String EXPORT_BYTES = "snapadmin.export.bytes";
+
+	/**
+	 * Data imports, for each chunk of rows, by mode and table
+	 */
+	public static final String IMPORT = "snapadmin.import";
+
+	/**
+	 * SQL statements executed by each SnapAdmin request, see {@link SqlStatementCounter}
+	 */
+	public static final String SQL_STATEMENTS = "snapadmin.http.sql.statements";
+
+	private static final String PREFIX = "snapadmin.";
+
+	private MeterRegistry registry;
+
+	public SnapAdminMetrics(ObjectProvider<MeterRegistry> registry, QueryTemplateCache queryTemplateCache) {
+		this.registry = registry.getIfUnique(SimpleMeterRegistry::new);
+
+		FunctionCounter.builder("snapadmin.query.templates.hits", queryTemplateCache, QueryTemplateCache::getHits)
+			.register(this.registry);
+		FunctionCounter.builder("snapadmin.query.templates.misses", queryTemplateCache, QueryTemplateCache::getMisses)
+			.register(this.registry);
+		Gauge.builder("snapadmin.query.templates.size", queryTemplateCache, QueryTemplateCache::size)
+			.register(this.registry);
+	}
+
+	/**
+	 * Starts timing an operation on a table, to be stopped by closing the returned {@link Timing}
+	 * @param name	the name of the timer
+	 * @param operation	the operation
+	 * @param schema	the schema of the table
+	 * @return
+	 */
+	public Timing start(String name, String operation, DbObjectSchema schema) {
+		return start(name, operation, schema.getTableName());
+	}
+
+	/**
+	 * Starts timing an operation on a table, to be stopped by closing the returned {@link Timing}
+	 * @param name	the name of the timer
+	 * @param operation	the operation
+	 * @param table	the table name
+	 * @return
+	 */
+	public Timing start(String name, String operation, String table) {
+		return start(name, Tags.of("operation", operation, "table", table));
+	}
+
+	/**
+	 * Starts timing an operation, to be stopped by closing the returned {@link Timing}
+	 * @param name	the name of the timer
+	 * @param operation	the operation
+	 * @return
+	 */
+	public Timing start(String name, String operation) {
+		return start(name, Tags.of("operation", operation));
+	}
+
+	private Timing start(String name, Tags tags) {
+		Timer timer = Timer.builder(name)
+			.tags(tags)
+			.publishPercentiles(0.5, 0.99)
+			.register(registry);
+		return new Timing(timer, Timer.start(registry));
+	}
+
+	/**
+	 * Records the size of a completed export
+	 * @param format	the export format
+	 * @param table	the exported table, or `console` for SQL console queries
+	 * @param rows	the number of exported rows
+	 * @param bytes	the number of bytes written
+	 */
+	public void recordExport(String format, String table, long rows, long bytes) {
+		Tags tags = Tags.of("format", format, "table", table);
+		DistributionSummary.builder(EXPORT_ROWS).baseUnit("rows").tags(tags).register(registry).record(rows);
+		DistributionSummary.builder(EXPORT_BYTES).baseUnit("bytes").tags(tags).register(registry).record(bytes);
+	}
+
+	/**
+	 * Records the number of SQL statements executed while handling a request
+	 * @param uri	the URI pattern of the request
+	 * @param count	the number of statements
+	 */
+	public void recordStatements(String uri, int count) {
+		DistributionSummary.builder(SQL_STATEMENTS)
+			.tag("uri", uri)
+			.publishPercentiles(0.5, 0.99)
+			.register(registry)
+			.record(count);
+	}
+
+	/**
+	 * Registers a gauge on a SnapAdmin component
+	 * @param name	the name of the gauge
+	 * @param object	the object to measure
+	 * @param value	the function that returns the value
+	 */
+	public <T> void gauge(String name, T object, ToDoubleFunction<T> value) {
+		Gauge.builder(name, object, value).register(registry);
+	}
+
+	/**
+	 * Registers a counter on a SnapAdmin component, for values that only increase
+	 * @param name	the name of the counter
+	 * @param object	the object to measure
+	 * @param value	the function that returns the count
+	 */
+	public <T> void counter(String name, T object, ToDoubleFunction<T> value) {
+		FunctionCounter.builder(name, object, value).register(registry);
+	}
+
+	/**
+	 * Returns the statistics of all the SnapAdmin timers, sorted by name and tags
+	 * @return
+	 */
+	public List<TimerStats> getTimerStats() {
+		return registry.getMeters().stream()
+			.filter(m -> m instanceof Timer && m.getId().getName().startsWith(PREFIX))
+			.map(m -> TimerStats.of((Timer)m))
+			.sorted(Comparator.comparing(TimerStats::getName).thenComparing(t -> t.getTags().toString()))
+			.toList();
+	}
+
+	/**
+	 * Returns the statistics of all the SnapAdmin distribution summaries, sorted by name and tags
+	 * @return
+	 */
+	public List<SummaryStats> getSummaryStats() {
+		return registry.getMeters().stream()
+			.filter(m -> m instanceof DistributionSummary && m.getId().getName().startsWith(PREFIX))
+			.map(m -> SummaryStats.of((DistributionSummary)m))
+			.sorted(Comparator.comparing(SummaryStats::getName).thenComparing(s -> s.getTags().toString()))
+			.toList();
+	}
+
+	/**
+	 * Returns the tables where the repository operations have spent the most time,
+	 * with the statistics of all their operations combined
+	 * @param limit	the maximum number of tables
+	 * @return
+	 */
+	public List<TimerStats> getSlowestTables(int limit) {
+		Map<String, List<TimerStats>> byTable = getTimerStats().stream()
+			.filter(t -> t.getName().equals(REPOSITORY))
+			.collect(Collectors.groupingBy(t -> t.getTag("table"), LinkedHashMap::new, Collectors.toList()));
+
+		List<TimerStats> tables = new ArrayList<>();
+		byTable.forEach((table, stats) -> tables.add(TimerStats.merge(REPOSITORY, Map.of("table", table), stats)));
+
+		return tables.stream()
+			.sorted(Comparator.comparingDouble(TimerStats::getTotalMillis).reversed())
+			.limit(limit)
+			.toList();
+	}
+
+	/**
+	 * A running measurement, recorded when closed
+	 */
+	public static class Timing implements AutoCloseable {
+		private final Timer timer;
+
+		private final Timer.Sample sample;
+
+		private Timing(Timer timer, Timer.Sample sample) {
+			this.timer = timer;
+			this.sample = sample;
+		}
+
+		@Override
+		public void close() {
+			sample.stop(timer);
+		}
+	}
+}
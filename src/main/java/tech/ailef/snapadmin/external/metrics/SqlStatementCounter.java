@@ -0,0 +1,64 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements that Hibernate prepares on the current thread
+ * between {@link #start()} and {@link #stop()}. Statements prepared on
+ * other threads, or while no count is active, are not counted.
+ * 
+ * If the application has its own {@link StatementInspector}, it is kept
+ * as a delegate and still sees every statement.
+ */
+public class SqlStatementCounter implements StatementInspector {
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+	private StatementInspector delegate;
+
+	public SqlStatementCounter() {
+	}
+
+	public SqlStatementCounter(StatementInspector delegate) {
+		this.delegate = delegate;
+	}
+
+	public void setDelegate(StatementInspector delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Starts counting the statements of the current thread
+	 */
+	public static void start() {
+		COUNT.set(new int[1]);
+	}
+
+	/**
+	 * Stops counting the statements of the current thread
+	 * @return	the number of statements since {@link #start()}, or -1 if no count was active
+	 */
+	public static int stop() {
+		int[] count = COUNT.get();
+		COUNT.remove();
+		return count == null ? -1 : count[0];
+	}
+
+	@Override
+	public String inspect(String sql) {
+		int[] count = COUNT.get();
+		if (count != null)
+			count[0]++;
+
+		return delegate == null ? sql : delegate.inspect(sql);
+	}
+}
@@ -0,0 +1,52 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the number of SQL statements executed by each SnapAdmin request,
+ * tagged with the URI pattern of the handler
+ */
+public class SqlStatementInterceptor implements AsyncHandlerInterceptor {
+	private SnapAdminMetrics metrics;
+
+	public SqlStatementInterceptor(SnapAdminMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		SqlStatementCounter.start();
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		// The rest of the request runs on another thread, where it can't be counted
+		SqlStatementCounter.stop();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		int count = SqlStatementCounter.stop();
+		if (count < 0 || !(handler instanceof HandlerMethod))
+			return;
+
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		metrics.recordStatements(pattern == null ? "UNKNOWN" : pattern.toString(), count);
+	}
+}
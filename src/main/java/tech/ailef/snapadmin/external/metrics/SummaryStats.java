@@ -0,0 +1,86 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+/**
+ * A snapshot of the statistics of a {@link DistributionSummary}
+ */
+public class SummaryStats {
+	private String name;
+
+	private Map<String, String> tags;
+
+	private long count;
+
+	private double total;
+
+	private double mean;
+
+	private double max;
+
+	private SummaryStats(String name, Map<String, String> tags) {
+		this.name = name;
+		this.tags = tags;
+	}
+
+	static SummaryStats of(DistributionSummary summary) {
+		Map<String, String> tags = new LinkedHashMap<>();
+		for (Tag tag : summary.getId().getTags()) {
+			tags.put(tag.getKey(), tag.getValue());
+		}
+
+		SummaryStats stats = new SummaryStats(summary.getId().getName(), tags);
+		HistogramSnapshot snapshot = summary.takeSnapshot();
+		stats.count = snapshot.count();
+		stats.total = snapshot.total();
+		stats.mean = snapshot.mean();
+		stats.max = snapshot.max();
+		return stats;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	/**
+	 * Returns the value of a tag, or an empty string if the summary doesn't have it
+	 * @param key	the tag key
+	 * @return
+	 */
+	public String getTag(String key) {
+		return tags.getOrDefault(key, "");
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getTotal() {
+		return total;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public double getMax() {
+		return max;
+	}
+}
@@ -0,0 +1,128 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * A snapshot of the statistics of a {@link Timer}, in milliseconds
+ */
+public class TimerStats {
+	private String name;
+
+	private Map<String, String> tags;
+
+	private long count;
+
+	private double totalMillis;
+
+	private double meanMillis;
+
+	private double p50Millis;
+
+	private double p99Millis;
+
+	private double maxMillis;
+
+	private TimerStats(String name, Map<String, String> tags) {
+		this.name = name;
+		this.tags = tags;
+	}
+
+	static TimerStats of(Timer timer) {
+		Map<String, String> tags = new LinkedHashMap<>();
+		for (Tag tag : timer.getId().getTags()) {
+			tags.put(tag.getKey(), tag.getValue());
+		}
+
+		TimerStats stats = new TimerStats(timer.getId().getName(), tags);
+		HistogramSnapshot snapshot = timer.takeSnapshot();
+		stats.count = snapshot.count();
+		stats.totalMillis = snapshot.total(TimeUnit.MILLISECONDS);
+		stats.meanMillis = snapshot.mean(TimeUnit.MILLISECONDS);
+		stats.maxMillis = snapshot.max(TimeUnit.MILLISECONDS);
+		for (ValueAtPercentile p : snapshot.percentileValues()) {
+			if (p.percentile() == 0.5)
+				stats.p50Millis = p.value(TimeUnit.MILLISECONDS);
+			else if (p.percentile() == 0.99)
+				stats.p99Millis = p.value(TimeUnit.MILLISECONDS);
+		}
+		return stats;
+	}
+
+	/**
+	 * Combines the statistics of several timers. Percentiles can't be
+	 * combined exactly, so the highest ones are kept.
+	 * @param name	the name of the combined statistics
+	 * @param tags	the tags of the combined statistics
+	 * @param stats	the statistics to combine
+	 * @return
+	 */
+	static TimerStats merge(String name, Map<String, String> tags, List<TimerStats> stats) {
+		TimerStats merged = new TimerStats(name, tags);
+		for (TimerStats s : stats) {
+			merged.count += s.count;
+			merged.totalMillis += s.totalMillis;
+			merged.p50Millis = Math.max(merged.p50Millis, s.p50Millis);
+			merged.p99Millis = Math.max(merged.p99Millis, s.p99Millis);
+			merged.maxMillis = Math.max(merged.maxMillis, s.maxMillis);
+		}
+		merged.meanMillis = merged.count == 0 ? 0 : merged.totalMillis / merged.count;
+		return merged;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	/**
+	 * Returns the value of a tag, or an empty string if the timer doesn't have it
+	 * @param key	the tag key
+	 * @return
+	 */
+	public String getTag(String key) {
+		return tags.getOrDefault(key, "");
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getTotalMillis() {
+		return totalMillis;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+}
@@ -0,0 +1,13 @@
+/*
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+/**
+ * Micrometer instrumentation of the SnapAdmin data paths.
+ */
+
+package tech.ailef.snapadmin.external.metrics;
\ No newline at end of file
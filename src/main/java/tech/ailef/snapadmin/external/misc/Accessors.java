@@ -0,0 +1,91 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.misc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Functions to resolve the accessor methods of `@Entity` classes into
+ * `MethodHandle`s. These are resolved once when the schemas are loaded,
+ * so that reading and writing fields doesn't require scanning the
+ * methods of the class each time.
+ */
+public interface Accessors {
+	/**
+	 * The generic type of getters, i.e. `Object get(Object instance)`
+	 */
+	public static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	/**
+	 * The generic type of setters, i.e. `void set(Object instance, Object value)`
+	 */
+	public static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * Finds a method by name and number of parameters in the class or its superclasses
+	 * @param klass	the class to search
+	 * @param name	the name of the method
+	 * @param parameterCount	the number of parameters of the method
+	 * @return the method if found, null otherwise
+	 */
+	public static Method findMethod(Class<?> klass, String name, int parameterCount) {
+		for (Class<?> c = klass; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Method m : c.getDeclaredMethods()) {
+				if (m.getName().equals(name) && m.getParameterCount() == parameterCount && !m.isBridge())
+					return m;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Converts a no-args method into a handle with the generic getter type, so that
+	 * it can be called with `invokeExact` on any instance.
+	 * @param method	the method to convert
+	 * @return the handle, or null if the method is null or not accessible
+	 */
+	public static MethodHandle toGetter(Method method) {
+		if (method == null) return null;
+
+		try {
+			return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Converts a single-argument method into a handle with the generic setter type, so
+	 * that it can be called with `invokeExact` on any instance.
+	 * @param method	the method to convert
+	 * @return the handle, or null if the method is null or not accessible
+	 */
+	public static MethodHandle toSetter(Method method) {
+		if (method == null) return null;
+
+		try {
+			return MethodHandles.lookup().unreflect(method).asType(SETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Capitalizes the first letter of a field name, to build getter and setter names
+	 * @param fieldName
+	 * @return
+	 */
+	public static String capitalize(String fieldName) {
+		return Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+	}
+}
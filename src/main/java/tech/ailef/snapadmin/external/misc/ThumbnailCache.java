@@ -0,0 +1,213 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.misc;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+
+/**
+ * Keeps the previews of the `@DisplayImage` columns on disk, by hash of the
+ * original image and preview size, so they are always valid and only built
+ * the first time an image is seen. When the cache exceeds `thumbnailCacheSize` megabytes the
+ * least recently used previews are deleted.
+ */
+@Component
+public class ThumbnailCache {
+	private static final Logger logger = LoggerFactory.getLogger(ThumbnailCache.class);
+
+	private Path directory;
+
+	private int size;
+
+	private long maxBytes;
+
+	private long totalBytes;
+
+	/**
+	 * The cached previews in access order, by hash and size
+	 */
+	private LinkedHashMap<String, Thumbnail> thumbnails = new LinkedHashMap<>(16, 0.75f, true);
+
+	public ThumbnailCache(SnapAdminProperties properties) {
+		this.directory = Paths.get(properties.getThumbnailCacheDir());
+		this.size = properties.getThumbnailSize();
+		this.maxBytes = properties.getThumbnailCacheSize() * 1024L * 1024L;
+
+		if (maxBytes > 0)
+			load();
+	}
+
+	/**
+	 * Returns whether previews are enabled
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return maxBytes > 0 && size > 0;
+	}
+
+	/**
+	 * Returns the preview of an image, building it if it's not cached
+	 * @param hash	the hash of the original image
+	 * @param image	opens the original image, only called if the preview is not cached
+	 * @return the preview, or an empty optional if the image can't be decoded
+	 */
+	public Optional<Thumbnail> get(String hash, Supplier<InputStream> image) {
+		String key = hash + "-" + size;
+		synchronized (this) {
+			Thumbnail thumbnail = thumbnails.get(key);
+			if (thumbnail != null && Files.isReadable(thumbnail.path))
+				return Optional.of(thumbnail);
+		}
+
+		// Two requests for the same image may both build it, the second one replaces the file
+		try {
+			Optional<Thumbnail> thumbnail = build(key, image);
+			thumbnail.ifPresent(this::add);
+			return thumbnail;
+		} catch (IOException e) {
+			logger.warn("Unable to build preview " + hash, e);
+			return Optional.empty();
+		}
+	}
+
+	private Optional<Thumbnail> build(String key, Supplier<InputStream> image) throws IOException {
+		BufferedImage original;
+		try (InputStream in = image.get()) {
+			original = ImageIO.read(in);
+		}
+		if (original == null)
+			return Optional.empty();
+
+		double scale = Math.min(1, (double)size / Math.max(original.getWidth(), original.getHeight()));
+		int width = Math.max(1, (int)Math.round(original.getWidth() * scale));
+		int height = Math.max(1, (int)Math.round(original.getHeight() * scale));
+
+		// JPEG can't store transparency
+		boolean alpha = original.getColorModel().hasAlpha();
+		String format = alpha ? "png" : "jpg";
+		BufferedImage scaled = new BufferedImage(width, height,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.drawImage(original, 0, 0, width, height, null);
+		graphics.dispose();
+
+		Files.createDirectories(directory);
+		Path file = directory.resolve(key + "." + format);
+		Path temp = Files.createTempFile(directory, key, ".tmp");
+		try {
+			ImageIO.write(scaled, format, temp.toFile());
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		return Optional.of(new Thumbnail(file, Files.size(file), format));
+	}
+
+	private synchronized void add(Thumbnail thumbnail) {
+		Thumbnail previous = thumbnails.put(thumbnail.getKey(), thumbnail);
+		if (previous != null)
+			totalBytes -= previous.length;
+		totalBytes += thumbnail.length;
+
+		Iterator<Thumbnail> eldest = thumbnails.values().iterator();
+		while (totalBytes > maxBytes && eldest.hasNext()) {
+			Thumbnail evicted = eldest.next();
+			if (evicted == thumbnail)
+				break;
+
+			eldest.remove();
+			totalBytes -= evicted.length;
+			try {
+				Files.deleteIfExists(evicted.path);
+			} catch (IOException e) {
+				logger.warn("Unable to delete preview " + evicted.path, e);
+			}
+		}
+	}
+
+	/**
+	 * Loads the previews left by a previous run, oldest first
+	 */
+	private void load() {
+		if (!Files.isDirectory(directory))
+			return;
+
+		try (Stream<Path> files = Files.list(directory)) {
+			List<Path> sorted = files
+				.filter(p -> p.toString().endsWith(".jpg") || p.toString().endsWith(".png"))
+				.sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+				.toList();
+
+			for (Path path : sorted) {
+				String name = path.getFileName().toString();
+				add(new Thumbnail(path, Files.size(path), name.substring(name.lastIndexOf('.') + 1)));
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to load previews from " + directory, e);
+		}
+	}
+
+	/**
+	 * A preview stored on disk
+	 */
+	public static class Thumbnail {
+		private final Path path;
+
+		private final long length;
+
+		private final String format;
+
+		Thumbnail(Path path, long length, String format) {
+			this.path = path;
+			this.length = length;
+			this.format = format;
+		}
+
+		private String getKey() {
+			String name = path.getFileName().toString();
+			return name.substring(0, name.lastIndexOf('.'));
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		/**
+		 * Returns the MIME type of the preview
+		 * @return
+		 */
+		public String getMimeType() {
+			return format.equals("png") ? "image/png" : "image/jpeg";
+		}
+	}
+}
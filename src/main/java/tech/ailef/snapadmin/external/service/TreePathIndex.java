@@ -0,0 +1,590 @@
+package tech.ailef.snapadmin.external.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.dbmapping.DbObject;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.EntityChangeListener;
+import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.TreeConfiguration;
+import tech.ailef.snapadmin.external.dto.TreeNodeDTO;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Materialised index of the paths from each node of the @SnapTree hierarchies
+ * to their root, so that the tree search can place a node in the tree with a
+ * single lookup instead of walking up its relationships one entity at a time.
+ *
+ * The hierarchy of a tree is made of the @SnapTree collection fields reachable
+ * from its root class. The index is built in the background when the application
+ * starts, one level at a time with one query per chunk of parents and child field,
+ * and is then kept up to date with Hibernate listeners: only the modified nodes
+ * are reloaded, and only the paths of their descendants are recomputed.
+ * All the writes to the index are performed by a single background thread.
+ */
+@Service
+public class TreePathIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreePathIndex.class);
+
+    /**
+     * The maximum number of ancestors of a node in a path
+     */
+    static final int MAX_DEPTH = 5;
+
+    /**
+     * The maximum number of parents loaded with a single query
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * How long a search waits for the first build of a tree before
+     * returning no paths
+     */
+    private static final long BUILD_WAIT_SECONDS = 5;
+
+    private final SnapAdmin snapAdmin;
+    private final TreeDiscoveryService treeDiscoveryService;
+    private final SnapAdminRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Tree> trees = new ConcurrentHashMap<>(); // root className -> tree
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "snapadmin-tree-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TreePathIndex(SnapAdmin snapAdmin, TreeDiscoveryService treeDiscoveryService,
+            SnapAdminRepository repository, EntityManager entityManager,
+            @Qualifier("transactionManager") PlatformTransactionManager transactionManager) {
+        this.snapAdmin = snapAdmin;
+        this.treeDiscoveryService = treeDiscoveryService;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Registers the listener that keeps the index up to date and
+     * builds the index of all the trees in the background
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        EntityChangeListener.register(entityManager, snapAdmin, (schema, id, entity, deleted) -> {
+            if (deleted)
+                remove(schema, List.of(id));
+            else
+                refresh(schema, List.of(id));
+        });
+
+        for (TreeConfiguration config : treeDiscoveryService.getAllTrees()) {
+            getTree(config.getRootEntityClass());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the class names of the entities that are part of a tree
+     *
+     * @param rootClassName the class name of the root of the tree
+     * @return the class names, empty if the class is not the root of a tree
+     */
+    public Set<String> getClassNames(String rootClassName) {
+        Tree tree = getTree(rootClassName);
+        return tree == null ? Collections.emptySet() : tree.classNames;
+    }
+
+    /**
+     * Waits for the first build of a tree, for at most {@link #BUILD_WAIT_SECONDS}
+     *
+     * @param rootClassName the class name of the root of the tree
+     * @return whether the tree has been built
+     */
+    public boolean awaitBuild(String rootClassName) {
+        Tree tree = getTree(rootClassName);
+        if (tree == null)
+            return false;
+
+        try {
+            tree.ready.get(BUILD_WAIT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns all the paths from the root of a tree to a node, none
+     * if the first build of the tree is still running
+     *
+     * @param rootClassName the class name of the root of the tree
+     * @param className     the class name of the node
+     * @param id            the primary key of the node
+     * @return the paths, each one starting from a root and ending with the node
+     */
+    public List<List<TreeNodeDTO>> findPathsToRoot(String rootClassName, String className, Object id) {
+        Tree tree = getTree(rootClassName);
+        if (tree == null)
+            return Collections.emptyList();
+
+        if (!tree.ready.isDone())
+            return Collections.emptyList();
+
+        List<List<TreeNodeDTO>> result = new ArrayList<>();
+        for (List<String> path : tree.paths.getOrDefault(key(className, id), Collections.emptyList())) {
+            List<TreeNodeDTO> nodes = new ArrayList<>();
+            for (String key : path) {
+                int separator = key.indexOf('#');
+                nodes.add(new TreeNodeDTO(key.substring(separator + 1), tree.labels.get(key), key.substring(0, separator)));
+            }
+            result.add(nodes);
+        }
+        return result;
+    }
+
+    /**
+     * Reloads some nodes once they have been created or modified, also when
+     * it happened without going through JPA (e.g. with a bulk update)
+     *
+     * @param schema      the schema of the nodes
+     * @param primaryKeys the primary keys of the nodes
+     */
+    public void refresh(DbObjectSchema schema, Collection<Object> primaryKeys) {
+        for (Tree tree : trees.values()) {
+            if (!tree.classNames.contains(schema.getClassName()))
+                continue;
+
+            submit(tree, current -> primaryKeys.forEach(id -> refresh(current, schema, id)));
+        }
+    }
+
+    /**
+     * Removes some nodes once they have been deleted, also when it
+     * happened without going through JPA (e.g. with a bulk delete)
+     *
+     * @param schema      the schema of the nodes
+     * @param primaryKeys the primary keys of the nodes
+     */
+    public void remove(DbObjectSchema schema, Collection<Object> primaryKeys) {
+        for (Tree tree : trees.values()) {
+            if (!tree.classNames.contains(schema.getClassName()))
+                continue;
+
+            submit(tree, current -> primaryKeys.forEach(id -> remove(current, key(schema.getClassName(), id))));
+        }
+    }
+
+    /**
+     * Rebuilds from scratch the trees that contain a schema, when too many of its
+     * nodes may have changed to refresh them one by one (e.g. after an import).
+     * Searches use the current index until the new one has been built.
+     *
+     * @param schema the schema that has changed
+     */
+    public void rebuild(DbObjectSchema schema) {
+        for (Tree tree : new ArrayList<>(trees.values())) {
+            if (!tree.classNames.contains(schema.getClassName()))
+                continue;
+
+            Tree rebuilt = new Tree(tree.rootClassName, tree.edges);
+            executor.submit(() -> {
+                if (build(rebuilt))
+                    trees.put(rebuilt.rootClassName, rebuilt);
+            });
+        }
+    }
+
+    private Tree getTree(String rootClassName) {
+        if (treeDiscoveryService.getTreeForEntity(rootClassName) == null)
+            return null;
+
+        return trees.computeIfAbsent(rootClassName, className -> {
+            Tree tree = new Tree(className, findEdges(snapAdmin.findSchemaByClassName(className)));
+            executor.submit(() -> build(tree));
+            return tree;
+        });
+    }
+
+    /**
+     * Finds the @SnapTree collection fields reachable from the root class
+     */
+    private List<Edge> findEdges(DbObjectSchema root) {
+        List<Edge> edges = new ArrayList<>();
+        Set<DbObjectSchema> visited = new HashSet<>();
+        Deque<DbObjectSchema> queue = new ArrayDeque<>(List.of(root));
+
+        while (!queue.isEmpty()) {
+            DbObjectSchema schema = queue.poll();
+            if (!visited.add(schema))
+                continue;
+
+            for (Field field : treeDiscoveryService.getChildFields(schema.getJavaClass())) {
+                DbField dbField = schema.getFieldByJavaName(field.getName());
+                if (dbField == null || dbField.getConnectedSchema() == null)
+                    continue;
+
+                edges.add(new Edge(schema, dbField, dbField.getConnectedSchema()));
+                queue.add(dbField.getConnectedSchema());
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Runs an update of the index on the index thread, after the build of the tree.
+     * The update is applied to the tree that is current when it runs, which
+     * may have been rebuilt in the meantime.
+     */
+    private void submit(Tree tree, Consumer<Tree> task) {
+        executor.submit(() -> {
+            try {
+                Tree current = trees.getOrDefault(tree.rootClassName, tree);
+                transactionTemplate.executeWithoutResult(status -> task.accept(current));
+            } catch (Exception e) {
+                logger.error("Unable to update tree index for " + tree.rootClassName, e);
+            }
+        });
+    }
+
+    /**
+     * Loads the whole tree top-down, one level at a time, then computes all the paths
+     *
+     * @return whether the tree has been built
+     */
+    private boolean build(Tree tree) {
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                DbObjectSchema rootSchema = snapAdmin.findSchemaByClassName(tree.rootClassName);
+                List<DbObject> roots = rootSchema.findAll();
+                repository.prefetch(rootSchema, roots);
+
+                Set<String> visited = new HashSet<>();
+                Map<DbObjectSchema, List<Object>> level = new HashMap<>();
+                for (DbObject root : roots) {
+                    String key = key(root);
+                    visited.add(key);
+                    tree.labels.put(key, root.getDisplayName());
+                    level.computeIfAbsent(rootSchema, s -> new ArrayList<>()).add(root.getPrimaryKeyValue());
+                }
+
+                for (int depth = 0; depth < MAX_DEPTH && !level.isEmpty(); depth++) {
+                    Map<DbObjectSchema, List<Object>> next = new HashMap<>();
+                    for (Map.Entry<DbObjectSchema, List<Object>> entry : level.entrySet()) {
+                        for (Edge edge : tree.edgesFrom(entry.getKey())) {
+                            List<Object> ids = entry.getValue();
+                            for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+                                loadChildren(tree, edge, ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size())), visited, next);
+                            }
+                        }
+                    }
+
+                    // Labels have been computed, the entities are not needed anymore
+                    entityManager.clear();
+                    level = next;
+                }
+            });
+
+            computePaths(tree);
+            logger.info("Built tree index for " + tree.rootClassName + " (" + tree.labels.size() + " nodes) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to build tree index for " + tree.rootClassName, e);
+            return false;
+        } finally {
+            tree.ready.complete(null);
+        }
+    }
+
+    /**
+     * Loads the children of a chunk of parents with a single query, adding
+     * the ones that have not been visited yet to the next level
+     */
+    private void loadChildren(Tree tree, Edge edge, List<Object> parentIds, Set<String> visited,
+            Map<DbObjectSchema, List<Object>> next) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT p." + pk(edge.parent) + ", c FROM " + entityName(edge.parent) + " p JOIN p."
+                        + edge.field.getJavaName() + " c WHERE p." + pk(edge.parent) + " IN :ids", Object[].class)
+                .setParameter("ids", parentIds)
+                .getResultList();
+
+        List<DbObject> children = rows.stream().map(row -> new DbObject(row[1], edge.child)).toList();
+        repository.prefetch(edge.child, children);
+
+        for (int i = 0; i < rows.size(); i++) {
+            DbObject child = children.get(i);
+            String childKey = key(child);
+            tree.link(key(edge.parent.getClassName(), rows.get(i)[0]), childKey);
+
+            if (visited.add(childKey)) {
+                tree.labels.put(childKey, child.getDisplayName());
+                next.computeIfAbsent(edge.child, s -> new ArrayList<>()).add(child.getPrimaryKeyValue());
+            }
+        }
+    }
+
+    /**
+     * Computes the paths of all the nodes, extending the paths
+     * of each level with the children of their last node
+     */
+    private void computePaths(Tree tree) {
+        Map<String, List<List<String>>> paths = new HashMap<>();
+        List<List<String>> level = new ArrayList<>();
+        for (String key : tree.labels.keySet()) {
+            if (tree.isRoot(key)) {
+                paths.put(key, List.of(List.of(key)));
+                level.add(List.of(key));
+            }
+        }
+
+        for (int depth = 0; depth < MAX_DEPTH && !level.isEmpty(); depth++) {
+            List<List<String>> next = new ArrayList<>();
+            for (List<String> path : level) {
+                for (String child : tree.children.getOrDefault(path.get(path.size() - 1), Collections.emptySet())) {
+                    // Root nodes are only shown at the top of the tree
+                    if (tree.isRoot(child))
+                        continue;
+
+                    List<String> childPath = append(path, child);
+                    paths.computeIfAbsent(child, k -> new ArrayList<>()).add(childPath);
+                    next.add(childPath);
+                }
+            }
+            level = next;
+        }
+
+        tree.paths.clear();
+        paths.forEach((key, value) -> tree.paths.put(key, List.copyOf(value)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh(Tree tree, DbObjectSchema schema, Object id) {
+        String key = key(schema.getClassName(), id);
+        Optional<?> entity = schema.getJpaRepository().findById(id);
+        if (entity.isEmpty()) {
+            remove(tree, key);
+            return;
+        }
+
+        tree.labels.put(key, new DbObject(entity.get(), schema).getDisplayName());
+
+        Set<String> parents = new HashSet<>();
+        for (Edge edge : tree.edgesTo(schema)) {
+            List<Object> parentIds = entityManager.createQuery(
+                    "SELECT p." + pk(edge.parent) + " FROM " + entityName(edge.parent) + " p JOIN p."
+                            + edge.field.getJavaName() + " c WHERE c." + pk(schema) + " = :id", Object.class)
+                    .setParameter("id", id)
+                    .getResultList();
+            parentIds.forEach(parentId -> parents.add(key(edge.parent.getClassName(), parentId)));
+        }
+
+        for (String parent : new ArrayList<>(tree.parents.getOrDefault(key, Collections.emptySet()))) {
+            if (!parents.contains(parent))
+                tree.unlink(parent, key);
+        }
+        parents.forEach(parent -> tree.link(parent, key));
+
+        Set<String> children = new HashSet<>();
+        List<DbObject> newChildren = new ArrayList<>();
+        for (Edge edge : tree.edgesFrom(schema)) {
+            List<?> entities = entityManager.createQuery(
+                    "SELECT c FROM " + entityName(schema) + " p JOIN p." + edge.field.getJavaName()
+                            + " c WHERE p." + pk(schema) + " = :id", Object.class)
+                    .setParameter("id", id)
+                    .getResultList();
+            for (Object child : entities) {
+                DbObject object = new DbObject(child, edge.child);
+                children.add(key(object));
+                if (!tree.labels.containsKey(key(object)))
+                    newChildren.add(object);
+            }
+        }
+
+        List<String> removedChildren = new ArrayList<>();
+        for (String child : new ArrayList<>(tree.children.getOrDefault(key, Collections.emptySet()))) {
+            if (!children.contains(child)) {
+                tree.unlink(key, child);
+                removedChildren.add(child);
+            }
+        }
+        children.forEach(child -> tree.link(key, child));
+
+        recompute(tree, key, true);
+        removedChildren.forEach(child -> recompute(tree, child, false));
+
+        // Children that were not in the tree yet bring their own subtree
+        for (DbObject child : newChildren) {
+            if (!tree.labels.containsKey(key(child)))
+                refresh(tree, child.getSchema(), child.getPrimaryKeyValue());
+        }
+    }
+
+    private void remove(Tree tree, String key) {
+        tree.labels.remove(key);
+        tree.paths.remove(key);
+
+        for (String parent : new ArrayList<>(tree.parents.getOrDefault(key, Collections.emptySet())))
+            tree.unlink(parent, key);
+
+        List<String> children = new ArrayList<>(tree.children.getOrDefault(key, Collections.emptySet()));
+        for (String child : children) {
+            tree.unlink(key, child);
+            recompute(tree, child, false);
+        }
+    }
+
+    /**
+     * Recomputes the paths of a node from the paths of its parents, and then
+     * the ones of its descendants if they have changed
+     */
+    private void recompute(Tree tree, String key, boolean force) {
+        List<List<String>> paths = new ArrayList<>();
+        if (tree.isRoot(key)) {
+            paths.add(List.of(key));
+        } else {
+            for (String parent : tree.parents.getOrDefault(key, Collections.emptySet())) {
+                for (List<String> path : tree.paths.getOrDefault(parent, Collections.emptyList())) {
+                    if (path.size() <= MAX_DEPTH)
+                        paths.add(append(path, key));
+                }
+            }
+        }
+
+        List<List<String>> previous = paths.isEmpty() ? tree.paths.remove(key) : tree.paths.put(key, List.copyOf(paths));
+        if (!force && Objects.equals(previous == null ? List.of() : previous, paths))
+            return;
+
+        for (String child : new ArrayList<>(tree.children.getOrDefault(key, Collections.emptySet()))) {
+            if (!tree.isRoot(child))
+                recompute(tree, child, false);
+        }
+    }
+
+    private static String entityName(DbObjectSchema schema) {
+        return schema.getJpaRepository().getEntityName();
+    }
+
+    private static String pk(DbObjectSchema schema) {
+        return schema.getPrimaryKey().getJavaName();
+    }
+
+    private static String key(DbObject object) {
+        return key(object.getSchema().getClassName(), object.getPrimaryKeyValue());
+    }
+
+    private static String key(String className, Object id) {
+        return className + "#" + id;
+    }
+
+    private static List<String> append(List<String> path, String key) {
+        List<String> result = new ArrayList<>(path.size() + 1);
+        result.addAll(path);
+        result.add(key);
+        return List.copyOf(result);
+    }
+
+    /**
+     * A @SnapTree collection field linking parents to children
+     */
+    private static class Edge {
+        private final DbObjectSchema parent;
+        private final DbField field;
+        private final DbObjectSchema child;
+
+        Edge(DbObjectSchema parent, DbField field, DbObjectSchema child) {
+            this.parent = parent;
+            this.field = field;
+            this.child = child;
+        }
+    }
+
+    /**
+     * The index of a single tree. Nodes are identified by "className#primaryKey".
+     * Labels and paths are read by the search threads, while the links between
+     * nodes are only used by the index thread.
+     */
+    private static class Tree {
+        private final String rootClassName;
+        private final List<Edge> edges;
+        private final Set<String> classNames = new HashSet<>();
+
+        private final Map<String, String> labels = new ConcurrentHashMap<>();
+        private final Map<String, List<List<String>>> paths = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> parents = new HashMap<>();
+        private final Map<String, Set<String>> children = new HashMap<>();
+
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+        Tree(String rootClassName, List<Edge> edges) {
+            this.rootClassName = rootClassName;
+            this.edges = edges;
+            classNames.add(rootClassName);
+            edges.forEach(edge -> classNames.add(edge.child.getClassName()));
+        }
+
+        boolean isRoot(String key) {
+            return key.startsWith(rootClassName + "#");
+        }
+
+        List<Edge> edgesFrom(DbObjectSchema schema) {
+            return edges.stream().filter(edge -> edge.parent == schema).toList();
+        }
+
+        List<Edge> edgesTo(DbObjectSchema schema) {
+            return edges.stream().filter(edge -> edge.child == schema).toList();
+        }
+
+        void link(String parent, String child) {
+            children.computeIfAbsent(parent, k -> new HashSet<>()).add(child);
+            parents.computeIfAbsent(child, k -> new HashSet<>()).add(parent);
+        }
+
+        void unlink(String parent, String child) {
+            Set<String> parentChildren = children.get(parent);
+            if (parentChildren != null)
+                parentChildren.remove(child);
+
+            Set<String> childParents = parents.get(child);
+            if (childParents != null)
+                childParents.remove(parent);
+        }
+    }
+}
@@ -1,140 +1,112 @@
 package tech.ailef.snapadmin.external.service;
 
-import jakarta.persistence.ManyToMany;
-import jakarta.persistence.ManyToOne;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 import tech.ailef.snapadmin.external.SnapAdmin;
-import tech.ailef.snapadmin.external.annotations.SnapTree;
-import tech.ailef.snapadmin.external.dbmapping.DbObject;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
-import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
-import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
 import tech.ailef.snapadmin.external.dto.TreeSearchResultDTO;
 import tech.ailef.snapadmin.external.dto.TreeNodeDTO;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Service
 public class TreeSearchService {
+    /**
+     * The maximum number of matches searched in each schema
+     */
+    private static final int MAX_MATCHES_PER_SCHEMA = 50;
 
-    private final SnapAdmin snapAdmin;
-    private final SnapAdminRepository snapAdminRepository;
+    /**
+     * The maximum number of results returned, across all the schemas of the tree
+     */
+    private static final int MAX_RESULTS = 100;
 
-    public TreeSearchService(SnapAdmin snapAdmin, SnapAdminRepository snapAdminRepository) {
+    private final SnapAdmin snapAdmin;
+    private final TreePathIndex treePathIndex;
+    private final SnapAdminMetrics metrics;
+
+    /**
+     * Runs the searches on the schemas of a tree in parallel
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "snapadmin-tree-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public TreeSearchService(SnapAdmin snapAdmin, TreePathIndex treePathIndex, SnapAdminMetrics metrics) {
         this.snapAdmin = snapAdmin;
-        this.snapAdminRepository = snapAdminRepository;
+        this.treePathIndex = treePathIndex;
+        this.metrics = metrics;
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdown();
     }
 
     public List<TreeSearchResultDTO> search(String query, String rootClassName) {
-        List<TreeSearchResultDTO> results = new ArrayList<>();
+        Set<String> classNames = treePathIndex.getClassNames(rootClassName);
+        treePathIndex.awaitBuild(rootClassName);
+
+        // Only the schemas of the tree can have a path to its root
+        List<CompletableFuture<List<TreeSearchResultDTO>>> searches = snapAdmin.getSchemas().stream()
+                .filter(schema -> classNames.contains(schema.getClassName()))
+                .map(schema -> CompletableFuture.supplyAsync(() -> search(schema, query, rootClassName), executor))
+                .toList();
 
-        // 1. Iterate over all schemas
-        for (DbObjectSchema schema : snapAdmin.getSchemas()) {
-            // Perform search
-            List<DbObject> matches = snapAdminRepository.search(schema, query);
-
-            for (DbObject match : matches) {
-                // Try to find all paths to root
-                List<List<TreeNodeDTO>> paths = findPathsToRoot(match, rootClassName, 0);
-
-                for (List<TreeNodeDTO> path : paths) {
-                    // Path is [Root, Child, ..., Match]
-
-                    // Build full hierarchy path: "Root > Child > Match"
-                    String label;
-                    if (path.size() > 1) {
-                        // Include parent context with > separator
-                        String context = path.stream()
-                                .limit(path.size() - 1) // Exclude the match itself
-                                .map(TreeNodeDTO::getLabel)
-                                .collect(Collectors.joining(" > "));
-                        label = context + " > " + match.getDisplayName();
-                    } else {
-                        // No parent context, just the match
-                        label = match.getDisplayName();
-                    }
-
-                    // DTO needs list of IDs for highlighting
-                    List<String> idPath = path.stream()
-                            .map(TreeNodeDTO::getId)
-                            .collect(Collectors.toList());
-
-                    results.add(new TreeSearchResultDTO(
-                            match.getPrimaryKeyValue().toString(),
-                            label,
-                            schema.getClassName(),
-                            idPath));
-                }
+        List<TreeSearchResultDTO> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<TreeSearchResultDTO>> search : searches) {
+                List<TreeSearchResultDTO> schemaResults = search.join();
+                results.addAll(schemaResults.subList(0, Math.min(schemaResults.size(), MAX_RESULTS - results.size())));
             }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SnapAdminException cause)
+                throw cause;
+            throw new SnapAdminException(e.getCause());
         }
 
         return results;
     }
 
-    private List<List<TreeNodeDTO>> findPathsToRoot(DbObject node, String rootClassName, int depth) {
-        TreeNodeDTO currentNode = new TreeNodeDTO();
-        currentNode.setId(node.getPrimaryKeyValue().toString());
-        currentNode.setLabel(node.getDisplayName());
-        currentNode.setType(node.getSchema().getClassName());
-
-        if (depth > 5)
-            return Collections.emptyList();
+    private List<TreeSearchResultDTO> search(DbObjectSchema schema, String query, String rootClassName) {
+        List<TreeSearchResultDTO> results = new ArrayList<>();
 
-        if (node.getSchema().getClassName().equals(rootClassName)) {
-            List<TreeNodeDTO> path = new ArrayList<>();
-            path.add(currentNode);
-            return Collections.singletonList(path);
+        List<Object> ids;
+        try (Timing timing = metrics.start(SnapAdminMetrics.TREE, "search", schema)) {
+            ids = schema.getJpaRepository().searchPrimaryKeys(query, null, MAX_MATCHES_PER_SCHEMA);
         }
 
-        List<List<TreeNodeDTO>> allPaths = new ArrayList<>();
-
-        // 1. Check ManyToOne fields (Parent)
-        for (DbField field : node.getSchema().getFields()) {
-            if (field.getPrimitiveField().isAnnotationPresent(ManyToOne.class)) {
-                try {
-                    Object parentVal = node.get(field.getJavaName()).getValue();
-                    if (parentVal != null) {
-                        DbObject parent = new DbObject(parentVal, field.getConnectedSchema());
-                        List<List<TreeNodeDTO>> parentPaths = findPathsToRoot(parent, rootClassName, depth + 1);
-                        for (List<TreeNodeDTO> p : parentPaths) {
-                            List<TreeNodeDTO> newPath = new ArrayList<>(p);
-                            newPath.add(currentNode);
-                            allPaths.add(newPath);
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore error accessing field
-                }
-            }
-        }
+        for (Object id : ids) {
+            for (List<TreeNodeDTO> path : treePathIndex.findPathsToRoot(rootClassName, schema.getClassName(), id)) {
+                // The paths of an item in several subtrees can exceed the total
+                if (results.size() >= MAX_RESULTS)
+                    return results;
 
-        // 2. Check ManyToMany fields (Parent)
-        for (DbField field : node.getSchema().getFields()) {
-            // Skip if it's a child link (annotated with @SnapTree)
-            if (field.getPrimitiveField()
-                    .isAnnotationPresent(SnapTree.class)) {
-                continue;
-            }
+                // Path is [Root, Child, ..., Match], the label is "Root > Child > Match"
+                String label = path.stream()
+                        .map(TreeNodeDTO::getLabel)
+                        .collect(Collectors.joining(" > "));
+
+                // DTO needs list of IDs for highlighting
+                List<String> idPath = path.stream()
+                        .map(TreeNodeDTO::getId)
+                        .collect(Collectors.toList());
 
-            if (field.getPrimitiveField().isAnnotationPresent(ManyToMany.class)) {
-                try {
-                    // This returns a collection
-                    List<DbObject> parents = node.traverseMany(field);
-                    for (DbObject parent : parents) {
-                        List<List<TreeNodeDTO>> parentPaths = findPathsToRoot(parent, rootClassName, depth + 1);
-                        for (List<TreeNodeDTO> p : parentPaths) {
-                            List<TreeNodeDTO> newPath = new ArrayList<>(p);
-                            newPath.add(currentNode);
-                            allPaths.add(newPath);
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore
-                }
+                results.add(new TreeSearchResultDTO(id.toString(), label, schema.getClassName(), idPath));
             }
         }
 
-        return allPaths;
+        return results;
     }
 }
@@ -2,67 +2,113 @@ package tech.ailef.snapadmin.external.service;
 
 import org.springframework.stereotype.Service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.TypedQuery;
 import tech.ailef.snapadmin.external.SnapAdmin;
 import tech.ailef.snapadmin.external.annotations.SnapTree;
 import tech.ailef.snapadmin.external.dbmapping.DbObject;
 import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dbmapping.SnapAdminRepository;
+import tech.ailef.snapadmin.external.dbmapping.fields.DbField;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.external.dto.TreeConfiguration;
 import tech.ailef.snapadmin.external.dto.TreeNodeDTO;
+import tech.ailef.snapadmin.external.dto.TreeNodePageDTO;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class TreeService {
 
+    /**
+     * The number of sibling nodes loaded at a time, unless specified otherwise
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final SnapAdmin snapAdmin;
     private final TreeDiscoveryService treeDiscoveryService;
+    private final SnapAdminRepository repository;
+    private final EntityManager entityManager;
+    private final SnapAdminMetrics metrics;
 
-    public TreeService(SnapAdmin snapAdmin, TreeDiscoveryService treeDiscoveryService) {
+    public TreeService(SnapAdmin snapAdmin, TreeDiscoveryService treeDiscoveryService,
+            SnapAdminRepository repository, EntityManager entityManager, SnapAdminMetrics metrics) {
         this.snapAdmin = snapAdmin;
         this.treeDiscoveryService = treeDiscoveryService;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.metrics = metrics;
     }
 
-    public List<TreeNodeDTO> fetchRoots(String entityClassName) {
+    /**
+     * Returns a window of root nodes, sorted by primary key
+     *
+     * @param entityClassName the class name of the root entity
+     * @param cursor          the cursor returned with the previous window, null for the first one
+     * @param size            the maximum number of nodes, null for the default
+     */
+    public TreeNodePageDTO fetchRoots(String entityClassName, String cursor, Integer size) {
         DbObjectSchema schema = snapAdmin.findSchemaByClassName(entityClassName);
-        List<DbObject> objects = schema.findAll();
+        try (Timing timing = metrics.start(SnapAdminMetrics.TREE, "fetchRoots", schema)) {
+            return fetchRoots(schema, entityClassName, cursor, size);
+        }
+    }
+
+    private TreeNodePageDTO fetchRoots(DbObjectSchema schema, String entityClassName, String cursor, Integer size) {
+        int limit = pageSize(size);
+
+        List<Object> entities = schema.getJpaRepository().searchAfter(null, null, decode(schema, cursor), limit + 1);
+        List<DbObject> objects = entities.stream().map(e -> new DbObject(e, schema)).toList();
 
-        List<TreeNodeDTO> nodes = new ArrayList<>();
         TreeConfiguration treeConfig = treeDiscoveryService.getTreeForEntity(entityClassName);
 
-        for (DbObject obj : objects) {
-            TreeNodeDTO dto = toDTO(obj);
+        return toPage(schema, objects, limit, dto -> {
             // Use root icon if available
             if (treeConfig != null && treeConfig.getIcon() != null && !treeConfig.getIcon().isEmpty()) {
                 dto.setIcon(treeConfig.getIcon());
             }
             dto.setRoot(true);
-            nodes.add(dto);
-        }
-
-        return nodes;
+        });
     }
 
-    public List<TreeNodeDTO> fetchChildren(String parentClass, String parentId, String fieldName) {
+    /**
+     * Returns a window of the children of a node, sorted by primary key
+     *
+     * @param parentClass the class name of the parent entity
+     * @param parentId    the primary key of the parent entity
+     * @param fieldName   the collection field of the parent containing the children
+     * @param cursor      the cursor returned with the previous window, null for the first one
+     * @param size        the maximum number of nodes, null for the default
+     */
+    public TreeNodePageDTO fetchChildren(String parentClass, String parentId, String fieldName, String cursor,
+            Integer size) {
         DbObjectSchema parentSchema = snapAdmin.findSchemaByClassName(parentClass);
-
-        // Parse ID
-        Object id = parentSchema.getPrimaryKey().getType().parseValue(parentId);
-        Optional<?> entityOpt = parentSchema.getJpaRepository().findById(id);
-
-        if (entityOpt.isEmpty()) {
-            return new ArrayList<>();
+        try (Timing timing = metrics.start(SnapAdminMetrics.TREE, "fetchChildren", parentSchema)) {
+            return fetchChildren(parentSchema, parentId, fieldName, cursor, size);
         }
+    }
+
+    private TreeNodePageDTO fetchChildren(DbObjectSchema parentSchema, String parentId, String fieldName,
+            String cursor, Integer size) {
 
         // Validate that the field exists and is a collection relationship
-        tech.ailef.snapadmin.external.dbmapping.fields.DbField dbField = parentSchema.getFieldByJavaName(fieldName);
-        if (dbField == null) {
-            return new ArrayList<>();
+        DbField dbField = parentSchema.getFieldByJavaName(fieldName);
+        if (dbField == null || dbField.getConnectedSchema() == null) {
+            return new TreeNodePageDTO(new ArrayList<>(), null);
         }
 
         // Check if this field is a collection relationship (@OneToMany or @ManyToMany)
@@ -70,11 +116,27 @@ public class TreeService {
         boolean isManyToMany = dbField.getPrimitiveField().getAnnotation(ManyToMany.class) != null;
 
         if (!isOneToMany && !isManyToMany) {
-            return new ArrayList<>();
+            return new TreeNodePageDTO(new ArrayList<>(), null);
         }
 
-        DbObject parentObj = new DbObject(entityOpt.get(), parentSchema);
-        List<DbObject> children = parentObj.traverseMany(dbField);
+        DbObjectSchema childSchema = dbField.getConnectedSchema();
+        Object id = parentSchema.getPrimaryKey().getType().parseValue(parentId);
+        Object after = decode(childSchema, cursor);
+        int limit = pageSize(size);
+
+        // Seek on the primary key of the children, so that any window is loaded in constant time
+        String parentPk = parentSchema.getPrimaryKey().getJavaName();
+        String childPk = childSchema.getPrimaryKey().getJavaName();
+        TypedQuery<Object> query = entityManager.createQuery(
+                "SELECT c FROM " + parentSchema.getJpaRepository().getEntityName() + " p JOIN p." + fieldName
+                        + " c WHERE p." + parentPk + " = :id" + (after == null ? "" : " AND c." + childPk + " > :after")
+                        + " ORDER BY c." + childPk, Object.class)
+                .setParameter("id", id)
+                .setMaxResults(limit + 1);
+        if (after != null)
+            query.setParameter("after", after);
+
+        List<DbObject> children = query.getResultList().stream().map(e -> new DbObject(e, childSchema)).toList();
 
         // Determine icon from parent field annotation
         String childIcon = null;
@@ -87,19 +149,82 @@ public class TreeService {
             // Field not found or other error, ignore
         }
 
-        List<TreeNodeDTO> nodes = new ArrayList<>();
-        for (DbObject child : children) {
-            TreeNodeDTO dto = toDTO(child);
-            if ((dto.getIcon() == null || dto.getIcon().isEmpty()) && childIcon != null && !childIcon.isEmpty()) {
-                dto.setIcon(childIcon);
+        String icon = childIcon;
+        return toPage(childSchema, children, limit, dto -> {
+            if ((dto.getIcon() == null || dto.getIcon().isEmpty()) && icon != null && !icon.isEmpty()) {
+                dto.setIcon(icon);
             }
+        });
+    }
+
+    /**
+     * Builds the DTOs of a window of sibling nodes. The objects contain one more item
+     * than the window size if there is a next window. The relationships and the
+     * number of children of all the nodes are loaded at once.
+     */
+    private TreeNodePageDTO toPage(DbObjectSchema schema, List<DbObject> objects, int limit,
+            Consumer<TreeNodeDTO> customizer) {
+        List<DbObject> window = objects.size() > limit ? objects.subList(0, limit) : objects;
+        String nextCursor = objects.size() > limit
+                ? PageCursor.of(window.get(window.size() - 1), null).encode()
+                : null;
+
+        // Load the relationships of all the nodes at once, as the display names may use them
+        repository.prefetch(schema, window);
+        Map<Object, Long> childCounts = countChildren(schema, window);
+
+        List<TreeNodeDTO> nodes = new ArrayList<>();
+        for (DbObject obj : window) {
+            TreeNodeDTO dto = toDTO(obj, childCounts);
+            customizer.accept(dto);
             nodes.add(dto);
         }
 
-        return nodes;
+        return new TreeNodePageDTO(nodes, nextCursor);
+    }
+
+    /**
+     * Counts the children of the nodes in their first @SnapTree field,
+     * with a single grouped query
+     *
+     * @return the number of children by primary key, missing if zero
+     */
+    private Map<Object, Long> countChildren(DbObjectSchema schema, List<DbObject> objects) {
+        List<Field> childFields = treeDiscoveryService.getChildFields(schema.getJavaClass());
+        if (childFields.isEmpty() || objects.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String pk = schema.getPrimaryKey().getJavaName();
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT p." + pk + ", COUNT(c) FROM " + schema.getJpaRepository().getEntityName() + " p JOIN p."
+                        + childFields.get(0).getName() + " c WHERE p." + pk + " IN :ids GROUP BY p." + pk,
+                Object[].class)
+                .setParameter("ids", objects.stream().map(DbObject::getPrimaryKeyValue).toList())
+                .getResultList();
+
+        Map<Object, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private static Object decode(DbObjectSchema schema, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        return PageCursor.decode(cursor, null, schema.getPrimaryKey()).getPrimaryKeyValue();
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
     }
 
-    private TreeNodeDTO toDTO(DbObject obj) {
+    private TreeNodeDTO toDTO(DbObject obj, Map<Object, Long> childCounts) {
         TreeNodeDTO dto = new TreeNodeDTO();
         dto.setId(obj.getPrimaryKeyValue().toString());
         dto.setLabel(obj.getDisplayName());
@@ -114,7 +239,9 @@ public class TreeService {
         }
 
         List<Field> childFields = treeDiscoveryService.getChildFields(obj.getSchema().getJavaClass());
-        dto.setHasChildren(!childFields.isEmpty());
+        long childCount = childCounts.getOrDefault(obj.getPrimaryKeyValue(), 0L);
+        dto.setChildCount(childCount);
+        dto.setHasChildren(childCount > 0);
         if (!childFields.isEmpty()) {
             // Default to the first child field
             Field childField = childFields.get(0);
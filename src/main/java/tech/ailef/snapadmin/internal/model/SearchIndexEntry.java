@@ -0,0 +1,71 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.internal.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * An entry of the full-text search index: a word contained in the text
+ * columns of a row of a user entity. The entries are written in bulk
+ * by the search backend with plain JDBC; this class only defines the
+ * table, so that it is created along with the other internal tables.
+ */
+@Entity
+@Table(name = "snapadmin_search_index", indexes = {
+	@Index(name = "snapadmin_search_index_token", columnList = "schema_name, token"),
+	@Index(name = "snapadmin_search_index_key", columnList = "schema_name, primary_key")
+})
+public class SearchIndexEntry {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	/**
+	 * The full qualified name of the Entity class
+	 */
+	@Column(name = "schema_name", nullable = false)
+	private String schemaName;
+	
+	/**
+	 * The word, in lowercase
+	 */
+	@Column(name = "token", nullable = false, length = 64)
+	private String token;
+	
+	/**
+	 * The primary key of the row containing the word
+	 */
+	@Column(name = "primary_key", nullable = false)
+	private String primaryKey;
+	
+	public SearchIndexEntry() {
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getSchemaName() {
+		return schemaName;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public String getPrimaryKey() {
+		return primaryKey;
+	}
+}
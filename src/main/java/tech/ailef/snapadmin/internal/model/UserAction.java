@@ -17,14 +17,27 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
 
 /**
  * An write operation executed by a user from the web UI. This class
  * only holds metadata about the operation and not anything
  * concrete yet (e.g. a diff or SQL query) about what change was performed. 
+ * 
+ * The indexes serve the logs page, which lists the actions newest first,
+ * possibly within a table or user, and the pruning of the oldest actions.
+ * The time is indexed in descending order only, since H2 doesn't read
+ * indexes backwards to sort.
  */
 @Entity
+@Table(indexes = {
+	@Index(name = "snapadmin_user_action_recent", columnList = "createdAt DESC, id DESC"),
+	@Index(name = "snapadmin_user_action_table", columnList = "onTable, createdAt DESC, id DESC"),
+	@Index(name = "snapadmin_user_action_user", columnList = "username, createdAt DESC, id DESC"),
+	@Index(name = "snapadmin_user_action_item", columnList = "primaryKey, onTable")
+})
 public class UserAction {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
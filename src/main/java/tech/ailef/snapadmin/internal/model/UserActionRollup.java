@@ -0,0 +1,87 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.internal.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * The number of user actions of a type performed on a table by a user in a day.
+ * Rollups are kept when the actions are pruned from the audit log, and are used
+ * to count the actions on the logs page without scanning them.
+ */
+@Entity
+@Table(name = "snapadmin_user_action_rollup", indexes = {
+	@Index(name = "snapadmin_user_action_rollup_day", columnList = "action_day, on_table, username")
+})
+public class UserActionRollup {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "action_day", nullable = false)
+	private LocalDate day;
+	
+	@Column(name = "on_table", nullable = false)
+	private String onTable;
+	
+	@Column(name = "username", nullable = true)
+	private String username;
+	
+	@Column(name = "action_type", nullable = false)
+	private String actionType;
+	
+	/**
+	 * The number of actions
+	 */
+	@Column(name = "actions", nullable = false)
+	private long actions;
+	
+	public UserActionRollup() {
+	}
+	
+	public UserActionRollup(LocalDate day, String onTable, String username, String actionType, long actions) {
+		this.day = day;
+		this.onTable = onTable;
+		this.username = username;
+		this.actionType = actionType;
+		this.actions = actions;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public LocalDate getDay() {
+		return day;
+	}
+
+	public String getOnTable() {
+		return onTable;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getActionType() {
+		return actionType;
+	}
+
+	public long getActions() {
+		return actions;
+	}
+}
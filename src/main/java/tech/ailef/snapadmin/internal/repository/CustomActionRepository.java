@@ -8,14 +8,34 @@
 
 package tech.ailef.snapadmin.internal.repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import tech.ailef.snapadmin.external.dto.LogsSearchRequest;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.internal.model.UserAction;
+import tech.ailef.snapadmin.internal.model.UserActionRollup;
 
 public interface CustomActionRepository {
-	public List<UserAction> findActions(LogsSearchRequest r);
+	public List<UserAction> findActions(LogsSearchRequest request, PageCursor cursor, boolean backwards, int limit);
 	
-	public long countActions(LogsSearchRequest request);
+	public long countActions(LogsSearchRequest request, LocalDateTime since);
+	
+	public long countRolledUpActions(LogsSearchRequest request, LocalDate from, LocalDate to);
+	
+	public LocalDateTime findOldestTime();
+	
+	public LocalDate findLastRollupDay();
+	
+	public List<UserActionRollup> computeRollups(LocalDateTime from, LocalDateTime to);
+	
+	public void saveRollups(List<UserActionRollup> rollups);
+	
+	public LocalDateTime findOldestKeptTime(long maxRows);
+	
+	public List<UserAction> findOlderThan(LocalDateTime before, int limit);
+	
+	public int deleteActions(List<Integer> ids);
 
 }
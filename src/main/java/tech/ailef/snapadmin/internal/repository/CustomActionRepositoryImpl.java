@@ -8,97 +8,316 @@
 
 package tech.ailef.snapadmin.internal.repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import tech.ailef.snapadmin.external.dto.LogsSearchRequest;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.internal.model.UserAction;
+import tech.ailef.snapadmin.internal.model.UserActionRollup;
 
 /**
  * A repository that provides custom queries for UserActions 
  */
 @Component
 public class CustomActionRepositoryImpl implements CustomActionRepository {
+    /**
+     * The number of actions read by each query when looking for the oldest kept one
+     */
+    private static final int KEYSET_PAGE_SIZE = 1000;
 
     @PersistenceContext(unitName = "internal")
     private EntityManager entityManager;
     
     /**
-     * Finds the UserAction that match the input search request.
+     * Finds the UserAction that match the input search request, ordered by time.
      * Implemented as a custom CriteriaQuery in order to put all the filter
      * in an AND condition but ignore null value. The default JpaRepository
      * behaviour is to test for equality to NULL when an AND condition is used,
      * instead of ignoring the fields.
+     * 
+     * Pages are read from a cursor on (createdAt, id) instead of an offset, so that
+     * each page reads only its own rows from the indexes on the time.
+     * @param request	the filtering parameters
+     * @param cursor	the action at the boundary of the previous page, null for the first page
+     * @param backwards	whether to read the page before the cursor, in reverse order
+     * @param limit	the maximum number of actions to return
      */
     @Override
-    public List<UserAction> findActions(LogsSearchRequest request) {
-    	String table = request.getTable();
-    	String actionType = request.getActionType();
-    	String username = request.getUsername();
-    	String itemId = request.getItemId();
-    	PageRequest page = request.toPageRequest();
-
+    public List<UserAction> findActions(LogsSearchRequest request, PageCursor cursor, boolean backwards, int limit) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<UserAction> query = cb.createQuery(UserAction.class);
         Root<UserAction> userAction = query.from(UserAction.class);
-
-        List<Predicate> predicates = new ArrayList<Predicate>();
-        if (table != null)
-            predicates.add(cb.equal(userAction.get("onTable"), table));
-        if (actionType != null)
-            predicates.add(cb.equal(userAction.get("actionType"), actionType));
-        if (itemId != null)
-        	predicates.add(cb.equal(userAction.get("primaryKey"), itemId));
-        if (username != null)
-        	predicates.add(cb.equal(userAction.get("username"), username));
-        
-        if (!predicates.isEmpty()) {
-            query.select(userAction)
-                 .where(cb.and(
-                            predicates.toArray(new Predicate[predicates.size()])));
-        }
+        Path<LocalDateTime> createdAt = userAction.get("createdAt");
+        Path<Integer> id = userAction.get("id");
         
-        if (request.getSortKey() != null) {
-        	String key = request.getSortKey();
-        	if (request.getSortOrder().equalsIgnoreCase("ASC")) {
-        		query.orderBy(cb.asc(userAction.get(key)));
+        boolean descending = request.isAscending() == backwards;
+
+        List<Predicate> predicates = filter(cb, userAction, request);
+        if (cursor != null) {
+        	LocalDateTime time = (LocalDateTime)cursor.getSortValue();
+        	Integer actionId = (Integer)cursor.getPrimaryKeyValue();
+        	// The first condition is implied by the second, but it's what lets the index be used
+        	if (descending) {
+        		predicates.add(cb.lessThanOrEqualTo(createdAt, time));
+        		predicates.add(cb.or(cb.lessThan(createdAt, time), 
+        				cb.and(cb.equal(createdAt, time), cb.lessThan(id, actionId))));
         	} else {
-        		query.orderBy(cb.desc(userAction.get(key)));
+        		predicates.add(cb.greaterThanOrEqualTo(createdAt, time));
+        		predicates.add(cb.or(cb.greaterThan(createdAt, time), 
+        				cb.and(cb.equal(createdAt, time), cb.greaterThan(id, actionId))));
         	}
         }
         
+        query.select(userAction)
+             .where(cb.and(predicates.toArray(new Predicate[predicates.size()])));
+        
+        List<Order> order = new ArrayList<>();
+        // Sorting by the filtered column too, though constant, lets H2 read the
+        // page in order from the index on the user or table and stop there
+        if (request.getUsername() != null)
+        	order.add(cb.asc(userAction.get("username")));
+        else if (request.getTable() != null)
+        	order.add(cb.asc(userAction.get("onTable")));
+        
+        if (descending) {
+        	order.add(cb.desc(createdAt));
+        	order.add(cb.desc(id));
+        } else {
+        	order.add(cb.asc(createdAt));
+        	order.add(cb.asc(id));
+        }
+        query.orderBy(order);
+        
         return entityManager.createQuery(query)
-        			.setMaxResults(page.getPageSize())
-        			.setFirstResult((int)page.getOffset())
+        			.setMaxResults(limit)
         			.getResultList();
     }
     
     /**
-     * Returns the count that match the filtering parameters, used for pagination.
+     * Returns the count that match the filtering parameters.
+     * @param request	the filtering parameters
+     * @param since	the time from which to count the actions, null to count all of them
      * @return the number of user actions matching the filtering parameters
      */
     @Override
-    public long countActions(LogsSearchRequest request) {
-
+    public long countActions(LogsSearchRequest request, LocalDateTime since) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> query = cb.createQuery(Long.class);
         Root<UserAction> userAction = query.from(UserAction.class);
 
-        String table = request.getTable();
-        String actionType = request.getActionType();
-        String itemId = request.getItemId();
-        String username = request.getUsername();
+        List<Predicate> predicates = filter(cb, userAction, request);
+        if (since != null)
+        	predicates.add(cb.greaterThanOrEqualTo(userAction.get("createdAt"), since));
+        
+        query.select(cb.count(userAction))
+             .where(cb.and(predicates.toArray(new Predicate[predicates.size()])));
+        
+        return entityManager.createQuery(query).getSingleResult();
+    }
+    
+    /**
+     * Returns the number of actions matching the filtering parameters from the daily rollups.
+     * The item id filter can't be applied, since rollups don't have it.
+     * @param request	the filtering parameters
+     * @param from	the first day, inclusive
+     * @param to	the last day, inclusive
+     * @return the number of user actions in the rollups
+     */
+    @Override
+    public long countRolledUpActions(LogsSearchRequest request, LocalDate from, LocalDate to) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<UserActionRollup> rollup = query.from(UserActionRollup.class);
         
         List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.between(rollup.get("day"), from, to));
+        if (request.getTable() != null)
+            predicates.add(cb.equal(rollup.get("onTable"), request.getTable()));
+        if (request.getActionType() != null)
+            predicates.add(cb.equal(rollup.get("actionType"), request.getActionType()));
+        if (request.getUsername() != null)
+        	predicates.add(cb.equal(rollup.get("username"), request.getUsername()));
+        
+        query.select(cb.coalesce(cb.sumAsLong(rollup.get("actions")), 0L))
+             .where(cb.and(predicates.toArray(new Predicate[predicates.size()])));
+        
+        return entityManager.createQuery(query).getSingleResult();
+    }
+    
+    /**
+     * Returns the time of the oldest action in the audit log, or null if it's empty
+     */
+    @Override
+    public LocalDateTime findOldestTime() {
+    	return entityManager.createQuery("SELECT MIN(a.createdAt) FROM UserAction a", LocalDateTime.class)
+    				.getSingleResult();
+    }
+    
+    /**
+     * Returns the last day that has been rolled up, or null if none has
+     */
+    @Override
+    public LocalDate findLastRollupDay() {
+    	return entityManager.createQuery("SELECT MAX(r.day) FROM UserActionRollup r", LocalDate.class)
+    				.getSingleResult();
+    }
+    
+    /**
+     * Counts the actions by day, table, user and action type in a time range
+     * @param from	the start of the range, inclusive
+     * @param to	the end of the range, exclusive
+     * @return the rollups, not persisted yet
+     */
+    @Override
+    public List<UserActionRollup> computeRollups(LocalDateTime from, LocalDateTime to) {
+    	return entityManager.createQuery(
+    				"SELECT CAST(a.createdAt AS LocalDate), a.onTable, a.username, a.actionType, COUNT(a) "
+    				+ "FROM UserAction a WHERE a.createdAt >= :from AND a.createdAt < :to "
+    				+ "GROUP BY CAST(a.createdAt AS LocalDate), a.onTable, a.username, a.actionType", Object[].class)
+    			.setParameter("from", from)
+    			.setParameter("to", to)
+    			.getResultStream()
+    			.map(row -> new UserActionRollup((LocalDate)row[0], (String)row[1], (String)row[2], 
+    					(String)row[3], (Long)row[4]))
+    			.toList();
+    }
+    
+    /**
+     * Saves the rollups computed by {@link #computeRollups(LocalDateTime, LocalDateTime)}
+     */
+    @Override
+    public void saveRollups(List<UserActionRollup> rollups) {
+    	rollups.forEach(entityManager::persist);
+    }
+    
+    /**
+     * Returns the time of the oldest action among the newest `maxRows` ones, or null
+     * if there are fewer actions. The rollups hold the number of actions of each day
+     * that has been rolled up, so the day of that action is found from them and only
+     * the actions of that day are read, newest first from the index on the time.
+     * Rollups also count the actions that have been pruned since, so the action may
+     * not be found on that day, in which case there are fewer than `maxRows` actions.
+     */
+    @Override
+    public LocalDateTime findOldestKeptTime(long maxRows) {
+    	LocalDate lastRollupDay = findLastRollupDay();
+    	LocalDateTime notRolledUp = lastRollupDay == null ? null : lastRollupDay.plusDays(1).atStartOfDay();
+    	
+    	long kept = countSince(notRolledUp);
+    	if (kept >= maxRows || lastRollupDay == null)
+    		return findNewest(notRolledUp, null, maxRows);
+    	
+    	List<Object[]> days = entityManager.createQuery(
+    				"SELECT r.day, SUM(r.actions) FROM UserActionRollup r GROUP BY r.day ORDER BY r.day DESC", Object[].class)
+    			.getResultList();
+    	for (Object[] day : days) {
+    		LocalDate date = (LocalDate)day[0];
+    		long actions = (Long)day[1];
+    		if (kept + actions >= maxRows)
+    			return findNewest(date.atStartOfDay(), date.plusDays(1).atStartOfDay(), maxRows - kept);
+    		kept += actions;
+    	}
+    	
+    	return null;
+    }
+    
+    private long countSince(LocalDateTime from) {
+    	if (from == null)
+    		return entityManager.createQuery("SELECT COUNT(a) FROM UserAction a", Long.class).getSingleResult();
+    	
+    	return entityManager.createQuery("SELECT COUNT(a) FROM UserAction a WHERE a.createdAt >= :from", Long.class)
+    			.setParameter("from", from)
+    			.getSingleResult();
+    }
+    
+    /**
+     * Returns the time of the n-th newest action in a time range, seeking past
+     * each page of actions by time and id instead of skipping them with an offset
+     * @param from	the start of the range, inclusive, null for no start
+     * @param to	the end of the range, exclusive, null for no end
+     * @param n	the position of the action, starting from 1
+     * @return the time, or null if there are fewer than `n` actions in the range
+     */
+    private LocalDateTime findNewest(LocalDateTime from, LocalDateTime to, long n) {
+    	String range = (from != null ? " AND a.createdAt >= :from" : "") + (to != null ? " AND a.createdAt < :to" : "");
+    	
+    	Object[] last = null;
+    	long seen = 0;
+    	while (true) {
+    		int pageSize = (int)Math.min(KEYSET_PAGE_SIZE, n - seen);
+    		TypedQuery<Object[]> query = entityManager.createQuery(
+    				"SELECT a.createdAt, a.id FROM UserAction a WHERE 1 = 1" + range
+    				+ (last != null ? " AND (a.createdAt < :lastTime OR (a.createdAt = :lastTime AND a.id < :lastId))" : "")
+    				+ " ORDER BY a.createdAt DESC, a.id DESC", Object[].class)
+    			.setMaxResults(pageSize);
+    		if (from != null)
+    			query.setParameter("from", from);
+    		if (to != null)
+    			query.setParameter("to", to);
+    		if (last != null)
+    			query.setParameter("lastTime", last[0]).setParameter("lastId", last[1]);
+    		
+    		List<Object[]> page = query.getResultList();
+    		if (page.size() < pageSize)
+    			return null;
+    		
+    		seen += page.size();
+    		last = page.get(page.size() - 1);
+    		if (seen == n)
+    			return (LocalDateTime)last[0];
+    	}
+    }
+    
+    /**
+     * Returns some of the actions before the given time, in no particular order
+     * @param before	the time before which to look for actions, exclusive
+     * @param limit	the maximum number of actions to return
+     */
+    @Override
+    public List<UserAction> findOlderThan(LocalDateTime before, int limit) {
+    	return entityManager.createQuery(
+    				"SELECT a FROM UserAction a WHERE a.createdAt < :before", UserAction.class)
+    			.setParameter("before", before)
+    			.setMaxResults(limit)
+    			.getResultList();
+    }
+    
+    /**
+     * Deletes actions by id
+     * @return the number of deleted actions
+     */
+    @Override
+    public int deleteActions(List<Integer> ids) {
+    	if (ids.isEmpty()) return 0;
+    	return entityManager.createQuery("DELETE FROM UserAction a WHERE a.id IN :ids")
+    				.setParameter("ids", ids)
+    				.executeUpdate();
+    }
+    
+    /**
+     * Builds the predicates for the filters of a request, null values are ignored
+     */
+    private List<Predicate> filter(CriteriaBuilder cb, Root<UserAction> userAction, LogsSearchRequest request) {
+    	String table = request.getTable();
+    	String actionType = request.getActionType();
+    	String username = request.getUsername();
+    	String itemId = request.getItemId();
+    	
+        List<Predicate> predicates = new ArrayList<Predicate>();
         if (table != null)
             predicates.add(cb.equal(userAction.get("onTable"), table));
         if (actionType != null)
@@ -107,16 +326,12 @@ public class CustomActionRepositoryImpl implements CustomActionRepository {
         	predicates.add(cb.equal(userAction.get("primaryKey"), itemId));
         if (username != null)
         	predicates.add(cb.equal(userAction.get("username"), username));
+        if (request.getFrom() != null)
+        	predicates.add(cb.greaterThanOrEqualTo(userAction.get("createdAt"), request.getFrom().atStartOfDay()));
+        if (request.getTo() != null)
+        	predicates.add(cb.lessThan(userAction.get("createdAt"), request.getTo().plusDays(1).atStartOfDay()));
         
-        if (!predicates.isEmpty()) {
-            query.select(cb.count(userAction))
-                 .where(cb.and(
-                            predicates.toArray(new Predicate[predicates.size()])));
-        } else {
-        	query.select(cb.count(userAction));
-        }
-        
-        return entityManager.createQuery(query).getSingleResult();
+        return predicates;
     }
 
 }
\ No newline at end of file
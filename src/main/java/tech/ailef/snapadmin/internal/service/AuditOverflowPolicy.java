@@ -0,0 +1,29 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.internal.service;
+
+/**
+ * What to do when the queue of user actions waiting to be written
+ * to the audit log is full.
+ */
+public enum AuditOverflowPolicy {
+	/**
+	 * Block the request until there's room in the queue
+	 */
+	BLOCK,
+	/**
+	 * Discard the user action, logging a warning
+	 */
+	DROP,
+	/**
+	 * Append the user action to a local file, which is written to
+	 * the audit log when the queue is empty again
+	 */
+	SPILL;
+}
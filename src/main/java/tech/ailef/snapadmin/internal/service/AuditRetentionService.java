@@ -0,0 +1,227 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.internal.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+import tech.ailef.snapadmin.internal.model.UserAction;
+import tech.ailef.snapadmin.internal.model.UserActionRollup;
+import tech.ailef.snapadmin.internal.repository.CustomActionRepositoryImpl;
+
+/**
+ * Keeps the audit log from growing forever. Every `auditMaintenanceInterval` minutes
+ * the days completed since the last run are rolled up in {@link UserActionRollup}s,
+ * then the actions older than `auditRetentionDays` and the oldest ones beyond
+ * `auditMaxRows` are deleted, `auditPruneChunkSize` at a time in separate transactions.
+ *
+ * Only the days before the current one are rolled up, and so only their actions are
+ * pruned: the actions of the current day are kept even if they exceed `auditMaxRows`.
+ *
+ * If `auditArchiveDir` is set, the pruned actions are first appended to a gzipped JSON
+ * lines file in that directory, one per run. A chunk is only deleted once it has been
+ * written, so an action is archived at least once.
+ */
+@Component
+public class AuditRetentionService {
+	private static final Logger logger = LoggerFactory.getLogger(AuditRetentionService.class);
+
+	private static final DateTimeFormatter ARCHIVE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	@Autowired
+	private SnapAdminProperties properties;
+
+	@Autowired
+	private TransactionTemplate internalTransactionTemplate;
+
+	@Autowired
+	private CustomActionRepositoryImpl customRepo;
+
+	@Autowired
+	private SnapAdminMetrics metrics;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	private final AtomicLong pruned = new AtomicLong();
+
+	private final AtomicLong archived = new AtomicLong();
+
+	private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "snapadmin-audit-retention");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		metrics.counter("snapadmin.audit.pruned", pruned, AtomicLong::get);
+		metrics.counter("snapadmin.audit.archived", archived, AtomicLong::get);
+
+		int interval = Math.max(1, properties.getAuditMaintenanceInterval());
+		scheduler.scheduleWithFixedDelay(this::run, 0, interval, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void close() {
+		scheduler.shutdownNow();
+	}
+
+	private void run() {
+		try {
+			rollup();
+			prune();
+		} catch (RuntimeException e) {
+			logger.error("Unable to prune the audit log", e);
+		}
+	}
+
+	/**
+	 * Rolls up the days after the last rolled up one, up to yesterday. The days
+	 * already rolled up are not computed again, since they may have been pruned.
+	 */
+	void rollup() {
+		LocalDate lastDay = customRepo.findLastRollupDay();
+		LocalDateTime from;
+		if (lastDay == null) {
+			LocalDateTime oldest = customRepo.findOldestTime();
+			if (oldest == null) return;
+			from = oldest.toLocalDate().atStartOfDay();
+		} else {
+			from = lastDay.plusDays(1).atStartOfDay();
+		}
+
+		LocalDateTime to = LocalDate.now().atStartOfDay();
+		if (!from.isBefore(to)) return;
+
+		try (Timing timing = metrics.start(SnapAdminMetrics.AUDIT, "rollup")) {
+			internalTransactionTemplate.executeWithoutResult(status -> {
+				customRepo.saveRollups(customRepo.computeRollups(from, to));
+			});
+		}
+	}
+
+	/**
+	 * Deletes the actions older than the retention time, then the ones older
+	 * than the newest `auditMaxRows`. Actions with the same time as the oldest
+	 * kept one are kept as well.
+	 */
+	void prune() {
+		int retentionDays = properties.getAuditRetentionDays();
+		long maxRows = properties.getAuditMaxRows();
+		if (retentionDays <= 0 && maxRows <= 0) return;
+
+		try (Timing timing = metrics.start(SnapAdminMetrics.AUDIT, "prune");
+			Archive archive = new Archive()) {
+			if (retentionDays > 0)
+				delete(LocalDateTime.now().minusDays(retentionDays), archive);
+
+			if (maxRows > 0) {
+				LocalDateTime oldestKept = customRepo.findOldestKeptTime(maxRows);
+				LocalDateTime today = LocalDate.now().atStartOfDay();
+				if (oldestKept != null)
+					delete(oldestKept.isBefore(today) ? oldestKept : today, archive);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Deletes all the actions before the given time, in chunks
+	 * @param before	the time before which to delete the actions
+	 * @param archive	where to write the actions before deleting them
+	 */
+	private void delete(LocalDateTime before, Archive archive) {
+		int chunk = Math.max(1, properties.getAuditPruneChunkSize());
+
+		long deleted = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			int count = internalTransactionTemplate.execute(status -> {
+				List<UserAction> actions = customRepo.findOlderThan(before, chunk);
+				archive.write(actions);
+				return customRepo.deleteActions(actions.stream().map(UserAction::getId).toList());
+			});
+
+			deleted += count;
+			pruned.addAndGet(count);
+			if (count < chunk) break;
+		}
+
+		if (deleted > 0)
+			logger.info("Pruned " + deleted + " user actions older than " + before + " from the audit log");
+	}
+
+	/**
+	 * The file where the actions pruned in a run are archived, created when the first
+	 * action is written. Does nothing if `auditArchiveDir` is not set.
+	 */
+	private class Archive implements AutoCloseable {
+		private BufferedWriter writer;
+
+		void write(List<UserAction> actions) {
+			String dir = properties.getAuditArchiveDir();
+			if (dir == null || dir.isBlank() || actions.isEmpty()) return;
+
+			try {
+				if (writer == null) {
+					Path directory = Path.of(dir);
+					Files.createDirectories(directory);
+					Path file = directory.resolve("user_actions-" + ARCHIVE_NAME.format(LocalDateTime.now()) + ".jsonl.gz");
+					writer = new BufferedWriter(new OutputStreamWriter(
+						new GZIPOutputStream(Files.newOutputStream(file), true), StandardCharsets.UTF_8));
+				}
+
+				for (UserAction action : actions) {
+					writer.write(mapper.writeValueAsString(action));
+					writer.newLine();
+				}
+				// Make sure the chunk is on disk before it's deleted
+				writer.flush();
+				archived.addAndGet(actions.size());
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to archive user actions to " + dir, e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (writer != null)
+				writer.close();
+		}
+	}
+}
@@ -8,19 +8,23 @@
 
 package tech.ailef.snapadmin.internal.service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionTemplate;
 
 import tech.ailef.snapadmin.external.dto.LogsSearchRequest;
+import tech.ailef.snapadmin.external.dto.PageCursor;
 import tech.ailef.snapadmin.external.dto.PaginatedResult;
 import tech.ailef.snapadmin.external.dto.PaginationInfo;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
 import tech.ailef.snapadmin.internal.model.UserAction;
 import tech.ailef.snapadmin.internal.repository.CustomActionRepositoryImpl;
-import tech.ailef.snapadmin.internal.repository.UserActionRepository;
 
 /**
  * Service class to retrieve user actions through the {@link CustomActionRepositoryImpl}. 
@@ -29,36 +33,99 @@ import tech.ailef.snapadmin.internal.repository.UserActionRepository;
 @Service
 public class UserActionService {
 	@Autowired
-	private UserActionRepository repo;
+	private CustomActionRepositoryImpl customRepo;
 	
 	@Autowired
-	private CustomActionRepositoryImpl customRepo;
+	private UserActionWriter writer;
 	
 	@Autowired
-	private TransactionTemplate internalTransactionTemplate;
+	private SnapAdminMetrics metrics;
 	
-	public UserAction save(UserAction a) {
-		return internalTransactionTemplate.execute(status -> {
-			return repo.save(a);
-		});
+	/**
+	 * Saves a user action to the audit log. The action is written
+	 * asynchronously by the {@link UserActionWriter}.
+	 * @param a	the action to save
+	 */
+	public void save(UserAction a) {
+		writer.submit(a);
 	}
 	
 	/**
 	 * Retruns a page of results of user actions that match the given input request.
+	 * The page is read from the cursor in the request, and the total is counted from
+	 * the daily rollups plus the actions since the last rolled up day, so that neither
+	 * depends on the size of the audit log.
 	 * @param request a request containing filtering parameters for user actions
 	 * @return a page of results matching the input request
 	 */
 	public PaginatedResult<UserAction> findActions(LogsSearchRequest request) {
-		PageRequest page = request.toPageRequest();
+		try (Timing timing = metrics.start(SnapAdminMetrics.AUDIT, "findActions")) {
+			int pageSize = request.toPageRequest().getPageSize();
+			boolean backwards = request.getBefore() != null;
+			String token = backwards ? request.getBefore() : request.getAfter();
+			PageCursor cursor = token == null ? null : PageCursor.decode(token, LocalDateTime::parse, Integer::valueOf);
+			
+			// Fetch one more action to know whether there's another page in the same direction
+			List<UserAction> actions = new ArrayList<>(customRepo.findActions(request, cursor, backwards, pageSize + 1));
+			boolean hasMore = actions.size() > pageSize;
+			if (hasMore)
+				actions.remove(actions.size() - 1);
+			if (backwards)
+				Collections.reverse(actions);
+			
+			boolean hasNext = backwards || hasMore;
+			boolean hasPrevious = backwards ? hasMore : cursor != null;
+			
+			PaginationInfo pagination = count(request, pageSize);
+			if (actions.isEmpty()) {
+				pagination.setCursors(request.getSortKey(), request.getSortOrder(), null, null);
+			} else {
+				pagination.setCursors(
+					request.getSortKey(), request.getSortOrder(),
+					hasPrevious ? cursorOf(actions.get(0)) : null,
+					hasNext ? cursorOf(actions.get(actions.size() - 1)) : null
+				);
+			}
+			
+			return new PaginatedResult<>(pagination, actions);
+		}
+	}
+	
+	/**
+	 * Counts the actions matching a request. Filtering by item can't use the rollups,
+	 * but it's selective enough to count the actions directly.
+	 */
+	private PaginationInfo count(LogsSearchRequest request, int pageSize) {
+		long count;
+		boolean estimated = false;
 		
-		long count = customRepo.countActions(request);
-		List<UserAction> actions = customRepo.findActions(request);
-		int maxPage = (int)(Math.ceil ((double)count / page.getPageSize()));
+		LocalDate lastRollupDay = request.getItemId() == null ? customRepo.findLastRollupDay() : null;
+		if (lastRollupDay == null) {
+			count = customRepo.countActions(request, null);
+		} else {
+			// Rollups are kept after the actions are pruned, only count the days still in the log
+			LocalDateTime oldest = customRepo.findOldestTime();
+			LocalDate from = oldest == null ? lastRollupDay.plusDays(1) : oldest.toLocalDate();
+			if (request.getFrom() != null && request.getFrom().isAfter(from))
+				from = request.getFrom();
+			LocalDate to = lastRollupDay;
+			if (request.getTo() != null && request.getTo().isBefore(to))
+				to = request.getTo();
+			
+			long rolledUp = from.isAfter(to) ? 0 : customRepo.countRolledUpActions(request, from, to);
+			count = rolledUp + customRepo.countActions(request, lastRollupDay.plusDays(1).atStartOfDay());
+			// The oldest day may have been pruned partially
+			estimated = rolledUp > 0;
+		}
 		
-		return new PaginatedResult<>(
-			new PaginationInfo(page.getPageNumber() + 1, maxPage, page.getPageSize(), count, null, request),
-			actions
-		);
+		int maxPage = (int)(Math.ceil ((double)count / pageSize));
+		PaginationInfo pagination = new PaginationInfo(1, maxPage, pageSize, count, null, request);
+		pagination.setEstimated(estimated);
+		return pagination;
+	}
+	
+	private String cursorOf(UserAction action) {
+		return new PageCursor(action.getCreatedAt(), action.getId()).encode();
 	}
 	
 }
@@ -0,0 +1,337 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.internal.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.exceptions.SnapAdminException;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics.Timing;
+import tech.ailef.snapadmin.internal.model.UserAction;
+
+/**
+ * Writes user actions to the audit log in the background. Actions are put in a
+ * bounded queue and a writer thread inserts them in JDBC batches, either when a
+ * batch is full or when the flush interval has elapsed since the first action
+ * of the batch. When the queue is full, the configured {@link AuditOverflowPolicy}
+ * is applied. The queue is drained when the application shuts down.
+ */
+@Component
+public class UserActionWriter {
+	private static final Logger logger = LoggerFactory.getLogger(UserActionWriter.class);
+	
+	/**
+	 * The fields of {@link UserAction} inserted by the writer, in order
+	 */
+	private static final String[] COLUMNS = {
+		"createdAt", "sql", "javaClass", "onTable", "primaryKey", "actionType", "username"
+	};
+	
+	/**
+	 * How long to wait for the queue to be drained on shutdown
+	 */
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+	
+	@Autowired
+	private SnapAdminProperties properties;
+	
+	@Autowired
+	private TransactionTemplate internalTransactionTemplate;
+	
+	@Autowired
+	@Qualifier("internalDataSource")
+	private DataSource internalDataSource;
+	
+	@PersistenceUnit(unitName = "internal")
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	private SnapAdminMetrics metrics;
+	
+	@Autowired
+	private ObjectMapper mapper;
+	
+	private BlockingQueue<UserAction> queue;
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	private String insertSql;
+	
+	private ObjectReader spillReader;
+	
+	private Thread writerThread;
+	
+	private volatile boolean running;
+	
+	/**
+	 * Guards the spill file, which is appended to by request threads
+	 * and read back by the writer thread
+	 */
+	private final Object spillLock = new Object();
+	
+	private final AtomicLong dropped = new AtomicLong();
+	
+	@PostConstruct
+	private void start() {
+		this.queue = new ArrayBlockingQueue<>(properties.getAuditQueueCapacity());
+		this.jdbcTemplate = new JdbcTemplate(internalDataSource);
+		this.insertSql = buildInsertSql();
+		this.spillReader = mapper.readerFor(UserAction.class)
+			.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		
+		metrics.gauge("snapadmin.audit.queue.size", queue, BlockingQueue::size);
+		metrics.gauge("snapadmin.audit.dropped", dropped, AtomicLong::get);
+		
+		this.running = true;
+		this.writerThread = new Thread(this::run, "snapadmin-audit-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+	
+	/**
+	 * Stops accepting actions in the queue and waits for the 
+	 * writer thread to write the remaining ones
+	 */
+	@PreDestroy
+	private void stop() {
+		running = false;
+		try {
+			writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if (!queue.isEmpty()) {
+			logger.warn("Audit log writer did not finish in time, spilling " + queue.size() + " actions to file");
+			List<UserAction> remaining = new ArrayList<>();
+			queue.drainTo(remaining);
+			spill(remaining);
+		}
+	}
+	
+	/**
+	 * Adds a user action to the queue of actions to write
+	 * @param action	the action to write
+	 */
+	public void submit(UserAction action) {
+		if (!running) {
+			// Shutting down, write it directly
+			write(List.of(action));
+			return;
+		}
+		
+		switch (properties.getAuditOverflowPolicy()) {
+			case BLOCK:
+				try {
+					queue.put(action);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SnapAdminException("Interrupted while saving user action", e);
+				}
+				break;
+			case DROP:
+				if (!queue.offer(action)) {
+					long count = dropped.incrementAndGet();
+					logger.warn("Audit log queue is full, dropped user action " + action.getActionType() 
+						+ " on " + action.getOnTable() + " (" + count + " dropped so far)");
+				}
+				break;
+			case SPILL:
+				if (!queue.offer(action))
+					spill(List.of(action));
+				break;
+		}
+	}
+	
+	/**
+	 * Returns the number of actions waiting to be written
+	 * @return
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+	
+	/**
+	 * Returns the number of actions dropped because the queue was full
+	 * @return
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+	
+	private void run() {
+		int batchSize = properties.getAuditBatchSize();
+		long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAuditFlushInterval());
+		
+		replaySpill();
+		
+		List<UserAction> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				UserAction first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+				if (first == null) {
+					// Idle, a good time to write back anything that has been spilled
+					replaySpill();
+					continue;
+				}
+				
+				batch.add(first);
+				long deadline = System.nanoTime() + flushIntervalNanos;
+				while (batch.size() < batchSize && running) {
+					queue.drainTo(batch, batchSize - batch.size());
+					if (batch.size() >= batchSize) break;
+					
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) break;
+					
+					UserAction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) break;
+					batch.add(next);
+				}
+				// On shutdown, write as much as possible in each batch
+				queue.drainTo(batch, batchSize - batch.size());
+				
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				running = false;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Inserts a batch of actions in a single transaction. If the insert fails,
+	 * the actions are spilled to file so they can be retried later.
+	 */
+	private void write(List<UserAction> batch) {
+		if (batch.isEmpty()) return;
+		
+		try (Timing timing = metrics.start(SnapAdminMetrics.AUDIT, "write")) {
+			internalTransactionTemplate.executeWithoutResult(status -> {
+				jdbcTemplate.batchUpdate(insertSql, batch, batch.size(), (ps, a) -> {
+					ps.setTimestamp(1, a.getCreatedAt() == null ? null : Timestamp.valueOf(a.getCreatedAt()));
+					ps.setString(2, a.getSql());
+					ps.setString(3, a.getJavaClass());
+					ps.setString(4, a.getOnTable());
+					ps.setString(5, a.getPrimaryKey());
+					ps.setString(6, a.getActionType());
+					ps.setString(7, a.getUsername());
+				});
+			});
+		} catch (RuntimeException e) {
+			logger.error("Unable to write " + batch.size() + " user actions to the audit log, spilling them to file", e);
+			spill(batch);
+		}
+	}
+	
+	/**
+	 * Appends actions to the spill file, one JSON object per line
+	 */
+	private void spill(List<UserAction> actions) {
+		Path file = Path.of(properties.getAuditSpillFile());
+		
+		synchronized (spillLock) {
+			try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, 
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				for (UserAction action : actions) {
+					writer.write(mapper.writeValueAsString(action));
+					writer.newLine();
+				}
+			} catch (IOException e) {
+				logger.error("Unable to spill " + actions.size() + " user actions to " + file, e);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the actions in the spill file to the audit log and deletes the file.
+	 * If writing fails, the actions are spilled again.
+	 */
+	private void replaySpill() {
+		Path file = Path.of(properties.getAuditSpillFile());
+		
+		List<UserAction> actions = new ArrayList<>();
+		synchronized (spillLock) {
+			if (!Files.exists(file)) return;
+			
+			try {
+				for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+					if (line.isBlank()) continue;
+					UserAction action = spillReader.readValue(line);
+					action.setId(null);
+					actions.add(action);
+				}
+				Files.delete(file);
+			} catch (IOException e) {
+				logger.error("Unable to read spilled user actions from " + file, e);
+				return;
+			}
+		}
+		
+		logger.info("Writing " + actions.size() + " spilled user actions to the audit log");
+		int batchSize = properties.getAuditBatchSize();
+		for (int i = 0; i < actions.size(); i += batchSize) {
+			write(actions.subList(i, Math.min(actions.size(), i + batchSize)));
+		}
+	}
+	
+	/**
+	 * Builds the insert statement from the table and column names
+	 * mapped by Hibernate for {@link UserAction}
+	 */
+	private String buildInsertSql() {
+		AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+			.unwrap(SessionFactoryImplementor.class)
+			.getMappingMetamodel()
+			.getEntityDescriptor(UserAction.class);
+		
+		List<String> columns = new ArrayList<>();
+		for (String field : COLUMNS) {
+			columns.add(persister.getPropertyColumnNames(field)[0]);
+		}
+		
+		return "INSERT INTO " + persister.getTableName() + " (" + String.join(", ", columns) + ") VALUES ("
+			+ String.join(", ", columns.stream().map(c -> "?").toList()) + ")";
+	}
+}
@@ -5,6 +5,16 @@ document.addEventListener("DOMContentLoaded", () => {
 		}
 	});
 
+	// While the query is running, allow to cancel it
+	let cancelBtn = document.querySelector("#console-cancel-btn");
+	document.querySelector("#console-run-form").addEventListener("submit", () => {
+		cancelBtn.classList.remove("d-none");
+	});
+	cancelBtn.addEventListener("click", (e) => {
+		e.preventDefault();
+		fetch(cancelBtn.dataset.cancelUrl, { method: "POST" });
+	});
+
 	if (document.querySelector("nav select.page-size") != null) {
 		document.querySelectorAll("nav select.page-size").forEach(e => {
 			e.addEventListener('change', function(e) {
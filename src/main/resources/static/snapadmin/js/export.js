@@ -0,0 +1,49 @@
+document.addEventListener("DOMContentLoaded", () => {
+	const container = document.getElementById("export-job");
+	if (!container) return;
+
+	const url = container.dataset.url;
+	const cancelButton = document.getElementById("export-cancel");
+
+	cancelButton.addEventListener("click", () => {
+		cancelButton.disabled = true;
+		fetch(cancelButton.dataset.url, { method: "POST" });
+	});
+
+	const update = async () => {
+		const response = await fetch(url);
+		if (!response.ok) return;
+		const job = await response.json();
+
+		const bar = document.getElementById("export-progress");
+		if (job.progress >= 0) {
+			bar.style.width = `${job.progress}%`;
+			bar.textContent = `${job.progress}%`;
+		}
+		if (job.finished) {
+			bar.classList.remove("progress-bar-animated", "progress-bar-striped");
+			bar.classList.add(job.status == "COMPLETED" ? "bg-success" : "bg-danger");
+			bar.style.width = "100%";
+			cancelButton.classList.add("d-none");
+		}
+		if (job.status == "COMPLETED")
+			document.getElementById("export-download").classList.remove("d-none");
+
+		document.getElementById("export-status").textContent = job.status;
+		document.getElementById("export-rows").textContent = job.rows;
+		document.getElementById("export-total").textContent = job.totalRows >= 0 ? job.totalRows : "-";
+		document.getElementById("export-elapsed").textContent = (job.elapsedMillis / 1000).toFixed(1);
+		document.getElementById("export-eta").textContent = job.etaSeconds >= 0 ? job.etaSeconds : "-";
+
+		if (job.message) {
+			const message = document.getElementById("export-message");
+			message.textContent = job.message;
+			message.classList.remove("d-none");
+		}
+
+		if (!job.finished)
+			setTimeout(update, 1000);
+	};
+
+	update();
+});
@@ -0,0 +1,57 @@
+document.addEventListener("DOMContentLoaded", () => {
+	const container = document.getElementById("import-job");
+	if (!container) return;
+
+	const url = container.dataset.url;
+	let shownErrors = 0;
+
+	const update = async () => {
+		const response = await fetch(url);
+		if (!response.ok) return;
+		const job = await response.json();
+
+		const bar = document.getElementById("import-progress");
+		if (job.progress >= 0) {
+			bar.style.width = `${job.progress}%`;
+			bar.textContent = `${job.progress}%`;
+		}
+		if (job.finished) {
+			bar.classList.remove("progress-bar-animated", "progress-bar-striped");
+			bar.classList.add(job.status == "COMPLETED" ? "bg-success" : "bg-danger");
+			bar.style.width = "100%";
+		}
+
+		document.getElementById("import-status").textContent = job.status;
+		document.getElementById("import-processed").textContent = job.processed;
+		document.getElementById("import-inserted").textContent = job.inserted;
+		document.getElementById("import-updated").textContent = job.updated;
+		document.getElementById("import-failed").textContent = job.failed;
+		document.getElementById("import-rate").textContent = job.rowsPerSecond;
+		document.getElementById("import-elapsed").textContent = (job.elapsedMillis / 1000).toFixed(1);
+
+		if (job.message) {
+			const message = document.getElementById("import-message");
+			message.textContent = job.message;
+			message.classList.remove("d-none");
+		}
+
+		// Errors are only appended, so only the new ones are added
+		const table = document.getElementById("import-errors");
+		const body = table.querySelector("tbody");
+		for (const error of job.errors.slice(shownErrors)) {
+			const row = body.insertRow();
+			row.insertCell().textContent = error.row;
+			row.insertCell().textContent = error.message;
+		}
+		shownErrors = job.errors.length;
+		if (shownErrors > 0) {
+			table.classList.remove("d-none");
+			document.getElementById("import-no-errors").classList.add("d-none");
+		}
+
+		if (!job.finished)
+			setTimeout(update, 1000);
+	};
+
+	update();
+});
@@ -1,15 +1,38 @@
+function bulkUpdateActions(table) {
+	let fields = table.dataset.bulkfields;
+	if (table.dataset.editenabled !== "true" || !fields) return '';
+	
+	let options = fields.split(',').map(f => `<option value="${f}">${f}</option>`).join('');
+	return `<select name="field" form="multi-delete-form" class="form-select d-inline-block w-auto ms-2">${options}</select>
+		<input type="text" name="value" form="multi-delete-form" placeholder="New value"
+			class="form-control d-inline-block w-auto">
+		<input type="submit" form="multi-delete-form" data-action="update"
+			formaction="${table.dataset.bulkupdateurl}" class="ui-btn btn btn-secondary" value="Update">`;
+}
+
 function updateBulkActions(table, selected) {
 	let deleteEnabled = table.dataset.deleteenabled;
 	
 	let divs = document.querySelectorAll(".bulk-actions");
-	divs.forEach(div => {
+	divs.forEach((div, i) => {
+		// Only update the counter once rendered, to keep the bulk update inputs
+		let counter = div.querySelector(".selected-count");
+		if (counter != null) {
+			counter.innerText = selected;
+			return;
+		}
+		
+		// The bulk update inputs are only rendered once, as they are all submitted with the form
+		let updateActions = i == 0 ? bulkUpdateActions(table) : '';
 		if (deleteEnabled === "true") {
-			div.innerHTML = `${selected} items selected 
+			div.innerHTML = `<span class="selected-count">${selected}</span> items selected 
 				<input type="submit" form="multi-delete-form" 
-					class="ui-btn btn btn-secondary ${deleteEnabled === "false" ? 'disable' : ''} " value="Delete">`;
+					class="ui-btn btn btn-secondary ${deleteEnabled === "false" ? 'disable' : ''} " value="Delete">`
+				+ updateActions;
 		} else {
 			
-			div.innerHTML = `<p class=" badge bg-secondary text-white m-0 mt-2">DELETE not allowed on this table</p>`;
+			div.innerHTML = `<p class=" badge bg-secondary text-white m-0 mt-2">DELETE not allowed on this table</p>`
+				+ updateActions;
 		}
 	});
 }
@@ -25,6 +48,15 @@ document.addEventListener("DOMContentLoaded", () => {
 		});
 	});
 
+	document.querySelectorAll(".bulk-update-all-form").forEach(form => {
+		form.addEventListener('submit', function(e) {
+			let count = (form.dataset.estimated === 'true' ? 'about ' : '') + form.dataset.count;
+			if (!confirm(`Are you sure you want to update ${count} items matching the current search?`)) {
+				e.preventDefault();
+			}
+		});
+	});
+
 	if (document.getElementById('multi-delete-form') != null) {
 		document.getElementById('multi-delete-form').addEventListener('submit', function(e) {
 			if (selected == 0) {
@@ -33,7 +65,9 @@ document.addEventListener("DOMContentLoaded", () => {
 				return;
 			}
 			
-			if (!confirm('Are you sure you want to delete these items?')) {
+			let updating = e.submitter != null && e.submitter.dataset.action === 'update';
+			if (!confirm(updating ? 'Are you sure you want to update these items?' 
+					: 'Are you sure you want to delete these items?')) {
 				e.preventDefault();
 			}
 		});
@@ -121,35 +121,92 @@ document.addEventListener('DOMContentLoaded', function () {
     }
 });
 
+// Number of sibling nodes requested at a time
+const TREE_PAGE_SIZE = 100;
+
 async function loadRoots(entityClass, container, baseUrl) {
     try {
-        const response = await fetch(`/${baseUrl}/api/tree/roots/${entityClass}`);
-        const roots = await response.json();
+        const url = `/${baseUrl}/api/tree/roots/${entityClass}`;
+        const page = await fetchPage(url);
 
         container.innerHTML = ''; // Clear loading spinner
 
-        if (roots.length === 0) {
+        if (page.nodes.length === 0) {
             container.innerHTML = '<div class="text-muted text-center">No items found.</div>';
             return;
         }
 
-        renderNodes(roots, container, baseUrl);
+        renderNodes(page, url, container, baseUrl);
     } catch (error) {
         console.error('Error loading roots:', error);
         container.innerHTML = '<div class="text-danger">Error loading hierarchy.</div>';
     }
 }
 
-function renderNodes(nodes, container, baseUrl) {
+async function fetchPage(url, cursor) {
+    const params = new URLSearchParams({ size: TREE_PAGE_SIZE });
+    if (cursor) params.set('cursor', cursor);
+
+    const response = await fetch(`${url}?${params}`);
+    if (!response.ok) throw new Error(`HTTP ${response.status}`);
+    return await response.json();
+}
+
+function renderNodes(page, url, container, baseUrl) {
     const ul = document.createElement('ul');
     ul.className = 'tree-list';
+    container.appendChild(ul);
+
+    appendPage(ul, page, url, baseUrl);
+}
+
+// Appends a page of siblings to the list. If there are more siblings, the next
+// page is loaded once the placeholder at the end of the list scrolls into view,
+// so only the visible part of long sibling lists is fetched and rendered.
+function appendPage(ul, page, url, baseUrl) {
+    ul.loadMore = null;
+    page.nodes.forEach(node => ul.appendChild(createNodeElement(node, baseUrl)));
+
+    if (!page.nextCursor) return;
 
-    nodes.forEach(node => {
-        const li = createNodeElement(node, baseUrl);
-        ul.appendChild(li);
+    const placeholder = document.createElement('li');
+    placeholder.className = 'tree-load-more text-muted small fst-italic py-1';
+    placeholder.textContent = 'Loading more...';
+    ul.appendChild(placeholder);
+
+    let loading = null;
+    const observer = new IntersectionObserver(entries => {
+        if (entries.some(entry => entry.isIntersecting)) ul.loadMore();
     });
 
-    container.appendChild(ul);
+    ul.loadMore = () => {
+        if (!loading) {
+            observer.disconnect();
+            loading = fetchPage(url, page.nextCursor)
+                .then(next => {
+                    placeholder.remove();
+                    appendPage(ul, next, url, baseUrl);
+                })
+                .catch(error => {
+                    console.error('Error loading nodes:', error);
+                    placeholder.textContent = 'Error loading more items.';
+                    ul.loadMore = null;
+                });
+        }
+        return loading;
+    };
+
+    observer.observe(placeholder);
+}
+
+// Finds a node among the siblings of a list, loading the next pages until it shows up
+async function findNode(ul, id) {
+    while (ul) {
+        const li = ul.querySelector(`:scope > li.tree-node-wrapper[data-id="${id}"]`);
+        if (li || !ul.loadMore) return li;
+        await ul.loadMore();
+    }
+    return null;
 }
 
 function createNodeElement(node, baseUrl) {
@@ -232,7 +289,8 @@ async function toggleNode(node, li, toggleBtn, baseUrl) {
         icon.innerHTML = ''; // Remove chevron
 
         try {
-            const children = await fetchChildren(node, baseUrl);
+            const url = childrenUrl(node, baseUrl);
+            const page = url ? await fetchPage(url) : { nodes: [] };
 
             // Restore icon
             icon.className = 'bi bi-chevron-down text-muted';
@@ -240,10 +298,10 @@ async function toggleNode(node, li, toggleBtn, baseUrl) {
             childContainer = document.createElement('div');
             childContainer.className = 'tree-children ms-4';
 
-            if (children.length === 0) {
+            if (page.nodes.length === 0) {
                 childContainer.innerHTML = '<div class="text-muted small fst-italic py-1">No children</div>';
             } else {
-                renderNodes(children, childContainer, baseUrl);
+                renderNodes(page, url, childContainer, baseUrl);
             }
 
             li.appendChild(childContainer);
@@ -254,10 +312,9 @@ async function toggleNode(node, li, toggleBtn, baseUrl) {
     }
 }
 
-async function fetchChildren(node, baseUrl) {
-    if (!node.childField) return [];
-    const response = await fetch(`/${baseUrl}/api/tree/children/${node.type}/${node.id}/${node.childField}`);
-    return await response.json();
+function childrenUrl(node, baseUrl) {
+    if (!node.childField) return null;
+    return `/${baseUrl}/api/tree/children/${node.type}/${node.id}/${node.childField}`;
 }
 
 function openEntity(node, baseUrl) {
@@ -307,7 +364,7 @@ async function highlightPath(path, baseUrl) {
 
     // 1. Find root node
     const rootId = path[0];
-    let currentNode = document.querySelector(`li.tree-node-wrapper[data-id="${rootId}"]`);
+    let currentNode = await findNode(document.querySelector('#tree-container > .tree-list'), rootId);
 
     if (!currentNode) {
         console.error("Root node not found", rootId);
@@ -343,7 +400,7 @@ async function highlightPath(path, baseUrl) {
         }
 
         // Find next node
-        const nextNode = li.querySelector(`li.tree-node-wrapper[data-id="${nextId}"]`);
+        const nextNode = await findNode(li.querySelector(':scope > .tree-children > .tree-list'), nextId);
         if (!nextNode) {
             console.error("Next node not found in path", nextId);
             return;
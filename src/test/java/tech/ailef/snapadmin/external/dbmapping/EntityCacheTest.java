@@ -0,0 +1,187 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.SnapAdminProperties;
+import tech.ailef.snapadmin.external.metrics.SnapAdminMetrics;
+import tech.ailef.snapadmin.testapp.TestApplication;
+import tech.ailef.snapadmin.testapp.model.Author;
+import tech.ailef.snapadmin.testapp.model.Book;
+
+@SpringBootTest(classes = TestApplication.class, properties = {
+	"snapadmin.enabled=true",
+	"snapadmin.testMode=true",
+	"snapadmin.baseUrl=admin",
+	"snapadmin.modelsPackage=tech.ailef.snapadmin.testapp.model",
+	"spring.datasource.url=jdbc:h2:mem:entitycache;DB_CLOSE_DELAY=-1",
+	"spring.jpa.hibernate.ddl-auto=create",
+	"spring.jpa.open-in-view=false"
+})
+class EntityCacheTest {
+	@Autowired
+	private SnapAdmin snapAdmin;
+	
+	@Autowired
+	private EntityManager entityManager;
+	
+	@Autowired
+	private SnapAdminMetrics metrics;
+	
+	@Autowired
+	@Qualifier("transactionTemplate")
+	private TransactionTemplate transactionTemplate;
+	
+	private DbObjectSchema authors;
+	
+	private DbObjectSchema books;
+	
+	private List<Long> authorIds;
+	
+	@BeforeEach
+	void setUp() {
+		authors = snapAdmin.findSchemaByClass(Author.class);
+		books = snapAdmin.findSchemaByClass(Book.class);
+		authorIds = entityManager.createQuery("SELECT a.id FROM Author a ORDER BY a.id", Long.class).getResultList();
+	}
+	
+	@Test
+	void itemLoadedBeforeAChangeIsNotCached() {
+		EntityCache cache = cache(10, 64);
+		Long id = authorIds.get(1);
+		
+		// The item is changed while it's being loaded
+		get(cache, authors, id, () -> {
+			Optional<DbObject> object = load(authors, id);
+			cache.evict(authors, id);
+			return object;
+		});
+		assertEquals(0, cache.size());
+		
+		get(cache, authors, id);
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	void leastRecentlyUsedItemsAreEvictedBeyondMaxSize() {
+		EntityCache cache = cache(1, 64);
+		
+		get(cache, authors, authorIds.get(1));
+		get(cache, authors, authorIds.get(2));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictions());
+		
+		AtomicInteger loads = new AtomicInteger();
+		get(cache, authors, authorIds.get(2), () -> {
+			loads.incrementAndGet();
+			return load(authors, authorIds.get(2));
+		});
+		assertEquals(0, loads.get());
+	}
+	
+	@Test
+	void leastRecentlyUsedItemsAreEvictedBeyondMaxMemory() {
+		// Each author takes more than half a megabyte with its biography
+		EntityCache cache = cache(10, 1);
+		
+		get(cache, authors, authorIds.get(1));
+		assertEquals(1, cache.size());
+		assertTrue(cache.getBytes() > cache.getMaxBytes() / 2);
+		
+		get(cache, authors, authorIds.get(2));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.getBytes() <= cache.getMaxBytes());
+		
+		AtomicInteger loads = new AtomicInteger();
+		get(cache, authors, authorIds.get(2), () -> {
+			loads.incrementAndGet();
+			return load(authors, authorIds.get(2));
+		});
+		assertEquals(0, loads.get());
+	}
+	
+	@Test
+	void changesRemoveTheItemsOfLinkedSchemas() {
+		EntityCache cache = cache(10, 64);
+		List<Long> bookIds = bookIds(authorIds.get(1));
+		
+		get(cache, authors, authorIds.get(1));
+		get(cache, books, bookIds.get(0));
+		get(cache, books, bookIds.get(1));
+		assertEquals(3, cache.size());
+		
+		// Authors show their books, so they are removed along with the changed book
+		cache.evict(books, bookIds.get(0));
+		assertEquals(1, cache.size());
+		
+		get(cache, authors, authorIds.get(1));
+		cache.invalidate(authors);
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	void itemsWithLargeCollectionsAreNotCached() {
+		EntityCache cache = cache(10, 64);
+		
+		DbObject first = get(cache, authors, authorIds.get(0)).orElseThrow();
+		assertEquals(0, cache.size());
+		assertFalse(entityManager.contains(first.getUnderlyingInstance()));
+		
+		DbObject second = get(cache, authors, authorIds.get(1)).orElseThrow();
+		assertEquals(1, cache.size());
+		// The collection shown by the detail page is readable once detached
+		assertEquals(TestApplication.BOOKS_PER_AUTHOR,
+			second.traverseMany(authors.getFieldByJavaName("books")).size());
+	}
+	
+	private EntityCache cache(int maxSize, int maxMegabytes) {
+		SnapAdminProperties properties = new SnapAdminProperties();
+		properties.setEntityCacheSize(maxSize);
+		properties.setEntityCacheMemory(maxMegabytes);
+		return new EntityCache(snapAdmin, entityManager, properties, metrics);
+	}
+	
+	private Optional<DbObject> get(EntityCache cache, DbObjectSchema schema, Object id) {
+		return get(cache, schema, id, () -> load(schema, id));
+	}
+	
+	private Optional<DbObject> get(EntityCache cache, DbObjectSchema schema, Object id, 
+			Supplier<Optional<DbObject>> loader) {
+		return transactionTemplate.execute(status -> cache.get(schema, id, loader));
+	}
+	
+	private Optional<DbObject> load(DbObjectSchema schema, Object id) {
+		return Optional.ofNullable(entityManager.find(schema.getJavaClass(), id))
+			.map(o -> new DbObject(o, schema));
+	}
+	
+	private List<Long> bookIds(Long authorId) {
+		return entityManager.createQuery("SELECT b.id FROM Book b WHERE b.author.id = :id ORDER BY b.id", Long.class)
+			.setParameter("id", authorId)
+			.getResultList();
+	}
+}
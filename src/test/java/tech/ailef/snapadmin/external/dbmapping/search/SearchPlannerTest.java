@@ -0,0 +1,166 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.external.dbmapping.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdmin;
+import tech.ailef.snapadmin.external.dbmapping.CustomJpaRepository;
+import tech.ailef.snapadmin.external.dbmapping.DbObjectSchema;
+import tech.ailef.snapadmin.external.dto.CompareOperator;
+import tech.ailef.snapadmin.external.dto.QueryFilter;
+import tech.ailef.snapadmin.testapp.TestApplication;
+import tech.ailef.snapadmin.testapp.model.Author;
+import tech.ailef.snapadmin.testapp.model.Book;
+
+@SpringBootTest(classes = TestApplication.class, properties = {
+	"snapadmin.enabled=true",
+	"snapadmin.testMode=true",
+	"snapadmin.baseUrl=admin",
+	"snapadmin.modelsPackage=tech.ailef.snapadmin.testapp.model",
+	"snapadmin.searchBackend=LIKE",
+	"spring.datasource.url=jdbc:h2:mem:searchplanner;DB_CLOSE_DELAY=-1",
+	"spring.jpa.hibernate.ddl-auto=create",
+	"spring.jpa.open-in-view=false"
+})
+class SearchPlannerTest {
+	/**
+	 * Titles with the LIKE wildcards and escape character, each one
+	 * along with a title that only matches if they are not escaped
+	 */
+	private static final List<String> TITLES = List.of("50% off", "500 off", "snake_case", "snakeXcase", "wow!", "wow");
+	
+	/**
+	 * The title of the book without an author
+	 */
+	private static final String ORPHAN = "Orphan";
+	
+	@Autowired
+	private SnapAdmin snapAdmin;
+	
+	@Autowired
+	private EntityManager entityManager;
+	
+	@Autowired
+	private QueryTemplateCache templates;
+	
+	@Autowired
+	@Qualifier("transactionTemplate")
+	private TransactionTemplate transactionTemplate;
+	
+	private DbObjectSchema books;
+	
+	private List<Long> authorIds;
+	
+	@BeforeEach
+	void setUp() {
+		books = snapAdmin.findSchemaByClass(Book.class);
+		authorIds = entityManager.createQuery("SELECT a.id FROM Author a ORDER BY a.id", Long.class).getResultList();
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			if (!findTitles(ORPHAN).isEmpty())
+				return;
+			
+			for (String title : TITLES) {
+				Book book = new Book();
+				book.setTitle(title);
+				book.setAuthor(entityManager.getReference(Author.class, authorIds.get(1)));
+				entityManager.persist(book);
+			}
+			
+			Book orphan = new Book();
+			orphan.setTitle(ORPHAN);
+			entityManager.persist(orphan);
+		});
+	}
+	
+	@Test
+	void requestsWithTheSameShapeShareATemplate() {
+		CustomJpaRepository repository = books.getJpaRepository();
+		long misses = templates.getMisses();
+		long hits = templates.getHits();
+		
+		long first = repository.count(null, Set.of(filter("author", CompareOperator.EQ, authorIds.get(0)),
+			filter("title", CompareOperator.CONTAINS, "-1")));
+		long second = repository.count(null, Set.of(filter("author", CompareOperator.EQ, authorIds.get(2)),
+			filter("title", CompareOperator.CONTAINS, "-1")));
+		
+		assertEquals(misses + 1, templates.getMisses());
+		assertEquals(hits + 1, templates.getHits());
+		
+		// Book 0-1, Book 0-10 to Book 0-19 and Book 0-100
+		assertEquals(12, first);
+		// Book 2-1
+		assertEquals(1, second);
+	}
+	
+	@Test
+	void blankFiltersMatchNullValues() {
+		CustomJpaRepository repository = books.getJpaRepository();
+		Set<QueryFilter> blank = Set.of(filter("author", CompareOperator.EQ, ""));
+		Set<QueryFilter> value = Set.of(filter("author", CompareOperator.EQ, authorIds.get(0)));
+		
+		assertEquals(1, repository.count(null, blank));
+		assertEquals(TestApplication.BOOKS_OF_FIRST_AUTHOR, repository.count(null, value));
+		
+		assertTrue(repository.explainSearch(null, blank).contains("IS NULL"));
+		assertNotEquals(repository.explainSearch(null, blank), repository.explainSearch(null, value));
+	}
+	
+	@Test
+	void likeWildcardsAreMatchedLiterally() {
+		CustomJpaRepository repository = books.getJpaRepository();
+		
+		for (String value : List.of("50%", "e_c", "wow!")) {
+			List<Object> filtered = repository.search(null, Set.of(filter("title", CompareOperator.CONTAINS, value)));
+			assertEquals(1, filtered.size(), value);
+			assertTrue(((Book)filtered.get(0)).getTitle().contains(value), value);
+			
+			List<Object> searched = repository.search(value, null);
+			assertEquals(1, searched.size(), value);
+			assertTrue(((Book)searched.get(0)).getTitle().contains(value), value);
+		}
+	}
+	
+	@Test
+	void queryIsMatchedAgainstNumericPrimaryKey() {
+		CustomJpaRepository repository = books.getJpaRepository();
+		
+		// Not a valid primary key, only matched against the title
+		assertEquals(2, repository.count("wow", null));
+		assertEquals(0, repository.count("not a title", null));
+		
+		Long id = findTitles(ORPHAN).get(0);
+		List<Object> results = repository.search(id.toString(), null);
+		assertTrue(results.stream().anyMatch(b -> ((Book)b).getId().equals(id)));
+	}
+	
+	private QueryFilter filter(String field, CompareOperator op, Object value) {
+		return new QueryFilter(books.getFieldByJavaName(field), op, value.toString());
+	}
+	
+	private List<Long> findTitles(String title) {
+		return entityManager.createQuery("SELECT b.id FROM Book b WHERE b.title = :title", Long.class)
+			.setParameter("title", title)
+			.getResultList();
+	}
+}
@@ -0,0 +1,63 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.testapp;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import tech.ailef.snapadmin.external.SnapAdminAutoConfiguration;
+import tech.ailef.snapadmin.testapp.model.Author;
+import tech.ailef.snapadmin.testapp.model.Book;
+
+/**
+ * The application the integration tests run against: authors and their
+ * books on an in-memory H2 database. The first author has more books
+ * than the entity cache accepts in a collection.
+ */
+@SpringBootApplication
+@ImportAutoConfiguration(SnapAdminAutoConfiguration.class)
+public class TestApplication {
+	public static final int AUTHORS = 3;
+	
+	public static final int BOOKS_PER_AUTHOR = 2;
+	
+	public static final int BOOKS_OF_FIRST_AUTHOR = 101;
+	
+	/**
+	 * The length of the biography of each author, so that each one
+	 * takes more than half a megabyte in the entity cache
+	 */
+	public static final int BIO_LENGTH = 300_000;
+	
+	@Bean
+	CommandLineRunner seedData(EntityManager entityManager, 
+			@Qualifier("transactionTemplate") TransactionTemplate transactionTemplate) {
+		return args -> transactionTemplate.executeWithoutResult(status -> {
+			for (int a = 0; a < AUTHORS; a++) {
+				Author author = new Author();
+				author.setName("Author " + a);
+				author.setBio("x".repeat(BIO_LENGTH));
+				entityManager.persist(author);
+				
+				int books = a == 0 ? BOOKS_OF_FIRST_AUTHOR : BOOKS_PER_AUTHOR;
+				for (int b = 0; b < books; b++) {
+					Book book = new Book();
+					book.setTitle("Book " + a + "-" + b);
+					book.setAuthor(author);
+					entityManager.persist(book);
+				}
+			}
+		});
+	}
+}
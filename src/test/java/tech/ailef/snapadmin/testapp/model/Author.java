@@ -0,0 +1,68 @@
+/* 
+ * SnapAdmin - An automatically generated CRUD admin UI for Spring Boot apps
+ * Copyright (C) 2023 Ailef (http://ailef.tech)
+ * 
+
+ */
+
+
+package tech.ailef.snapadmin.testapp.model;
+
+import java.util.List;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.OneToMany;
+import tech.ailef.snapadmin.external.annotations.CachedEntity;
+import tech.ailef.snapadmin.external.annotations.DisplayName;
+
+@Entity
+@CachedEntity
+public class Author {
+	@Id
+	@GeneratedValue
+	private Long id;
+	
+	private String name;
+	
+	@Column(length = 1_000_000)
+	private String bio;
+	
+	@OneToMany(mappedBy = "author")
+	private List<Book> books;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	@DisplayName
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getBio() {
+		return bio;
+	}
+
+	public void setBio(String bio) {
+		this.bio = bio;
+	}
+
+	public List<Book> getBooks() {
+		return books;
+	}
+
+	public void setBooks(List<Book> books) {
+		this.books = books;
+	}
+}